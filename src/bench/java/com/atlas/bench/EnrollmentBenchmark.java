@@ -0,0 +1,97 @@
+package com.atlas.bench;
+
+import com.atlas.model.Course;
+import com.atlas.model.Student;
+import com.atlas.service.EnrollmentService;
+import com.atlas.testutil.InMemoryCourseDao;
+import com.atlas.testutil.InMemoryEnrollmentTransactionDao;
+import com.atlas.testutil.InMemoryLogDao;
+import com.atlas.testutil.InMemoryStudentDao;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * enroll/drop and waitlist promotion through EnrollmentService against the in-memory DAOs, so the numbers
+ * are service overhead (validation, copies, version retries, locking) without network time.
+ * The nested subclasses rerun the same benchmarks at 4 and 16 threads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(1)
+public class EnrollmentBenchmark {
+    static final int COURSES = 64;
+
+    @State(Scope.Benchmark)
+    public static class Shared {
+        @Param({"sequential", "transactional"})
+        public String mode;
+
+        InMemoryStudentDao studentDao;
+        InMemoryCourseDao courseDao;
+        EnrollmentService service;
+        final AtomicInteger threads = new AtomicInteger();
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            studentDao = new InMemoryStudentDao();
+            courseDao = new InMemoryCourseDao();
+            InMemoryLogDao logDao = new InMemoryLogDao();
+            service = new EnrollmentService(studentDao, courseDao, logDao,
+                    "transactional".equals(mode) ? new InMemoryEnrollmentTransactionDao(studentDao, courseDao, logDao) : null);
+            for (int i = 0; i < COURSES; i++) courseDao.putCourse(new Course("C" + i, "Course " + i, Integer.MAX_VALUE));
+        }
+    }
+
+    /** per thread: a student for enroll/drop, and a one-seat course with a holder and a waiting student */
+    @State(Scope.Thread)
+    public static class Mine {
+        String studentId;
+        String courseId;
+        String promotionCourse;
+        String holder;
+        String waiting;
+
+        @Setup(Level.Trial)
+        public void setUp(Shared shared) {
+            int n = shared.threads.getAndIncrement();
+            studentId = "B" + n;
+            courseId = "C" + (n % COURSES);
+            promotionCourse = "P" + n;
+            holder = "H" + n;
+            waiting = "W" + n;
+            for (String id : new String[]{studentId, holder, waiting}) {
+                shared.studentDao.save(new Student(id, id, id.toLowerCase() + "@example.com", "hash"));
+            }
+            shared.courseDao.putCourse(new Course(promotionCourse, "Promotion " + n, 1));
+            shared.service.enroll(holder, promotionCourse);
+            shared.service.enroll(waiting, promotionCourse); // course full: joins the waitlist
+        }
+    }
+
+    @Benchmark
+    public void enrollThenDrop(Shared shared, Mine mine) {
+        shared.service.enroll(mine.studentId, mine.courseId);
+        shared.service.drop(mine.studentId, mine.courseId);
+    }
+
+    /** the seat holder drops (the waiting student is promoted) and re-enrolls onto the waitlist; roles swap */
+    @Benchmark
+    public void dropWithPromotion(Shared shared, Mine mine) {
+        shared.service.drop(mine.holder, mine.promotionCourse);
+        shared.service.enroll(mine.holder, mine.promotionCourse);
+        String promoted = mine.waiting;
+        mine.waiting = mine.holder;
+        mine.holder = promoted;
+    }
+
+    @Threads(4)
+    public static class Threads4 extends EnrollmentBenchmark {}
+
+    @Threads(16)
+    public static class Threads16 extends EnrollmentBenchmark {}
+}
@@ -0,0 +1,61 @@
+package com.atlas.bench;
+
+import com.atlas.service.PasswordHasher;
+import com.atlas.service.StudentService;
+import com.atlas.testutil.InMemoryLogDao;
+import com.atlas.testutil.InMemoryStudentDao;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * register and login through StudentService, including BCrypt at the given cost (10 is the default BCRYPT_COST).
+ * The student store is emptied every iteration, so register does not slow down as the in-memory email lookup grows.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RegistrationBenchmark {
+
+    @Param({"4", "10"})
+    public int cost;
+
+    private PasswordHasher hasher;
+    private InMemoryStudentDao studentDao;
+    private StudentService service;
+    private final AtomicLong ids = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        hasher = new PasswordHasher(cost, cores, cores * 64);
+        studentDao = new InMemoryStudentDao();
+        service = new StudentService(studentDao, new InMemoryLogDao(), hasher);
+    }
+
+    @Setup(Level.Iteration)
+    public void resetStore() {
+        studentDao.clear();
+        service.register("BENCH", "Bench", "bench@example.com", "BenchPwd1");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        hasher.close();
+    }
+
+    @Benchmark
+    public void register() {
+        long n = ids.incrementAndGet();
+        service.register("R" + n, "Student " + n, "r" + n + "@example.com", "Secret" + n);
+    }
+
+    @Benchmark
+    public String login() {
+        return service.login("bench@example.com", "BenchPwd1");
+    }
+}
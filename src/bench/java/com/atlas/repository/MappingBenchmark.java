@@ -0,0 +1,79 @@
+package com.atlas.repository;
+
+import com.atlas.model.Course;
+import com.atlas.model.Student;
+import org.openjdk.jmh.annotations.*;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AttributeValue-to-model mapping used by the Dynamo DAOs' reads: a course item (DynamoCourseDao.getById),
+ * a student item (DynamoStudentDao.getById) and a roster of rosterSize Enrollments items read through the
+ * query paginator of a canned client, so no DynamoDB is involved.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MappingBenchmark {
+
+    @Param({"10", "1000", "10000"})
+    public int rosterSize;
+
+    private Map<String, AttributeValue> courseItem;
+    private Map<String, AttributeValue> studentItem;
+    private Enrollments enrollments;
+
+    @Setup
+    public void setUp() {
+        courseItem = new HashMap<>();
+        courseItem.put("courseId", s("C1"));
+        courseItem.put("courseName", s("Distributed Systems"));
+        courseItem.put("maxSeats", n(rosterSize));
+        courseItem.put("currentEnrolledCount", n(rosterSize));
+        courseItem.put("startDate", s("2026-01-10"));
+        courseItem.put("endDate", s("2026-05-30"));
+        courseItem.put("latestEnrollmentBy", s("2026-01-20"));
+        courseItem.put("version", n(rosterSize + 1));
+
+        Student student = new Student("S1", "Student One", "s1@example.com", "$2a$10$abcdefghijklmnopqrstuv");
+        for (int i = 0; i < 5; i++) student.getEnrolledCourseIds().add("C" + i);
+        for (int i = 0; i < 3; i++) student.getWaitlistedCourseIds().add("W" + i);
+        studentItem = DynamoStudentDao.toItem(student);
+        studentItem.put("version", n(42));
+
+        List<Map<String, AttributeValue>> roster = new ArrayList<>(rosterSize);
+        for (int i = 0; i < rosterSize; i++) roster.add(Enrollments.key("C1", "S" + i));
+        QueryResponse page = QueryResponse.builder().items(roster).count(rosterSize).build();
+        enrollments = new Enrollments(new DynamoDbClient() {
+            @Override public QueryResponse query(QueryRequest request) { return page; }
+            @Override public String serviceName() { return "dynamodb"; }
+            @Override public void close() {}
+        });
+    }
+
+    @Benchmark
+    public Course course() {
+        return DynamoCourseDao.toCourse(courseItem);
+    }
+
+    @Benchmark
+    public Student student() {
+        return DynamoStudentDao.toStudent(studentItem);
+    }
+
+    @Benchmark
+    public List<String> roster() {
+        return enrollments.roster("C1");
+    }
+
+    private static AttributeValue s(String v) { return AttributeValue.builder().s(v).build(); }
+    private static AttributeValue n(long v) { return AttributeValue.builder().n(Long.toString(v)).build(); }
+}
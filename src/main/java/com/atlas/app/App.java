@@ -1,15 +1,41 @@
 package com.atlas.app;
 
 
+import com.atlas.dao.LogDao;
+import com.atlas.model.BulkEnrollmentResult;
 import com.atlas.model.Course;
+import com.atlas.model.EnrollmentPair;
+import com.atlas.service.BulkEnrollmentFormats;
+import com.atlas.service.BulkEnrollmentService;
 import com.atlas.service.CourseService;
 import com.atlas.service.EnrollmentService;
 import com.atlas.service.SessionStore;
+import com.atlas.service.SignedTokenSessionStore;
+import com.atlas.service.StudentImportService;
 import com.atlas.service.StudentService;
 import com.atlas.repository.DynamoStudentDao;
 import com.atlas.repository.DynamoCourseDao;
 import com.atlas.repository.DynamoLogDao;
+import com.atlas.repository.AsyncBatchingLogDao;
+import com.atlas.repository.CachingCourseDao;
+import com.atlas.repository.DynamoEnrollmentTransactionDao;
+import com.atlas.repository.CachingSessionDao;
+import com.atlas.repository.DynamoDBClientUtil;
+import com.atlas.repository.DynamoSchema;
+import com.atlas.repository.DynamoSessionDao;
+import com.atlas.util.Env;
+import com.atlas.util.RequestTrace;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Scanner;
 
@@ -18,11 +44,53 @@ public class App {
         // explicit wiring (composition root)
         DynamoStudentDao studentDaoImpl = new DynamoStudentDao();
         DynamoCourseDao courseDaoImpl = new DynamoCourseDao();
-        DynamoLogDao logDaoImpl = new DynamoLogDao();
+        // audit writes are queued and batch-flushed in the background unless LOG_MODE=sync
+        LogDao logDaoImpl = "sync".equalsIgnoreCase(System.getenv("LOG_MODE")) ? new DynamoLogDao() : new AsyncBatchingLogDao();
+        CachingCourseDao cachedCourseDao = new CachingCourseDao(courseDaoImpl);
 
         StudentService studentService = new StudentService(studentDaoImpl, logDaoImpl);
-        CourseService courseService = new CourseService(courseDaoImpl);
-        EnrollmentService enrollmentService = new EnrollmentService(studentDaoImpl, courseDaoImpl, logDaoImpl);
+        CourseService courseService = new CourseService(cachedCourseDao);
+        // ENROLLMENT_MODE=sequential keeps the old one-write-per-step path for comparison
+        EnrollmentService enrollmentService = new EnrollmentService(studentDaoImpl, cachedCourseDao, logDaoImpl,
+                "sequential".equalsIgnoreCase(System.getenv("ENROLLMENT_MODE")) ? null : new DynamoEnrollmentTransactionDao());
+
+        // rosters and waitlists live in their own tables; lists left on course items by older installs are moved
+        // there once with com.atlas.tools.MigrateLegacyLists (a full scan, so not on every startup)
+        DynamoSchema.ensureEnrollmentsTable(DynamoDBClientUtil.client());
+        DynamoSchema.ensureWaitlistTable(DynamoDBClientUtil.client());
+
+        // SEAT_SHARDS=COURSE1:8,COURSE2:4 moves hot courses to sharded seat counters (one-way, idempotent)
+        String seatShardSpec = Env.get("SEAT_SHARDS", "");
+        if (!seatShardSpec.isEmpty()) {
+            DynamoSchema.ensureSeatShardsTable(DynamoDBClientUtil.client());
+            for (String entry : seatShardSpec.split(",")) {
+                String[] kv = entry.trim().split(":");
+                if (courseDaoImpl.enableSeatShards(kv[0].trim(), Integer.parseInt(kv[1].trim()))) cachedCourseDao.evict(kv[0].trim());
+            }
+        }
+
+        // SESSION_BACKEND: memory (default), dynamo (shared Sessions table + per-node near cache),
+        // signed (stateless HMAC tokens, keys from SESSION_SIGNING_KEYS)
+        String sessionBackend = Env.get("SESSION_BACKEND", "memory");
+        if ("dynamo".equalsIgnoreCase(sessionBackend)) {
+            DynamoSchema.ensureSessionsTable(DynamoDBClientUtil.client());
+            SessionStore.use(new CachingSessionDao(new DynamoSessionDao()));
+        } else if ("signed".equalsIgnoreCase(sessionBackend)) {
+            SessionStore.use(SignedTokenSessionStore.fromEnv());
+        }
+
+        // App bulk-enroll <pairs.csv|pairs.json> [report.csv]: registrar import, then exit
+        if (args.length > 0 && "bulk-enroll".equals(args[0])) {
+            bulkEnroll(args, new BulkEnrollmentService(studentDaoImpl, cachedCourseDao, logDaoImpl));
+            DynamoDBClientUtil.closeClient();
+            return;
+        }
+        // App import-students <students.csv>: onboard an intake (studentId,name,email,password per line), then exit
+        if (args.length > 0 && "import-students".equals(args[0])) {
+            importStudents(args, new StudentImportService(studentDaoImpl, logDaoImpl));
+            DynamoDBClientUtil.closeClient();
+            return;
+        }
 
         System.out.println("=== Welcome to Atlas Academy 🎓 ===");
         System.out.println("=== Student Course Registration System ===");
@@ -40,7 +108,7 @@ public class App {
                     if (token != null) studentMenu(sc, token, studentService, courseService, enrollmentService);
                 } else if ("3".equals(ch)) {
                     // show available courses to unauthenticated user
-                    List<Course> courses = courseService.list();
+                    List<Course> courses = RequestTrace.trace("cli courses", courseService::list);
                     if (courses == null || courses.isEmpty()) {
                         System.out.println("No courses available at the moment.");
                     } else {
@@ -60,36 +128,75 @@ public class App {
         }
     }
 
+    private static void bulkEnroll(String[] args, BulkEnrollmentService bulkEnrollmentService) {
+        if (args.length < 2) {
+            System.out.println("Usage: bulk-enroll <pairs.csv|pairs.json> [report.csv]");
+            return;
+        }
+        Path input = Path.of(args[1]);
+        try (InputStream in = Files.newInputStream(input)) {
+            Iterator<EnrollmentPair> pairs = input.toString().toLowerCase().endsWith(".json")
+                    ? BulkEnrollmentFormats.json(in)
+                    : BulkEnrollmentFormats.csv(new InputStreamReader(in, StandardCharsets.UTF_8));
+            List<BulkEnrollmentResult> results = bulkEnrollmentService.enroll(pairs);
+            System.out.println("Bulk enrollment: " + results.size() + " rows " + BulkEnrollmentService.summary(results));
+            if (args.length > 2) {
+                try (Writer out = Files.newBufferedWriter(Path.of(args[2]), StandardCharsets.UTF_8)) {
+                    BulkEnrollmentFormats.writeCsv(results, out);
+                }
+                System.out.println("Report written to " + args[2]);
+            } else {
+                BulkEnrollmentFormats.writeCsv(results, new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+            }
+        } catch (IOException | IllegalArgumentException ex) {
+            System.out.println("Error: " + ex.getMessage());
+        }
+    }
+
+    private static void importStudents(String[] args, StudentImportService importService) {
+        if (args.length < 2) {
+            System.out.println("Usage: import-students <students.csv>");
+            return;
+        }
+        long started = System.nanoTime();
+        try (Reader in = Files.newBufferedReader(Path.of(args[1]), StandardCharsets.UTF_8)) {
+            StudentImportService.Report report = importService.importCsv(in,
+                    r -> System.out.printf("... %s (%ds)%n", r, (System.nanoTime() - started) / 1_000_000_000L));
+            report.getProblems().forEach(p -> System.out.println("  " + p));
+            System.out.println("Student import done: " + report);
+        } catch (IOException ex) {
+            System.out.println("Error: " + ex.getMessage());
+        }
+    }
 
     private static void doSignup(Scanner sc, StudentService studentService) {
         System.out.print("StudentId: "); String id = sc.nextLine().trim();
         System.out.print("Name: "); String name = sc.nextLine().trim();
         System.out.print("Email: "); String email = sc.nextLine().trim();
         System.out.print("Password: "); String pwd = sc.nextLine().trim();
-        studentService.register(id, name, email, pwd);
+        RequestTrace.trace("cli signup", () -> studentService.register(id, name, email, pwd));
         System.out.println("Account created successfully. You may now log in to continue.");
     }
 
     private static String doLogin(Scanner sc, StudentService studentService) {
         System.out.print("Email: "); String email = sc.nextLine().trim();
         System.out.print("Password: "); String pwd = sc.nextLine().trim();
-        String token = studentService.login(email, pwd);
+        String token = RequestTrace.trace("cli login", () -> studentService.login(email, pwd));
         System.out.println("Login successful — welcome back!");
         return token;
     }
 
     private static void studentMenu(Scanner sc, String token, StudentService studentService, CourseService courseService, EnrollmentService enrollmentService) {
         // Check token validity (enforces expiry)
-        if (!SessionStore.isValid(token)) {
+        String studentId = SessionStore.validateAndGetStudentId(token);
+        if (studentId == null) {
             System.out.println("Session invalid or expired. Please login again.");
             return;
         }
-        String studentId = SessionStore.getStudentId(token);
-        if (studentId == null) { System.out.println("Session invalid."); return; }
         while (true) {
 
             // enforce expiry before each interaction
-            if (!SessionStore.isValid(token)) {
+            if (SessionStore.validateAndGetStudentId(token) == null) {
                 System.out.println("Session expired. Please login again.");
                 return;
             }
@@ -99,18 +206,20 @@ public class App {
             String ch = sc.nextLine().trim();
             try {
                 if ("1".equals(ch)) {
-                    List<Course> courses = courseService.list();
+                    List<Course> courses = RequestTrace.trace("cli courses", courseService::list);
                     courses.forEach(System.out::println);
                 } else if ("2".equals(ch)) {
-                    String profileText = studentService.profile(studentId);
+                    String profileText = RequestTrace.trace("cli profile", () -> studentService.profile(studentId));
                     System.out.println(profileText);
+                    RequestTrace.trace("cli profile", () -> enrollmentService.waitlistPositions(studentId))
+                            .forEach((courseId, position) -> System.out.println("Waitlist position for " + courseId + ": #" + position));
                 } else if ("3".equals(ch)) {
                     System.out.print("CourseId: "); String cid = sc.nextLine().trim();
-                    enrollmentService.enroll(studentId, cid);
+                    RequestTrace.trace("cli enroll", () -> enrollmentService.enroll(studentId, cid));
                     System.out.println("Enroll attempt processed. Please view your profile details to check the updated status.");
                 } else if ("4".equals(ch)) {
                     System.out.print("CourseId: "); String cid = sc.nextLine().trim();
-                    enrollmentService.drop(studentId, cid);
+                    RequestTrace.trace("cli drop", () -> enrollmentService.drop(studentId, cid));
                     System.out.println("Drop processed. Please view your profile details to check the updated status.");
                 } else if ("5".equals(ch)) {
                     SessionStore.invalidate(token);
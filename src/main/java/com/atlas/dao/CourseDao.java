@@ -1,23 +1,93 @@
 package com.atlas.dao;
 
+import com.atlas.exception.AlreadyEnrolledException;
 import com.atlas.model.Course;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public interface CourseDao {
     Course getById(String courseId);
     List<Course> listAll();
 
     /**
-     * Atomically attempts to enroll studentId in courseId if currentEnrolledCount < maxSeats.
+     * Reads the course bypassing any caching layer in front of the DAO.
+     * Use this for reads that must see the latest seat counts (e.g. right after a seat was freed).
+     */
+    default Course getByIdFresh(String courseId) { return getById(courseId); }
+
+    /**
+     * Drops any cached copy of the course after it was changed behind this DAO's back
+     * (e.g. by a multi-table transaction). No-op for uncached DAOs.
+     */
+    default void evict(String courseId) {}
+
+    /**
+     * Loads several courses in as few round trips as possible.
+     * Returns a map keyed by courseId; ids that do not exist are absent.
+     */
+    Map<String, Course> getByIds(Collection<String> courseIds);
+
+    /**
+     * Atomically takes a seat in courseId if currentEnrolledCount < maxSeats and records the enrollment.
      * Returns true if succeeded, false if condition failed (course full).
+     * Throws AlreadyEnrolledException if the student already holds a seat.
      */
     boolean enrollStudentAtomic(String courseId, String studentId, int maxSeats);
 
-    void addToWaitlist(String courseId, String studentId);
-    void replaceWaitlist(String courseId, List<String> newWaitlist);
+    /**
+     * Takes seats for several students of one course, in list order while seats last, in as few writes as
+     * the store allows. Returns true per student that got a seat and false per student that found the course
+     * full; students already holding a seat are left out of the map. Stores with multi-item writes should
+     * override this; the default takes the seats one by one.
+     */
+    default Map<String, Boolean> enrollStudentsAtomic(String courseId, List<String> studentIds, int maxSeats) {
+        Map<String, Boolean> out = new LinkedHashMap<>();
+        for (String studentId : studentIds) {
+            if (out.containsKey(studentId)) continue;
+            try {
+                out.put(studentId, enrollStudentAtomic(courseId, studentId, maxSeats));
+            } catch (AlreadyEnrolledException ex) {
+                // left out: the caller reports it
+            }
+        }
+        return out;
+    }
 
     /**
-     * Replace enrolledIds list and currentEnrolledCount for course (targeted update).
+     * Bulk-import variant of enrollStudentsAtomic (same result map and guarantees): stores that can should
+     * skip the students already on the roster up front and seat the rest in as few writes as they allow.
+     * The default is enrollStudentsAtomic.
      */
-    void replaceEnrolled(String courseId, List<String> newEnrolledIds, int newCount);
+    default Map<String, Boolean> bulkEnroll(String courseId, List<String> studentIds, int maxSeats) {
+        return enrollStudentsAtomic(courseId, studentIds, maxSeats);
+    }
+
+    /**
+     * Atomically removes the student's enrollment and frees the seat.
+     * Returns false if the student holds no seat in the course.
+     */
+    boolean dropStudentAtomic(String courseId, String studentId);
+
+    /** Enrolled student ids; rosters are kept apart from the course item, which only holds the counters. */
+    List<String> roster(String courseId);
+
+    /** Ids of the courses the student holds a seat in. */
+    List<String> coursesOf(String studentId);
+
+    /**
+     * Waitlists are kept apart from the course (Course carries no waitlist), one entry per waiting student:
+     * joining appends at the tail, removing deletes only that student's entry.
+     */
+    void addToWaitlist(String courseId, String studentId);
+
+    /** Returns false if the student was not on the waitlist. */
+    boolean removeFromWaitlist(String courseId, String studentId);
+
+    /** The first limit waiting students in queue order, without reading the rest of the waitlist. */
+    List<String> waitlistHead(String courseId, int limit);
+
+    /** 1-based place of the student on the waitlist, 0 if not waiting. */
+    int waitlistPosition(String courseId, String studentId);
 }
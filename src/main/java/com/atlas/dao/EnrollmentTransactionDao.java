@@ -0,0 +1,50 @@
+package com.atlas.dao;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Multi-item enrollment writes applied all-or-nothing (course roster + student record + audit log).
+ * Used by EnrollmentService in transactional mode; without it the service falls back to
+ * the sequential CourseDao/StudentDao/LogDao calls.
+ */
+public interface EnrollmentTransactionDao {
+
+    /**
+     * Takes a seat, appends the course to the student's enrollments and writes the ENROLL log record
+     * in one transaction.
+     * Returns true if enrolled, false if the course is full (nothing is written in that case).
+     * Throws AlreadyEnrolledException, StudentNotFoundException, CourseNotFoundException or
+     * IllegalStateException (enrollment limit) when the corresponding condition fails.
+     */
+    boolean enroll(String studentId, String courseId, int maxSeats, String logId);
+
+    /**
+     * enroll for several students of one course, in list order while seats last, in as few transactions as
+     * the store allows (one seat update for the group plus each student's record, roster and log items).
+     * Returns true per student enrolled and false per student who found the course full. Students whose own
+     * conditions fail (already enrolled or waitlisted, enrollment limit, no such student) are left out of the
+     * map; enroll them one by one for the reason. The default enrolls them one by one.
+     */
+    default Map<String, Boolean> enrollAll(String courseId, List<String> studentIds, int maxSeats) {
+        Map<String, Boolean> out = new LinkedHashMap<>();
+        for (String studentId : studentIds) {
+            if (out.containsKey(studentId)) continue;
+            try {
+                out.put(studentId, enroll(studentId, courseId, maxSeats, UUID.randomUUID().toString()));
+            } catch (RuntimeException ex) {
+                // left out: the caller enrolls it alone for the reason
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Frees the seat, removes the course from the student's enrollments and writes the DROP log record
+     * in one transaction.
+     * Returns true if dropped, false if the student is not currently enrolled in the course.
+     */
+    boolean drop(String studentId, String courseId, String logId);
+}
@@ -0,0 +1,26 @@
+package com.atlas.dao;
+
+import com.atlas.model.IdempotencyRecord;
+
+import java.time.Duration;
+
+/**
+ * Outcomes of enroll/drop requests by idempotency key, so a retried or double-submitted request
+ * is answered from the stored record instead of running again.
+ */
+public interface IdempotencyDao {
+    /**
+     * Reserves key for a request with the given fingerprint (stored as PENDING).
+     * Returns null if this call reserved it, else the record already stored under the key.
+     */
+    IdempotencyRecord claim(String key, String fingerprint);
+
+    /** stores the final outcome of a key reserved with claim */
+    void complete(String key, IdempotencyRecord outcome);
+
+    /** drops a PENDING reservation, so a retry of a request that failed for a transient reason runs again */
+    void release(String key);
+
+    /** how long a completed outcome is kept */
+    Duration getTtl();
+}
@@ -0,0 +1,24 @@
+package com.atlas.dao;
+
+import java.time.Duration;
+
+/**
+ * Storage for login sessions behind SessionStore (in-memory per node, or shared in DynamoDB).
+ */
+public interface SessionDao {
+    /** creates a session and returns its token */
+    String create(String studentId);
+
+    /**
+     * Student id for a valid token, null when unknown or expired.
+     * Implementations with sliding TTL renew the expiry here.
+     */
+    String validateAndGetStudentId(String token);
+
+    void invalidate(String token);
+
+    /** lifetime of a new (or renewed) session */
+    Duration getTtl();
+
+    boolean isSliding();
+}
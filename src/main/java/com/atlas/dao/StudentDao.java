@@ -1,11 +1,98 @@
 package com.atlas.dao;
 
+import com.atlas.exception.VersionConflictException;
 import com.atlas.model.Student;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public interface StudentDao {
+    /**
+     * Optimistic write of the whole student: succeeds only if the stored item is still at s.getVersion()
+     * (version 0: no item, or one written before versioning), then sets s's version to the new one.
+     * Throws VersionConflictException if another write got there first.
+     */
     void save(Student s);
     Student getById(String id);
+
+    /**
+     * Reads the student bypassing any caching or eventual consistency.
+     * Use this before a versioned save that retries a conflict, so the retry sees the winning write.
+     */
+    default Student getByIdFresh(String id) { return getById(id); }
     Student findByEmail(String email);
+
+    /**
+     * Loads several students in as few round trips as possible.
+     * Returns a map keyed by student id; ids that do not exist are absent.
+     */
+    Map<String, Student> getByIds(Collection<String> ids);
     List<Student> listAll();
+
+    /**
+     * Creates new students in as few round trips as possible (bulk onboarding). Each write is conditioned on
+     * the id being free, so an existing student is never overwritten; the written students get version 1.
+     * Returns the ids that were already taken (those students are not written).
+     * The default saves them one by one.
+     */
+    default Set<String> saveAllNew(List<Student> students) {
+        Set<String> taken = new HashSet<>();
+        for (Student s : students) {
+            try {
+                if (getByIdFresh(s.getId()) != null) taken.add(s.getId());
+                else save(s);
+            } catch (VersionConflictException ex) {
+                taken.add(s.getId());
+            }
+        }
+        return taken;
+    }
+
+    /**
+     * Replaces only the stored password hash (rehash on login), leaving the enrollment lists untouched.
+     * Implementations backed by a store with partial updates should override this.
+     */
+    default void updatePasswordHash(String id, String passwordHash) {
+        Student s = getById(id);
+        if (s == null) return;
+        s.setPasswordHash(passwordHash);
+        save(s);
+    }
+
+    /**
+     * Appends courseId to the student's enrolled list unless it is already there. Concurrent appends
+     * for other courses are not lost. Implementations backed by a store with partial updates should override this.
+     */
+    default void addEnrolledCourse(String id, String courseId) {
+        Student s = getByIdFresh(id);
+        if (s == null || s.getEnrolledCourseIds().contains(courseId)) return;
+        s.getEnrolledCourseIds().add(courseId);
+        save(s);
+    }
+
+    /**
+     * addEnrolledCourse for a seat already taken elsewhere (bulk imports): refuses, in the same write, when the
+     * student already has maxCourses enrolled, so a concurrent enroll cannot push them past the limit.
+     * Returns true if courseId is on the list afterwards, false if the limit refused it or there is no such student.
+     * Implementations backed by a store with conditional updates should override this.
+     */
+    default boolean addEnrolledCourse(String id, String courseId, int maxCourses) {
+        Student s = getByIdFresh(id);
+        if (s == null) return false;
+        if (s.getEnrolledCourseIds().contains(courseId)) return true;
+        if (s.getEnrolledCourseIds().size() >= maxCourses) return false;
+        s.getEnrolledCourseIds().add(courseId);
+        save(s);
+        return true;
+    }
+
+    /** Same as addEnrolledCourse, for the waitlisted list. */
+    default void addWaitlistedCourse(String id, String courseId) {
+        Student s = getByIdFresh(id);
+        if (s == null || s.getWaitlistedCourseIds().contains(courseId)) return;
+        s.getWaitlistedCourseIds().add(courseId);
+        save(s);
+    }
 }
@@ -0,0 +1,11 @@
+package com.atlas.exception;
+
+/**
+ * Thrown without calling DynamoDB while the circuit breaker of a table is open (the table kept throttling
+ * or failing); callers with a cached copy may serve that instead.
+ */
+public class CircuitOpenException extends ServiceBusyException {
+    public CircuitOpenException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,11 @@
+package com.atlas.exception;
+
+/**
+ * Thrown when a bounded resource (e.g. the password hashing pool) is saturated;
+ * the request was not processed and can be retried.
+ */
+public class ServiceBusyException extends RuntimeException {
+    public ServiceBusyException(String message) {
+        super(message);
+    }
+}
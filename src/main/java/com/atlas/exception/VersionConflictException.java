@@ -0,0 +1,11 @@
+package com.atlas.exception;
+
+/**
+ * Thrown when an optimistic write finds the stored item at a different version than the one it was
+ * read at: another flow changed it in between. Re-read and re-apply the change.
+ */
+public class VersionConflictException extends RuntimeException {
+    public VersionConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,29 @@
+package com.atlas.model;
+
+/**
+ * Outcome of one bulk enrollment row. message explains REJECTED and ERROR rows (and ENROLLED rows whose audit
+ * record could not be written), else it is null.
+ */
+public class BulkEnrollmentResult {
+    public enum Status { ENROLLED, ALREADY_ENROLLED, COURSE_FULL, REJECTED, ERROR }
+
+    private final int row;
+    private final String studentId;
+    private final String courseId;
+    private final Status status;
+    private final String message;
+
+    public BulkEnrollmentResult(EnrollmentPair pair, Status status, String message) {
+        this.row = pair.getRow();
+        this.studentId = pair.getStudentId();
+        this.courseId = pair.getCourseId();
+        this.status = status;
+        this.message = message;
+    }
+
+    public int getRow() { return row; }
+    public String getStudentId() { return studentId; }
+    public String getCourseId() { return courseId; }
+    public Status getStatus() { return status; }
+    public String getMessage() { return message; }
+}
@@ -1,7 +1,5 @@
 package com.atlas.model;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Objects;
 
 public class Course {
@@ -9,11 +7,11 @@ public class Course {
     private String courseName;
     private int maxSeats;
     private int currentEnrolledCount = 0;
-    private final List<String> enrolledIds = new ArrayList<>();
-    private final List<String> waitlistIds = new ArrayList<>();
     private String startDate;         // yyyy-MM-dd
     private String endDate;           // yyyy-MM-dd
     private String latestEnrollmentBy;// yyyy-MM-dd
+    private int seatShards = 0;       // > 0: seats are counted in that many shard items (hot courses)
+    private long version = 0;         // bumped by every write to the course item
 
     public Course() {}
 
@@ -28,14 +26,16 @@ public class Course {
     public int getMaxSeats() { return maxSeats; }
     public int getCurrentEnrolledCount() { return currentEnrolledCount; }
     public void setCurrentEnrolledCount(int currentEnrolledCount) { this.currentEnrolledCount = currentEnrolledCount; }
-    public List<String> getEnrolledIds() { return enrolledIds; }
-    public List<String> getWaitlistIds() { return waitlistIds; }
     public String getStartDate() { return startDate; }
     public void setStartDate(String startDate) { this.startDate = startDate; }
     public String getEndDate() { return endDate; }
     public void setEndDate(String endDate) { this.endDate = endDate; }
     public String getLatestEnrollmentBy() { return latestEnrollmentBy; }
     public void setLatestEnrollmentBy(String latestEnrollmentBy) { this.latestEnrollmentBy = latestEnrollmentBy; }
+    public int getSeatShards() { return seatShards; }
+    public void setSeatShards(int seatShards) { this.seatShards = seatShards; }
+    public long getVersion() { return version; }
+    public void setVersion(long version) { this.version = version; }
 
     /**
      * Display-friendly string used by CLI.
@@ -0,0 +1,22 @@
+package com.atlas.model;
+
+import java.util.Objects;
+
+/**
+ * One row of a bulk enrollment import: enroll studentId in courseId. row is the 1-based position in the input.
+ */
+public class EnrollmentPair {
+    private final int row;
+    private final String studentId;
+    private final String courseId;
+
+    public EnrollmentPair(int row, String studentId, String courseId) {
+        this.row = row;
+        this.studentId = Objects.requireNonNull(studentId);
+        this.courseId = Objects.requireNonNull(courseId);
+    }
+
+    public int getRow() { return row; }
+    public String getStudentId() { return studentId; }
+    public String getCourseId() { return courseId; }
+}
@@ -0,0 +1,29 @@
+package com.atlas.model;
+
+import java.util.Objects;
+
+/**
+ * What is stored under an idempotency key: the request it was used for (fingerprint, e.g. "ENROLL:C1")
+ * and how that request ended. PENDING while the first attempt is still running.
+ */
+public class IdempotencyRecord {
+    public enum Status { PENDING, SUCCEEDED, FAILED }
+
+    private final String fingerprint;
+    private final Status status;
+    private final String message; // failure message for FAILED, else null
+
+    public IdempotencyRecord(String fingerprint, Status status, String message) {
+        this.fingerprint = Objects.requireNonNull(fingerprint);
+        this.status = Objects.requireNonNull(status);
+        this.message = message;
+    }
+
+    public static IdempotencyRecord pending(String fingerprint) { return new IdempotencyRecord(fingerprint, Status.PENDING, null); }
+    public static IdempotencyRecord succeeded(String fingerprint) { return new IdempotencyRecord(fingerprint, Status.SUCCEEDED, null); }
+    public static IdempotencyRecord failed(String fingerprint, String message) { return new IdempotencyRecord(fingerprint, Status.FAILED, message); }
+
+    public String getFingerprint() { return fingerprint; }
+    public Status getStatus() { return status; }
+    public String getMessage() { return message; }
+}
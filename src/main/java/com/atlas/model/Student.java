@@ -11,6 +11,7 @@ public class Student {
     private String passwordHash;
     private final List<String> enrolledCourseIds = new ArrayList<>();
     private final List<String> waitlistedCourseIds = new ArrayList<>();
+    private long version = 0;         // stored item version for optimistic writes; 0 = not stored yet
 
     public Student() {}
 
@@ -29,6 +30,8 @@ public class Student {
     public void setPasswordHash(String passwordHash) { this.passwordHash = passwordHash; }
     public List<String> getEnrolledCourseIds() { return enrolledCourseIds; }
     public List<String> getWaitlistedCourseIds() { return waitlistedCourseIds; }
+    public long getVersion() { return version; }
+    public void setVersion(long version) { this.version = version; }
 
     @Override
     public String toString() {
@@ -0,0 +1,211 @@
+package com.atlas.repository;
+
+import com.atlas.dao.LogDao;
+import com.atlas.util.Env;
+import com.atlas.util.Metrics;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Non-blocking LogDao: append() only enqueues the record, a background flusher writes
+ * them to StudentLogs with BatchWriteItem (up to 25 items per call).
+ * - flushes when batchSize records are pending or flushIntervalMs passed since the first one
+ * - UnprocessedItems are retried with backoff; records still failing are counted and reported
+ * - when the bounded queue is full the OverflowPolicy decides what append() does
+ * - close() (also run from DynamoDBClientUtil.closeClient) drains the queue before returning
+ * Config (env): LOG_QUEUE_CAPACITY (10000), LOG_BATCH_SIZE (25), LOG_FLUSH_INTERVAL_MS (200),
+ * LOG_OVERFLOW_POLICY (CALLER_RUNS | BLOCK | DROP).
+ */
+public class AsyncBatchingLogDao implements LogDao, AutoCloseable {
+
+    public enum OverflowPolicy {
+        /** write the record synchronously on the calling thread */
+        CALLER_RUNS,
+        /** wait for queue space */
+        BLOCK,
+        /** discard the record and count it */
+        DROP
+    }
+
+    static final int MAX_BATCH_WRITE = 25;
+    private static final int MAX_ATTEMPTS = 8;
+    private static final long CLOSE_TIMEOUT_MS = 10_000;
+    private static final Metrics.Histogram FLUSH_TIME = Metrics.histogram("atlas_log_flush_seconds",
+            "Audit log batch write latency in seconds, retries included");
+
+    private final DynamoDbClient client;
+    private final String table = "StudentLogs";
+
+    private final BlockingQueue<Map<String, AttributeValue>> queue;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final OverflowPolicy overflowPolicy;
+    private final Thread flusher;
+    private volatile boolean running = true;
+
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong callerRuns = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong flushNanosTotal = new AtomicLong();
+    private final AtomicLong flushNanosMax = new AtomicLong();
+
+    public AsyncBatchingLogDao() {
+        this(Env.getInt("LOG_QUEUE_CAPACITY", 10_000), Env.getInt("LOG_BATCH_SIZE", MAX_BATCH_WRITE),
+                Env.getLong("LOG_FLUSH_INTERVAL_MS", 200),
+                OverflowPolicy.valueOf(Env.get("LOG_OVERFLOW_POLICY", "CALLER_RUNS").toUpperCase()));
+    }
+
+    public AsyncBatchingLogDao(int queueCapacity, int batchSize, long flushIntervalMs, OverflowPolicy overflowPolicy) {
+        this(DynamoDBClientUtil.client(), queueCapacity, batchSize, flushIntervalMs, overflowPolicy);
+        DynamoDBClientUtil.onClose(this::close);
+    }
+
+    /**
+     * On a given client (e.g. a fault-injecting one in tests); the caller closes this DAO before the client.
+     */
+    public AsyncBatchingLogDao(DynamoDbClient client, int queueCapacity, int batchSize, long flushIntervalMs,
+                               OverflowPolicy overflowPolicy) {
+        if (batchSize < 1 || batchSize > MAX_BATCH_WRITE) throw new IllegalArgumentException("batchSize must be 1.." + MAX_BATCH_WRITE);
+        this.client = client;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.overflowPolicy = overflowPolicy;
+        this.flusher = new Thread(this::runFlusher, "log-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    @Override
+    public void append(String logId, String studentId, String action, String courseId) {
+        // the item (and its timestamp) is built now, not when it is flushed
+        Map<String, AttributeValue> item = DynamoLogDao.toItem(logId, studentId, action, courseId);
+        if (running && queue.offer(item)) {
+            // close() may have stopped the flusher between the check and the offer
+            if (!running) drainQueued();
+            return;
+        }
+
+        if (!running || overflowPolicy == OverflowPolicy.CALLER_RUNS) {
+            callerRuns.incrementAndGet();
+            client.putItem(PutItemRequest.builder().tableName(table).item(item).build());
+            written.incrementAndGet();
+        } else if (overflowPolicy == OverflowPolicy.BLOCK) {
+            try {
+                queue.put(item);
+                if (!running) drainQueued();
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                dropped.incrementAndGet();
+            }
+        } else {
+            dropped.incrementAndGet();
+        }
+    }
+
+    private void runFlusher() {
+        List<Map<String, AttributeValue>> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Map<String, AttributeValue> first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+                while (batch.size() < batchSize) {
+                    long waitNanos = running ? deadline - System.nanoTime() : 0;
+                    Map<String, AttributeValue> next = waitNanos > 0 ? queue.poll(waitNanos, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) break;
+                    batch.add(next);
+                }
+            } catch (InterruptedException ie) {
+                // treat an interrupt as shutdown: stop waiting and drain what is queued
+                running = false;
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<Map<String, AttributeValue>> batch) {
+        long start = System.nanoTime();
+        List<WriteRequest> requests = new ArrayList<>(batch.size());
+        for (Map<String, AttributeValue> item : batch) {
+            requests.add(WriteRequest.builder().putRequest(PutRequest.builder().item(item).build()).build());
+        }
+        Map<String, List<WriteRequest>> pending = Map.of(table, requests);
+        try {
+            for (int attempt = 0; !pending.isEmpty(); attempt++) {
+                if (attempt >= MAX_ATTEMPTS) {
+                    int left = pending.getOrDefault(table, List.of()).size();
+                    failed.addAndGet(left);
+                    written.addAndGet(batch.size() - left);
+                    System.err.println("Audit log: " + left + " records unprocessed after " + MAX_ATTEMPTS + " attempts");
+                    return;
+                }
+                if (attempt > 0) BatchLoader.backoff(attempt);
+                BatchWriteItemResponse resp = client.batchWriteItem(BatchWriteItemRequest.builder().requestItems(pending).build());
+                pending = resp.hasUnprocessedItems() ? resp.unprocessedItems() : Map.of();
+            }
+            written.addAndGet(batch.size());
+        } catch (RuntimeException ex) {
+            failed.addAndGet(batch.size());
+            System.err.println("Audit log flush failed (" + batch.size() + " records): " + ex.getMessage());
+        } finally {
+            long took = System.nanoTime() - start;
+            flushes.incrementAndGet();
+            flushNanosTotal.addAndGet(took);
+            flushNanosMax.accumulateAndGet(took, Math::max);
+            FLUSH_TIME.observeNanos(took);
+        }
+    }
+
+    // writes what is queued on the calling thread; safe next to the flusher, each record is taken once
+    private void drainQueued() {
+        List<Map<String, AttributeValue>> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            flush(batch);
+            batch.clear();
+        }
+    }
+
+    /**
+     * Stops accepting queued records and waits (bounded) until everything already queued is written,
+     * then writes whatever was offered while the flusher was stopping. Later append() calls write synchronously.
+     */
+    @Override
+    public void close() {
+        if (!running) return;
+        running = false;
+        try {
+            flusher.join(CLOSE_TIMEOUT_MS);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+        if (flusher.isAlive()) {
+            System.err.println("Audit log: " + queue.size() + " records not flushed at shutdown");
+            return;
+        }
+        drainQueued();
+    }
+
+    public int getQueueDepth() { return queue.size(); }
+    public long getWritten() { return written.get(); }
+    public long getDropped() { return dropped.get(); }
+    public long getFailed() { return failed.get(); }
+    public long getCallerRuns() { return callerRuns.get(); }
+    public long getFlushCount() { return flushes.get(); }
+    public long getFlushNanosTotal() { return flushNanosTotal.get(); }
+    public long getFlushNanosMax() { return flushNanosMax.get(); }
+}
@@ -0,0 +1,70 @@
+package com.atlas.repository;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.*;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * BatchGetItem helper shared by the getByIds() implementations.
+ * Splits keys into chunks of 100 (the BatchGetItem limit), de-duplicates them,
+ * and re-requests UnprocessedKeys with exponential backoff.
+ */
+class BatchLoader {
+    static final int MAX_KEYS_PER_REQUEST = 100;
+    private static final int MAX_ATTEMPTS = 8;
+    private static final long BASE_BACKOFF_MS = 20;
+
+    private final DynamoDbClient client;
+    private final String table;
+    private final String keyAttribute;
+
+    BatchLoader(DynamoDbClient client, String table, String keyAttribute) {
+        this.client = client;
+        this.table = table;
+        this.keyAttribute = keyAttribute;
+    }
+
+    /**
+     * Loads all items whose key is in ids. Missing items are simply absent from the result.
+     */
+    <T> Map<String, T> load(Collection<String> ids, Function<Map<String, AttributeValue>, T> mapper) {
+        Map<String, T> out = new LinkedHashMap<>();
+        if (ids == null || ids.isEmpty()) return out;
+        List<String> distinct = new ArrayList<>(new LinkedHashSet<>(ids));
+
+        for (int from = 0; from < distinct.size(); from += MAX_KEYS_PER_REQUEST) {
+            List<Map<String, AttributeValue>> keys = new ArrayList<>();
+            for (String id : distinct.subList(from, Math.min(distinct.size(), from + MAX_KEYS_PER_REQUEST))) {
+                keys.add(Map.of(keyAttribute, AttributeValue.builder().s(id).build()));
+            }
+            Map<String, KeysAndAttributes> pending = Map.of(table, KeysAndAttributes.builder().keys(keys).build());
+
+            for (int attempt = 0; !pending.isEmpty(); attempt++) {
+                if (attempt >= MAX_ATTEMPTS) {
+                    throw new IllegalStateException("BatchGetItem on " + table + " left keys unprocessed after " + MAX_ATTEMPTS + " attempts");
+                }
+                if (attempt > 0) backoff(attempt);
+                BatchGetItemResponse resp = client.batchGetItem(BatchGetItemRequest.builder().requestItems(pending).build());
+                for (Map<String, AttributeValue> it : resp.responses().getOrDefault(table, List.of())) {
+                    T v = mapper.apply(it);
+                    if (v != null) out.put(it.get(keyAttribute).s(), v);
+                }
+                pending = resp.hasUnprocessedKeys() ? resp.unprocessedKeys() : Map.of();
+            }
+        }
+        return out;
+    }
+
+    static void backoff(int attempt) {
+        long cap = BASE_BACKOFF_MS << Math.min(attempt, 6);
+        try {
+            // full jitter so concurrent callers don't retry in lockstep
+            Thread.sleep((long) (Math.random() * cap));
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while retrying batch request", ie);
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.atlas.repository;
+
+import com.atlas.dao.CourseDao;
+import com.atlas.exception.ServiceBusyException;
+import com.atlas.model.Course;
+import com.atlas.util.Env;
+import com.atlas.util.TtlCache;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-through cache in front of any CourseDao.
+ * - getById/listAll are served from a bounded TTL cache; seat counts can be stale for at most the TTL
+ *   (writes made through this instance invalidate immediately, writes from other nodes age out)
+ * - every mutating call is delegated first and then invalidates the course and the cached listing
+ * - getByIdFresh always reads the delegate and refreshes the cached entry
+ * - while the delegate is unavailable (ServiceBusyException, e.g. the table's circuit breaker is open)
+ *   getById/getByIds/listAll serve expired entries instead of failing; getByIdFresh never does
+ * Config (env): COURSE_CACHE_TTL_SECONDS (default 5), COURSE_CACHE_MAX_ENTRIES (default 500).
+ */
+public class CachingCourseDao implements CourseDao {
+    private static final String ALL = "*";
+
+    private final CourseDao delegate;
+    private final TtlCache<String, Course> byId;
+    private final TtlCache<String, List<Course>> listing;
+    private final AtomicLong staleServed = new AtomicLong();
+
+    public CachingCourseDao(CourseDao delegate) {
+        this(delegate, Env.getInt("COURSE_CACHE_MAX_ENTRIES", 500), Duration.ofSeconds(Env.getInt("COURSE_CACHE_TTL_SECONDS", 5)));
+    }
+
+    public CachingCourseDao(CourseDao delegate, int maxEntries, Duration ttl) {
+        this(delegate, new TtlCache<>(maxEntries, ttl), new TtlCache<>(1, ttl));
+    }
+
+    // visible for tests that need a controllable clock
+    public CachingCourseDao(CourseDao delegate, TtlCache<String, Course> byId, TtlCache<String, List<Course>> listing) {
+        this.delegate = delegate;
+        this.byId = byId;
+        this.listing = listing;
+    }
+
+    @Override
+    public Course getById(String courseId) {
+        Course c = byId.get(courseId);
+        if (c != null) return c;
+        try {
+            return getByIdFresh(courseId);
+        } catch (ServiceBusyException ex) {
+            Course stale = byId.getStale(courseId);
+            if (stale == null) throw ex;
+            staleServed.incrementAndGet();
+            return stale;
+        }
+    }
+
+    @Override
+    public Course getByIdFresh(String courseId) {
+        Course c = delegate.getById(courseId);
+        if (c != null) byId.put(courseId, c);
+        return c;
+    }
+
+    @Override
+    public Map<String, Course> getByIds(Collection<String> courseIds) {
+        Map<String, Course> out = new LinkedHashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String id : courseIds) {
+            Course c = byId.get(id);
+            if (c != null) out.put(id, c);
+            else missing.add(id);
+        }
+        if (!missing.isEmpty()) {
+            Map<String, Course> loaded;
+            try {
+                loaded = delegate.getByIds(missing);
+            } catch (ServiceBusyException ex) {
+                // all or nothing: a partial answer would look like the missing courses do not exist
+                for (String id : missing) {
+                    Course stale = byId.getStale(id);
+                    if (stale == null) throw ex;
+                    out.put(id, stale);
+                }
+                staleServed.incrementAndGet();
+                return out;
+            }
+            loaded.forEach(byId::put);
+            out.putAll(loaded);
+        }
+        return out;
+    }
+
+    @Override
+    public List<Course> listAll() {
+        List<Course> all = listing.get(ALL);
+        if (all != null) return new ArrayList<>(all);
+        try {
+            all = Collections.unmodifiableList(new ArrayList<>(delegate.listAll()));
+        } catch (ServiceBusyException ex) {
+            List<Course> stale = listing.getStale(ALL);
+            if (stale == null) throw ex;
+            staleServed.incrementAndGet();
+            return new ArrayList<>(stale);
+        }
+        listing.put(ALL, all);
+        for (Course c : all) byId.put(c.getCourseId(), c);
+        return new ArrayList<>(all);
+    }
+
+    @Override
+    public boolean enrollStudentAtomic(String courseId, String studentId, int maxSeats) {
+        try {
+            return delegate.enrollStudentAtomic(courseId, studentId, maxSeats);
+        } finally {
+            invalidate(courseId);
+        }
+    }
+
+    @Override
+    public Map<String, Boolean> enrollStudentsAtomic(String courseId, List<String> studentIds, int maxSeats) {
+        try {
+            return delegate.enrollStudentsAtomic(courseId, studentIds, maxSeats);
+        } finally {
+            invalidate(courseId);
+        }
+    }
+
+    @Override
+    public Map<String, Boolean> bulkEnroll(String courseId, List<String> studentIds, int maxSeats) {
+        try {
+            return delegate.bulkEnroll(courseId, studentIds, maxSeats);
+        } finally {
+            invalidate(courseId);
+        }
+    }
+
+    @Override
+    public boolean dropStudentAtomic(String courseId, String studentId) {
+        try {
+            return delegate.dropStudentAtomic(courseId, studentId);
+        } finally {
+            invalidate(courseId);
+        }
+    }
+
+    // rosters and waitlists are not part of the cached Course, so these pass straight through
+
+    @Override
+    public List<String> roster(String courseId) {
+        return delegate.roster(courseId);
+    }
+
+    @Override
+    public List<String> coursesOf(String studentId) {
+        return delegate.coursesOf(studentId);
+    }
+
+    @Override
+    public void addToWaitlist(String courseId, String studentId) {
+        delegate.addToWaitlist(courseId, studentId);
+    }
+
+    @Override
+    public boolean removeFromWaitlist(String courseId, String studentId) {
+        return delegate.removeFromWaitlist(courseId, studentId);
+    }
+
+    @Override
+    public List<String> waitlistHead(String courseId, int limit) {
+        return delegate.waitlistHead(courseId, limit);
+    }
+
+    @Override
+    public int waitlistPosition(String courseId, String studentId) {
+        return delegate.waitlistPosition(courseId, studentId);
+    }
+
+    @Override
+    public void evict(String courseId) {
+        invalidate(courseId);
+    }
+
+    public void invalidate(String courseId) {
+        byId.invalidate(courseId);
+        listing.invalidateAll();
+    }
+
+    public void invalidateAll() {
+        byId.invalidateAll();
+        listing.invalidateAll();
+    }
+
+    public long getHits() { return byId.getHits() + listing.getHits(); }
+    public long getMisses() { return byId.getMisses() + listing.getMisses(); }
+    public long getEvictions() { return byId.getEvictions(); }
+    /** reads answered from expired entries because the delegate was unavailable */
+    public long getStaleServed() { return staleServed.get(); }
+}
@@ -0,0 +1,54 @@
+package com.atlas.repository;
+
+import com.atlas.dao.IdempotencyDao;
+import com.atlas.model.IdempotencyRecord;
+import com.atlas.util.Env;
+import com.atlas.util.TtlCache;
+
+import java.time.Duration;
+
+/**
+ * Per-node LRU in front of a shared IdempotencyDao. Only final outcomes are cached (they never change
+ * until they expire), so a replay handled by the node that ran the request costs no DynamoDB call.
+ * PENDING claims always go to the delegate, whose conditional write decides which request runs.
+ * Config (env): IDEMPOTENCY_CACHE_MAX_ENTRIES (10000).
+ */
+public class CachingIdempotencyDao implements IdempotencyDao {
+    private final IdempotencyDao delegate;
+    private final TtlCache<String, IdempotencyRecord> cache;
+
+    public CachingIdempotencyDao(IdempotencyDao delegate) {
+        this(delegate, Env.getInt("IDEMPOTENCY_CACHE_MAX_ENTRIES", 10_000));
+    }
+
+    public CachingIdempotencyDao(IdempotencyDao delegate, int maxEntries) {
+        this.delegate = delegate;
+        this.cache = new TtlCache<>(maxEntries, delegate.getTtl());
+    }
+
+    @Override
+    public IdempotencyRecord claim(String key, String fingerprint) {
+        IdempotencyRecord cached = cache.get(key);
+        if (cached != null) return cached;
+        IdempotencyRecord stored = delegate.claim(key, fingerprint);
+        if (stored != null && stored.getStatus() != IdempotencyRecord.Status.PENDING) cache.put(key, stored);
+        return stored;
+    }
+
+    @Override
+    public void complete(String key, IdempotencyRecord outcome) {
+        delegate.complete(key, outcome);
+        cache.put(key, outcome);
+    }
+
+    @Override
+    public void release(String key) {
+        cache.invalidate(key);
+        delegate.release(key);
+    }
+
+    @Override public Duration getTtl() { return delegate.getTtl(); }
+
+    public long getHits() { return cache.getHits(); }
+    public long getMisses() { return cache.getMisses(); }
+}
@@ -0,0 +1,62 @@
+package com.atlas.repository;
+
+import com.atlas.dao.SessionDao;
+import com.atlas.util.Env;
+import com.atlas.util.TtlCache;
+
+import java.time.Duration;
+
+/**
+ * Per-node near cache in front of a shared SessionDao, so repeated requests with the same
+ * cookie do not each pay a DynamoDB round trip.
+ * - only valid sessions are cached (token -> studentId), for at most cacheTtl (so a session may
+ *   outlive its expiry on a node by up to cacheTtl)
+ * - logout on this node drops the entry at once; on other nodes a logged-out token can still
+ *   be accepted until their cached entry ages out (bounded by cacheTtl)
+ * - sliding renewal happens when a cached entry is missed and the delegate is consulted again
+ * Config (env): SESSION_CACHE_TTL_SECONDS (5), SESSION_CACHE_MAX_ENTRIES (10000).
+ */
+public class CachingSessionDao implements SessionDao {
+    private final SessionDao delegate;
+    private final TtlCache<String, String> cache;
+
+    public CachingSessionDao(SessionDao delegate) {
+        this(delegate, Duration.ofSeconds(Env.getLong("SESSION_CACHE_TTL_SECONDS", 5)),
+                Env.getInt("SESSION_CACHE_MAX_ENTRIES", 10_000));
+    }
+
+    public CachingSessionDao(SessionDao delegate, Duration cacheTtl, int maxEntries) {
+        if (cacheTtl.compareTo(delegate.getTtl()) > 0) throw new IllegalArgumentException("cache TTL must not exceed the session TTL");
+        this.delegate = delegate;
+        this.cache = new TtlCache<>(maxEntries, cacheTtl);
+    }
+
+    @Override
+    public String create(String studentId) {
+        String token = delegate.create(studentId);
+        cache.put(token, studentId);
+        return token;
+    }
+
+    @Override
+    public String validateAndGetStudentId(String token) {
+        String studentId = cache.get(token);
+        if (studentId != null) return studentId;
+        studentId = delegate.validateAndGetStudentId(token);
+        if (studentId != null) cache.put(token, studentId);
+        return studentId;
+    }
+
+    @Override
+    public void invalidate(String token) {
+        cache.invalidate(token);
+        delegate.invalidate(token);
+    }
+
+    @Override public Duration getTtl() { return delegate.getTtl(); }
+    @Override public boolean isSliding() { return delegate.isSliding(); }
+
+    public long getHits() { return cache.getHits(); }
+    public long getMisses() { return cache.getMisses(); }
+    public long getEvictions() { return cache.getEvictions(); }
+}
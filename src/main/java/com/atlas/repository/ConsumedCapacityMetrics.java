@@ -0,0 +1,75 @@
+package com.atlas.repository;
+
+import com.atlas.util.Metrics;
+import software.amazon.awssdk.core.SdkRequest;
+import software.amazon.awssdk.core.SdkResponse;
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttribute;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+import software.amazon.awssdk.services.dynamodb.model.*;
+
+import java.util.List;
+
+/**
+ * Asks DynamoDB for the consumed capacity of every request (ReturnConsumedCapacity=TOTAL) and adds it to
+ * atlas_dynamodb_consumed_capacity_total{table,operation,route}. The route is the one the calling thread
+ * was handling when the request was made (Metrics.currentRoute), so the async client's completions are
+ * attributed correctly too.
+ */
+public class ConsumedCapacityMetrics implements ExecutionInterceptor {
+    private static final ExecutionAttribute<String> ROUTE = new ExecutionAttribute<>("atlas.route");
+
+    @Override
+    public void beforeExecution(Context.BeforeExecution context, ExecutionAttributes attributes) {
+        attributes.putAttribute(ROUTE, Metrics.currentRoute());
+    }
+
+    @Override
+    public SdkRequest modifyRequest(Context.ModifyRequest context, ExecutionAttributes attributes) {
+        SdkRequest r = context.request();
+        ReturnConsumedCapacity total = ReturnConsumedCapacity.TOTAL;
+        if (r instanceof GetItemRequest q) return q.toBuilder().returnConsumedCapacity(total).build();
+        if (r instanceof PutItemRequest q) return q.toBuilder().returnConsumedCapacity(total).build();
+        if (r instanceof UpdateItemRequest q) return q.toBuilder().returnConsumedCapacity(total).build();
+        if (r instanceof DeleteItemRequest q) return q.toBuilder().returnConsumedCapacity(total).build();
+        if (r instanceof QueryRequest q) return q.toBuilder().returnConsumedCapacity(total).build();
+        if (r instanceof ScanRequest q) return q.toBuilder().returnConsumedCapacity(total).build();
+        if (r instanceof BatchGetItemRequest q) return q.toBuilder().returnConsumedCapacity(total).build();
+        if (r instanceof BatchWriteItemRequest q) return q.toBuilder().returnConsumedCapacity(total).build();
+        if (r instanceof TransactGetItemsRequest q) return q.toBuilder().returnConsumedCapacity(total).build();
+        if (r instanceof TransactWriteItemsRequest q) return q.toBuilder().returnConsumedCapacity(total).build();
+        return r;
+    }
+
+    @Override
+    public void afterExecution(Context.AfterExecution context, ExecutionAttributes attributes) {
+        SdkResponse response = context.response();
+        String operation = context.request().getClass().getSimpleName().replace("Request", "");
+        String route = attributes.getAttribute(ROUTE);
+        if (route == null) route = "none";
+        for (ConsumedCapacity c : consumed(response)) {
+            if (c.capacityUnits() == null) continue;
+            Metrics.counter("atlas_dynamodb_consumed_capacity_total", "DynamoDB capacity units consumed",
+                    "table", c.tableName(), "operation", operation, "route", route).add(c.capacityUnits());
+        }
+    }
+
+    static List<ConsumedCapacity> consumed(SdkResponse response) {
+        if (response instanceof GetItemResponse r) return single(r.consumedCapacity());
+        if (response instanceof PutItemResponse r) return single(r.consumedCapacity());
+        if (response instanceof UpdateItemResponse r) return single(r.consumedCapacity());
+        if (response instanceof DeleteItemResponse r) return single(r.consumedCapacity());
+        if (response instanceof QueryResponse r) return single(r.consumedCapacity());
+        if (response instanceof ScanResponse r) return single(r.consumedCapacity());
+        if (response instanceof BatchGetItemResponse r) return r.consumedCapacity();
+        if (response instanceof BatchWriteItemResponse r) return r.consumedCapacity();
+        if (response instanceof TransactGetItemsResponse r) return r.consumedCapacity();
+        if (response instanceof TransactWriteItemsResponse r) return r.consumedCapacity();
+        return List.of();
+    }
+
+    private static List<ConsumedCapacity> single(ConsumedCapacity c) {
+        return c == null ? List.of() : List.of(c);
+    }
+}
@@ -0,0 +1,48 @@
+package com.atlas.repository;
+
+import com.atlas.util.Metrics;
+import com.atlas.util.RequestTrace;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Per-method latency and error series of one DAO, shared by the Metered* wrappers:
+ * atlas_dao_seconds{dao,method} and atlas_dao_errors_total{dao,method}. Each call is also recorded on the
+ * thread's RequestTrace, if one is open.
+ */
+final class DaoMetrics {
+    private final String dao;
+    private final Map<String, Metrics.Histogram> timers = new ConcurrentHashMap<>();
+    private final Map<String, Metrics.Counter> errors = new ConcurrentHashMap<>();
+
+    DaoMetrics(String dao) {
+        this.dao = dao;
+    }
+
+    <T> T time(String method, Supplier<T> call) {
+        long t0 = System.nanoTime();
+        String error = null;
+        try {
+            return call.get();
+        } catch (RuntimeException ex) {
+            error = ex.getClass().getSimpleName();
+            errors.computeIfAbsent(method, m -> Metrics.counter("atlas_dao_errors_total",
+                    "DAO calls that threw", "dao", dao, "method", m)).inc();
+            throw ex;
+        } finally {
+            long nanos = System.nanoTime() - t0;
+            timers.computeIfAbsent(method, m -> Metrics.histogram("atlas_dao_seconds",
+                    "DAO call latency in seconds", "dao", dao, "method", m)).observeNanos(nanos);
+            RequestTrace.recordDao(dao + "." + method, t0, nanos, error);
+        }
+    }
+
+    void run(String method, Runnable call) {
+        time(method, () -> {
+            call.run();
+            return null;
+        });
+    }
+}
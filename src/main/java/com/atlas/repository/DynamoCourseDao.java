@@ -1,17 +1,54 @@
 package com.atlas.repository;
 
 import com.atlas.dao.CourseDao;
+import com.atlas.exception.AlreadyEnrolledException;
 import com.atlas.model.Course;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.*;
 
 import java.util.*;
-import java.util.stream.Collectors;
-import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
 
 public class DynamoCourseDao implements CourseDao {
-    private final DynamoDbClient client = DynamoDBClientUtil.client();
+    private static final int MAX_ATTEMPTS = 3;
+    // the course counter plus one roster put per student must fit in one transaction (100 items)
+    private static final int MAX_SEATS_PER_TRANSACTION = 50;
+    private static final int MAX_SEATS_PER_IMPORT_TRANSACTION = 99;
+
+    private final DynamoDbClient client;
     private final String table = "Courses";
+    private final TableScanner scanner;
+    private final BatchLoader batchLoader;
+    private final SeatShards seatShards;
+    private final WaitlistQueue waitlists;
+    private final Enrollments enrollments;
+
+    public DynamoCourseDao() {
+        this(TableScanner.configuredSegments(), null);
+    }
+
+    /**
+     * @param scanSegments parallel scan segments used by listAll (1 = sequential)
+     * @param scanExecutor executor for the segment scans; null lets the DAO create a small daemon pool
+     */
+    public DynamoCourseDao(int scanSegments, Executor scanExecutor) {
+        this(DynamoDBClientUtil.client(), scanSegments, scanExecutor);
+    }
+
+    /** on a given client (e.g. a fault-injecting one in tests) */
+    public DynamoCourseDao(DynamoDbClient client) {
+        this(client, TableScanner.configuredSegments(), null);
+    }
+
+    public DynamoCourseDao(DynamoDbClient client, int scanSegments, Executor scanExecutor) {
+        this.client = client;
+        this.scanner = new TableScanner(client, table, scanSegments, scanExecutor);
+        this.batchLoader = new BatchLoader(client, table, "courseId");
+        this.seatShards = new SeatShards(client);
+        this.waitlists = new WaitlistQueue(client);
+        this.enrollments = new Enrollments(client);
+    }
 
     @Override
     public Course getById(String courseId) {
@@ -19,89 +56,292 @@ public class DynamoCourseDao implements CourseDao {
                 .tableName(table)
                 .key(Map.of("courseId", AttributeValue.builder().s(courseId).build()))
                 .build());
-        Map<String, AttributeValue> it = r.item();
+        return withShardCounts(toCourse(r.item()));
+    }
+
+    @Override
+    public Map<String, Course> getByIds(Collection<String> courseIds) {
+        Map<String, Course> out = batchLoader.load(courseIds, DynamoCourseDao::toCourse);
+        out.values().forEach(this::withShardCounts);
+        return out;
+    }
+
+    @Override
+    public List<Course> listAll() {
+        List<Course> out = scanner.scanAll(DynamoCourseDao::toCourse);
+        out.forEach(this::withShardCounts);
+        return out;
+    }
+
+    // sharded courses: the count is the sum over the shard items, not the course item's attribute
+    private Course withShardCounts(Course c) {
+        seatShards.remember(c);
+        if (c == null || c.getSeatShards() == 0) return c;
+        int used = 0;
+        for (SeatShards.Shard shard : seatShards.load(c.getCourseId())) used += shard.used;
+        c.setCurrentEnrolledCount(used);
+        return c;
+    }
+
+    static Course toCourse(Map<String, AttributeValue> it) {
         if (it == null || it.isEmpty()) return null;
-        Course c = new Course(courseId, it.get("courseName").s(), Integer.parseInt(it.get("maxSeats").n()));
+        Course c = new Course(it.get("courseId").s(), it.get("courseName").s(), Integer.parseInt(it.get("maxSeats").n()));
         c.setCurrentEnrolledCount(Integer.parseInt(it.get("currentEnrolledCount").n()));
         c.setStartDate(it.get("startDate").s());
         c.setEndDate(it.get("endDate").s());
         c.setLatestEnrollmentBy(it.get("latestEnrollmentBy").s());
-        if (it.containsKey("enrolledIds")) c.getEnrolledIds().addAll(it.get("enrolledIds").l().stream().map(AttributeValue::s).collect(Collectors.toList()));
-        if (it.containsKey("waitlistIds")) c.getWaitlistIds().addAll(it.get("waitlistIds").l().stream().map(AttributeValue::s).collect(Collectors.toList()));
+        if (it.containsKey("version")) c.setVersion(Long.parseLong(it.get("version").n()));
+        if (it.containsKey(SeatShards.ATTRIBUTE)) c.setSeatShards(Integer.parseInt(it.get(SeatShards.ATTRIBUTE).n()));
         return c;
     }
 
     @Override
-    public List<Course> listAll() {
-        ScanResponse resp = client.scan(ScanRequest.builder().tableName(table).build());
-        return resp.items().stream().map(it -> getById(it.get("courseId").s())).collect(Collectors.toList());
+    public boolean enrollStudentAtomic(String courseId, String studentId, int maxSeats) {
+        int shards = seatShards.known(courseId);
+        if (shards > 0) return enrollSharded(courseId, studentId, shards);
+        TransactWriteItemsRequest req = TransactWriteItemsRequest.builder().transactItems(
+                Enrollments.takeSeat(table, courseId, maxSeats),
+                Enrollments.put(courseId, studentId, null)
+        ).build();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                client.transactWriteItems(req);
+                return true;
+            } catch (TransactionCanceledException ex) {
+                List<CancellationReason> reasons = ex.cancellationReasons();
+                if (Enrollments.failedCondition(reasons, 1)) throw new AlreadyEnrolledException("Already enrolled");
+                if (Enrollments.failedCondition(reasons, 0)) {
+                    // full, or sharded since we last read it
+                    Course c = toCourse(reasons.get(0).item());
+                    seatShards.remember(c);
+                    return c != null && c.getSeatShards() > 0 && enrollSharded(courseId, studentId, c.getSeatShards());
+                }
+                if (attempt >= MAX_ATTEMPTS) throw new IllegalStateException("Enrollment is busy, please try again");
+                BatchLoader.backoff(attempt);
+            }
+        }
     }
 
+    /**
+     * One consistent read of the course, then one transaction per group of students: the counter goes up by
+     * the group size (conditioned on that many free seats) and each student gets a conditional roster put.
+     * A student already on the roster cancels the transaction; that student is left out and the rest retried.
+     * Sharded courses claim seat by seat, since each claim already goes to its own shard.
+     */
     @Override
-    public boolean enrollStudentAtomic(String courseId, String studentId, int maxSeats) {
-        Map<String, AttributeValue> key = Map.of("courseId", AttributeValue.builder().s(courseId).build());
-        String update = "SET currentEnrolledCount = currentEnrolledCount + :inc, enrolledIds = list_append(if_not_exists(enrolledIds, :empty), :new)";
-        Map<String, AttributeValue> vals = new HashMap<>();
-        vals.put(":inc", AttributeValue.builder().n("1").build());
-        vals.put(":new", AttributeValue.builder().l(Collections.singletonList(AttributeValue.builder().s(studentId).build())).build());
-        vals.put(":empty", AttributeValue.builder().l(Collections.emptyList()).build());
-        vals.put(":max", AttributeValue.builder().n(String.valueOf(maxSeats)).build());
+    public Map<String, Boolean> enrollStudentsAtomic(String courseId, List<String> studentIds, int maxSeats) {
+        return enrollInGroups(courseId, new ArrayList<>(new LinkedHashSet<>(studentIds)), maxSeats, MAX_SEATS_PER_TRANSACTION);
+    }
 
-        UpdateItemRequest req = UpdateItemRequest.builder()
-                .tableName(table)
-                .key(key)
-                .updateExpression(update)
-                .conditionExpression("currentEnrolledCount < :max")
-                .expressionAttributeValues(vals)
-                .build();
+    /**
+     * Import path: reads the roster once and leaves out the students already on it, then seats the rest as
+     * enrollStudentsAtomic does, with full-size transactions (the counter update plus up to 99 conditional
+     * roster puts). Seats and roster items are written together, so a student enrolling on their own at the
+     * same moment cancels only their chunk, is left out and the rest retried.
+     */
+    @Override
+    public Map<String, Boolean> bulkEnroll(String courseId, List<String> studentIds, int maxSeats) {
+        Set<String> onRoster = new HashSet<>(enrollments.roster(courseId));
+        List<String> wanted = new ArrayList<>();
+        for (String studentId : new LinkedHashSet<>(studentIds)) if (!onRoster.contains(studentId)) wanted.add(studentId);
+        if (wanted.isEmpty()) return new LinkedHashMap<>();
+        return enrollInGroups(courseId, wanted, maxSeats, MAX_SEATS_PER_IMPORT_TRANSACTION);
+    }
 
-        try {
-            client.updateItem(req);
-            return true;
-        } catch (ConditionalCheckFailedException ex) {
-            return false;
+    private Map<String, Boolean> enrollInGroups(String courseId, List<String> pending, int maxSeats, int maxGroup) {
+        Map<String, Boolean> out = new LinkedHashMap<>();
+        int attempt = 0;
+        while (!pending.isEmpty()) {
+            Course c = toCourse(client.getItem(GetItemRequest.builder()
+                    .tableName(table)
+                    .key(Map.of("courseId", AttributeValue.builder().s(courseId).build()))
+                    .consistentRead(true)
+                    .build()).item());
+            seatShards.remember(c);
+            if (c != null && c.getSeatShards() > 0) {
+                for (String studentId : pending) {
+                    try {
+                        out.put(studentId, enrollSharded(courseId, studentId, c.getSeatShards()));
+                    } catch (AlreadyEnrolledException ex) {
+                        // left out: the caller reports it
+                    }
+                }
+                return out;
+            }
+            int free = c == null ? 0 : Math.max(0, maxSeats - c.getCurrentEnrolledCount());
+            List<String> group = new ArrayList<>(pending.subList(0, Math.min(Math.min(free, pending.size()), maxGroup)));
+            if (group.isEmpty()) {
+                for (String studentId : pending) out.put(studentId, false);
+                return out;
+            }
+
+            List<TransactWriteItem> items = new ArrayList<>();
+            items.add(Enrollments.takeSeats(table, courseId, maxSeats, group.size()));
+            for (String studentId : group) items.add(Enrollments.put(courseId, studentId, null));
+            try {
+                client.transactWriteItems(TransactWriteItemsRequest.builder().transactItems(items).build());
+                for (String studentId : group) out.put(studentId, true);
+                pending.removeAll(group);
+                attempt = 0;
+            } catch (TransactionCanceledException ex) {
+                List<CancellationReason> reasons = ex.cancellationReasons();
+                boolean dropped = false;
+                for (int i = 0; i < group.size(); i++) {
+                    if (Enrollments.failedCondition(reasons, i + 1)) {
+                        pending.remove(group.get(i));
+                        dropped = true;
+                    }
+                }
+                if (dropped) continue;
+                // seats taken by another node, sharded meanwhile, or a transaction conflict: re-read and try again
+                if (++attempt >= MAX_ATTEMPTS) throw new IllegalStateException("Enrollment is busy, please try again");
+                BatchLoader.backoff(attempt);
+            }
+        }
+        return out;
+    }
+
+    // claims a seat on a random shard, moving on to the next shard when one is full
+    private boolean enrollSharded(String courseId, String studentId, int shards) {
+        int start = ThreadLocalRandom.current().nextInt(shards);
+        for (int i = 0; i < shards; i++) {
+            int shard = (start + i) % shards;
+            TransactWriteItemsRequest req = TransactWriteItemsRequest.builder().transactItems(
+                    TransactWriteItem.builder().update(SeatShards.claimUpdate(courseId, shard)).build(),
+                    Enrollments.put(courseId, studentId, shard)
+            ).build();
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    client.transactWriteItems(req);
+                    return true;
+                } catch (TransactionCanceledException ex) {
+                    List<CancellationReason> reasons = ex.cancellationReasons();
+                    if (Enrollments.failedCondition(reasons, 1)) throw new AlreadyEnrolledException("Already enrolled");
+                    if (Enrollments.failedCondition(reasons, 0)) break; // shard full
+                    if (attempt >= MAX_ATTEMPTS) throw new IllegalStateException("Enrollment is busy, please try again");
+                    BatchLoader.backoff(attempt);
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean dropStudentAtomic(String courseId, String studentId) {
+        for (int attempt = 1; ; attempt++) {
+            Map<String, AttributeValue> enrollment = enrollments.get(courseId, studentId);
+            if (enrollment == null) return false;
+            try {
+                client.transactWriteItems(TransactWriteItemsRequest.builder().transactItems(
+                        Enrollments.delete(courseId, studentId),
+                        Enrollments.releaseSeat(table, seatShards, courseId, enrollment)
+                ).build());
+                return true;
+            } catch (TransactionCanceledException ex) {
+                // dropped concurrently (the re-read finds nothing) or sharded since we last read the course
+                if (seatShards.known(courseId) == 0) recheckSharding(courseId);
+                if (attempt >= MAX_ATTEMPTS) throw new IllegalStateException("Drop is busy, please try again");
+                BatchLoader.backoff(attempt);
+            }
         }
     }
 
     @Override
-    public void replaceEnrolled(String courseId, List<String> newEnrolledIds, int newCount) {
+    public List<String> roster(String courseId) {
+        return enrollments.roster(courseId);
+    }
+
+    @Override
+    public List<String> coursesOf(String studentId) {
+        return enrollments.coursesOf(studentId);
+    }
+
+    // the unsharded writes are conditioned on attribute_not_exists(seatShards): after a failed one, re-read the
+    // course so the retry goes to the shards if it was sharded meanwhile
+    private void recheckSharding(String courseId) {
+        seatShards.remember(toCourse(client.getItem(GetItemRequest.builder()
+                .tableName(table)
+                .key(Map.of("courseId", AttributeValue.builder().s(courseId).build()))
+                .consistentRead(true)
+                .build()).item()));
+    }
+
+    /**
+     * Moves a hot course to sharded seat counters: its seats (free and taken) are split over
+     * shards items in CourseSeatShards, and the course item gets seatShards = shards. Idempotent;
+     * returns false if the course was already sharded. Enrollments racing with the migration make it
+     * fail with TransactionCanceledException (retry).
+     */
+    public boolean enableSeatShards(String courseId, int shards) {
+        if (shards < 1 || shards > SeatShards.MAX_SHARDS) throw new IllegalArgumentException("shards must be 1.." + SeatShards.MAX_SHARDS);
         Map<String, AttributeValue> key = Map.of("courseId", AttributeValue.builder().s(courseId).build());
-        List<AttributeValue> av = newEnrolledIds.stream().map(id -> AttributeValue.builder().s(id).build()).collect(Collectors.toList());
-        Map<String, AttributeValue> vals = Map.of(
-                ":e", AttributeValue.builder().l(av).build(),
-                ":cnt", AttributeValue.builder().n(String.valueOf(newCount)).build()
-        );
-        client.updateItem(UpdateItemRequest.builder()
+        Course c = toCourse(client.getItem(GetItemRequest.builder().tableName(table).key(key).consistentRead(true).build()).item());
+        if (c == null) throw new IllegalArgumentException("Unknown course " + courseId);
+        if (c.getSeatShards() > 0) {
+            seatShards.remember(c);
+            return false;
+        }
+
+        List<TransactWriteItem> items = new ArrayList<>();
+        for (Map<String, AttributeValue> shard : SeatShards.initialShards(courseId, c.getMaxSeats(), c.getCurrentEnrolledCount(), shards)) {
+            items.add(TransactWriteItem.builder().put(Put.builder()
+                    .tableName(SeatShards.TABLE).item(shard).conditionExpression("attribute_not_exists(courseId)").build()).build());
+        }
+        // the course must not have changed since we read the count we split
+        Map<String, AttributeValue> vals = new HashMap<>();
+        vals.put(":n", AttributeValue.builder().n(Integer.toString(shards)).build());
+        vals.put(":one", AttributeValue.builder().n("1").build());
+        if (c.getVersion() > 0) vals.put(":seen", AttributeValue.builder().n(Long.toString(c.getVersion())).build());
+        items.add(TransactWriteItem.builder().update(Update.builder()
                 .tableName(table)
                 .key(key)
-                .updateExpression("SET enrolledIds = :e, currentEnrolledCount = :cnt")
+                .updateExpression("SET #shards = :n ADD version :one")
+                .conditionExpression("attribute_not_exists(#shards) AND "
+                        + (c.getVersion() > 0 ? "version = :seen" : "attribute_not_exists(version)"))
+                .expressionAttributeNames(Map.of("#shards", SeatShards.ATTRIBUTE))
                 .expressionAttributeValues(vals)
-                .build());
+                .build()).build());
+        client.transactWriteItems(TransactWriteItemsRequest.builder().transactItems(items).build());
+        c.setSeatShards(shards);
+        seatShards.remember(c);
+        return true;
     }
 
     @Override
     public void addToWaitlist(String courseId, String studentId) {
-        Map<String, AttributeValue> key = Map.of("courseId", AttributeValue.builder().s(courseId).build());
-        String update = "SET waitlistIds = list_append(if_not_exists(waitlistIds, :empty), :new)";
-        Map<String, AttributeValue> vals = Map.of(
-                ":empty", AttributeValue.builder().l(Collections.emptyList()).build(),
-                ":new", AttributeValue.builder().l(Collections.singletonList(AttributeValue.builder().s(studentId).build())).build()
-        );
-        client.updateItem(UpdateItemRequest.builder().tableName(table).key(key).updateExpression(update).expressionAttributeValues(vals).build());
+        waitlists.join(courseId, studentId);
     }
 
     @Override
-    public void replaceWaitlist(String courseId, List<String> newWaitlist) {
-        Map<String, AttributeValue> key = Map.of("courseId", AttributeValue.builder().s(courseId).build());
-        List<AttributeValue> av = newWaitlist.stream().map(s -> AttributeValue.builder().s(s).build()).collect(Collectors.toList());
-        client.updateItem(UpdateItemRequest.builder().tableName(table).key(key).updateExpression("SET waitlistIds = :wl").expressionAttributeValues(Map.of(":wl", AttributeValue.builder().l(av).build())).build());
+    public boolean removeFromWaitlist(String courseId, String studentId) {
+        return waitlists.leave(courseId, studentId);
+    }
+
+    @Override
+    public List<String> waitlistHead(String courseId, int limit) {
+        return waitlists.head(courseId, limit);
+    }
+
+    @Override
+    public int waitlistPosition(String courseId, String studentId) {
+        return waitlists.position(courseId, studentId);
     }
 
     /**
-     * Delete a course item by courseId. Used by integration tests to clean up test data.
+     * Delete a course item (with its seat shards, roster and waitlist) by courseId. Used by integration tests to clean up test data.
      */
     public void deleteById(String courseId) {
         Map<String, AttributeValue> key = Map.of("courseId", AttributeValue.builder().s(courseId).build());
+        Course c = toCourse(client.getItem(GetItemRequest.builder().tableName(table).key(key).consistentRead(true).build()).item());
+        if (c != null && c.getSeatShards() > 0) {
+            for (SeatShards.Shard shard : seatShards.load(courseId)) {
+                client.deleteItem(DeleteItemRequest.builder().tableName(SeatShards.TABLE).key(SeatShards.key(courseId, shard.index)).build());
+            }
+        }
+        waitlists.clear(courseId);
+        for (String studentId : enrollments.roster(courseId)) {
+            client.deleteItem(DeleteItemRequest.builder().tableName(Enrollments.TABLE).key(Enrollments.key(courseId, studentId)).build());
+        }
         client.deleteItem(DeleteItemRequest.builder().tableName(table).key(key).build());
     }
 }
@@ -1,44 +1,98 @@
 package com.atlas.repository;
 
+import com.atlas.util.Env;
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+import software.amazon.awssdk.core.retry.RetryPolicy;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 
 import java.net.URI;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public final class DynamoDBClientUtil {
 
     // ✅ shared static client
-    private static DynamoDbClient client;
+    private static volatile DynamoDbClient client;
+    // attached to the shared client when it is built (so register them before the first client() call)
+    private static final List<ExecutionInterceptor> interceptors = new CopyOnWriteArrayList<>();
 
+    static {
+        // DYNAMODB_CONSUMED_CAPACITY=false stops asking DynamoDB for the capacity each request used (/metrics)
+        if (Env.getBoolean("DYNAMODB_CONSUMED_CAPACITY", true)) interceptors.add(new ConsumedCapacityMetrics());
+        // adds each request to the calling thread's RequestTrace, if one is open (slow-request log)
+        interceptors.add(new RequestTraceInterceptor());
+    }
+
+    /**
+     * Adds a request interceptor (e.g. a counter of conditional check failures) to the shared client.
+     * A client already built is not changed.
+     */
+    public static void addInterceptor(ExecutionInterceptor interceptor) {
+        interceptors.add(interceptor);
+    }
+
+    /**
+     * Shared client. Unless DYNAMODB_RESILIENCE=false it is wrapped in a ResilientDynamoDbClient
+     * (per-operation-class retries, adaptive rate limiting, per-table circuit breakers), which takes over
+     * retrying from the SDK.
+     */
     public static DynamoDbClient client() {
         if (client == null) {
             synchronized (DynamoDBClientUtil.class) {
                 if (client == null) {
-                    // read endpoint from env var so tests inside containers can use service name
-                    String endpoint = System.getenv("DYNAMODB_ENDPOINT");
-                    if (endpoint == null || endpoint.isBlank()) {
-                        endpoint = "http://localhost:8000"; // default for local dev
-                    }
-
-                    client = DynamoDbClient.builder()
-                            .endpointOverride(URI.create(endpoint))
+                    boolean resilient = Env.getBoolean("DYNAMODB_RESILIENCE", true);
+                    DynamoDbClient raw = DynamoDbClient.builder()
+                            .endpointOverride(URI.create(endpoint()))
                             .region(Region.AP_SOUTH_1)
                             .credentialsProvider(
                                     StaticCredentialsProvider.create(
                                             AwsBasicCredentials.create("dummy", "dummy")
                                     )
                             )
+                            .overrideConfiguration(c -> {
+                                c.executionInterceptors(List.copyOf(interceptors));
+                                if (resilient) c.retryPolicy(RetryPolicy.none());
+                            })
                             .build();
+                    client = resilient ? ResilientDynamoDbClient.fromEnv(raw) : raw;
                 }
             }
         }
         return client;
     }
 
+    private static String endpoint() {
+        // read endpoint from env var so tests inside containers can use service name
+        String endpoint = System.getenv("DYNAMODB_ENDPOINT");
+        if (endpoint == null || endpoint.isBlank()) {
+            endpoint = "http://localhost:8000"; // default for local dev
+        }
+        return endpoint;
+    }
+
+    // components that must finish their DynamoDB work before the client goes away (e.g. log flusher)
+    private static final List<Runnable> closeHooks = new CopyOnWriteArrayList<>();
+
+    /**
+     * Registers a hook that closeClient() runs (in registration order) before closing the client.
+     */
+    public static void onClose(Runnable hook) {
+        closeHooks.add(hook);
+    }
+
     // ✅ Close client when app exits
     public static void closeClient() {
+        for (Runnable hook : closeHooks) {
+            try {
+                hook.run();
+            } catch (RuntimeException ex) {
+                System.err.println("DynamoDB close hook failed: " + ex.getMessage());
+            }
+        }
+        closeHooks.clear();
         if (client != null) {
             client.close();
             client = null;
@@ -0,0 +1,265 @@
+package com.atlas.repository;
+
+import com.atlas.dao.EnrollmentTransactionDao;
+import com.atlas.exception.AlreadyEnrolledException;
+import com.atlas.exception.CourseNotFoundException;
+import com.atlas.exception.StudentNotFoundException;
+import com.atlas.model.Course;
+import com.atlas.model.Student;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.*;
+
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * TransactWriteItems implementation of the enroll/drop writes (seat counter, Enrollments item,
+ * student record and log record).
+ * Condition failures are mapped back to the service exceptions using the item images
+ * returned with ReturnValuesOnConditionCheckFailure=ALL_OLD.
+ */
+public class DynamoEnrollmentTransactionDao implements EnrollmentTransactionDao {
+    private static final int MAX_ACTIVE_ENROLLMENTS = 5;
+    private static final int MAX_ATTEMPTS = 3;
+    // the seat update plus three items per student (record, log, roster) must fit in one transaction (100 items)
+    private static final int MAX_STUDENTS_PER_TRANSACTION = 33;
+
+    private final DynamoDbClient client;
+    private final String courses = "Courses";
+    private final String students = "Students";
+    private final String logs = "StudentLogs";
+    private final Enrollments enrollments;
+    private final SeatShards seatShards;
+
+    public DynamoEnrollmentTransactionDao() {
+        this(DynamoDBClientUtil.client());
+    }
+
+    public DynamoEnrollmentTransactionDao(DynamoDbClient client) {
+        this.client = client;
+        this.enrollments = new Enrollments(client);
+        this.seatShards = new SeatShards(client);
+    }
+
+    @Override
+    public boolean enroll(String studentId, String courseId, int maxSeats, String logId) {
+        TransactWriteItem studentItem = studentEnrollUpdate(studentId, courseId);
+        TransactWriteItem logItem = logPut(logId, studentId, "ENROLL", courseId);
+        int shards = seatShards.known(courseId);
+        if (shards > 0) return enrollSharded(studentId, courseId, shards, studentItem, logItem);
+
+        TransactWriteItemsRequest req = TransactWriteItemsRequest.builder().transactItems(
+                Enrollments.takeSeat(courses, courseId, maxSeats),
+                studentItem,
+                logItem,
+                Enrollments.put(courseId, studentId, null)
+        ).build();
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                client.transactWriteItems(req);
+                return true;
+            } catch (TransactionCanceledException ex) {
+                List<CancellationReason> reasons = ex.cancellationReasons();
+                // student conditions are checked first so "already enrolled" wins over "course full"
+                if (Enrollments.failedCondition(reasons, 1)) throw studentFailure(reasons.get(1).item(), studentId, courseId);
+                if (Enrollments.failedCondition(reasons, 3)) throw new AlreadyEnrolledException("Already enrolled");
+                if (Enrollments.failedCondition(reasons, 0)) {
+                    Course c = DynamoCourseDao.toCourse(reasons.get(0).item());
+                    if (c == null) throw new CourseNotFoundException(courseId);
+                    seatShards.remember(c);
+                    // sharded since we last looked: claim from the shards instead
+                    if (c.getSeatShards() > 0) return enrollSharded(studentId, courseId, c.getSeatShards(), studentItem, logItem);
+                    return false; // course full
+                }
+                if (attempt >= MAX_ATTEMPTS) throw new IllegalStateException("Enrollment is busy, please try again");
+                BatchLoader.backoff(attempt);
+            }
+        }
+    }
+
+    /**
+     * One transaction per group of students: the counter goes up by the group size (conditioned on that many
+     * free seats), and each student gets the same record update, log put and roster put as enroll. A student
+     * whose own items fail their condition is left out and the rest retried; a course found full or changed
+     * is taken from the returned image. Sharded courses enroll student by student, each on its own shard.
+     */
+    @Override
+    public Map<String, Boolean> enrollAll(String courseId, List<String> studentIds, int maxSeats) {
+        Map<String, Boolean> out = new LinkedHashMap<>();
+        List<String> pending = new ArrayList<>(new LinkedHashSet<>(studentIds));
+        Course c = DynamoCourseDao.toCourse(client.getItem(GetItemRequest.builder()
+                .tableName(courses).key(courseKey(courseId)).consistentRead(true).build()).item());
+        int attempt = 0;
+        while (!pending.isEmpty()) {
+            if (c == null) throw new CourseNotFoundException(courseId);
+            seatShards.remember(c);
+            if (c.getSeatShards() > 0) {
+                for (String studentId : pending) {
+                    try {
+                        out.put(studentId, enroll(studentId, courseId, maxSeats, UUID.randomUUID().toString()));
+                    } catch (RuntimeException ex) {
+                        // left out: the caller enrolls it alone for the reason
+                    }
+                }
+                return out;
+            }
+            int free = Math.max(0, maxSeats - c.getCurrentEnrolledCount());
+            List<String> group = new ArrayList<>(pending.subList(0, Math.min(Math.min(free, pending.size()), MAX_STUDENTS_PER_TRANSACTION)));
+            if (group.isEmpty()) {
+                for (String studentId : pending) out.put(studentId, false);
+                return out;
+            }
+
+            List<TransactWriteItem> items = new ArrayList<>();
+            items.add(Enrollments.takeSeats(courses, courseId, maxSeats, group.size()));
+            for (String studentId : group) {
+                items.add(studentEnrollUpdate(studentId, courseId));
+                items.add(logPut(UUID.randomUUID().toString(), studentId, "ENROLL", courseId));
+                items.add(Enrollments.put(courseId, studentId, null));
+            }
+            try {
+                client.transactWriteItems(TransactWriteItemsRequest.builder().transactItems(items).build());
+                for (String studentId : group) out.put(studentId, true);
+                pending.removeAll(group);
+                c.setCurrentEnrolledCount(c.getCurrentEnrolledCount() + group.size());
+                attempt = 0;
+            } catch (TransactionCanceledException ex) {
+                List<CancellationReason> reasons = ex.cancellationReasons();
+                boolean dropped = false;
+                for (int i = 0; i < group.size(); i++) {
+                    if (Enrollments.failedCondition(reasons, 1 + 3 * i) || Enrollments.failedCondition(reasons, 3 + 3 * i)) {
+                        pending.remove(group.get(i));
+                        dropped = true;
+                    }
+                }
+                if (dropped) continue;
+                if (Enrollments.failedCondition(reasons, 0)) {
+                    // seats taken by another writer or sharded meanwhile: go on from the course as it is now
+                    c = DynamoCourseDao.toCourse(reasons.get(0).item());
+                    if (c == null || c.getSeatShards() > 0 || maxSeats - c.getCurrentEnrolledCount() < group.size()) continue;
+                }
+                if (++attempt >= MAX_ATTEMPTS) throw new IllegalStateException("Enrollment is busy, please try again");
+                BatchLoader.backoff(attempt);
+            }
+        }
+        return out;
+    }
+
+    // same transaction with the course item replaced by one seat shard; a full shard moves on to the next one
+    private boolean enrollSharded(String studentId, String courseId, int shards, TransactWriteItem studentItem, TransactWriteItem logItem) {
+        int start = ThreadLocalRandom.current().nextInt(shards);
+        for (int i = 0; i < shards; i++) {
+            int shard = (start + i) % shards;
+            TransactWriteItemsRequest req = TransactWriteItemsRequest.builder().transactItems(
+                    TransactWriteItem.builder().update(SeatShards.claimUpdate(courseId, shard)).build(),
+                    studentItem,
+                    logItem,
+                    Enrollments.put(courseId, studentId, shard)
+            ).build();
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    client.transactWriteItems(req);
+                    return true;
+                } catch (TransactionCanceledException ex) {
+                    List<CancellationReason> reasons = ex.cancellationReasons();
+                    if (Enrollments.failedCondition(reasons, 1)) throw studentFailure(reasons.get(1).item(), studentId, courseId);
+                    if (Enrollments.failedCondition(reasons, 3)) throw new AlreadyEnrolledException("Already enrolled");
+                    if (Enrollments.failedCondition(reasons, 0)) {
+                        Map<String, AttributeValue> old = reasons.get(0).item();
+                        if (old == null || old.isEmpty()) throw new IllegalStateException("Seat shard " + shard + " of " + courseId + " is missing");
+                        break; // shard full
+                    }
+                    if (attempt >= MAX_ATTEMPTS) throw new IllegalStateException("Enrollment is busy, please try again");
+                    BatchLoader.backoff(attempt);
+                }
+            }
+        }
+        return false;
+    }
+
+    private TransactWriteItem studentEnrollUpdate(String studentId, String courseId) {
+        Map<String, AttributeValue> studentVals = new HashMap<>();
+        studentVals.put(":cid", AttributeValue.builder().s(courseId).build());
+        studentVals.put(":new", AttributeValue.builder().l(AttributeValue.builder().s(courseId).build()).build());
+        studentVals.put(":empty", AttributeValue.builder().l(Collections.emptyList()).build());
+        studentVals.put(":maxActive", AttributeValue.builder().n(String.valueOf(MAX_ACTIVE_ENROLLMENTS)).build());
+        studentVals.put(":one", AttributeValue.builder().n("1").build());
+        return TransactWriteItem.builder().update(Update.builder()
+                .tableName(students)
+                .key(studentKey(studentId))
+                .updateExpression("SET enrolledCourseIds = list_append(if_not_exists(enrolledCourseIds, :empty), :new) ADD version :one")
+                .conditionExpression("attribute_exists(id) AND NOT contains(enrolledCourseIds, :cid) AND NOT contains(waitlistedCourseIds, :cid)"
+                        + " AND (attribute_not_exists(enrolledCourseIds) OR size(enrolledCourseIds) < :maxActive)")
+                .expressionAttributeValues(studentVals)
+                .returnValuesOnConditionCheckFailure(ReturnValuesOnConditionCheckFailure.ALL_OLD)
+                .build()).build();
+    }
+
+    @Override
+    public boolean drop(String studentId, String courseId, String logId) {
+        for (int attempt = 1; ; attempt++) {
+            // consistent read: the list index below must match what the transaction sees
+            Student s = DynamoStudentDao.toStudent(client.getItem(GetItemRequest.builder()
+                    .tableName(students).key(studentKey(studentId)).consistentRead(true).build()).item());
+            if (s == null) throw new StudentNotFoundException(studentId);
+            int si = s.getEnrolledCourseIds().indexOf(courseId);
+            if (si < 0) return false;
+            Map<String, AttributeValue> enrollment = enrollments.get(courseId, studentId);
+
+            List<TransactWriteItem> items = new ArrayList<>();
+            items.add(TransactWriteItem.builder().update(Update.builder()
+                    .tableName(students)
+                    .key(studentKey(studentId))
+                    .updateExpression("REMOVE enrolledCourseIds[" + si + "] ADD version :one")
+                    .conditionExpression("enrolledCourseIds[" + si + "] = :cid")
+                    .expressionAttributeValues(Map.of(
+                            ":cid", AttributeValue.builder().s(courseId).build(),
+                            ":one", AttributeValue.builder().n("1").build()))
+                    .build()).build());
+            // a roster that no longer lists the student only gets the student side fixed (same as sequential mode)
+            if (enrollment != null) {
+                items.add(Enrollments.delete(courseId, studentId));
+                items.add(Enrollments.releaseSeat(courses, seatShards, courseId, enrollment));
+            }
+            items.add(logPut(logId, studentId, "DROP", courseId));
+
+            try {
+                client.transactWriteItems(TransactWriteItemsRequest.builder().transactItems(items).build());
+                return true;
+            } catch (TransactionCanceledException ex) {
+                // the student's list shifted or the course was sharded under us: re-read and retry
+                if (seatShards.known(courseId) == 0) {
+                    seatShards.remember(DynamoCourseDao.toCourse(client.getItem(GetItemRequest.builder()
+                            .tableName(courses).key(courseKey(courseId)).consistentRead(true).build()).item()));
+                }
+                if (attempt >= MAX_ATTEMPTS) throw new IllegalStateException("Drop is busy, please try again");
+                BatchLoader.backoff(attempt);
+            }
+        }
+    }
+
+    private TransactWriteItem logPut(String logId, String studentId, String action, String courseId) {
+        return TransactWriteItem.builder().put(Put.builder()
+                .tableName(logs)
+                .item(DynamoLogDao.toItem(logId, studentId, action, courseId))
+                .conditionExpression("attribute_not_exists(logId)")
+                .build()).build();
+    }
+
+    private static RuntimeException studentFailure(Map<String, AttributeValue> item, String studentId, String courseId) {
+        Student s = DynamoStudentDao.toStudent(item);
+        if (s == null) return new StudentNotFoundException(studentId);
+        if (s.getEnrolledCourseIds().contains(courseId)) return new AlreadyEnrolledException("Already enrolled");
+        if (s.getWaitlistedCourseIds().contains(courseId)) return new AlreadyEnrolledException("Already waitlisted");
+        return new IllegalStateException("Max " + MAX_ACTIVE_ENROLLMENTS + " active enrollments reached");
+    }
+
+    private static Map<String, AttributeValue> courseKey(String courseId) {
+        return Map.of("courseId", AttributeValue.builder().s(courseId).build());
+    }
+
+    private static Map<String, AttributeValue> studentKey(String studentId) {
+        return Map.of("id", AttributeValue.builder().s(studentId).build());
+    }
+}
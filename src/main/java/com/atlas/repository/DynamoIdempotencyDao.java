@@ -0,0 +1,114 @@
+package com.atlas.repository;
+
+import com.atlas.dao.IdempotencyDao;
+import com.atlas.model.IdempotencyRecord;
+import com.atlas.util.Env;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.*;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Idempotency records shared by every WebApp node, one item per key in the IdempotencyKeys table:
+ * idempotencyKey (key), fingerprint, outcome, message, expiresAt (epoch seconds, the table's TTL attribute).
+ * A claim is a conditional put, so of two concurrent requests with the same key exactly one runs.
+ * PENDING claims expire after pendingTtl, so a node that dies mid-request does not block the key for a day.
+ * As with sessions, TTL deletion is eventual, so claims treat items past expiresAt as absent.
+ * Config (env): IDEMPOTENCY_TTL_HOURS (24).
+ */
+public class DynamoIdempotencyDao implements IdempotencyDao {
+    static final String TABLE = "IdempotencyKeys";
+    static final String TTL_ATTRIBUTE = "expiresAt";
+
+    private final DynamoDbClient client = DynamoDBClientUtil.client();
+    private final String table = TABLE;
+    private final Duration ttl;
+    private final Duration pendingTtl;
+    private final Clock clock;
+
+    public DynamoIdempotencyDao() {
+        this(Duration.ofHours(Env.getLong("IDEMPOTENCY_TTL_HOURS", 24)), Duration.ofSeconds(60), Clock.systemUTC());
+    }
+
+    public DynamoIdempotencyDao(Duration ttl, Duration pendingTtl, Clock clock) {
+        this.ttl = ttl;
+        this.pendingTtl = pendingTtl;
+        this.clock = clock;
+    }
+
+    @Override
+    public IdempotencyRecord claim(String key, String fingerprint) {
+        long now = clock.instant().getEpochSecond();
+        Map<String, AttributeValue> item = toItem(key, IdempotencyRecord.pending(fingerprint), now + pendingTtl.toSeconds());
+        try {
+            client.putItem(PutItemRequest.builder()
+                    .tableName(table)
+                    .item(item)
+                    .conditionExpression("attribute_not_exists(idempotencyKey) OR #exp <= :now")
+                    .expressionAttributeNames(Map.of("#exp", TTL_ATTRIBUTE))
+                    .expressionAttributeValues(Map.of(":now", epochSeconds(now)))
+                    .returnValuesOnConditionCheckFailure(ReturnValuesOnConditionCheckFailure.ALL_OLD)
+                    .build());
+            return null;
+        } catch (ConditionalCheckFailedException taken) {
+            Map<String, AttributeValue> old = taken.item();
+            if (old == null || old.isEmpty()) {
+                old = client.getItem(GetItemRequest.builder().tableName(table).key(key(key)).consistentRead(true).build()).item();
+            }
+            IdempotencyRecord r = toRecord(old);
+            // deleted between the put and the read: report it as still running, the caller's retry will claim it
+            return r != null ? r : IdempotencyRecord.pending(fingerprint);
+        }
+    }
+
+    @Override
+    public void complete(String key, IdempotencyRecord outcome) {
+        client.putItem(PutItemRequest.builder()
+                .tableName(table)
+                .item(toItem(key, outcome, clock.instant().getEpochSecond() + ttl.toSeconds()))
+                .build());
+    }
+
+    @Override
+    public void release(String key) {
+        try {
+            client.deleteItem(DeleteItemRequest.builder()
+                    .tableName(table)
+                    .key(key(key))
+                    .conditionExpression("outcome = :pending")
+                    .expressionAttributeValues(Map.of(":pending", AttributeValue.builder().s(IdempotencyRecord.Status.PENDING.name()).build()))
+                    .build());
+        } catch (ConditionalCheckFailedException alreadyFinal) {
+            // completed (or gone) in the meantime: keep what is there
+        }
+    }
+
+    @Override public Duration getTtl() { return ttl; }
+
+    private static Map<String, AttributeValue> toItem(String key, IdempotencyRecord r, long expiresAt) {
+        Map<String, AttributeValue> item = new HashMap<>(key(key));
+        item.put("fingerprint", AttributeValue.builder().s(r.getFingerprint()).build());
+        item.put("outcome", AttributeValue.builder().s(r.getStatus().name()).build());
+        if (r.getMessage() != null) item.put("message", AttributeValue.builder().s(r.getMessage()).build());
+        item.put(TTL_ATTRIBUTE, epochSeconds(expiresAt));
+        return item;
+    }
+
+    private static IdempotencyRecord toRecord(Map<String, AttributeValue> it) {
+        if (it == null || it.isEmpty()) return null;
+        return new IdempotencyRecord(it.get("fingerprint").s(),
+                IdempotencyRecord.Status.valueOf(it.get("outcome").s()),
+                it.containsKey("message") ? it.get("message").s() : null);
+    }
+
+    private static Map<String, AttributeValue> key(String key) {
+        return Map.of("idempotencyKey", AttributeValue.builder().s(key).build());
+    }
+
+    private static AttributeValue epochSeconds(long v) {
+        return AttributeValue.builder().n(Long.toString(v)).build();
+    }
+}
@@ -10,11 +10,23 @@ import java.util.HashMap;
 import java.util.Map;
 
 public class DynamoLogDao implements LogDao {
-    private final DynamoDbClient client = DynamoDBClientUtil.client();
+    private final DynamoDbClient client;
     private final String table = "StudentLogs";
 
+    public DynamoLogDao() {
+        this(DynamoDBClientUtil.client());
+    }
+
+    public DynamoLogDao(DynamoDbClient client) {
+        this.client = client;
+    }
+
     @Override
     public void append(String logId, String studentId, String action, String courseId) {
+        client.putItem(PutItemRequest.builder().tableName(table).item(toItem(logId, studentId, action, courseId)).build());
+    }
+
+    static Map<String, AttributeValue> toItem(String logId, String studentId, String action, String courseId) {
         // store ISO-8601 timestamp only under "timestamp"
         String iso = Instant.now().toString(); // e.g. 2025-09-16T12:34:56.789Z
 
@@ -26,7 +38,6 @@ public class DynamoLogDao implements LogDao {
 
         // only ISO string under 'timestamp'
         item.put("timestamp", AttributeValue.builder().s(iso).build());
-
-        client.putItem(PutItemRequest.builder().tableName(table).item(item).build());
+        return item;
     }
 }
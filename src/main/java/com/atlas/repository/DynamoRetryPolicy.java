@@ -0,0 +1,84 @@
+package com.atlas.repository;
+
+import com.atlas.util.Env;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.exception.SdkServiceException;
+import software.amazon.awssdk.services.dynamodb.model.CancellationReason;
+import software.amazon.awssdk.services.dynamodb.model.ProvisionedThroughputExceededException;
+import software.amazon.awssdk.services.dynamodb.model.RequestLimitExceededException;
+import software.amazon.awssdk.services.dynamodb.model.TransactionCanceledException;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * How often and how patiently ResilientDynamoDbClient retries one class of DynamoDB operations.
+ * Only throttling, 5xx and I/O errors are retried; a failed condition, a validation error or a
+ * transaction cancelled by a condition or a conflict goes straight back to the caller (the DAOs handle those).
+ * Delays are exponential with full jitter, doubled for throttling.
+ * Config (env), per class READ / WRITE / BATCH_WRITE: DYNAMODB_RETRY_<CLASS>_ATTEMPTS, _BASE_MS, _MAX_MS.
+ */
+public final class DynamoRetryPolicy {
+    /** GetItem/Query/Scan/BatchGetItem/TransactGetItems; single-item and transactional writes; BatchWriteItem */
+    public enum OperationClass { READ, WRITE, BATCH_WRITE }
+
+    private final int maxAttempts;
+    private final long baseDelayMs;
+    private final long maxDelayMs;
+
+    public DynamoRetryPolicy(int maxAttempts, long baseDelayMs, long maxDelayMs) {
+        if (maxAttempts < 1) throw new IllegalArgumentException("maxAttempts must be >= 1");
+        this.maxAttempts = maxAttempts;
+        this.baseDelayMs = baseDelayMs;
+        this.maxDelayMs = maxDelayMs;
+    }
+
+    /**
+     * Defaults: reads 4 attempts from 25 ms, writes 3 from 50 ms (conditional writes are already retried by
+     * the DAOs on conflicts), batch writes 6 from 100 ms (imports would rather wait than fail).
+     */
+    public static DynamoRetryPolicy fromEnv(OperationClass operationClass) {
+        String prefix = "DYNAMODB_RETRY_" + operationClass.name() + "_";
+        DynamoRetryPolicy d = switch (operationClass) {
+            case READ -> new DynamoRetryPolicy(4, 25, 1000);
+            case WRITE -> new DynamoRetryPolicy(3, 50, 1000);
+            case BATCH_WRITE -> new DynamoRetryPolicy(6, 100, 5000);
+        };
+        return new DynamoRetryPolicy(Env.getInt(prefix + "ATTEMPTS", d.maxAttempts),
+                Env.getLong(prefix + "BASE_MS", d.baseDelayMs), Env.getLong(prefix + "MAX_MS", d.maxDelayMs));
+    }
+
+    /** delay before retry number attempt (1 = first retry) */
+    public long delayMs(int attempt, boolean throttled) {
+        long base = throttled ? baseDelayMs * 2 : baseDelayMs;
+        long cap = Math.min(maxDelayMs, base << Math.min(attempt - 1, 20));
+        return cap <= 0 ? 0 : ThreadLocalRandom.current().nextLong(cap + 1);
+    }
+
+    public int getMaxAttempts() { return maxAttempts; }
+
+    public static boolean isThrottle(SdkException ex) {
+        if (ex instanceof ProvisionedThroughputExceededException || ex instanceof RequestLimitExceededException) return true;
+        if (ex instanceof TransactionCanceledException tx && tx.hasCancellationReasons()) {
+            for (CancellationReason r : tx.cancellationReasons()) {
+                if ("ThrottlingError".equals(r.code()) || "ProvisionedThroughputExceeded".equals(r.code())) return true;
+            }
+            return false;
+        }
+        return ex instanceof AwsServiceException aws && aws.isThrottlingException();
+    }
+
+    public static boolean isRetryable(SdkException ex) {
+        if (isThrottle(ex)) return true;
+        if (ex instanceof TransactionCanceledException) return false;
+        if (ex instanceof SdkServiceException svc) return svc.statusCode() >= 500;
+        if (!(ex instanceof SdkClientException)) return false;
+        // connection resets, timeouts, ... but not client-side mistakes such as a request that cannot be marshalled
+        for (Throwable t = ex.getCause(); t != null; t = t.getCause()) {
+            if (t instanceof IOException) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,252 @@
+package com.atlas.repository;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.*;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Idempotent schema migrations for tables the application relies on.
+ * Mirrors what setup-dynamodb.ps1 does for fresh installs, so existing tables
+ * (and DynamoDB Local in tests) can be brought up to date from Java.
+ */
+public final class DynamoSchema {
+
+    private DynamoSchema() {}
+
+    /**
+     * Adds the email GSI to an existing Students table if it is missing.
+     * DynamoDB backfills the index from the existing rows; until it is ACTIVE,
+     * DynamoStudentDao.findByEmail keeps using the scan fallback.
+     * Returns true if the index was created by this call.
+     */
+    public static boolean ensureStudentEmailIndex(DynamoDbClient client) {
+        TableDescription t = client.describeTable(DescribeTableRequest.builder().tableName("Students").build()).table();
+        if (t.hasGlobalSecondaryIndexes() && t.globalSecondaryIndexes().stream()
+                .anyMatch(i -> DynamoStudentDao.EMAIL_INDEX.equals(i.indexName()))) {
+            return false;
+        }
+
+        UpdateTableRequest.Builder req = UpdateTableRequest.builder()
+                .tableName("Students")
+                .attributeDefinitions(AttributeDefinition.builder().attributeName("email").attributeType(ScalarAttributeType.S).build())
+                .globalSecondaryIndexUpdates(GlobalSecondaryIndexUpdate.builder()
+                        .create(CreateGlobalSecondaryIndexAction.builder()
+                                .indexName(DynamoStudentDao.EMAIL_INDEX)
+                                .keySchema(KeySchemaElement.builder().attributeName("email").keyType(KeyType.HASH).build())
+                                .projection(Projection.builder().projectionType(ProjectionType.ALL).build())
+                                .provisionedThroughput(provisionedFor(t))
+                                .build())
+                        .build());
+        client.updateTable(req.build());
+        return true;
+    }
+
+    /**
+     * Creates the Sessions table (key: token) if it is missing and enables DynamoDB TTL on expiresAt,
+     * so abandoned sessions are deleted by DynamoDB. Returns true if the table was created by this call.
+     */
+    public static boolean ensureSessionsTable(DynamoDbClient client) {
+        return ensureTtlTable(client, DynamoSessionDao.TABLE, "token", DynamoSessionDao.TTL_ATTRIBUTE);
+    }
+
+    /**
+     * Creates the IdempotencyKeys table (key: idempotencyKey) if it is missing and enables DynamoDB TTL on
+     * expiresAt, so recorded enroll/drop outcomes are deleted after IDEMPOTENCY_TTL_HOURS.
+     * Returns true if the table was created by this call.
+     */
+    public static boolean ensureIdempotencyTable(DynamoDbClient client) {
+        return ensureTtlTable(client, DynamoIdempotencyDao.TABLE, "idempotencyKey", DynamoIdempotencyDao.TTL_ATTRIBUTE);
+    }
+
+    private static boolean ensureTtlTable(DynamoDbClient client, String table, String keyAttribute, String ttlAttribute) {
+        boolean created = false;
+        if (!client.listTables().tableNames().contains(table)) {
+            try {
+                client.createTable(CreateTableRequest.builder()
+                        .tableName(table)
+                        .attributeDefinitions(AttributeDefinition.builder().attributeName(keyAttribute).attributeType(ScalarAttributeType.S).build())
+                        .keySchema(KeySchemaElement.builder().attributeName(keyAttribute).keyType(KeyType.HASH).build())
+                        .billingMode(BillingMode.PAY_PER_REQUEST)
+                        .build());
+                created = true;
+            } catch (ResourceInUseException raced) {
+                // another node created it first
+            }
+            client.waiter().waitUntilTableExists(DescribeTableRequest.builder().tableName(table).build());
+        }
+        TimeToLiveDescription ttl = client.describeTimeToLive(DescribeTimeToLiveRequest.builder()
+                .tableName(table).build()).timeToLiveDescription();
+        if (ttl == null || ttl.timeToLiveStatus() == TimeToLiveStatus.DISABLED) {
+            client.updateTimeToLive(UpdateTimeToLiveRequest.builder()
+                    .tableName(table)
+                    .timeToLiveSpecification(TimeToLiveSpecification.builder()
+                            .attributeName(ttlAttribute).enabled(true).build())
+                    .build());
+        }
+        return created;
+    }
+
+    /**
+     * Creates the CourseSeatShards table (courseId HASH, shard N RANGE) used by sharded seat counters
+     * if it is missing. Returns true if the table was created by this call.
+     */
+    public static boolean ensureSeatShardsTable(DynamoDbClient client) {
+        if (client.listTables().tableNames().contains(SeatShards.TABLE)) return false;
+        try {
+            client.createTable(CreateTableRequest.builder()
+                    .tableName(SeatShards.TABLE)
+                    .attributeDefinitions(
+                            AttributeDefinition.builder().attributeName("courseId").attributeType(ScalarAttributeType.S).build(),
+                            AttributeDefinition.builder().attributeName("shard").attributeType(ScalarAttributeType.N).build())
+                    .keySchema(
+                            KeySchemaElement.builder().attributeName("courseId").keyType(KeyType.HASH).build(),
+                            KeySchemaElement.builder().attributeName("shard").keyType(KeyType.RANGE).build())
+                    .billingMode(BillingMode.PAY_PER_REQUEST)
+                    .build());
+        } catch (ResourceInUseException raced) {
+            return false;
+        }
+        client.waiter().waitUntilTableExists(DescribeTableRequest.builder().tableName(SeatShards.TABLE).build());
+        return true;
+    }
+
+    /**
+     * Creates the Waitlist table (courseId HASH, queuedAt RANGE, local index byStudent on studentId)
+     * if it is missing. Returns true if the table was created by this call.
+     */
+    public static boolean ensureWaitlistTable(DynamoDbClient client) {
+        if (client.listTables().tableNames().contains(WaitlistQueue.TABLE)) return false;
+        try {
+            client.createTable(CreateTableRequest.builder()
+                    .tableName(WaitlistQueue.TABLE)
+                    .attributeDefinitions(
+                            AttributeDefinition.builder().attributeName("courseId").attributeType(ScalarAttributeType.S).build(),
+                            AttributeDefinition.builder().attributeName("queuedAt").attributeType(ScalarAttributeType.S).build(),
+                            AttributeDefinition.builder().attributeName("studentId").attributeType(ScalarAttributeType.S).build())
+                    .keySchema(
+                            KeySchemaElement.builder().attributeName("courseId").keyType(KeyType.HASH).build(),
+                            KeySchemaElement.builder().attributeName("queuedAt").keyType(KeyType.RANGE).build())
+                    .localSecondaryIndexes(LocalSecondaryIndex.builder()
+                            .indexName(WaitlistQueue.STUDENT_INDEX)
+                            .keySchema(
+                                    KeySchemaElement.builder().attributeName("courseId").keyType(KeyType.HASH).build(),
+                                    KeySchemaElement.builder().attributeName("studentId").keyType(KeyType.RANGE).build())
+                            .projection(Projection.builder().projectionType(ProjectionType.KEYS_ONLY).build())
+                            .build())
+                    .billingMode(BillingMode.PAY_PER_REQUEST)
+                    .build());
+        } catch (ResourceInUseException raced) {
+            return false;
+        }
+        client.waiter().waitUntilTableExists(DescribeTableRequest.builder().tableName(WaitlistQueue.TABLE).build());
+        return true;
+    }
+
+    /**
+     * Creates the Enrollments table (courseId HASH, studentId RANGE, GSI byStudent on studentId/courseId)
+     * if it is missing. Returns true if the table was created by this call.
+     */
+    public static boolean ensureEnrollmentsTable(DynamoDbClient client) {
+        if (client.listTables().tableNames().contains(Enrollments.TABLE)) return false;
+        try {
+            client.createTable(CreateTableRequest.builder()
+                    .tableName(Enrollments.TABLE)
+                    .attributeDefinitions(
+                            AttributeDefinition.builder().attributeName("courseId").attributeType(ScalarAttributeType.S).build(),
+                            AttributeDefinition.builder().attributeName("studentId").attributeType(ScalarAttributeType.S).build())
+                    .keySchema(
+                            KeySchemaElement.builder().attributeName("courseId").keyType(KeyType.HASH).build(),
+                            KeySchemaElement.builder().attributeName("studentId").keyType(KeyType.RANGE).build())
+                    .globalSecondaryIndexes(GlobalSecondaryIndex.builder()
+                            .indexName(Enrollments.STUDENT_INDEX)
+                            .keySchema(
+                                    KeySchemaElement.builder().attributeName("studentId").keyType(KeyType.HASH).build(),
+                                    KeySchemaElement.builder().attributeName("courseId").keyType(KeyType.RANGE).build())
+                            .projection(Projection.builder().projectionType(ProjectionType.KEYS_ONLY).build())
+                            .build())
+                    .billingMode(BillingMode.PAY_PER_REQUEST)
+                    .build());
+        } catch (ResourceInUseException raced) {
+            return false;
+        }
+        client.waiter().waitUntilTableExists(DescribeTableRequest.builder().tableName(Enrollments.TABLE).build());
+        return true;
+    }
+
+    /**
+     * Moves rosters still stored as an enrolledIds list on Courses items into the Enrollments table and removes
+     * the list attribute (currentEnrolledCount already counts them). Safe to re-run.
+     * Returns the number of courses migrated.
+     */
+    public static int migrateLegacyRosters(DynamoDbClient client) {
+        ScanRequest legacy = ScanRequest.builder()
+                .tableName("Courses")
+                .projectionExpression("courseId, enrolledIds")
+                .filterExpression("attribute_exists(enrolledIds)")
+                .build();
+        int migrated = 0;
+        for (Map<String, AttributeValue> it : client.scanPaginator(legacy).items()) {
+            String courseId = it.get("courseId").s();
+            for (AttributeValue studentId : it.get("enrolledIds").l()) {
+                try {
+                    client.putItem(PutItemRequest.builder()
+                            .tableName(Enrollments.TABLE)
+                            .item(Enrollments.key(courseId, studentId.s()))
+                            .conditionExpression("attribute_not_exists(studentId)")
+                            .build());
+                } catch (ConditionalCheckFailedException alreadyMoved) {
+                    // moved by an earlier, interrupted run
+                }
+            }
+            client.updateItem(UpdateItemRequest.builder()
+                    .tableName("Courses")
+                    .key(Map.of("courseId", it.get("courseId")))
+                    .updateExpression("REMOVE enrolledIds")
+                    .build());
+            migrated++;
+        }
+        return migrated;
+    }
+
+    /**
+     * Moves waitlists still stored as a waitlistIds list on Courses items into the Waitlist table, keeping
+     * their order ahead of anyone who joined since, then removes the list attribute. Safe to re-run.
+     * Returns the number of courses migrated.
+     */
+    public static int migrateLegacyWaitlists(DynamoDbClient client) {
+        ScanRequest legacy = ScanRequest.builder()
+                .tableName("Courses")
+                .projectionExpression("courseId, waitlistIds")
+                .filterExpression("attribute_exists(waitlistIds)")
+                .build();
+        int migrated = 0;
+        for (Map<String, AttributeValue> it : client.scanPaginator(legacy).items()) {
+            String courseId = it.get("courseId").s();
+            List<AttributeValue> ids = it.get("waitlistIds").l();
+            for (int i = 0; i < ids.size(); i++) {
+                // list index as the join time: sorts before every real timestamp, and a re-run writes the same keys
+                try {
+                    client.putItem(WaitlistQueue.joinRequest(courseId, ids.get(i).s(), i));
+                } catch (ConditionalCheckFailedException alreadyMoved) {
+                    // moved by an earlier, interrupted run
+                }
+            }
+            client.updateItem(UpdateItemRequest.builder()
+                    .tableName("Courses")
+                    .key(Map.of("courseId", it.get("courseId")))
+                    .updateExpression("REMOVE waitlistIds")
+                    .build());
+            migrated++;
+        }
+        return migrated;
+    }
+
+    // GSIs on provisioned tables need their own throughput; on-demand tables must not set it
+    private static ProvisionedThroughput provisionedFor(TableDescription t) {
+        if (t.billingModeSummary() != null && t.billingModeSummary().billingMode() == BillingMode.PAY_PER_REQUEST) return null;
+        if (t.provisionedThroughput() == null || t.provisionedThroughput().readCapacityUnits() == 0L) return null;
+        return ProvisionedThroughput.builder().readCapacityUnits(5L).writeCapacityUnits(5L).build();
+    }
+}
@@ -0,0 +1,102 @@
+package com.atlas.repository;
+
+import com.atlas.dao.SessionDao;
+import com.atlas.service.SessionStore;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.*;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Sessions shared by every WebApp node, one item per token in the Sessions table:
+ * token (key), studentId, expiresAt (epoch seconds, the table's TTL attribute).
+ * DynamoDB TTL deletes expired items eventually (not at expiresAt), so reads check expiresAt themselves.
+ */
+public class DynamoSessionDao implements SessionDao {
+    static final String TABLE = "Sessions";
+    static final String TTL_ATTRIBUTE = "expiresAt";
+
+    private final DynamoDbClient client = DynamoDBClientUtil.client();
+    private final String table = TABLE;
+    private final Duration ttl;
+    private final boolean sliding;
+    private final Clock clock;
+
+    public DynamoSessionDao() {
+        this(SessionStore.ttlFromEnv(), SessionStore.slidingFromEnv(), Clock.systemUTC());
+    }
+
+    public DynamoSessionDao(Duration ttl, boolean sliding, Clock clock) {
+        this.ttl = ttl;
+        this.sliding = sliding;
+        this.clock = clock;
+    }
+
+    @Override
+    public String create(String studentId) {
+        String token = UUID.randomUUID().toString();
+        client.putItem(PutItemRequest.builder()
+                .tableName(table)
+                .item(Map.of(
+                        "token", AttributeValue.builder().s(token).build(),
+                        "studentId", AttributeValue.builder().s(studentId).build(),
+                        TTL_ATTRIBUTE, epochSeconds(clock.instant().getEpochSecond() + ttl.toSeconds())))
+                .build());
+        return token;
+    }
+
+    @Override
+    public String validateAndGetStudentId(String token) {
+        // strongly consistent, so a session created on another node a moment ago is visible
+        Map<String, AttributeValue> item = client.getItem(GetItemRequest.builder()
+                .tableName(table)
+                .key(key(token))
+                .consistentRead(true)
+                .build()).item();
+        if (item == null || item.isEmpty() || !item.containsKey("studentId")) return null;
+
+        long now = clock.instant().getEpochSecond();
+        long expiresAt = item.containsKey(TTL_ATTRIBUTE) ? Long.parseLong(item.get(TTL_ATTRIBUTE).n()) : 0L;
+        if (now >= expiresAt) return null;
+
+        if (sliding && expiresAt - now < ttl.toSeconds() / 2) renew(token, expiresAt, now);
+        return item.get("studentId").s();
+    }
+
+    // conditional on the expiry we read, so concurrent renewals from several nodes write once
+    private void renew(String token, long seenExpiresAt, long now) {
+        try {
+            client.updateItem(UpdateItemRequest.builder()
+                    .tableName(table)
+                    .key(key(token))
+                    .updateExpression("SET #exp = :new")
+                    .conditionExpression("#exp = :seen")
+                    .expressionAttributeNames(Map.of("#exp", TTL_ATTRIBUTE))
+                    .expressionAttributeValues(Map.of(
+                            ":new", epochSeconds(now + ttl.toSeconds()),
+                            ":seen", epochSeconds(seenExpiresAt)))
+                    .build());
+        } catch (ConditionalCheckFailedException ignored) {
+            // someone else renewed or logged out in the meantime
+        }
+    }
+
+    @Override
+    public void invalidate(String token) {
+        client.deleteItem(DeleteItemRequest.builder().tableName(table).key(key(token)).build());
+    }
+
+    @Override public Duration getTtl() { return ttl; }
+    @Override public boolean isSliding() { return sliding; }
+
+    private static Map<String, AttributeValue> key(String token) {
+        return Map.of("token", AttributeValue.builder().s(token).build());
+    }
+
+    private static AttributeValue epochSeconds(long v) {
+        return AttributeValue.builder().n(Long.toString(v)).build();
+    }
+}
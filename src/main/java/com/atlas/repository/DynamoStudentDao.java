@@ -1,19 +1,204 @@
 package com.atlas.repository;
 
 import com.atlas.dao.StudentDao;
+import com.atlas.exception.VersionConflictException;
 import com.atlas.model.Student;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.*;
 
 import java.util.*;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 public class DynamoStudentDao implements StudentDao {
-    private final DynamoDbClient client = DynamoDBClientUtil.client();
-    private final String table = "Students";
+    static final String TABLE = "Students";
+    static final String EMAIL_INDEX = "email-index";
+    // how long to scan before trying the email index again once it was reported missing or backfilling
+    static final long EMAIL_INDEX_REPROBE_NANOS = 60_000_000_000L;
+    private static final int MAX_TRANSACTION_ITEMS = 100;
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final DynamoDbClient client;
+    private final String table = TABLE;
+    private final TableScanner scanner;
+    private final BatchLoader batchLoader;
+
+    // System.nanoTime() before which the email index is assumed missing, so we stop paying for a failing
+    // Query on every login; 0 = use the index
+    private volatile long emailIndexMissingUntil = 0;
+
+    public DynamoStudentDao() {
+        this(TableScanner.configuredSegments(), null);
+    }
+
+    /**
+     * @param scanSegments parallel scan segments used by listAll (1 = sequential)
+     * @param scanExecutor executor for the segment scans; null lets the DAO create a small daemon pool
+     */
+    public DynamoStudentDao(int scanSegments, Executor scanExecutor) {
+        this(DynamoDBClientUtil.client(), scanSegments, scanExecutor);
+    }
+
+    /** on a given client (e.g. a fault-injecting one in tests) */
+    public DynamoStudentDao(DynamoDbClient client) {
+        this(client, TableScanner.configuredSegments(), null);
+    }
+
+    public DynamoStudentDao(DynamoDbClient client, int scanSegments, Executor scanExecutor) {
+        this.client = client;
+        this.scanner = new TableScanner(client, table, scanSegments, scanExecutor);
+        this.batchLoader = new BatchLoader(client, table, "id");
+    }
 
     @Override
     public void save(Student s) {
+        try {
+            client.putItem(saveRequest(s));
+        } catch (ConditionalCheckFailedException ex) {
+            throw new VersionConflictException("Student " + s.getId() + " was changed concurrently");
+        }
+        s.setVersion(s.getVersion() + 1);
+    }
+
+    /**
+     * Conditional puts (attribute_not_exists(id)) in one TransactWriteItems per 100 students. A taken id cancels
+     * its transaction: that student is left out and the rest retried. A failure leaves the transactions
+     * before it written.
+     */
+    @Override
+    public Set<String> saveAllNew(List<Student> students) {
+        Set<String> taken = new HashSet<>();
+        for (int from = 0; from < students.size(); from += MAX_TRANSACTION_ITEMS) {
+            List<Student> pending = new ArrayList<>(students.subList(from, Math.min(from + MAX_TRANSACTION_ITEMS, students.size())));
+            int attempt = 0;
+            while (!pending.isEmpty()) {
+                List<TransactWriteItem> puts = new ArrayList<>(pending.size());
+                for (Student st : pending) {
+                    Map<String, AttributeValue> item = toItem(st);
+                    item.put("version", AttributeValue.builder().n("1").build());
+                    puts.add(TransactWriteItem.builder().put(Put.builder()
+                            .tableName(table)
+                            .item(item)
+                            .conditionExpression("attribute_not_exists(id)")
+                            .build()).build());
+                }
+                try {
+                    client.transactWriteItems(TransactWriteItemsRequest.builder().transactItems(puts).build());
+                    for (Student st : pending) st.setVersion(1);
+                    pending.clear();
+                } catch (TransactionCanceledException ex) {
+                    List<Student> exists = new ArrayList<>();
+                    for (int i = 0; i < pending.size(); i++) {
+                        if (Enrollments.failedCondition(ex.cancellationReasons(), i)) exists.add(pending.get(i));
+                    }
+                    if (!exists.isEmpty()) {
+                        for (Student st : exists) taken.add(st.getId());
+                        pending.removeAll(exists);
+                        continue;
+                    }
+                    // a conflicting write to one of the ids: try again
+                    if (++attempt >= MAX_ATTEMPTS) throw new IllegalStateException("Student import is busy, please try again");
+                    BatchLoader.backoff(attempt);
+                }
+            }
+        }
+        return taken;
+    }
+
+    @Override
+    public void updatePasswordHash(String id, String passwordHash) {
+        // a single-attribute update, so a concurrent enroll/drop save is not overwritten
+        client.updateItem(UpdateItemRequest.builder()
+                .tableName(table)
+                .key(key(id))
+                .updateExpression("SET passwordHash = :h ADD version :one")
+                .conditionExpression("attribute_exists(id)")
+                .expressionAttributeValues(Map.of(
+                        ":h", AttributeValue.builder().s(passwordHash).build(),
+                        ":one", AttributeValue.builder().n("1").build()))
+                .build());
+    }
+
+    @Override
+    public void addEnrolledCourse(String id, String courseId) {
+        addCourse(addCourseRequest(id, "enrolledCourseIds", courseId));
+    }
+
+    @Override
+    public boolean addEnrolledCourse(String id, String courseId, int maxCourses) {
+        UpdateItemRequest req = addCourseRequest(id, "enrolledCourseIds", courseId);
+        try {
+            client.updateItem(req.toBuilder()
+                    .conditionExpression(req.conditionExpression()
+                            + " AND (attribute_not_exists(enrolledCourseIds) OR size(enrolledCourseIds) < :max)")
+                    .expressionAttributeValues(with(req.expressionAttributeValues(), ":max", Integer.toString(maxCourses)))
+                    .build());
+            return true;
+        } catch (ConditionalCheckFailedException ex) {
+            // already listed, at the limit, or no such student: the fresh item says which
+            Student s = getByIdFresh(id);
+            return s != null && s.getEnrolledCourseIds().contains(courseId);
+        }
+    }
+
+    @Override
+    public void addWaitlistedCourse(String id, String courseId) {
+        addCourse(addCourseRequest(id, "waitlistedCourseIds", courseId));
+    }
+
+    private static Map<String, AttributeValue> with(Map<String, AttributeValue> values, String name, String number) {
+        Map<String, AttributeValue> out = new HashMap<>(values);
+        out.put(name, AttributeValue.builder().n(number).build());
+        return out;
+    }
+
+    private void addCourse(UpdateItemRequest req) {
+        try {
+            client.updateItem(req);
+        } catch (ConditionalCheckFailedException alreadyListed) {
+            // already on the list (or no such student): nothing to add
+        }
+    }
+
+    // request builders
+
+    /** whole-item put conditioned on the version the student was read at; writes the next version */
+    static PutItemRequest saveRequest(Student s) {
+        Map<String, AttributeValue> item = toItem(s);
+        item.put("version", AttributeValue.builder().n(Long.toString(s.getVersion() + 1)).build());
+        PutItemRequest.Builder b = PutItemRequest.builder().tableName(TABLE).item(item);
+        if (s.getVersion() == 0) {
+            b.conditionExpression("attribute_not_exists(version)");
+        } else {
+            b.conditionExpression("version = :v")
+                    .expressionAttributeValues(Map.of(":v", AttributeValue.builder().n(Long.toString(s.getVersion())).build()));
+        }
+        return b.build();
+    }
+
+    /**
+     * list_append of one course id to list; fails its condition if the id is already listed. Bumps the version
+     * so whole-item saves based on an older read conflict instead of dropping the new entry.
+     */
+    static UpdateItemRequest addCourseRequest(String id, String list, String courseId) {
+        return UpdateItemRequest.builder()
+                .tableName(TABLE)
+                .key(key(id))
+                .updateExpression("SET " + list + " = list_append(if_not_exists(" + list + ", :empty), :new) ADD version :one")
+                .conditionExpression("attribute_exists(id) AND NOT contains(" + list + ", :cid)")
+                .expressionAttributeValues(Map.of(
+                        ":cid", AttributeValue.builder().s(courseId).build(),
+                        ":new", AttributeValue.builder().l(AttributeValue.builder().s(courseId).build()).build(),
+                        ":empty", AttributeValue.builder().l(Collections.emptyList()).build(),
+                        ":one", AttributeValue.builder().n("1").build()))
+                .build();
+    }
+
+    static Map<String, AttributeValue> key(String id) {
+        return Map.of("id", AttributeValue.builder().s(id).build());
+    }
+
+    static Map<String, AttributeValue> toItem(Student s) {
         Map<String, AttributeValue> item = new HashMap<>();
         item.put("id", AttributeValue.builder().s(s.getId()).build());
         item.put("name", AttributeValue.builder().s(s.getName()).build());
@@ -27,43 +212,91 @@ public class DynamoStudentDao implements StudentDao {
                 s.getEnrolledCourseIds().stream().map(id -> AttributeValue.builder().s(id).build()).collect(Collectors.toList())).build());
         item.put("waitlistedCourseIds", AttributeValue.builder().l(
                 s.getWaitlistedCourseIds().stream().map(id -> AttributeValue.builder().s(id).build()).collect(Collectors.toList())).build());
-        client.putItem(PutItemRequest.builder().tableName(table).item(item).build());
+        return item;
     }
 
     @Override
     public Student getById(String id) {
         GetItemResponse resp = client.getItem(GetItemRequest.builder()
                 .tableName(table)
-                .key(Map.of("id", AttributeValue.builder().s(id).build()))
+                .key(key(id))
                 .build());
-        Map<String, AttributeValue> it = resp.item();
-        if (it == null || it.isEmpty()) return null;
-        String name = it.containsKey("name") ? it.get("name").s() : "";
-        String email = it.containsKey("email") ? it.get("email").s() : "";
-        String hash = it.containsKey("passwordHash") ? it.get("passwordHash").s() : "";
-        Student s = new Student(id, name, email, hash);
-        if (it.containsKey("enrolledCourseIds")) s.getEnrolledCourseIds().addAll(it.get("enrolledCourseIds").l().stream().map(AttributeValue::s).collect(Collectors.toList()));
-        if (it.containsKey("waitlistedCourseIds")) s.getWaitlistedCourseIds().addAll(it.get("waitlistedCourseIds").l().stream().map(AttributeValue::s).collect(Collectors.toList()));
-        return s;
+        return toStudent(resp.item());
+    }
+
+    @Override
+    public Student getByIdFresh(String id) {
+        return toStudent(client.getItem(GetItemRequest.builder().tableName(table).key(key(id)).consistentRead(true).build()).item());
+    }
+
+    @Override
+    public Map<String, Student> getByIds(Collection<String> ids) {
+        return batchLoader.load(ids, DynamoStudentDao::toStudent);
     }
 
+    /**
+     * Looks the student up through the email GSI (projection ALL), so a login is a single Query
+     * regardless of table size. Tables that predate the index fall back to a paginated scan
+     * until {@link DynamoSchema#ensureStudentEmailIndex} has been run and the index is ACTIVE
+     * (the index is probed again every minute). Throttling and other errors are rethrown.
+     */
     @Override
     public Student findByEmail(String email) {
         if (email == null) return null;
         String normalized = email.trim().toLowerCase();
-        ScanResponse resp = client.scan(ScanRequest.builder()
+        Map<String, AttributeValue> vals = Map.of(":e", AttributeValue.builder().s(normalized).build());
+
+        long missingUntil = emailIndexMissingUntil;
+        if (missingUntil == 0 || System.nanoTime() - missingUntil >= 0) {
+            try {
+                QueryResponse resp = client.query(QueryRequest.builder()
+                        .tableName(table)
+                        .indexName(EMAIL_INDEX)
+                        .keyConditionExpression("email = :e")
+                        .expressionAttributeValues(vals)
+                        .limit(1)
+                        .build());
+                return resp.items().isEmpty() ? null : toStudent(resp.items().get(0));
+            } catch (DynamoDbException ex) {
+                if (!isMissingIndex(ex)) throw ex;
+                emailIndexMissingUntil = System.nanoTime() + EMAIL_INDEX_REPROBE_NANOS;
+                System.err.println("Students." + EMAIL_INDEX + " unavailable, falling back to scan: " + ex.getMessage());
+            }
+        }
+
+        ScanRequest scan = ScanRequest.builder()
                 .tableName(table)
                 .filterExpression("email = :e")
-                .expressionAttributeValues(Map.of(":e", AttributeValue.builder().s(normalized).build()))
-                .build());
-        if (resp.count() == 0 || resp.items().isEmpty()) return null;
-        String id = resp.items().get(0).get("id").s();
-        return getById(id);
+                .expressionAttributeValues(vals)
+                .build();
+        for (Map<String, AttributeValue> it : client.scanPaginator(scan).items()) {
+            return toStudent(it);
+        }
+        return null;
+    }
+
+    // DynamoDB reports a missing or backfilling index as a ValidationException naming the index
+    static boolean isMissingIndex(DynamoDbException ex) {
+        String code = ex.awsErrorDetails() == null ? null : ex.awsErrorDetails().errorCode();
+        String message = ex.getMessage() == null ? "" : ex.getMessage().toLowerCase();
+        return "ValidationException".equals(code) && message.contains("index");
     }
 
     @Override
     public List<Student> listAll() {
-        ScanResponse resp = client.scan(ScanRequest.builder().tableName(table).build());
-        return resp.items().stream().map(i -> getById(i.get("id").s())).collect(Collectors.toList());
+        return scanner.scanAll(DynamoStudentDao::toStudent);
+    }
+
+    static Student toStudent(Map<String, AttributeValue> it) {
+        if (it == null || it.isEmpty()) return null;
+        String id = it.get("id").s();
+        String name = it.containsKey("name") ? it.get("name").s() : "";
+        String email = it.containsKey("email") ? it.get("email").s() : "";
+        String hash = it.containsKey("passwordHash") ? it.get("passwordHash").s() : "";
+        Student s = new Student(id, name, email, hash);
+        if (it.containsKey("enrolledCourseIds")) s.getEnrolledCourseIds().addAll(it.get("enrolledCourseIds").l().stream().map(AttributeValue::s).collect(Collectors.toList()));
+        if (it.containsKey("waitlistedCourseIds")) s.getWaitlistedCourseIds().addAll(it.get("waitlistedCourseIds").l().stream().map(AttributeValue::s).collect(Collectors.toList()));
+        if (it.containsKey("version")) s.setVersion(Long.parseLong(it.get("version").n()));
+        return s;
     }
 }
@@ -0,0 +1,149 @@
+package com.atlas.repository;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Course rosters, one item per enrollment in the Enrollments table
+ * (courseId HASH, studentId RANGE; shard N when the seat came from a seat shard).
+ * The byStudent GSI (studentId HASH, courseId RANGE) lists a student's courses.
+ * Enroll and drop pair the conditional Put/Delete of the enrollment item with the seat counter update
+ * in one transaction, so neither write grows with class size and roster and count cannot drift apart.
+ */
+class Enrollments {
+    static final String TABLE = "Enrollments";
+    static final String STUDENT_INDEX = "byStudent";
+    static final String SHARD = "shard";
+
+    private final DynamoDbClient client;
+
+    Enrollments(DynamoDbClient client) {
+        this.client = client;
+    }
+
+    /** the enrollment item, or null if the student is not enrolled */
+    Map<String, AttributeValue> get(String courseId, String studentId) {
+        Map<String, AttributeValue> it = client.getItem(getRequest(courseId, studentId)).item();
+        return it == null || it.isEmpty() ? null : it;
+    }
+
+    List<String> roster(String courseId) {
+        List<String> out = new ArrayList<>();
+        client.queryPaginator(rosterRequest(courseId)).items().forEach(it -> out.add(it.get("studentId").s()));
+        return out;
+    }
+
+    List<String> coursesOf(String studentId) {
+        List<String> out = new ArrayList<>();
+        client.queryPaginator(byStudentRequest(studentId)).items().forEach(it -> out.add(it.get("courseId").s()));
+        return out;
+    }
+
+    // request builders shared with DynamoEnrollmentTransactionDao
+
+    /** records the enrollment; fails its condition if the student already holds a seat */
+    static TransactWriteItem put(String courseId, String studentId, Integer shard) {
+        Map<String, AttributeValue> item = new HashMap<>(key(courseId, studentId));
+        if (shard != null) item.put(SHARD, AttributeValue.builder().n(Integer.toString(shard)).build());
+        return TransactWriteItem.builder().put(Put.builder()
+                .tableName(TABLE)
+                .item(item)
+                .conditionExpression("attribute_not_exists(studentId)")
+                .build()).build();
+    }
+
+    /** removes the enrollment; fails its condition if the student holds no seat */
+    static TransactWriteItem delete(String courseId, String studentId) {
+        return TransactWriteItem.builder().delete(Delete.builder()
+                .tableName(TABLE)
+                .key(key(courseId, studentId))
+                .conditionExpression("attribute_exists(studentId)")
+                .build()).build();
+    }
+
+    /** takes a seat on the counter of an unsharded course */
+    static TransactWriteItem takeSeat(String courses, String courseId, int maxSeats) {
+        return takeSeats(courses, courseId, maxSeats, 1);
+    }
+
+    /** takes count seats at once on the counter of an unsharded course; fails its condition unless all of them are free */
+    static TransactWriteItem takeSeats(String courses, String courseId, int maxSeats, int count) {
+        return TransactWriteItem.builder().update(Update.builder()
+                .tableName(courses)
+                .key(courseKey(courseId))
+                .updateExpression("SET currentEnrolledCount = currentEnrolledCount + :n ADD version :one")
+                .conditionExpression("attribute_not_exists(seatShards) AND currentEnrolledCount <= :limit")
+                .expressionAttributeValues(Map.of(
+                        ":n", AttributeValue.builder().n(String.valueOf(count)).build(),
+                        ":one", AttributeValue.builder().n("1").build(),
+                        ":limit", AttributeValue.builder().n(String.valueOf(maxSeats - count)).build()))
+                .returnValuesOnConditionCheckFailure(ReturnValuesOnConditionCheckFailure.ALL_OLD)
+                .build()).build();
+    }
+
+    /** gives a seat back to the counter of an unsharded course */
+    static TransactWriteItem freeSeat(String courses, String courseId) {
+        return TransactWriteItem.builder().update(Update.builder()
+                .tableName(courses)
+                .key(courseKey(courseId))
+                .updateExpression("SET currentEnrolledCount = currentEnrolledCount - :one ADD version :one")
+                .conditionExpression("attribute_not_exists(seatShards) AND currentEnrolledCount > :zero")
+                .expressionAttributeValues(Map.of(
+                        ":one", AttributeValue.builder().n("1").build(),
+                        ":zero", AttributeValue.builder().n("0").build()))
+                .build()).build();
+    }
+
+    /** the seat update that undoes an enrollment: the course counter, or the seat shard the seat came from */
+    static TransactWriteItem releaseSeat(String courses, SeatShards seatShards, String courseId, Map<String, AttributeValue> enrollment) {
+        Integer shard = shardOf(enrollment);
+        if (seatShards.known(courseId) == 0 && shard == null) return freeSeat(courses, courseId);
+        return TransactWriteItem.builder().update(SeatShards.releaseUpdate(courseId, seatShards.releaseShard(courseId, shard))).build();
+    }
+
+    static QueryRequest rosterRequest(String courseId) {
+        return QueryRequest.builder()
+                .tableName(TABLE)
+                .keyConditionExpression("courseId = :c")
+                .expressionAttributeValues(Map.of(":c", AttributeValue.builder().s(courseId).build()))
+                .projectionExpression("studentId")
+                .consistentRead(true)
+                .build();
+    }
+
+    static QueryRequest byStudentRequest(String studentId) {
+        return QueryRequest.builder()
+                .tableName(TABLE)
+                .indexName(STUDENT_INDEX)
+                .keyConditionExpression("studentId = :s")
+                .expressionAttributeValues(Map.of(":s", AttributeValue.builder().s(studentId).build()))
+                .build();
+    }
+
+    static GetItemRequest getRequest(String courseId, String studentId) {
+        return GetItemRequest.builder().tableName(TABLE).key(key(courseId, studentId)).consistentRead(true).build();
+    }
+
+    static Integer shardOf(Map<String, AttributeValue> enrollment) {
+        return enrollment.containsKey(SHARD) ? Integer.valueOf(enrollment.get(SHARD).n()) : null;
+    }
+
+    static boolean failedCondition(List<CancellationReason> reasons, int index) {
+        return reasons != null && reasons.size() > index && "ConditionalCheckFailed".equals(reasons.get(index).code());
+    }
+
+    static Map<String, AttributeValue> key(String courseId, String studentId) {
+        return Map.of(
+                "courseId", AttributeValue.builder().s(courseId).build(),
+                "studentId", AttributeValue.builder().s(studentId).build());
+    }
+
+    private static Map<String, AttributeValue> courseKey(String courseId) {
+        return Map.of("courseId", AttributeValue.builder().s(courseId).build());
+    }
+}
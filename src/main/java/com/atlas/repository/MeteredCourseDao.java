@@ -0,0 +1,97 @@
+package com.atlas.repository;
+
+import com.atlas.dao.CourseDao;
+import com.atlas.model.Course;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Times every call of the wrapped CourseDao (atlas_dao_seconds{dao="course"}).
+ * Put it under CachingCourseDao, so the series count the reads that reach the store, not cache hits.
+ * The interface defaults are delegated too, so the delegate's overrides stay in use.
+ */
+public class MeteredCourseDao implements CourseDao {
+    private final CourseDao delegate;
+    private final DaoMetrics metrics = new DaoMetrics("course");
+
+    public MeteredCourseDao(CourseDao delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Course getById(String courseId) {
+        return metrics.time("getById", () -> delegate.getById(courseId));
+    }
+
+    @Override
+    public List<Course> listAll() {
+        return metrics.time("listAll", delegate::listAll);
+    }
+
+    @Override
+    public Course getByIdFresh(String courseId) {
+        return metrics.time("getByIdFresh", () -> delegate.getByIdFresh(courseId));
+    }
+
+    @Override
+    public void evict(String courseId) {
+        delegate.evict(courseId); // in-memory only, not worth a series
+    }
+
+    @Override
+    public Map<String, Course> getByIds(Collection<String> courseIds) {
+        return metrics.time("getByIds", () -> delegate.getByIds(courseIds));
+    }
+
+    @Override
+    public boolean enrollStudentAtomic(String courseId, String studentId, int maxSeats) {
+        return metrics.time("enrollStudentAtomic", () -> delegate.enrollStudentAtomic(courseId, studentId, maxSeats));
+    }
+
+    @Override
+    public Map<String, Boolean> enrollStudentsAtomic(String courseId, List<String> studentIds, int maxSeats) {
+        return metrics.time("enrollStudentsAtomic", () -> delegate.enrollStudentsAtomic(courseId, studentIds, maxSeats));
+    }
+
+    @Override
+    public Map<String, Boolean> bulkEnroll(String courseId, List<String> studentIds, int maxSeats) {
+        return metrics.time("bulkEnroll", () -> delegate.bulkEnroll(courseId, studentIds, maxSeats));
+    }
+
+    @Override
+    public boolean dropStudentAtomic(String courseId, String studentId) {
+        return metrics.time("dropStudentAtomic", () -> delegate.dropStudentAtomic(courseId, studentId));
+    }
+
+    @Override
+    public List<String> roster(String courseId) {
+        return metrics.time("roster", () -> delegate.roster(courseId));
+    }
+
+    @Override
+    public List<String> coursesOf(String studentId) {
+        return metrics.time("coursesOf", () -> delegate.coursesOf(studentId));
+    }
+
+    @Override
+    public void addToWaitlist(String courseId, String studentId) {
+        metrics.run("addToWaitlist", () -> delegate.addToWaitlist(courseId, studentId));
+    }
+
+    @Override
+    public boolean removeFromWaitlist(String courseId, String studentId) {
+        return metrics.time("removeFromWaitlist", () -> delegate.removeFromWaitlist(courseId, studentId));
+    }
+
+    @Override
+    public List<String> waitlistHead(String courseId, int limit) {
+        return metrics.time("waitlistHead", () -> delegate.waitlistHead(courseId, limit));
+    }
+
+    @Override
+    public int waitlistPosition(String courseId, String studentId) {
+        return metrics.time("waitlistPosition", () -> delegate.waitlistPosition(courseId, studentId));
+    }
+}
@@ -0,0 +1,21 @@
+package com.atlas.repository;
+
+import com.atlas.dao.LogDao;
+
+/**
+ * Times append on the wrapped LogDao (atlas_dao_seconds{dao="log"}). With AsyncBatchingLogDao underneath
+ * this is the enqueue time; its flushes show up in the atlas_log_* gauges.
+ */
+public class MeteredLogDao implements LogDao {
+    private final LogDao delegate;
+    private final DaoMetrics metrics = new DaoMetrics("log");
+
+    public MeteredLogDao(LogDao delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void append(String logId, String studentId, String action, String courseId) {
+        metrics.run("append", () -> delegate.append(logId, studentId, action, courseId));
+    }
+}
@@ -0,0 +1,77 @@
+package com.atlas.repository;
+
+import com.atlas.dao.StudentDao;
+import com.atlas.model.Student;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Times every call of the wrapped StudentDao (atlas_dao_seconds{dao="student"}).
+ * The interface defaults are delegated too, so the delegate's single-request overrides stay in use.
+ */
+public class MeteredStudentDao implements StudentDao {
+    private final StudentDao delegate;
+    private final DaoMetrics metrics = new DaoMetrics("student");
+
+    public MeteredStudentDao(StudentDao delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void save(Student s) {
+        metrics.run("save", () -> delegate.save(s));
+    }
+
+    @Override
+    public Student getById(String id) {
+        return metrics.time("getById", () -> delegate.getById(id));
+    }
+
+    @Override
+    public Student getByIdFresh(String id) {
+        return metrics.time("getByIdFresh", () -> delegate.getByIdFresh(id));
+    }
+
+    @Override
+    public Student findByEmail(String email) {
+        return metrics.time("findByEmail", () -> delegate.findByEmail(email));
+    }
+
+    @Override
+    public Map<String, Student> getByIds(Collection<String> ids) {
+        return metrics.time("getByIds", () -> delegate.getByIds(ids));
+    }
+
+    @Override
+    public List<Student> listAll() {
+        return metrics.time("listAll", delegate::listAll);
+    }
+
+    @Override
+    public Set<String> saveAllNew(List<Student> students) {
+        return metrics.time("saveAllNew", () -> delegate.saveAllNew(students));
+    }
+
+    @Override
+    public void updatePasswordHash(String id, String passwordHash) {
+        metrics.run("updatePasswordHash", () -> delegate.updatePasswordHash(id, passwordHash));
+    }
+
+    @Override
+    public void addEnrolledCourse(String id, String courseId) {
+        metrics.run("addEnrolledCourse", () -> delegate.addEnrolledCourse(id, courseId));
+    }
+
+    @Override
+    public boolean addEnrolledCourse(String id, String courseId, int maxCourses) {
+        return metrics.time("addEnrolledCourse", () -> delegate.addEnrolledCourse(id, courseId, maxCourses));
+    }
+
+    @Override
+    public void addWaitlistedCourse(String id, String courseId) {
+        metrics.run("addWaitlistedCourse", () -> delegate.addWaitlistedCourse(id, courseId));
+    }
+}
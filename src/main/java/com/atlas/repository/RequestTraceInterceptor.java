@@ -0,0 +1,77 @@
+package com.atlas.repository;
+
+import com.atlas.util.RequestTrace;
+import software.amazon.awssdk.core.SdkRequest;
+import software.amazon.awssdk.core.SdkResponse;
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttribute;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.http.SdkHttpResponse;
+import software.amazon.awssdk.services.dynamodb.model.ConsumedCapacity;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.TreeSet;
+
+/**
+ * Adds every DynamoDB request made under a RequestTrace to it: operation, table, latency (including SDK
+ * retries), request and response body sizes and consumed capacity (reported when ConsumedCapacityMetrics
+ * asks for it). The trace is picked up on the calling thread, so async completions land in the right trace.
+ * Requests made outside a trace cost one ThreadLocal read.
+ */
+public class RequestTraceInterceptor implements ExecutionInterceptor {
+    private static final ExecutionAttribute<RequestTrace> TRACE = new ExecutionAttribute<>("atlas.trace");
+    private static final ExecutionAttribute<Long> START = new ExecutionAttribute<>("atlas.trace.start");
+    private static final ExecutionAttribute<Long> REQUEST_BYTES = new ExecutionAttribute<>("atlas.trace.requestBytes");
+
+    @Override
+    public void beforeExecution(Context.BeforeExecution context, ExecutionAttributes attributes) {
+        RequestTrace trace = RequestTrace.current();
+        if (trace == null) return;
+        attributes.putAttribute(TRACE, trace);
+        attributes.putAttribute(START, System.nanoTime());
+    }
+
+    @Override
+    public void afterMarshalling(Context.AfterMarshalling context, ExecutionAttributes attributes) {
+        if (attributes.getAttribute(TRACE) == null) return;
+        Optional<Long> size = context.requestBody().flatMap(RequestBody::optionalContentLength);
+        size.ifPresent(n -> attributes.putAttribute(REQUEST_BYTES, n));
+    }
+
+    @Override
+    public void afterExecution(Context.AfterExecution context, ExecutionAttributes attributes) {
+        record(context.request(), context.response(), context.httpResponse(), null, attributes);
+    }
+
+    @Override
+    public void onExecutionFailure(Context.FailedExecution context, ExecutionAttributes attributes) {
+        record(context.request(), context.response().orElse(null), context.httpResponse().orElse(null),
+                context.exception().getClass().getSimpleName(), attributes);
+    }
+
+    private static void record(SdkRequest request, SdkResponse response, SdkHttpResponse http, String error, ExecutionAttributes attributes) {
+        RequestTrace trace = attributes.getAttribute(TRACE);
+        if (trace == null) return;
+        long start = attributes.getAttribute(START);
+        List<ConsumedCapacity> consumed = response == null ? List.of() : ConsumedCapacityMetrics.consumed(response);
+
+        double units = Double.NaN;
+        TreeSet<String> tables = new TreeSet<>();
+        request.getValueForField("TableName", String.class).ifPresent(tables::add);
+        for (ConsumedCapacity c : consumed) {
+            if (c.tableName() != null) tables.add(c.tableName());
+            if (c.capacityUnits() != null) units = (Double.isNaN(units) ? 0 : units) + c.capacityUnits();
+        }
+        Long requestBytes = attributes.getAttribute(REQUEST_BYTES);
+        long responseBytes = http == null ? -1 : http.firstMatchingHeader("Content-Length").map(Long::parseLong).orElse(-1L);
+
+        trace.record(new RequestTrace.Call(RequestTrace.Kind.DYNAMODB,
+                request.getClass().getSimpleName().replace("Request", ""),
+                tables.isEmpty() ? null : String.join(",", tables),
+                start, System.nanoTime() - start,
+                requestBytes == null ? -1 : requestBytes, responseBytes, units, error));
+    }
+}
@@ -0,0 +1,255 @@
+package com.atlas.repository;
+
+import com.atlas.exception.CircuitOpenException;
+import com.atlas.exception.ServiceBusyException;
+import com.atlas.repository.DynamoRetryPolicy.OperationClass;
+import com.atlas.util.AdaptiveRateLimiter;
+import com.atlas.util.CircuitBreaker;
+import com.atlas.util.Env;
+import com.atlas.util.Metrics;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.*;
+import software.amazon.awssdk.services.dynamodb.waiters.DynamoDbWaiter;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * DynamoDbClient decorator that replaces the SDK's per-thread retries (build the delegate without them)
+ * with shared, table-aware protection:
+ * - a DynamoRetryPolicy per operation class (reads, single-item and transactional writes, batch writes)
+ * - one AdaptiveRateLimiter for all threads: throttle responses lower the send rate of the whole client,
+ *   so request threads do not each retry into the storm; a request that would wait longer than maxWaitMs
+ *   fails with ServiceBusyException (503)
+ * - a CircuitBreaker per table: after failureThreshold calls in a row fail with throttling/5xx/I/O (retries
+ *   exhausted) the table's calls fail fast with CircuitOpenException, until a trial call succeeds again;
+ *   CachingCourseDao answers catalog reads from stale entries meanwhile
+ * Control-plane calls (tables, TTL) go straight to the delegate. Config (env): DYNAMODB_RATE_MIN (5/s),
+ * DYNAMODB_RATE_CEILING (1000/s), DYNAMODB_RATE_RECOVERY (10/s per s), DYNAMODB_RATE_MAX_WAIT_MS (1000),
+ * DYNAMODB_BREAKER_FAILURES (5), DYNAMODB_BREAKER_OPEN_MS (5000), plus the DynamoRetryPolicy settings.
+ */
+public class ResilientDynamoDbClient implements DynamoDbClient {
+    private static final Metrics.Counter RETRIES = Metrics.counter("atlas_dynamodb_retries_total", "DynamoDB calls retried");
+    private static final Metrics.Counter THROTTLES = Metrics.counter("atlas_dynamodb_throttles_total", "Throttled DynamoDB calls");
+    private static final Metrics.Counter LIMITED = Metrics.counter("atlas_dynamodb_rate_limited_total",
+            "DynamoDB calls refused by the client-side rate limiter");
+
+    private final DynamoDbClient delegate;
+    private final Map<OperationClass, DynamoRetryPolicy> policies;
+    private final AdaptiveRateLimiter limiter;
+    private final long maxWaitMs;
+    private final int breakerFailures;
+    private final Duration breakerOpenFor;
+    private final LongSupplier nanoClock;
+    private final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+    public static ResilientDynamoDbClient fromEnv(DynamoDbClient delegate) {
+        Map<OperationClass, DynamoRetryPolicy> policies = new EnumMap<>(OperationClass.class);
+        for (OperationClass c : OperationClass.values()) policies.put(c, DynamoRetryPolicy.fromEnv(c));
+        return new ResilientDynamoDbClient(delegate, policies,
+                new AdaptiveRateLimiter(Env.getInt("DYNAMODB_RATE_MIN", 5), Env.getInt("DYNAMODB_RATE_CEILING", 1000),
+                        Env.getInt("DYNAMODB_RATE_RECOVERY", 10)),
+                Env.getLong("DYNAMODB_RATE_MAX_WAIT_MS", 1000),
+                Env.getInt("DYNAMODB_BREAKER_FAILURES", 5), Duration.ofMillis(Env.getLong("DYNAMODB_BREAKER_OPEN_MS", 5000)),
+                System::nanoTime);
+    }
+
+    /**
+     * @param limiter   shared rate limiter, or null for none
+     * @param nanoClock time source of the circuit breakers (tests pass a fake clock)
+     */
+    public ResilientDynamoDbClient(DynamoDbClient delegate, Map<OperationClass, DynamoRetryPolicy> policies,
+                                   AdaptiveRateLimiter limiter, long maxWaitMs,
+                                   int breakerFailures, Duration breakerOpenFor, LongSupplier nanoClock) {
+        for (OperationClass c : OperationClass.values()) {
+            if (!policies.containsKey(c)) throw new IllegalArgumentException("no retry policy for " + c);
+        }
+        this.delegate = delegate;
+        this.policies = new EnumMap<>(policies);
+        this.limiter = limiter;
+        this.maxWaitMs = maxWaitMs;
+        this.breakerFailures = breakerFailures;
+        this.breakerOpenFor = breakerOpenFor;
+        this.nanoClock = nanoClock;
+    }
+
+    // ---- data plane ----
+
+    @Override
+    public GetItemResponse getItem(GetItemRequest r) {
+        return call(OperationClass.READ, List.of(r.tableName()), () -> delegate.getItem(r));
+    }
+
+    @Override
+    public QueryResponse query(QueryRequest r) {
+        return call(OperationClass.READ, List.of(r.tableName()), () -> delegate.query(r));
+    }
+
+    @Override
+    public ScanResponse scan(ScanRequest r) {
+        return call(OperationClass.READ, List.of(r.tableName()), () -> delegate.scan(r));
+    }
+
+    @Override
+    public BatchGetItemResponse batchGetItem(BatchGetItemRequest r) {
+        return call(OperationClass.READ, r.requestItems().keySet(), () -> delegate.batchGetItem(r));
+    }
+
+    @Override
+    public TransactGetItemsResponse transactGetItems(TransactGetItemsRequest r) {
+        Set<String> tables = new TreeSet<>();
+        for (TransactGetItem item : r.transactItems()) tables.add(item.get().tableName());
+        return call(OperationClass.READ, tables, () -> delegate.transactGetItems(r));
+    }
+
+    @Override
+    public PutItemResponse putItem(PutItemRequest r) {
+        return call(OperationClass.WRITE, List.of(r.tableName()), () -> delegate.putItem(r));
+    }
+
+    @Override
+    public UpdateItemResponse updateItem(UpdateItemRequest r) {
+        return call(OperationClass.WRITE, List.of(r.tableName()), () -> delegate.updateItem(r));
+    }
+
+    @Override
+    public DeleteItemResponse deleteItem(DeleteItemRequest r) {
+        return call(OperationClass.WRITE, List.of(r.tableName()), () -> delegate.deleteItem(r));
+    }
+
+    @Override
+    public TransactWriteItemsResponse transactWriteItems(TransactWriteItemsRequest r) {
+        Set<String> tables = new TreeSet<>();
+        for (TransactWriteItem item : r.transactItems()) {
+            if (item.put() != null) tables.add(item.put().tableName());
+            if (item.update() != null) tables.add(item.update().tableName());
+            if (item.delete() != null) tables.add(item.delete().tableName());
+            if (item.conditionCheck() != null) tables.add(item.conditionCheck().tableName());
+        }
+        return call(OperationClass.WRITE, tables, () -> delegate.transactWriteItems(r));
+    }
+
+    @Override
+    public BatchWriteItemResponse batchWriteItem(BatchWriteItemRequest r) {
+        return call(OperationClass.BATCH_WRITE, r.requestItems().keySet(), () -> delegate.batchWriteItem(r));
+    }
+
+    // ---- control plane (schema setup and migrations), passed through ----
+
+    @Override
+    public CreateTableResponse createTable(CreateTableRequest r) { return delegate.createTable(r); }
+
+    @Override
+    public DescribeTableResponse describeTable(DescribeTableRequest r) { return delegate.describeTable(r); }
+
+    @Override
+    public UpdateTableResponse updateTable(UpdateTableRequest r) { return delegate.updateTable(r); }
+
+    @Override
+    public DeleteTableResponse deleteTable(DeleteTableRequest r) { return delegate.deleteTable(r); }
+
+    @Override
+    public ListTablesResponse listTables(ListTablesRequest r) { return delegate.listTables(r); }
+
+    @Override
+    public UpdateTimeToLiveResponse updateTimeToLive(UpdateTimeToLiveRequest r) { return delegate.updateTimeToLive(r); }
+
+    @Override
+    public DescribeTimeToLiveResponse describeTimeToLive(DescribeTimeToLiveRequest r) { return delegate.describeTimeToLive(r); }
+
+    @Override
+    public DynamoDbWaiter waiter() { return delegate.waiter(); }
+
+    @Override
+    public String serviceName() { return delegate.serviceName(); }
+
+    @Override
+    public void close() { delegate.close(); }
+
+    // ---- protection ----
+
+    private <T> T call(OperationClass operationClass, Collection<String> tables, Supplier<T> request) {
+        DynamoRetryPolicy policy = policies.get(operationClass);
+        List<CircuitBreaker> admitted = null;
+        for (int attempt = 1; ; attempt++) {
+            if (!acquirePermit()) {
+                // still throttled on a retry: that counts against the table; a first attempt was never made
+                if (admitted != null) admitted.forEach(CircuitBreaker::onFailure);
+                LIMITED.inc();
+                throw new ServiceBusyException("DynamoDB is throttling requests, please try again");
+            }
+            if (admitted == null) admitted = admit(tables);
+            try {
+                T response = request.get();
+                admitted.forEach(CircuitBreaker::onSuccess);
+                return response;
+            } catch (SdkException ex) {
+                boolean throttled = DynamoRetryPolicy.isThrottle(ex);
+                if (throttled) {
+                    THROTTLES.inc();
+                    if (limiter != null) limiter.onThrottle();
+                }
+                if (!DynamoRetryPolicy.isRetryable(ex)) {
+                    admitted.forEach(CircuitBreaker::onSuccess); // the table answered
+                    throw ex;
+                }
+                if (attempt >= policy.getMaxAttempts()) {
+                    admitted.forEach(CircuitBreaker::onFailure);
+                    throw ex;
+                }
+                RETRIES.inc();
+                sleep(policy.delayMs(attempt, throttled), admitted);
+            } catch (RuntimeException ex) {
+                admitted.forEach(CircuitBreaker::release);
+                throw ex;
+            }
+        }
+    }
+
+    private boolean acquirePermit() {
+        if (limiter == null) return true;
+        try {
+            return limiter.acquire(maxWaitMs);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for DynamoDB capacity", ie);
+        }
+    }
+
+    // every table of the request must be healthy; permits already taken are handed back if one is not
+    private List<CircuitBreaker> admit(Collection<String> tables) {
+        List<CircuitBreaker> admitted = new ArrayList<>(tables.size());
+        for (String table : tables) {
+            CircuitBreaker b = breaker(table);
+            if (!b.tryAcquire()) {
+                admitted.forEach(CircuitBreaker::release);
+                throw new CircuitOpenException("DynamoDB table " + table + " is unavailable, please try again shortly");
+            }
+            admitted.add(b);
+        }
+        return admitted;
+    }
+
+    private static void sleep(long ms, List<CircuitBreaker> admitted) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            admitted.forEach(CircuitBreaker::release);
+            throw new IllegalStateException("Interrupted while retrying a DynamoDB call", ie);
+        }
+    }
+
+    public CircuitBreaker breaker(String table) {
+        return breakers.computeIfAbsent(table, t -> new CircuitBreaker(t, breakerFailures, breakerOpenFor, nanoClock));
+    }
+
+    /** the breakers created so far, by table */
+    public Map<String, CircuitBreaker> getBreakers() { return new TreeMap<>(breakers); }
+
+    public AdaptiveRateLimiter getLimiter() { return limiter; }
+}
@@ -0,0 +1,136 @@
+package com.atlas.repository;
+
+import com.atlas.model.Course;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.*;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Seat counters for hot courses, split over N items in the CourseSeatShards table
+ * (courseId HASH, shard N RANGE; attributes seatCapacity, seatsUsed).
+ * A course is sharded when its Courses item has seatShards = N; the capacities of its shards add up
+ * to maxSeats and each claim is a conditional "seatsUsed < seatCapacity" update on one shard, so the course
+ * can never be oversold while concurrent enrollments spread over N partition keys.
+ * Who holds the seats is recorded in the Enrollments table (with the shard each seat came from).
+ * Each DAO has its own instance, and with it its own record of which courses it has seen sharded.
+ */
+class SeatShards {
+    static final String TABLE = "CourseSeatShards";
+    static final String ATTRIBUTE = "seatShards";
+    static final int MAX_SHARDS = 24; // shard items + course item must fit in one transaction
+
+    private final DynamoDbClient client;
+    // courses this DAO has seen with seatShards, so writes go straight to the shards instead of first failing
+    // on the course item; sharding is never undone, so a remembered entry cannot go stale
+    private final Map<String, Integer> knownSharded = new ConcurrentHashMap<>();
+
+    /** records the shard count of a course just read (no-op for null or unsharded courses) */
+    void remember(Course c) {
+        if (c != null && c.getSeatShards() > 0) knownSharded.put(c.getCourseId(), c.getSeatShards());
+    }
+
+    /** shard count if the course is known to be sharded, else 0 */
+    int known(String courseId) {
+        return knownSharded.getOrDefault(courseId, 0);
+    }
+
+    SeatShards(DynamoDbClient client) {
+        this.client = client;
+    }
+
+    /** one shard as read from the table */
+    static final class Shard {
+        final int index;
+        final int capacity;
+        final int used;
+
+        Shard(Map<String, AttributeValue> it) {
+            this.index = Integer.parseInt(it.get("shard").n());
+            this.capacity = Integer.parseInt(it.get("seatCapacity").n());
+            this.used = Integer.parseInt(it.get("seatsUsed").n());
+        }
+    }
+
+    /**
+     * Shard to give a seat back to: the one the enrollment took it from, or for enrollments made before the
+     * course was sharded the fullest shard (any shard with a used seat keeps the totals right).
+     */
+    int releaseShard(String courseId, Integer recordedShard) {
+        return recordedShard != null ? recordedShard : fullest(courseId, load(courseId));
+    }
+
+    /** the shard with the most used seats */
+    static int fullest(String courseId, List<Shard> shards) {
+        Shard fullest = null;
+        for (Shard s : shards) {
+            if (fullest == null || s.used > fullest.used) fullest = s;
+        }
+        if (fullest == null) throw new IllegalStateException("Seat shards of " + courseId + " are missing");
+        return fullest.index;
+    }
+
+    /** all shards of the course, strongly consistent so counts reflect the latest claims */
+    List<Shard> load(String courseId) {
+        List<Shard> out = new ArrayList<>();
+        client.queryPaginator(loadRequest(courseId)).items().forEach(it -> out.add(new Shard(it)));
+        return out;
+    }
+
+    static QueryRequest loadRequest(String courseId) {
+        return QueryRequest.builder()
+                .tableName(TABLE)
+                .keyConditionExpression("courseId = :c")
+                .expressionAttributeValues(Map.of(":c", AttributeValue.builder().s(courseId).build()))
+                .consistentRead(true)
+                .build();
+    }
+
+    static Update claimUpdate(String courseId, int shard) {
+        return Update.builder()
+                .tableName(TABLE)
+                .key(key(courseId, shard))
+                .updateExpression("SET seatsUsed = seatsUsed + :one")
+                .conditionExpression("seatsUsed < seatCapacity")
+                .expressionAttributeValues(Map.of(":one", AttributeValue.builder().n("1").build()))
+                .returnValuesOnConditionCheckFailure(ReturnValuesOnConditionCheckFailure.ALL_OLD)
+                .build();
+    }
+
+    static Update releaseUpdate(String courseId, int shard) {
+        return Update.builder()
+                .tableName(TABLE)
+                .key(key(courseId, shard))
+                .updateExpression("SET seatsUsed = seatsUsed - :one")
+                .conditionExpression("seatsUsed > :zero")
+                .expressionAttributeValues(Map.of(
+                        ":one", AttributeValue.builder().n("1").build(),
+                        ":zero", AttributeValue.builder().n("0").build()))
+                .build();
+    }
+
+    static Map<String, AttributeValue> key(String courseId, int shard) {
+        return Map.of(
+                "courseId", AttributeValue.builder().s(courseId).build(),
+                "shard", AttributeValue.builder().n(Integer.toString(shard)).build());
+    }
+
+    /**
+     * Splits a course's seats over shards: the seats already taken are dealt round-robin and the free seats
+     * are spread evenly, so every shard's capacity covers its used seats and the capacities sum to maxSeats.
+     */
+    static List<Map<String, AttributeValue>> initialShards(String courseId, int maxSeats, int enrolled, int shards) {
+        int free = Math.max(0, maxSeats - enrolled);
+        List<Map<String, AttributeValue>> items = new ArrayList<>();
+        for (int i = 0; i < shards; i++) {
+            int used = enrolled / shards + (i < enrolled % shards ? 1 : 0);
+            int capacity = used + free / shards + (i < free % shards ? 1 : 0);
+            Map<String, AttributeValue> it = new HashMap<>(key(courseId, i));
+            it.put("seatCapacity", AttributeValue.builder().n(Integer.toString(capacity)).build());
+            it.put("seatsUsed", AttributeValue.builder().n(Integer.toString(used)).build());
+            items.add(it);
+        }
+        return items;
+    }
+}
@@ -0,0 +1,78 @@
+package com.atlas.repository;
+
+import com.atlas.util.Env;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * Full-table scan helper used by the listAll() implementations.
+ * Follows LastEvaluatedKey until the table is exhausted and, when totalSegments > 1,
+ * runs one parallel scan segment per task on the supplied executor (or a small
+ * daemon pool owned by the scanner when none is given).
+ * Items are decoded straight from the scan pages (no follow-up GetItem per row).
+ */
+class TableScanner {
+    private final DynamoDbClient client;
+    private final String table;
+    private final int totalSegments;
+    private final Executor executor;
+
+    TableScanner(DynamoDbClient client, String table, int totalSegments, Executor executor) {
+        if (totalSegments < 1) throw new IllegalArgumentException("totalSegments must be >= 1");
+        this.client = client;
+        this.table = table;
+        this.totalSegments = totalSegments;
+        this.executor = executor != null || totalSegments == 1 ? executor : Executors.newFixedThreadPool(totalSegments, r -> {
+            Thread t = new Thread(r, "scan-" + table);
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    <T> List<T> scanAll(Function<Map<String, AttributeValue>, T> mapper) {
+        if (totalSegments == 1) return scanSegment(null, mapper);
+
+        List<CompletableFuture<List<T>>> parts = new ArrayList<>(totalSegments);
+        for (int seg = 0; seg < totalSegments; seg++) {
+            final int segment = seg;
+            parts.add(CompletableFuture.supplyAsync(() -> scanSegment(segment, mapper), executor));
+        }
+        List<T> out = new ArrayList<>();
+        try {
+            for (CompletableFuture<List<T>> p : parts) out.addAll(p.join());
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException) throw (RuntimeException) ex.getCause();
+            throw ex;
+        }
+        return out;
+    }
+
+    private <T> List<T> scanSegment(Integer segment, Function<Map<String, AttributeValue>, T> mapper) {
+        ScanRequest.Builder req = ScanRequest.builder().tableName(table);
+        if (segment != null) req.segment(segment).totalSegments(totalSegments);
+        List<T> out = new ArrayList<>();
+        // the paginator re-issues the scan with ExclusiveStartKey until LastEvaluatedKey is empty
+        for (Map<String, AttributeValue> it : client.scanPaginator(req.build()).items()) {
+            T v = mapper.apply(it);
+            if (v != null) out.add(v);
+        }
+        return out;
+    }
+
+    /**
+     * Segment count for listAll scans, from DYNAMODB_SCAN_SEGMENTS (default 1 = sequential).
+     */
+    static int configuredSegments() {
+        return Math.max(1, Env.getInt("DYNAMODB_SCAN_SEGMENTS", 1));
+    }
+}
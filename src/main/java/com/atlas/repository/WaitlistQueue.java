@@ -0,0 +1,132 @@
+package com.atlas.repository;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Course waitlists, one item per waiting student in the Waitlist table
+ * (courseId HASH, queuedAt RANGE = zero-padded join time in epoch millis + "#" + studentId).
+ * The sort key keeps each course's queue in join order, so joining is one PutItem, the head is a
+ * Query with a Limit and a position is a COUNT Query up to the student's entry. The byStudent local
+ * index (courseId, studentId) finds a student's entry for leaving without reading the queue.
+ */
+class WaitlistQueue {
+    static final String TABLE = "Waitlist";
+    static final String STUDENT_INDEX = "byStudent";
+
+    private final DynamoDbClient client;
+
+    WaitlistQueue(DynamoDbClient client) {
+        this.client = client;
+    }
+
+    void join(String courseId, String studentId) {
+        client.putItem(joinRequest(courseId, studentId, System.currentTimeMillis()));
+    }
+
+    /** deletes the student's entry; false if the student was not waiting */
+    boolean leave(String courseId, String studentId) {
+        List<Map<String, AttributeValue>> entries = client.query(entryRequest(courseId, studentId)).items();
+        for (Map<String, AttributeValue> e : entries) client.deleteItem(deleteRequest(courseId, e.get("queuedAt").s()));
+        return !entries.isEmpty();
+    }
+
+    List<String> head(String courseId, int limit) {
+        return studentIds(client.query(headRequest(courseId, limit)).items());
+    }
+
+    /** 1-based place in the queue, 0 if the student is not waiting */
+    int position(String courseId, String studentId) {
+        List<Map<String, AttributeValue>> entries = client.query(entryRequest(courseId, studentId)).items();
+        if (entries.isEmpty()) return 0;
+        int upToHere = 0;
+        for (QueryResponse page : client.queryPaginator(countRequest(courseId, entries.get(0).get("queuedAt").s()))) {
+            upToHere += page.count();
+        }
+        return upToHere;
+    }
+
+    /** deletes every entry of the course (test cleanup) */
+    void clear(String courseId) {
+        QueryRequest all = QueryRequest.builder()
+                .tableName(TABLE)
+                .keyConditionExpression("courseId = :c")
+                .expressionAttributeValues(Map.of(":c", AttributeValue.builder().s(courseId).build()))
+                .projectionExpression("queuedAt")
+                .build();
+        client.queryPaginator(all).items().forEach(e -> client.deleteItem(deleteRequest(courseId, e.get("queuedAt").s())));
+    }
+
+    // request builders
+
+    static String sortKey(long epochMillis, String studentId) {
+        return String.format("%013d#%s", epochMillis, studentId);
+    }
+
+    static PutItemRequest joinRequest(String courseId, String studentId, long epochMillis) {
+        return PutItemRequest.builder()
+                .tableName(TABLE)
+                .item(Map.of(
+                        "courseId", AttributeValue.builder().s(courseId).build(),
+                        "queuedAt", AttributeValue.builder().s(sortKey(epochMillis, studentId)).build(),
+                        "studentId", AttributeValue.builder().s(studentId).build()))
+                .conditionExpression("attribute_not_exists(courseId)")
+                .build();
+    }
+
+    static QueryRequest entryRequest(String courseId, String studentId) {
+        return QueryRequest.builder()
+                .tableName(TABLE)
+                .indexName(STUDENT_INDEX)
+                .keyConditionExpression("courseId = :c AND studentId = :s")
+                .expressionAttributeValues(Map.of(
+                        ":c", AttributeValue.builder().s(courseId).build(),
+                        ":s", AttributeValue.builder().s(studentId).build()))
+                .consistentRead(true)
+                .build();
+    }
+
+    static QueryRequest headRequest(String courseId, int limit) {
+        return QueryRequest.builder()
+                .tableName(TABLE)
+                .keyConditionExpression("courseId = :c")
+                .expressionAttributeValues(Map.of(":c", AttributeValue.builder().s(courseId).build()))
+                .projectionExpression("studentId")
+                .scanIndexForward(true)
+                .limit(limit)
+                .consistentRead(true)
+                .build();
+    }
+
+    // entries up to and including the student's own one
+    static QueryRequest countRequest(String courseId, String queuedAt) {
+        return QueryRequest.builder()
+                .tableName(TABLE)
+                .keyConditionExpression("courseId = :c AND queuedAt <= :q")
+                .expressionAttributeValues(Map.of(
+                        ":c", AttributeValue.builder().s(courseId).build(),
+                        ":q", AttributeValue.builder().s(queuedAt).build()))
+                .select(Select.COUNT)
+                .consistentRead(true)
+                .build();
+    }
+
+    static DeleteItemRequest deleteRequest(String courseId, String queuedAt) {
+        return DeleteItemRequest.builder()
+                .tableName(TABLE)
+                .key(Map.of(
+                        "courseId", AttributeValue.builder().s(courseId).build(),
+                        "queuedAt", AttributeValue.builder().s(queuedAt).build()))
+                .build();
+    }
+
+    static List<String> studentIds(List<Map<String, AttributeValue>> items) {
+        List<String> out = new ArrayList<>(items.size());
+        for (Map<String, AttributeValue> it : items) out.add(it.get("studentId").s());
+        return out;
+    }
+}
@@ -0,0 +1,153 @@
+package com.atlas.service;
+
+import com.atlas.model.BulkEnrollmentResult;
+import com.atlas.model.EnrollmentPair;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Input and report formats of bulk enrollment imports. Inputs are read as a stream, row by row:
+ * - CSV: "studentId,courseId" per line; an optional header line starting with studentId and blank lines are skipped
+ * - JSON: an array of {"studentId": "...", "courseId": "..."} objects (read with Jackson's streaming parser)
+ * Malformed rows fail with IllegalArgumentException naming the row.
+ */
+public final class BulkEnrollmentFormats {
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private BulkEnrollmentFormats() {}
+
+    public static Iterator<EnrollmentPair> csv(Reader in) {
+        BufferedReader reader = in instanceof BufferedReader ? (BufferedReader) in : new BufferedReader(in);
+        return new Iterator<>() {
+            private int row = 0;
+            private EnrollmentPair next;
+            private boolean done;
+
+            private EnrollmentPair advance() {
+                try {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        line = line.trim();
+                        if (line.isEmpty() || (row == 0 && line.toLowerCase().startsWith("studentid"))) continue;
+                        row++;
+                        String[] cols = line.split(",", -1);
+                        if (cols.length != 2 || cols[0].isBlank() || cols[1].isBlank()) {
+                            throw new IllegalArgumentException("Row " + row + ": expected studentId,courseId");
+                        }
+                        return new EnrollmentPair(row, cols[0].trim(), cols[1].trim());
+                    }
+                    return null;
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                if (!done && next == null) {
+                    next = advance();
+                    done = next == null;
+                }
+                return next != null;
+            }
+
+            @Override
+            public EnrollmentPair next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                EnrollmentPair p = next;
+                next = null;
+                return p;
+            }
+        };
+    }
+
+    public static Iterator<EnrollmentPair> json(InputStream in) {
+        JsonParser parser;
+        try {
+            parser = JSON.createParser(in);
+            if (parser.nextToken() != JsonToken.START_ARRAY) throw new IllegalArgumentException("Expected a JSON array of {studentId, courseId}");
+        } catch (IOException ex) {
+            throw new IllegalArgumentException("Invalid JSON: " + ex.getMessage(), ex);
+        }
+        return new Iterator<>() {
+            private int row = 0;
+            private EnrollmentPair next;
+            private boolean done;
+
+            private EnrollmentPair advance() {
+                try {
+                    JsonToken t = parser.nextToken();
+                    if (t == JsonToken.END_ARRAY || t == null) return null;
+                    row++;
+                    if (t != JsonToken.START_OBJECT) throw new IllegalArgumentException("Row " + row + ": expected an object");
+                    String studentId = null;
+                    String courseId = null;
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String field = parser.getCurrentName();
+                        parser.nextToken();
+                        if ("studentId".equals(field)) studentId = parser.getValueAsString();
+                        else if ("courseId".equals(field)) courseId = parser.getValueAsString();
+                        else parser.skipChildren();
+                    }
+                    if (studentId == null || studentId.isBlank() || courseId == null || courseId.isBlank()) {
+                        throw new IllegalArgumentException("Row " + row + ": studentId and courseId are required");
+                    }
+                    return new EnrollmentPair(row, studentId.trim(), courseId.trim());
+                } catch (IOException ex) {
+                    throw new IllegalArgumentException("Invalid JSON at row " + row + ": " + ex.getMessage(), ex);
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                if (!done && next == null) {
+                    next = advance();
+                    done = next == null;
+                }
+                return next != null;
+            }
+
+            @Override
+            public EnrollmentPair next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                EnrollmentPair p = next;
+                next = null;
+                return p;
+            }
+        };
+    }
+
+    /** row,studentId,courseId,status,message */
+    public static void writeCsv(List<BulkEnrollmentResult> results, Writer out) throws IOException {
+        out.write("row,studentId,courseId,status,message\n");
+        for (BulkEnrollmentResult r : results) {
+            String message = r.getMessage() == null ? "" : "\"" + r.getMessage().replace("\"", "\"\"") + "\"";
+            out.write(r.getRow() + "," + r.getStudentId() + "," + r.getCourseId() + "," + r.getStatus() + "," + message + "\n");
+        }
+        out.flush();
+    }
+
+    public static void writeJson(List<BulkEnrollmentResult> results, OutputStream out) throws IOException {
+        try (JsonGenerator g = JSON.createGenerator(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+            g.writeStartArray();
+            for (BulkEnrollmentResult r : results) {
+                g.writeStartObject();
+                g.writeNumberField("row", r.getRow());
+                g.writeStringField("studentId", r.getStudentId());
+                g.writeStringField("courseId", r.getCourseId());
+                g.writeStringField("status", r.getStatus().name());
+                if (r.getMessage() != null) g.writeStringField("message", r.getMessage());
+                g.writeEndObject();
+            }
+            g.writeEndArray();
+        }
+    }
+}
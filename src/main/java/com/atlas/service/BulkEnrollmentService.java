@@ -0,0 +1,234 @@
+package com.atlas.service;
+
+import com.atlas.dao.CourseDao;
+import com.atlas.dao.LogDao;
+import com.atlas.dao.StudentDao;
+import com.atlas.model.BulkEnrollmentResult;
+import com.atlas.model.BulkEnrollmentResult.Status;
+import com.atlas.model.Course;
+import com.atlas.model.EnrollmentPair;
+import com.atlas.model.Student;
+import com.atlas.util.Env;
+import com.atlas.util.Metrics;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Registrar imports: enrolls many (studentId, courseId) pairs at once.
+ * - pairs are grouped by course; a group reads its course once and its students with one BatchGetItem,
+ *   applies the rules of EnrollmentService.enroll, then seats all eligible students with CourseDao.bulkEnroll
+ *   (counter update and roster puts in one transaction per chunk)
+ * - each seated student gets the course appended to their record (the single-id update, conditioned on the
+ *   5-course limit, so a concurrent self-service enroll can neither be lost nor push them past it; a refused
+ *   append gives the seat back) and a BULK_ENROLL log record
+ * - once seats are taken, failures are handled per row: a row is only reported ERROR when its student holds
+ *   no seat for it (or the message says the seat is still held), and a rerun completes a record that
+ *   lacks a course its student is already on the roster of
+ * - imports do not waitlist: rows past the free seats are reported COURSE_FULL
+ * - groups run in parallel, at most `concurrency` at a time; the 5-course limit is enforced across groups
+ * The report has one result per input row, in input order.
+ * Config (env): BULK_ENROLL_CONCURRENCY (4).
+ */
+public class BulkEnrollmentService {
+    private static final int MAX_ACTIVE_ENROLLMENTS = 5;
+    private static final Metrics.Histogram ENROLL_TIME = ServiceMetrics.timer("BulkEnrollmentService.enroll");
+
+    private final StudentDao studentDao;
+    private final CourseDao courseDao;
+    private final LogDao logDao;
+    private final int concurrency;
+    private final DateTimeFormatter df = DateTimeFormatter.ISO_LOCAL_DATE;
+
+    public BulkEnrollmentService(StudentDao studentDao, CourseDao courseDao, LogDao logDao) {
+        this(studentDao, courseDao, logDao, Env.getInt("BULK_ENROLL_CONCURRENCY", 4));
+    }
+
+    // constructor injection only
+    public BulkEnrollmentService(StudentDao studentDao, CourseDao courseDao, LogDao logDao, int concurrency) {
+        if (concurrency < 1) throw new IllegalArgumentException("concurrency must be >= 1");
+        this.studentDao = studentDao;
+        this.courseDao = courseDao;
+        this.logDao = logDao;
+        this.concurrency = concurrency;
+    }
+
+    /** Consumes pairs and returns one result per pair, ordered by row. */
+    public List<BulkEnrollmentResult> enroll(Iterator<EnrollmentPair> pairs) {
+        List<BulkEnrollmentResult> results = ENROLL_TIME.time(() -> doEnroll(pairs));
+        summary(results).forEach((status, n) -> ServiceMetrics.outcome("bulk_" + status.name().toLowerCase()).add(n));
+        return results;
+    }
+
+    private List<BulkEnrollmentResult> doEnroll(Iterator<EnrollmentPair> pairs) {
+        Map<String, List<EnrollmentPair>> byCourse = new LinkedHashMap<>();
+        while (pairs.hasNext()) {
+            EnrollmentPair p = pairs.next();
+            byCourse.computeIfAbsent(p.getCourseId(), k -> new ArrayList<>()).add(p);
+        }
+
+        // free enrollment slots per student, shared by the groups so the 5-course limit holds across them
+        Map<String, Integer> slots = new ConcurrentHashMap<>();
+        List<BulkEnrollmentResult> out = Collections.synchronizedList(new ArrayList<>());
+        try (ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Math.min(concurrency, byCourse.size())))) {
+            List<Future<?>> groups = new ArrayList<>();
+            for (Map.Entry<String, List<EnrollmentPair>> g : byCourse.entrySet()) {
+                groups.add(pool.submit(() -> {
+                    List<BulkEnrollmentResult> done = new ArrayList<>();
+                    try {
+                        enrollGroup(g.getKey(), g.getValue(), slots, done);
+                    } catch (RuntimeException ex) {
+                        // rows already settled keep their outcome; only the rest failed
+                        Set<Integer> settled = new HashSet<>();
+                        for (BulkEnrollmentResult r : done) settled.add(r.getRow());
+                        for (EnrollmentPair p : g.getValue()) {
+                            if (!settled.contains(p.getRow())) done.add(new BulkEnrollmentResult(p, Status.ERROR, ex.getMessage()));
+                        }
+                    }
+                    out.addAll(done);
+                }));
+            }
+            for (Future<?> f : groups) f.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted during bulk enrollment", ex);
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("Bulk enrollment failed", ex.getCause());
+        }
+
+        List<BulkEnrollmentResult> sorted = new ArrayList<>(out);
+        sorted.sort(Comparator.comparingInt(BulkEnrollmentResult::getRow));
+        return sorted;
+    }
+
+    // adds one result per row to out, as each row is settled
+    private void enrollGroup(String courseId, List<EnrollmentPair> rows, Map<String, Integer> slots, List<BulkEnrollmentResult> out) {
+        Course c = courseDao.getByIdFresh(courseId);
+        if (c == null) {
+            for (EnrollmentPair p : rows) out.add(new BulkEnrollmentResult(p, Status.REJECTED, "Course not found: " + courseId));
+            return;
+        }
+        if (c.getLatestEnrollmentBy() != null && !c.getLatestEnrollmentBy().isEmpty() && LocalDate.now().isAfter(LocalDate.parse(c.getLatestEnrollmentBy(), df))) {
+            for (EnrollmentPair p : rows) out.add(new BulkEnrollmentResult(p, Status.REJECTED, "Enrollment closed for " + courseId));
+            return;
+        }
+
+        Set<String> ids = new LinkedHashSet<>();
+        for (EnrollmentPair p : rows) ids.add(p.getStudentId());
+        Map<String, Student> students = studentDao.getByIds(ids);
+
+        List<EnrollmentPair> eligible = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (EnrollmentPair p : rows) {
+            Student s = students.get(p.getStudentId());
+            if (s == null) {
+                out.add(new BulkEnrollmentResult(p, Status.REJECTED, "Student not found: " + p.getStudentId()));
+            } else if (!seen.add(p.getStudentId()) || s.getEnrolledCourseIds().contains(courseId)) {
+                out.add(new BulkEnrollmentResult(p, Status.ALREADY_ENROLLED, null));
+            } else if (s.getWaitlistedCourseIds().contains(courseId)) {
+                out.add(new BulkEnrollmentResult(p, Status.REJECTED, "Already waitlisted"));
+            } else if (!reserveSlot(slots, s)) {
+                out.add(new BulkEnrollmentResult(p, Status.REJECTED, "Max " + MAX_ACTIVE_ENROLLMENTS + " active enrollments reached"));
+            } else {
+                eligible.add(p);
+            }
+        }
+        if (eligible.isEmpty()) return;
+
+        List<String> eligibleIds = new ArrayList<>(eligible.size());
+        for (EnrollmentPair p : eligible) eligibleIds.add(p.getStudentId());
+        Map<String, Boolean> seated;
+        RuntimeException seatError = null;
+        try {
+            seated = courseDao.bulkEnroll(courseId, eligibleIds, c.getMaxSeats());
+        } catch (RuntimeException ex) {
+            // chunks written before the failure hold seats: the roster says whose
+            seatError = ex;
+            seated = new HashMap<>();
+            Set<String> onRoster = new HashSet<>(courseDao.roster(courseId));
+            for (String studentId : eligibleIds) if (onRoster.contains(studentId)) seated.put(studentId, true);
+        }
+
+        for (EnrollmentPair p : eligible) {
+            Boolean ok = seated.get(p.getStudentId());
+            if (Boolean.TRUE.equals(ok)) {
+                out.add(recordSeat(courseId, p, slots));
+            } else if (ok == null && seatError == null) {
+                // on the roster already, but not on the record (checked above): finish a previous import's row
+                out.add(completeRecord(courseId, p, slots));
+            } else {
+                slots.merge(p.getStudentId(), 1, Integer::sum); // the slot was not used
+                out.add(ok == null
+                        ? new BulkEnrollmentResult(p, Status.ERROR, seatError.getMessage())
+                        : new BulkEnrollmentResult(p, Status.COURSE_FULL, null));
+            }
+        }
+    }
+
+    // the seat is taken: add the course to the student's record within the limit, or give the seat back
+    private BulkEnrollmentResult recordSeat(String courseId, EnrollmentPair p, Map<String, Integer> slots) {
+        String studentId = p.getStudentId();
+        try {
+            if (!studentDao.addEnrolledCourse(studentId, courseId, MAX_ACTIVE_ENROLLMENTS)) {
+                // enrolled in other courses on their own since the read above
+                courseDao.dropStudentAtomic(courseId, studentId);
+                return new BulkEnrollmentResult(p, Status.REJECTED, "Max " + MAX_ACTIVE_ENROLLMENTS + " active enrollments reached");
+            }
+        } catch (RuntimeException ex) {
+            try {
+                courseDao.dropStudentAtomic(courseId, studentId);
+            } catch (RuntimeException dropFailed) {
+                return new BulkEnrollmentResult(p, Status.ERROR, "Seat held but not on the student record, rerun to complete: " + ex.getMessage());
+            }
+            slots.merge(studentId, 1, Integer::sum);
+            return new BulkEnrollmentResult(p, Status.ERROR, ex.getMessage());
+        }
+        return logged(courseId, p);
+    }
+
+    // the seat is already held: add it to the record within the limit, or give it back like recordSeat
+    private BulkEnrollmentResult completeRecord(String courseId, EnrollmentPair p, Map<String, Integer> slots) {
+        String studentId = p.getStudentId();
+        try {
+            if (!studentDao.addEnrolledCourse(studentId, courseId, MAX_ACTIVE_ENROLLMENTS)) {
+                courseDao.dropStudentAtomic(courseId, studentId);
+                slots.merge(studentId, 1, Integer::sum);
+                return new BulkEnrollmentResult(p, Status.REJECTED, "Max " + MAX_ACTIVE_ENROLLMENTS + " active enrollments reached");
+            }
+        } catch (RuntimeException ex) {
+            return new BulkEnrollmentResult(p, Status.ERROR, "Seat held but not on the student record, rerun to complete: " + ex.getMessage());
+        }
+        return new BulkEnrollmentResult(p, Status.ALREADY_ENROLLED, null);
+    }
+
+    // the enrollment stands either way; a lost audit record is noted on the row
+    private BulkEnrollmentResult logged(String courseId, EnrollmentPair p) {
+        try {
+            logDao.append(UUID.randomUUID().toString(), p.getStudentId(), "BULK_ENROLL", courseId);
+            return new BulkEnrollmentResult(p, Status.ENROLLED, null);
+        } catch (RuntimeException ex) {
+            return new BulkEnrollmentResult(p, Status.ENROLLED, "Audit log write failed: " + ex.getMessage());
+        }
+    }
+
+    // counts the seat against the student's limit before it is taken, so parallel groups cannot overshoot it.
+    // The first group to reserve for a student sets the baseline; its read predates every append of this import.
+    private static boolean reserveSlot(Map<String, Integer> slots, Student s) {
+        boolean[] ok = {false};
+        slots.compute(s.getId(), (id, n) -> {
+            int free = n == null ? MAX_ACTIVE_ENROLLMENTS - s.getEnrolledCourseIds().size() : n;
+            ok[0] = free > 0;
+            return ok[0] ? free - 1 : free;
+        });
+        return ok[0];
+    }
+
+    /** counts per status, e.g. for a one-line summary */
+    public static Map<Status, Integer> summary(List<BulkEnrollmentResult> results) {
+        Map<Status, Integer> out = new EnumMap<>(Status.class);
+        for (BulkEnrollmentResult r : results) out.merge(r.getStatus(), 1, Integer::sum);
+        return out;
+    }
+}
@@ -0,0 +1,285 @@
+package com.atlas.service;
+
+import com.atlas.dao.CourseDao;
+import com.atlas.dao.EnrollmentTransactionDao;
+import com.atlas.exception.AlreadyEnrolledException;
+import com.atlas.exception.ServiceBusyException;
+import com.atlas.util.Env;
+import com.atlas.util.Futures;
+import com.atlas.util.Metrics;
+import com.atlas.util.RequestTrace;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Partitioned executor for course mutations: courseId hashes to one of N lanes, each drained by a single
+ * thread, so the seat writes for one course run one at a time on this node while different courses
+ * proceed in parallel on different lanes.
+ * - seat claims for the same course waiting in a lane are taken together and written with
+ *   CourseDao.enrollStudentsAtomic (one counter update plus the roster items), so a burst on a hot course
+ *   costs one course read and one transaction instead of a conditional write (and retry) per student
+ * - transactional enrollments (enroll, with an EnrollmentTransactionDao) are coalesced the same way through
+ *   EnrollmentTransactionDao.enrollAll; a student it leaves out is enrolled alone for the reason
+ * - a claim never moves past an earlier drop, or a claim of the other kind, of the same course, so seats
+ *   freed first are seen first
+ * - each lane's queue is bounded; when it is full the call fails fast with ServiceBusyException
+ * - a task that throws (Errors included) fails only its own callers; close() fails every task still queued
+ * Each lane thread blocks on its DynamoDB round trips, so the lane count caps the seat writes in flight on this
+ * node and a slow course holds up the others hashed to its lane; size it for the write load, not the cores.
+ * Lanes only serialize within one process; other nodes still meet at DynamoDB's conditions.
+ * Tasks run on the lane thread under the RequestTrace and metrics route of the request that submitted them (a
+ * coalesced write is recorded once, under the first claim's), and must not submit to the lanes themselves.
+ * Config (env): COURSE_LANES (0 = off, the default), COURSE_LANE_QUEUE (1000), COURSE_LANE_BATCH (25).
+ */
+public class CourseLanes implements AutoCloseable {
+
+    private final CourseDao courseDao;
+    private final EnrollmentTransactionDao txDao;
+    private final Lane[] lanes;
+    private final int maxBatch;
+
+    private final AtomicLong claims = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    public CourseLanes(CourseDao courseDao, int lanes, int queueCapacity, int maxBatch) {
+        this(courseDao, null, lanes, queueCapacity, maxBatch);
+    }
+
+    /**
+     * @param courseDao the DAO the claims are written through (pass the cached one so its entries are evicted)
+     * @param txDao     writes the transactional enrollments; null when only seat claims are used (sequential mode)
+     */
+    public CourseLanes(CourseDao courseDao, EnrollmentTransactionDao txDao, int lanes, int queueCapacity, int maxBatch) {
+        if (lanes < 1) throw new IllegalArgumentException("lanes must be >= 1");
+        if (maxBatch < 1) throw new IllegalArgumentException("maxBatch must be >= 1");
+        this.courseDao = courseDao;
+        this.txDao = txDao;
+        this.maxBatch = maxBatch;
+        this.lanes = new Lane[lanes];
+        for (int i = 0; i < lanes; i++) this.lanes[i] = new Lane(i, queueCapacity);
+    }
+
+    /** lanes configured from env, or null unless COURSE_LANES is set above 0; txDao as in the constructor */
+    public static CourseLanes fromEnv(CourseDao courseDao, EnrollmentTransactionDao txDao) {
+        int n = Env.getInt("COURSE_LANES", 0);
+        if (n <= 0) return null;
+        return new CourseLanes(courseDao, txDao, n, Env.getInt("COURSE_LANE_QUEUE", 1000), Env.getInt("COURSE_LANE_BATCH", 25));
+    }
+
+    /**
+     * Same contract as CourseDao.enrollStudentAtomic; the seat is taken together with the other claims
+     * queued for the course.
+     */
+    public boolean claimSeat(String courseId, String studentId, int maxSeats) {
+        return submitClaim(new Claim(courseId, studentId, maxSeats, false));
+    }
+
+    /**
+     * Same contract as EnrollmentTransactionDao.enroll; the enrollment is written together with the other
+     * enrollments queued for the course. Needs the lanes to be built with an EnrollmentTransactionDao.
+     */
+    public boolean enroll(String courseId, String studentId, int maxSeats) {
+        if (txDao == null) throw new IllegalStateException("Course lanes have no EnrollmentTransactionDao");
+        return submitClaim(new Claim(courseId, studentId, maxSeats, true));
+    }
+
+    private boolean submitClaim(Claim c) {
+        lane(c.courseId).submit(c);
+        return (Boolean) Futures.join(c.result);
+    }
+
+    /** Runs action in courseId's lane, after the mutations of that course queued before it. */
+    @SuppressWarnings("unchecked")
+    public <T> T run(String courseId, Supplier<T> action) {
+        Action a = new Action(courseId, action);
+        lane(courseId).submit(a);
+        return (T) Futures.join(a.result);
+    }
+
+    private Lane lane(String courseId) {
+        return lanes[Math.floorMod(courseId.hashCode(), lanes.length)];
+    }
+
+    /** stops the lanes; tasks still queued, and any submitted later, fail with ServiceBusyException */
+    @Override
+    public void close() {
+        for (Lane l : lanes) l.close();
+    }
+
+    public int getLaneCount() { return lanes.length; }
+    /** seat claims taken through the lanes */
+    public long getClaims() { return claims.get(); }
+    /** enrollStudentsAtomic and enrollAll calls made for them (claims / batches = average coalescing) */
+    public long getBatches() { return batches.get(); }
+    public long getRejected() { return rejected.get(); }
+
+    /** tasks waiting in all lanes right now */
+    public int getQueued() {
+        int n = 0;
+        for (Lane l : lanes) n += l.size();
+        return n;
+    }
+
+    private abstract static class Task {
+        final String courseId;
+        final CompletableFuture<Object> result = new CompletableFuture<>();
+        // the submitting request's, restored on the lane thread around the write
+        final RequestTrace trace = RequestTrace.current();
+        final String route = Metrics.currentRoute();
+
+        Task(String courseId) { this.courseId = courseId; }
+    }
+
+    private static final class Claim extends Task {
+        final String studentId;
+        final int maxSeats;
+        // a transactional enrollment (EnrollmentTransactionDao) rather than a seat only
+        final boolean enroll;
+
+        Claim(String courseId, String studentId, int maxSeats, boolean enroll) {
+            super(courseId);
+            this.studentId = studentId;
+            this.maxSeats = maxSeats;
+            this.enroll = enroll;
+        }
+    }
+
+    private static final class Action extends Task {
+        final Supplier<?> action;
+
+        Action(String courseId, Supplier<?> action) {
+            super(courseId);
+            this.action = action;
+        }
+    }
+
+    private final class Lane implements Runnable {
+        private final ArrayDeque<Task> queue = new ArrayDeque<>();
+        private final int capacity;
+        private final Thread thread;
+        private boolean closed;
+
+        Lane(int index, int capacity) {
+            this.capacity = capacity;
+            this.thread = new Thread(this, "course-lane-" + index);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        synchronized int size() { return queue.size(); }
+
+        synchronized void submit(Task t) {
+            if (closed) throw new ServiceBusyException("Course lanes are shut down, please try again");
+            if (queue.size() >= capacity) {
+                rejected.incrementAndGet();
+                throw new ServiceBusyException("Too many pending enrollments for this course, please try again");
+            }
+            queue.add(t);
+            notifyAll();
+        }
+
+        void close() {
+            List<Task> pending;
+            synchronized (this) {
+                closed = true;
+                pending = new ArrayList<>(queue);
+                queue.clear();
+                notifyAll();
+            }
+            for (Task t : pending) t.result.completeExceptionally(new ServiceBusyException("Course lanes are shut down, please try again"));
+            thread.interrupt();
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                List<Task> next;
+                try {
+                    next = take();
+                } catch (InterruptedException ex) {
+                    return;
+                }
+                Task head = next.get(0);
+                RequestTrace before = RequestTrace.attach(head.trace);
+                Metrics.setRoute(head.route);
+                try {
+                    if (head instanceof Action) runAction((Action) head);
+                    else runClaims(next);
+                } finally {
+                    RequestTrace.attach(before);
+                    Metrics.clearRoute();
+                    // a task that restored its interrupt flag must not stop the lane; close() is seen in take()
+                    Thread.interrupted();
+                }
+            }
+        }
+
+        // the head task, plus the claims for the same course queued behind it (up to the next action on that course)
+        private synchronized List<Task> take() throws InterruptedException {
+            while (queue.isEmpty()) {
+                if (closed) throw new InterruptedException();
+                wait();
+            }
+            Task head = queue.poll();
+            List<Task> out = new ArrayList<>();
+            out.add(head);
+            if (!(head instanceof Claim)) return out;
+            Set<String> students = new HashSet<>();
+            students.add(((Claim) head).studentId);
+            for (Iterator<Task> it = queue.iterator(); it.hasNext() && out.size() < maxBatch; ) {
+                Task t = it.next();
+                if (!t.courseId.equals(head.courseId)) continue;
+                if (t instanceof Action || ((Claim) t).enroll != ((Claim) head).enroll) break;
+                // a repeated claim by the same student waits for the next round (and is then already enrolled)
+                if (!students.add(((Claim) t).studentId)) continue;
+                it.remove();
+                out.add(t);
+            }
+            return out;
+        }
+
+        private void runAction(Action a) {
+            try {
+                a.result.complete(a.action.get());
+            } catch (Throwable ex) {
+                a.result.completeExceptionally(ex);
+            }
+        }
+
+        private void runClaims(List<Task> batch) {
+            String courseId = batch.get(0).courseId;
+            List<String> studentIds = new ArrayList<>(batch.size());
+            for (Task t : batch) studentIds.add(((Claim) t).studentId);
+            claims.addAndGet(batch.size());
+            batches.incrementAndGet();
+            Claim head = (Claim) batch.get(0);
+            try {
+                Map<String, Boolean> granted = head.enroll
+                        ? txDao.enrollAll(courseId, studentIds, head.maxSeats)
+                        : courseDao.enrollStudentsAtomic(courseId, studentIds, head.maxSeats);
+                for (Task t : batch) {
+                    Claim c = (Claim) t;
+                    Boolean ok = granted.get(c.studentId);
+                    if (ok != null) c.result.complete(ok);
+                    else if (!c.enroll) c.result.completeExceptionally(new AlreadyEnrolledException("Already enrolled"));
+                    else enrollAlone(c);
+                }
+            } catch (Throwable ex) {
+                for (Task t : batch) t.result.completeExceptionally(ex);
+            }
+        }
+
+        // left out of enrollAll: its own write throws the reason (or succeeds if the state changed since)
+        private void enrollAlone(Claim c) {
+            try {
+                c.result.complete(txDao.enroll(c.studentId, c.courseId, c.maxSeats, UUID.randomUUID().toString()));
+            } catch (Throwable ex) {
+                c.result.completeExceptionally(ex);
+            }
+        }
+    }
+}
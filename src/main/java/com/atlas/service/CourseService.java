@@ -2,6 +2,7 @@ package com.atlas.service;
 
 import com.atlas.dao.CourseDao;
 import com.atlas.model.Course;
+import com.atlas.util.Metrics;
 
 import java.util.List;
 
@@ -9,11 +10,14 @@ import java.util.List;
  * Small wrapper over CourseDao interface.
  */
 public class CourseService {
+    private static final Metrics.Histogram GET_TIME = ServiceMetrics.timer("CourseService.get");
+    private static final Metrics.Histogram LIST_TIME = ServiceMetrics.timer("CourseService.list");
+
     private final CourseDao dao;
 
     // constructor injection only
     public CourseService(CourseDao dao) { this.dao = dao; }
 
-    public Course get(String id) { return dao.getById(id); }
-    public List<Course> list() { return dao.listAll(); }
+    public Course get(String id) { return GET_TIME.time(() -> dao.getById(id)); }
+    public List<Course> list() { return LIST_TIME.time(dao::listAll); }
 }
@@ -1,30 +1,79 @@
 package com.atlas.service;
 
 import com.atlas.dao.CourseDao;
+import com.atlas.dao.EnrollmentTransactionDao;
 import com.atlas.dao.LogDao;
 import com.atlas.dao.StudentDao;
 import com.atlas.exception.*;
 import com.atlas.model.Course;
 import com.atlas.model.Student;
+import com.atlas.util.Metrics;
 
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 public class EnrollmentService {
     private final StudentDao studentDao;
     private final CourseDao courseDao;
     private final LogDao logDao;
+    // null = sequential mode (separate course/student/log writes)
+    private final EnrollmentTransactionDao txDao;
+    // null = seat writes run on the request thread
+    private final CourseLanes lanes;
     private final DateTimeFormatter df = DateTimeFormatter.ISO_LOCAL_DATE;
+    // a seat opening looks at this many students from the head of the waitlist (one Query + one BatchGetItem)
+    private static final int PROMOTION_BATCH = 100;
+    // read-modify-write of a student record is retried this often when a concurrent write wins the version check
+    private static final int MAX_CONFLICT_ATTEMPTS = 5;
+    private static final long CONFLICT_BACKOFF_MS = 10;
+
+    private static final Metrics.Histogram ENROLL_TIME = ServiceMetrics.timer("EnrollmentService.enroll");
+    private static final Metrics.Histogram DROP_TIME = ServiceMetrics.timer("EnrollmentService.drop");
+    private static final Metrics.Histogram POSITIONS_TIME = ServiceMetrics.timer("EnrollmentService.waitlistPositions");
+    private static final Metrics.Counter ENROLLED = ServiceMetrics.outcome("enrolled");
+    private static final Metrics.Counter FULL = ServiceMetrics.outcome("full");
+    private static final Metrics.Counter WAITLISTED = ServiceMetrics.outcome("waitlisted");
+    private static final Metrics.Counter ALREADY_ENROLLED = ServiceMetrics.outcome("already_enrolled");
+    private static final Metrics.Counter DROPPED = ServiceMetrics.outcome("dropped");
+    private static final Metrics.Counter WAITLIST_LEFT = ServiceMetrics.outcome("waitlist_left");
+    private static final Metrics.Counter PROMOTED = ServiceMetrics.outcome("promoted");
 
     // constructor injection only
     public EnrollmentService(StudentDao studentDao, CourseDao courseDao, LogDao logDao) {
+        this(studentDao, courseDao, logDao, null);
+    }
+
+    /**
+     * @param txDao when non-null, enroll/drop write course, student and log in one transaction;
+     *              pass null to keep the sequential path
+     */
+    public EnrollmentService(StudentDao studentDao, CourseDao courseDao, LogDao logDao, EnrollmentTransactionDao txDao) {
+        this(studentDao, courseDao, logDao, txDao, null);
+    }
+
+    /**
+     * @param lanes when non-null, the seat writes of each course are serialized in its lane and concurrent
+     *              enrollments for one course are coalesced into one write (build them with txDao)
+     */
+    public EnrollmentService(StudentDao studentDao, CourseDao courseDao, LogDao logDao, EnrollmentTransactionDao txDao, CourseLanes lanes) {
         this.studentDao = studentDao;
         this.courseDao = courseDao;
         this.logDao = logDao;
+        this.txDao = txDao;
+        this.lanes = lanes;
     }
 
+    public boolean isTransactional() { return txDao != null; }
+
     public void enroll(String studentId, String courseId) {
+        ENROLL_TIME.time(() -> doEnroll(studentId, courseId));
+    }
+
+    private void doEnroll(String studentId, String courseId) {
         Student s = studentDao.getById(studentId);
         if (s == null) throw new StudentNotFoundException(studentId);
         Course c = courseDao.getById(courseId);
@@ -34,28 +83,51 @@ public class EnrollmentService {
         if (c.getLatestEnrollmentBy() != null && !c.getLatestEnrollmentBy().isEmpty() && today.isAfter(LocalDate.parse(c.getLatestEnrollmentBy(), df)))
             throw new IllegalStateException("Enrollment closed for " + courseId);
 
-        if (s.getEnrolledCourseIds().contains(courseId)) throw new AlreadyEnrolledException("Already enrolled");
-        if (s.getWaitlistedCourseIds().contains(courseId)) throw new AlreadyEnrolledException("Already waitlisted");
+        if (s.getEnrolledCourseIds().contains(courseId) || s.getWaitlistedCourseIds().contains(courseId)) {
+            ALREADY_ENROLLED.inc();
+            throw new AlreadyEnrolledException(s.getEnrolledCourseIds().contains(courseId) ? "Already enrolled" : "Already waitlisted");
+        }
 
         if (s.getEnrolledCourseIds().size() >= 5) throw new IllegalStateException("Max 5 active enrollments reached");
 
-        boolean success = courseDao.enrollStudentAtomic(courseId, studentId, c.getMaxSeats());
-        if (success) {
-            s.getEnrolledCourseIds().add(courseId);
-            studentDao.save(s);
-            logDao.append(UUID.randomUUID().toString(), studentId, "ENROLL", courseId);
-            return;
+        if (txDao != null) {
+            boolean enrolled = lanes == null
+                    ? txDao.enroll(studentId, courseId, c.getMaxSeats(), UUID.randomUUID().toString())
+                    : lanes.enroll(courseId, studentId, c.getMaxSeats());
+            courseDao.evict(courseId);
+            if (enrolled) {
+                ENROLLED.inc();
+                return;
+            }
+        } else {
+            boolean success = takeSeat(courseId, studentId, c.getMaxSeats());
+            if (success) {
+                if (!studentDao.addEnrolledCourse(studentId, courseId, 5)) {
+                    // enrolled elsewhere (another tab) since the read above: give the seat back
+                    inLane(courseId, () -> courseDao.dropStudentAtomic(courseId, studentId));
+                    promoteFromWaitlist(courseId);
+                    throw new IllegalStateException("Max 5 active enrollments reached");
+                }
+                logDao.append(UUID.randomUUID().toString(), studentId, "ENROLL", courseId);
+                ENROLLED.inc();
+                return;
+            }
         }
 
         // course full -> waitlist
+        FULL.inc();
         if (s.getWaitlistedCourseIds().size() >= 3) throw new IllegalStateException("Max 3 waitlists reached");
         courseDao.addToWaitlist(courseId, studentId);
-        s.getWaitlistedCourseIds().add(courseId);
-        studentDao.save(s);
+        studentDao.addWaitlistedCourse(studentId, courseId);
         logDao.append(UUID.randomUUID().toString(), studentId, "WAITLIST_JOIN", courseId);
+        WAITLISTED.inc();
     }
 
     public void drop(String studentId, String courseId) {
+        DROP_TIME.time(() -> doDrop(studentId, courseId));
+    }
+
+    private void doDrop(String studentId, String courseId) {
         Student s = studentDao.getById(studentId);
         if (s == null) throw new StudentNotFoundException(studentId);
         Course c = courseDao.getById(courseId);
@@ -65,58 +137,130 @@ public class EnrollmentService {
         if (c.getEndDate() != null && !c.getEndDate().isEmpty() && today.isAfter(LocalDate.parse(c.getEndDate(), df)))
             throw new IllegalStateException("Cannot drop after end date");
 
-        boolean wasEnrolled = s.getEnrolledCourseIds().remove(courseId);
-        if (wasEnrolled) {
-            // rebuild course - remove student from enrolledIds & decrement count
-            Course fresh = courseDao.getById(courseId);
-            boolean removed = fresh.getEnrolledIds().remove(studentId);
-            if (removed) {
-                int newCount = Math.max(0, fresh.getCurrentEnrolledCount() - 1);
-                List<String> newEnrolled = new ArrayList<>(fresh.getEnrolledIds());
-                // Persist only the enrollment-related fields (no full item overwrite)
-                courseDao.replaceEnrolled(courseId, newEnrolled, newCount);
+        if (txDao != null) {
+            boolean dropped = inLane(courseId, () -> txDao.drop(studentId, courseId, UUID.randomUUID().toString()));
+            if (dropped) {
+                DROPPED.inc();
+                courseDao.evict(courseId);
+                promoteFromWaitlist(courseId);
+                return;
             }
-            studentDao.save(s);
+            // the transaction re-read the student and found no enrollment; keep our copy in line with that
+            s.getEnrolledCourseIds().remove(courseId);
+        }
+
+        boolean wasEnrolled = txDao == null && s.getEnrolledCourseIds().contains(courseId);
+        if (wasEnrolled) {
+            // one conditional delete + counter update; a roster that no longer lists the student only gets the student side fixed
+            inLane(courseId, () -> courseDao.dropStudentAtomic(courseId, studentId));
+            updateStudent(studentId, st -> st.getEnrolledCourseIds().remove(courseId));
             logDao.append(UUID.randomUUID().toString(), studentId, "DROP", courseId);
+            DROPPED.inc();
             promoteFromWaitlist(courseId);
             return;
         }
 
         // if on waitlist
-        boolean wasWaitlisted = s.getWaitlistedCourseIds().remove(courseId);
+        boolean wasWaitlisted = s.getWaitlistedCourseIds().contains(courseId);
         if (wasWaitlisted) {
-            Course fresh = courseDao.getById(courseId);
-            List<String> newWait = new ArrayList<>(fresh.getWaitlistIds());
-            newWait.removeIf(id -> id.equals(studentId));
-            courseDao.replaceWaitlist(courseId, newWait);
-            studentDao.save(s);
+            courseDao.removeFromWaitlist(courseId, studentId);
+            updateStudent(studentId, st -> st.getWaitlistedCourseIds().remove(courseId));
             logDao.append(UUID.randomUUID().toString(), studentId, "WAITLIST_OPT_OUT", courseId);
+            WAITLIST_LEFT.inc();
             return;
         }
 
         throw new IllegalStateException("Student not enrolled or waitlisted for " + courseId);
     }
 
+    /**
+     * 1-based waitlist position per course the student is waiting for (0 if the course no longer lists them).
+     */
+    public Map<String, Integer> waitlistPositions(String studentId) {
+        return POSITIONS_TIME.time(() -> doWaitlistPositions(studentId));
+    }
+
+    private Map<String, Integer> doWaitlistPositions(String studentId) {
+        Student s = studentDao.getById(studentId);
+        if (s == null) throw new StudentNotFoundException(studentId);
+        Map<String, Integer> out = new LinkedHashMap<>();
+        for (String courseId : s.getWaitlistedCourseIds()) out.put(courseId, courseDao.waitlistPosition(courseId, studentId));
+        return out;
+    }
+
+    // reads only the head of the queue; students at the head who cannot take the seat keep their place
     private void promoteFromWaitlist(String courseId) {
-        Course c = courseDao.getById(courseId);
+        Course c = courseDao.getByIdFresh(courseId);
         if (c == null) return;
-        List<String> wait = new ArrayList<>(c.getWaitlistIds());
-        for (String candidateId : wait) {
-            Student cand = studentDao.getById(candidateId);
+        List<String> head = courseDao.waitlistHead(courseId, PROMOTION_BATCH);
+        if (head.isEmpty()) return;
+        Map<String, Student> candidates = studentDao.getByIds(head);
+        for (String candidateId : head) {
+            Student cand = candidates.get(candidateId);
             if (cand == null) continue;
             if (cand.getEnrolledCourseIds().size() >= 5) continue; // skip but keep in place
-            boolean ok = courseDao.enrollStudentAtomic(courseId, candidateId, c.getMaxSeats());
+            boolean ok = takeSeat(courseId, candidateId, c.getMaxSeats());
             if (ok) {
-                cand.getEnrolledCourseIds().add(courseId);
-                cand.getWaitlistedCourseIds().remove(courseId);
-                studentDao.save(cand);
-                // rebuild waitlist removing candidate
-                List<String> newWait = new ArrayList<>(c.getWaitlistIds());
-                newWait.remove(candidateId);
-                courseDao.replaceWaitlist(courseId, newWait);
+                boolean[] overLimit = {false};
+                updateStudent(candidateId, st -> {
+                    // the candidate may have enrolled elsewhere since the batch read
+                    overLimit[0] = !st.getEnrolledCourseIds().contains(courseId) && st.getEnrolledCourseIds().size() >= 5;
+                    if (overLimit[0]) return false;
+                    st.getWaitlistedCourseIds().remove(courseId);
+                    if (!st.getEnrolledCourseIds().contains(courseId)) st.getEnrolledCourseIds().add(courseId);
+                    return true;
+                });
+                if (overLimit[0]) {
+                    // give the seat back and offer it to the next in line; this one keeps their place
+                    inLane(courseId, () -> courseDao.dropStudentAtomic(courseId, candidateId));
+                    continue;
+                }
+                courseDao.removeFromWaitlist(courseId, candidateId);
                 logDao.append(UUID.randomUUID().toString(), candidateId, "AUTO_ENROLL", courseId);
+                PROMOTED.inc();
                 return; // only one promotion per seat opening
             }
         }
     }
+
+    private boolean takeSeat(String courseId, String studentId, int maxSeats) {
+        return lanes == null ? courseDao.enrollStudentAtomic(courseId, studentId, maxSeats) : lanes.claimSeat(courseId, studentId, maxSeats);
+    }
+
+    private <T> T inLane(String courseId, Supplier<T> write) {
+        return lanes == null ? write.get() : lanes.run(courseId, write);
+    }
+
+    /**
+     * Re-reads the student and applies change until the versioned save goes through, so a concurrent
+     * enroll, drop or promotion for the same student is never overwritten. change returns false when
+     * there is nothing to write. Gives up with VersionConflictException after MAX_CONFLICT_ATTEMPTS.
+     */
+    private void updateStudent(String studentId, Predicate<Student> change) {
+        for (int attempt = 1; ; attempt++) {
+            Student s = studentDao.getByIdFresh(studentId);
+            if (s == null || !change.test(s)) return;
+            try {
+                studentDao.save(s);
+                return;
+            } catch (VersionConflictException ex) {
+                if (attempt >= MAX_CONFLICT_ATTEMPTS) throw ex;
+                conflictBackoff(attempt);
+            }
+        }
+    }
+
+    static long conflictDelayMs(int attempt) {
+        // full jitter, so the flows that collided do not retry in lockstep
+        return ThreadLocalRandom.current().nextLong((CONFLICT_BACKOFF_MS << Math.min(attempt, 6)) + 1);
+    }
+
+    private static void conflictBackoff(int attempt) {
+        try {
+            Thread.sleep(conflictDelayMs(attempt));
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while retrying a student update", ie);
+        }
+    }
 }
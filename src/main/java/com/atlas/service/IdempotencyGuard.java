@@ -0,0 +1,84 @@
+package com.atlas.service;
+
+import com.atlas.dao.IdempotencyDao;
+import com.atlas.exception.*;
+import com.atlas.model.IdempotencyRecord;
+
+/**
+ * Runs a state-changing request at most once per idempotency key, so a double-clicked form or a proxy
+ * retry of /enroll or /drop is answered from the recorded outcome instead of touching the course again.
+ * - keys are scoped to the student, so two students cannot collide on a client-chosen key
+ * - a key reused for a different request (other action or course) is rejected
+ * - rule failures (already enrolled, unknown course/student) are recorded and replayed; a full course
+ *   is not one, enroll waitlists the student. Anything else (busy, throttled, conflicts) releases the
+ *   key so the retry really runs
+ * - once the action has succeeded, failing to record that does not fail the request; the key stays
+ *   PENDING until the store expires it, and retries meanwhile are answered as busy
+ */
+public class IdempotencyGuard {
+    private static final int MAX_KEY_LENGTH = 128;
+
+    private final IdempotencyDao dao;
+
+    // constructor injection only
+    public IdempotencyGuard(IdempotencyDao dao) {
+        this.dao = dao;
+    }
+
+    /**
+     * @param key         client-supplied idempotency key; null or blank runs the action unguarded
+     * @param fingerprint what the request does, e.g. "ENROLL:C1"
+     * @throws ServiceBusyException     when the first request with this key is still running
+     * @throws IllegalArgumentException when the key was used for a different request
+     * @throws IllegalStateException    replaying a recorded failure (with its original message)
+     */
+    public void run(String studentId, String key, String fingerprint, Runnable action) {
+        if (key == null || key.isBlank()) {
+            action.run();
+            return;
+        }
+        if (key.length() > MAX_KEY_LENGTH) throw new IllegalArgumentException("Idempotency key too long");
+        String scoped = studentId + "#" + key.trim();
+
+        IdempotencyRecord seen = dao.claim(scoped, fingerprint);
+        if (seen != null) {
+            replay(seen, fingerprint);
+            return;
+        }
+        try {
+            action.run();
+        } catch (RuntimeException ex) {
+            if (isFinal(ex)) dao.complete(scoped, IdempotencyRecord.failed(fingerprint, ex.getMessage()));
+            else dao.release(scoped);
+            throw ex;
+        }
+        try {
+            dao.complete(scoped, IdempotencyRecord.succeeded(fingerprint));
+        } catch (RuntimeException ex) {
+            // the enroll/drop itself went through; only its replay record is missing
+            System.err.println("Idempotency: could not record success for " + scoped + ": " + ex.getMessage());
+        }
+    }
+
+    private static void replay(IdempotencyRecord seen, String fingerprint) {
+        if (!seen.getFingerprint().equals(fingerprint)) {
+            throw new IllegalArgumentException("Idempotency key was already used for a different request");
+        }
+        switch (seen.getStatus()) {
+            case PENDING:
+                throw new ServiceBusyException("The same request is still being processed");
+            case FAILED:
+                throw new IllegalStateException(seen.getMessage());
+            default:
+                // SUCCEEDED: nothing to do again
+        }
+    }
+
+    // failures of enroll/drop that a retry would hit again, so they are worth recording
+    // (a full course is not a failure: enroll waitlists the student)
+    private static boolean isFinal(RuntimeException ex) {
+        return ex instanceof AlreadyEnrolledException
+                || ex instanceof CourseNotFoundException
+                || ex instanceof StudentNotFoundException;
+    }
+}
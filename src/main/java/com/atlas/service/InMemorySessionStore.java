@@ -0,0 +1,129 @@
+package com.atlas.service;
+
+import com.atlas.dao.SessionDao;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded, expiring per-node session map; the default SessionStore backend.
+ * - a background sweep removes expired sessions even if their token is never presented again
+ * - at most maxSessions live sessions; creating one more evicts the oldest (by login time)
+ * - sliding TTL (optional) pushes the expiry out on use, at most once per half TTL
+ */
+public class InMemorySessionStore implements SessionDao, AutoCloseable {
+
+    private final Map<String, SessionInfo> sessions = new ConcurrentHashMap<>();
+    // tokens in creation order, for oldest-first eviction; may hold tokens that are already gone
+    private final Queue<String> creationOrder = new ConcurrentLinkedQueue<>();
+    private final Duration ttl;
+    private final int maxSessions;
+    private final boolean sliding;
+    private final Clock clock;
+    private final ScheduledExecutorService sweeper;
+
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+    private final AtomicLong invalidated = new AtomicLong();
+    private final AtomicLong renewed = new AtomicLong();
+    private final AtomicLong sweeps = new AtomicLong();
+
+    /**
+     * @param sweepInterval how often expired sessions are swept; null disables the background sweep
+     *                      (call sweep() yourself, e.g. in tests)
+     */
+    public InMemorySessionStore(Duration ttl, int maxSessions, boolean sliding, Duration sweepInterval, Clock clock) {
+        if (maxSessions < 1) throw new IllegalArgumentException("maxSessions must be >= 1");
+        this.ttl = ttl;
+        this.maxSessions = maxSessions;
+        this.sliding = sliding;
+        this.clock = clock;
+        if (sweepInterval == null) {
+            this.sweeper = null;
+        } else {
+            this.sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "session-sweeper");
+                t.setDaemon(true);
+                return t;
+            });
+            long ms = sweepInterval.toMillis();
+            sweeper.scheduleWithFixedDelay(this::sweep, ms, ms, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public String create(String studentId) {
+        String token = UUID.randomUUID().toString();
+        sessions.put(token, new SessionInfo(studentId, clock.instant().plus(ttl)));
+        creationOrder.add(token);
+        created.incrementAndGet();
+        while (sessions.size() > maxSessions) {
+            String oldest = creationOrder.poll();
+            if (oldest == null) break;
+            if (sessions.remove(oldest) != null) evicted.incrementAndGet();
+        }
+        return token;
+    }
+
+    /**
+     * Single lookup for "is this token valid, and whose is it": the student id, or null when the
+     * token is unknown or expired. Renews the expiry when sliding TTL is on.
+     */
+    @Override
+    public String validateAndGetStudentId(String token) {
+        if (token == null) return null;
+        SessionInfo info = sessions.get(token);
+        if (info == null) return null;
+        Instant now = clock.instant();
+        if (now.isAfter(info.getExpiry())) {
+            if (sessions.remove(token, info)) expired.incrementAndGet();
+            return null;
+        }
+        // renew only once half the TTL is used up, so busy sessions do not rewrite the entry on every request
+        if (sliding && Duration.between(now, info.getExpiry()).compareTo(ttl.dividedBy(2)) < 0) {
+            if (sessions.replace(token, info, new SessionInfo(info.getStudentId(), now.plus(ttl)))) renewed.incrementAndGet();
+        }
+        return info.getStudentId();
+    }
+
+    @Override
+    public void invalidate(String token) {
+        if (token != null && sessions.remove(token) != null) invalidated.incrementAndGet();
+    }
+
+    /** removes every expired session; runs on the background sweeper */
+    public void sweep() {
+        Instant now = clock.instant();
+        sessions.forEach((token, info) -> {
+            if (now.isAfter(info.getExpiry()) && sessions.remove(token, info)) expired.incrementAndGet();
+        });
+        creationOrder.removeIf(token -> !sessions.containsKey(token));
+        sweeps.incrementAndGet();
+    }
+
+    @Override
+    public void close() {
+        if (sweeper != null) sweeper.shutdownNow();
+    }
+
+    @Override public Duration getTtl() { return ttl; }
+    @Override public boolean isSliding() { return sliding; }
+    public int getLiveCount() { return sessions.size(); }
+    public long getCreated() { return created.get(); }
+    public long getExpired() { return expired.get(); }
+    public long getEvicted() { return evicted.get(); }
+    public long getInvalidated() { return invalidated.get(); }
+    public long getRenewed() { return renewed.get(); }
+    public long getSweepCount() { return sweeps.get(); }
+}
@@ -0,0 +1,153 @@
+package com.atlas.service;
+
+import at.favre.lib.crypto.bcrypt.BCrypt;
+import com.atlas.exception.ServiceBusyException;
+import com.atlas.util.Env;
+import com.atlas.util.Metrics;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs BCrypt hashing/verification on a dedicated pool sized to the cores, so a burst of
+ * logins/signups cannot take every request thread (or every core) away from cheap requests.
+ * - the queue in front of the pool is bounded; when it is full the call fails fast with
+ *   ServiceBusyException instead of queueing more CPU work
+ * - the work factor is configurable; needsRehash() tells login when a stored hash uses another cost
+ * Config (env): BCRYPT_COST (10), BCRYPT_THREADS (available processors), BCRYPT_QUEUE (threads * 8).
+ */
+public class PasswordHasher implements AutoCloseable {
+
+    private static final Metrics.Histogram HASH_TIME = workTimer("hash");
+    private static final Metrics.Histogram VERIFY_TIME = workTimer("verify");
+    private static final Metrics.Histogram QUEUE_WAIT = Metrics.histogram("atlas_password_hasher_queue_wait_seconds",
+            "Time password jobs waited for a hashing thread, in seconds");
+
+    private static volatile PasswordHasher shared;
+
+    private final int cost;
+    private final ThreadPoolExecutor pool;
+
+    private final AtomicLong hashes = new AtomicLong();
+    private final AtomicLong verifications = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong workNanosTotal = new AtomicLong();
+    private final AtomicLong workNanosMax = new AtomicLong();
+    private final AtomicLong queueWaitNanosTotal = new AtomicLong();
+    private final AtomicLong queueWaitNanosMax = new AtomicLong();
+
+    public PasswordHasher() {
+        this(Env.getInt("BCRYPT_COST", 10),
+                Env.getInt("BCRYPT_THREADS", Runtime.getRuntime().availableProcessors()),
+                Env.getInt("BCRYPT_QUEUE", Runtime.getRuntime().availableProcessors() * 8));
+    }
+
+    public PasswordHasher(int cost, int threads, int queueCapacity) {
+        if (cost < 4 || cost > 31) throw new IllegalArgumentException("BCrypt cost must be 4..31");
+        this.cost = cost;
+        AtomicInteger n = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "bcrypt-" + n.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Process-wide hasher configured from env, used by services that are not given one.
+     */
+    public static PasswordHasher shared() {
+        if (shared == null) {
+            synchronized (PasswordHasher.class) {
+                if (shared == null) shared = new PasswordHasher();
+            }
+        }
+        return shared;
+    }
+
+    public String hash(String rawPassword) {
+        String h = run(HASH_TIME, () -> BCrypt.withDefaults().hashToString(cost, rawPassword.toCharArray()));
+        hashes.incrementAndGet();
+        return h;
+    }
+
+    public boolean verify(String rawPassword, String hash) {
+        boolean ok = run(VERIFY_TIME, () -> BCrypt.verifyer().verify(rawPassword.toCharArray(), hash).verified);
+        verifications.incrementAndGet();
+        return ok;
+    }
+
+    /** true when the stored hash was produced with a different work factor than the configured one */
+    public boolean needsRehash(String hash) {
+        // $2a$10$<salt+hash>
+        String[] parts = hash == null ? new String[0] : hash.split("\\$");
+        if (parts.length < 4) return false;
+        try {
+            return Integer.parseInt(parts[2]) != cost;
+        } catch (NumberFormatException ex) {
+            return false;
+        }
+    }
+
+    private <T> T run(Metrics.Histogram timer, Callable<T> work) {
+        long submitted = System.nanoTime();
+        Future<T> f;
+        try {
+            f = pool.submit(() -> {
+                long started = System.nanoTime();
+                record(queueWaitNanosTotal, queueWaitNanosMax, started - submitted);
+                QUEUE_WAIT.observeNanos(started - submitted);
+                try {
+                    return work.call();
+                } finally {
+                    long took = System.nanoTime() - started;
+                    record(workNanosTotal, workNanosMax, took);
+                    timer.observeNanos(took);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            rejected.incrementAndGet();
+            throw new ServiceBusyException("Server busy, please try again in a moment");
+        }
+        try {
+            return f.get();
+        } catch (InterruptedException ie) {
+            f.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new ServiceBusyException("Interrupted while waiting for password check");
+        } catch (ExecutionException ee) {
+            Throwable cause = ee.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private static Metrics.Histogram workTimer(String op) {
+        return Metrics.histogram("atlas_password_hasher_seconds", "Time spent on one password hash or verification, in seconds", "op", op);
+    }
+
+    private static void record(AtomicLong total, AtomicLong max, long nanos) {
+        total.addAndGet(nanos);
+        max.accumulateAndGet(nanos, Math::max);
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    public int getCost() { return cost; }
+    public int getQueueDepth() { return pool.getQueue().size(); }
+    public int getActive() { return pool.getActiveCount(); }
+    public long getHashes() { return hashes.get(); }
+    public long getVerifications() { return verifications.get(); }
+    public long getRejected() { return rejected.get(); }
+    public long getWorkNanosTotal() { return workNanosTotal.get(); }
+    public long getWorkNanosMax() { return workNanosMax.get(); }
+    public long getQueueWaitNanosTotal() { return queueWaitNanosTotal.get(); }
+    public long getQueueWaitNanosMax() { return queueWaitNanosMax.get(); }
+}
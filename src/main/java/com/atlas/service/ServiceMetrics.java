@@ -0,0 +1,21 @@
+package com.atlas.service;
+
+import com.atlas.util.Metrics;
+
+/**
+ * Series shared by the services: atlas_service_seconds{method} (latency of each public service call,
+ * including the ones that throw) and atlas_enrollment_outcomes_total{outcome}.
+ */
+final class ServiceMetrics {
+    private ServiceMetrics() {}
+
+    static Metrics.Histogram timer(String method) {
+        return Metrics.histogram("atlas_service_seconds", "Service call latency in seconds", "method", method);
+    }
+
+    static Metrics.Counter outcome(String outcome) {
+        return Metrics.counter("atlas_enrollment_outcomes_total",
+                "Enrollment outcomes (enrolled, full, waitlisted, already_enrolled, dropped, waitlist_left, promoted, ...)",
+                "outcome", outcome);
+    }
+}
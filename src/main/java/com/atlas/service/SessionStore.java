@@ -1,35 +1,71 @@
 package com.atlas.service;
 
+import com.atlas.dao.SessionDao;
+import com.atlas.util.Env;
+
+import java.time.Clock;
 import java.time.Duration;
-import java.time.Instant;
-import java.util.Map;
-import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Static session API used by the WebApp and console App. Delegates to a pluggable SessionDao;
+ * unless use(...) installs another backend, an InMemorySessionStore configured from env is used:
+ * SESSION_TTL_MINUTES (30), SESSION_MAX (100000), SESSION_SLIDING (false), SESSION_SWEEP_SECONDS (60).
+ */
 public class SessionStore {
-    private static final Map<String, SessionInfo> sessions = new ConcurrentHashMap<>();
-    private static final Duration TTL = Duration.ofMinutes(30);
+    private static volatile SessionDao backend;
+
+    /** installs the backend; call once at startup, before the first login */
+    public static void use(SessionDao sessionDao) {
+        backend = sessionDao;
+    }
 
     public static String create(String studentId) {
-        String token = UUID.randomUUID().toString();
-        sessions.put(token, new SessionInfo(studentId, Instant.now().plus(TTL)));
-        return token;
+        return current().create(studentId);
+    }
+
+    /**
+     * Student id for a valid token, null when unknown or expired (one lookup instead of isValid + getStudentId).
+     */
+    public static String validateAndGetStudentId(String token) {
+        return token == null ? null : current().validateAndGetStudentId(token);
     }
 
     public static boolean isValid(String token) {
-        SessionInfo info = sessions.get(token);
-        if (info == null) return false;
-        if (Instant.now().isAfter(info.getExpiry())) {
-            sessions.remove(token);
-            return false;
-        }
-        return true;
+        return validateAndGetStudentId(token) != null;
     }
 
     public static String getStudentId(String token) {
-        SessionInfo info = sessions.get(token);
-        return info == null ? null : info.getStudentId();
+        return validateAndGetStudentId(token);
+    }
+
+    public static void invalidate(String token) {
+        if (token != null) current().invalidate(token);
     }
 
-    public static void invalidate(String token) { sessions.remove(token); }
+    /** the active backend, for its TTL settings and counters */
+    public static SessionDao current() {
+        if (backend == null) {
+            synchronized (SessionStore.class) {
+                if (backend == null) backend = inMemoryFromEnv();
+            }
+        }
+        return backend;
+    }
+
+    public static InMemorySessionStore inMemoryFromEnv() {
+        return new InMemorySessionStore(
+                ttlFromEnv(),
+                Env.getInt("SESSION_MAX", 100_000),
+                slidingFromEnv(),
+                Duration.ofSeconds(Env.getLong("SESSION_SWEEP_SECONDS", 60)),
+                Clock.systemUTC());
+    }
+
+    public static Duration ttlFromEnv() {
+        return Duration.ofMinutes(Env.getLong("SESSION_TTL_MINUTES", 30));
+    }
+
+    public static boolean slidingFromEnv() {
+        return Env.getBoolean("SESSION_SLIDING", false);
+    }
 }
@@ -0,0 +1,156 @@
+package com.atlas.service;
+
+import com.atlas.dao.SessionDao;
+import com.atlas.util.Env;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Stateless sessions: the token carries studentId and expiry, signed with HMAC-SHA256, so
+ * validation is a CPU-only check with no per-session memory and nothing shared between nodes.
+ * Token: base64url("keyId:expiresAt:nonce:studentId") + "." + base64url(hmac).
+ * - key ring: the first key signs, every key in the ring verifies (rotate by prepending a new key,
+ *   drop the old one after one TTL)
+ * - logout puts the token's nonce on a revocation list until the token would expire anyway;
+ *   the list is per node, so with several nodes a logged-out token stays valid on the others
+ * - no sliding renewal (the expiry is inside the signed token)
+ * Config (env): SESSION_SIGNING_KEYS="id2:base64secret,id1:base64secret". Without it a random key
+ * is generated, which only works for a single node and does not survive restarts.
+ */
+public class SignedTokenSessionStore implements SessionDao {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final Base64.Encoder B64 = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder B64D = Base64.getUrlDecoder();
+
+    private final Map<String, Mac> keyRing; // keyId -> initialized prototype, cloned per use
+    private final String signingKeyId;
+    private final Duration ttl;
+    private final Clock clock;
+    private final SecureRandom random = new SecureRandom();
+    // nonce -> expiresAt (epoch seconds) of logged-out tokens
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+
+    /**
+     * @param keys keyId -> secret, in ring order; the first entry signs new tokens
+     */
+    public SignedTokenSessionStore(LinkedHashMap<String, byte[]> keys, Duration ttl, Clock clock) {
+        if (keys.isEmpty()) throw new IllegalArgumentException("at least one signing key required");
+        this.keyRing = new LinkedHashMap<>();
+        for (Map.Entry<String, byte[]> k : keys.entrySet()) {
+            if (k.getKey().contains(":")) throw new IllegalArgumentException("key id must not contain ':'");
+            if (k.getValue().length < 32) throw new IllegalArgumentException("signing key " + k.getKey() + " must be at least 32 bytes");
+            keyRing.put(k.getKey(), mac(k.getValue()));
+        }
+        this.signingKeyId = keys.keySet().iterator().next();
+        this.ttl = ttl;
+        this.clock = clock;
+    }
+
+    public static SignedTokenSessionStore fromEnv() {
+        LinkedHashMap<String, byte[]> keys = new LinkedHashMap<>();
+        String spec = Env.get("SESSION_SIGNING_KEYS", "");
+        for (String entry : spec.split(",")) {
+            if (entry.isBlank()) continue;
+            int colon = entry.indexOf(':');
+            if (colon <= 0) throw new IllegalArgumentException("SESSION_SIGNING_KEYS entries must be keyId:base64secret");
+            keys.put(entry.substring(0, colon).trim(), Base64.getDecoder().decode(entry.substring(colon + 1).trim()));
+        }
+        if (keys.isEmpty()) {
+            System.err.println("SESSION_SIGNING_KEYS not set; using a random per-process key (single node only)");
+            byte[] secret = new byte[32];
+            new SecureRandom().nextBytes(secret);
+            keys.put("local", secret);
+        }
+        return new SignedTokenSessionStore(keys, SessionStore.ttlFromEnv(), Clock.systemUTC());
+    }
+
+    @Override
+    public String create(String studentId) {
+        byte[] nonce = new byte[12];
+        random.nextBytes(nonce);
+        long expiresAt = clock.instant().getEpochSecond() + ttl.toSeconds();
+        String payload = signingKeyId + ":" + expiresAt + ":" + B64.encodeToString(nonce) + ":" + studentId;
+        byte[] payloadBytes = payload.getBytes(StandardCharsets.UTF_8);
+        return B64.encodeToString(payloadBytes) + "." + B64.encodeToString(sign(signingKeyId, payloadBytes));
+    }
+
+    @Override
+    public String validateAndGetStudentId(String token) {
+        String[] p = parse(token);
+        if (p == null) return null;
+        if (revoked.containsKey(p[2])) return null;
+        return p[3];
+    }
+
+    @Override
+    public void invalidate(String token) {
+        String[] p = parse(token);
+        if (p == null) return;
+        long now = clock.instant().getEpochSecond();
+        revoked.put(p[2], Long.parseLong(p[1]));
+        // entries are only needed until the token would have expired on its own
+        revoked.values().removeIf(expiresAt -> expiresAt <= now);
+    }
+
+    /**
+     * Verifies signature and expiry; returns [keyId, expiresAt, nonce, studentId] or null.
+     */
+    private String[] parse(String token) {
+        if (token == null) return null;
+        int dot = token.indexOf('.');
+        if (dot <= 0 || dot == token.length() - 1) return null;
+        byte[] payloadBytes;
+        byte[] signature;
+        try {
+            payloadBytes = B64D.decode(token.substring(0, dot));
+            signature = B64D.decode(token.substring(dot + 1));
+        } catch (IllegalArgumentException badBase64) {
+            return null;
+        }
+        String[] p = new String(payloadBytes, StandardCharsets.UTF_8).split(":", 4);
+        if (p.length != 4 || !keyRing.containsKey(p[0])) return null;
+        // constant-time compare, so response timing does not leak how much of a forged signature matched
+        if (!MessageDigest.isEqual(sign(p[0], payloadBytes), signature)) return null;
+        try {
+            if (clock.instant().getEpochSecond() >= Long.parseLong(p[1])) return null;
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+        return p;
+    }
+
+    private byte[] sign(String keyId, byte[] payload) {
+        try {
+            Mac mac = (Mac) keyRing.get(keyId).clone();
+            return mac.doFinal(payload);
+        } catch (CloneNotSupportedException ex) {
+            throw new IllegalStateException(ALGORITHM + " does not support clone", ex);
+        }
+    }
+
+    private static Mac mac(byte[] secret) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(new SecretKeySpec(secret, ALGORITHM));
+            return mac;
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    @Override public Duration getTtl() { return ttl; }
+    @Override public boolean isSliding() { return false; }
+
+    public String getSigningKeyId() { return signingKeyId; }
+    public int getRevokedCount() { return revoked.size(); }
+}
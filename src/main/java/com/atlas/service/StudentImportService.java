@@ -0,0 +1,234 @@
+package com.atlas.service;
+
+import com.atlas.dao.LogDao;
+import com.atlas.dao.StudentDao;
+import com.atlas.model.Student;
+import com.atlas.util.Env;
+import com.atlas.util.Metrics;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Bulk onboarding of a new intake: a streaming pipeline instead of one register() call per student.
+ * - parse + validate (same rules as StudentService.register, precompiled email pattern) and de-duplicate
+ *   ids/emails within the file on the calling thread
+ * - the accepted rows go out in chunks of `batchSize` (at most 100) to `workers` threads; a worker drops the
+ *   rows whose email is already used (the email index, as register checks it), hashes the passwords on the
+ *   PasswordHasher pool and creates the chunk with StudentDao.saveAllNew: one TransactWriteItems of puts
+ *   conditioned on the id being free, so a student who registers meanwhile is reported as a duplicate,
+ *   never overwritten
+ * - at most 2 * workers chunks are in flight, so memory stays bounded by the chunk size, not the file size
+ *   (only the ids and emails seen so far are kept, for the in-file duplicate check)
+ * - onProgress is called about every PROGRESS_EVERY processed rows and once at the end
+ * Config (env): STUDENT_IMPORT_WORKERS (available processors), STUDENT_IMPORT_BATCH (100).
+ */
+public class StudentImportService {
+    static final int PROGRESS_EVERY = 1000;
+    // one TransactWriteItems per chunk
+    private static final int MAX_BATCH = 100;
+    private static final int MAX_PROBLEMS = 1000;
+    private static final Metrics.Histogram IMPORT_TIME = ServiceMetrics.timer("StudentImportService.importCsv");
+
+    private final StudentDao studentDao;
+    private final LogDao logDao;
+    private final PasswordHasher passwordHasher;
+    private final int workers;
+    private final int batchSize;
+
+    public StudentImportService(StudentDao studentDao, LogDao logDao) {
+        this(studentDao, logDao, PasswordHasher.shared(),
+                Env.getInt("STUDENT_IMPORT_WORKERS", Runtime.getRuntime().availableProcessors()),
+                Env.getInt("STUDENT_IMPORT_BATCH", MAX_BATCH));
+    }
+
+    public StudentImportService(StudentDao studentDao, LogDao logDao, PasswordHasher passwordHasher, int workers, int batchSize) {
+        if (workers < 1) throw new IllegalArgumentException("workers must be >= 1");
+        if (batchSize < 1 || batchSize > MAX_BATCH) throw new IllegalArgumentException("batchSize must be between 1 and " + MAX_BATCH);
+        this.studentDao = studentDao;
+        this.logDao = logDao;
+        this.passwordHasher = passwordHasher;
+        this.workers = workers;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Imports "studentId,name,email,password" lines (an optional header line starting with studentId is skipped).
+     * The password is everything after the third comma.
+     */
+    public Report importCsv(Reader in, Consumer<Report> onProgress) {
+        return IMPORT_TIME.time(() -> doImportCsv(in, onProgress));
+    }
+
+    private Report doImportCsv(Reader in, Consumer<Report> onProgress) {
+        Report report = new Report(onProgress);
+        Set<String> seenIds = new HashSet<>();
+        Set<String> seenEmails = new HashSet<>();
+        Semaphore inFlight = new Semaphore(workers * 2);
+        BufferedReader reader = in instanceof BufferedReader ? (BufferedReader) in : new BufferedReader(in);
+
+        try (ExecutorService pool = Executors.newFixedThreadPool(workers)) {
+            List<Row> chunk = new ArrayList<>(batchSize);
+            String line;
+            int row = 0;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank() || (row == 0 && line.trim().toLowerCase().startsWith("studentid"))) continue;
+                row++;
+                report.read.incrementAndGet();
+                Row r;
+                try {
+                    r = parse(row, line);
+                } catch (IllegalArgumentException ex) {
+                    report.reject(report.invalid, row, ex.getMessage());
+                    report.processed(1);
+                    continue;
+                }
+                if (!seenIds.add(r.id) || !seenEmails.add(r.email)) {
+                    report.reject(report.duplicates, row, "duplicate in file: " + r.id);
+                    report.processed(1);
+                    continue;
+                }
+                chunk.add(r);
+                if (chunk.size() == batchSize) {
+                    submit(pool, inFlight, chunk, report);
+                    chunk = new ArrayList<>(batchSize);
+                }
+            }
+            if (!chunk.isEmpty()) submit(pool, inFlight, chunk, report);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted during student import", ex);
+        }
+        if (onProgress != null) onProgress.accept(report);
+        return report;
+    }
+
+    private void submit(ExecutorService pool, Semaphore inFlight, List<Row> chunk, Report report) throws InterruptedException {
+        inFlight.acquire();
+        try {
+            pool.execute(() -> {
+                try {
+                    writeChunk(chunk, report);
+                } finally {
+                    inFlight.release();
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            inFlight.release();
+            throw ex;
+        }
+    }
+
+    private void writeChunk(List<Row> chunk, Report report) {
+        List<Row> fresh = new ArrayList<>(chunk.size());
+        int checked = 0;
+        List<Student> students = new ArrayList<>(chunk.size());
+        Set<String> taken;
+        try {
+            for (Row r : chunk) {
+                if (studentDao.findByEmail(r.email) != null) report.reject(report.duplicates, r.row, "Email already used: " + r.email);
+                else fresh.add(r);
+                checked++;
+            }
+            for (Row r : fresh) students.add(new Student(r.id, r.name, r.email, passwordHasher.hash(r.password)));
+            taken = students.isEmpty() ? Set.of() : studentDao.saveAllNew(students);
+        } catch (RuntimeException ex) {
+            // nothing of this chunk was written: fail the rows that were not already rejected as duplicates
+            for (Row r : fresh) report.reject(report.failed, r.row, ex.getMessage());
+            for (Row r : chunk.subList(checked, chunk.size())) report.reject(report.failed, r.row, ex.getMessage());
+            report.processed(chunk.size());
+            return;
+        }
+        int written = 0;
+        for (Row r : fresh) {
+            if (taken.contains(r.id)) {
+                report.reject(report.duplicates, r.row, "StudentId already exists: " + r.id);
+                continue;
+            }
+            logDao.append(UUID.randomUUID().toString(), r.id, "IMPORT", null);
+            written++;
+        }
+        report.imported.addAndGet(written);
+        report.processed(chunk.size());
+    }
+
+    private static Row parse(int row, String line) {
+        String[] cols = line.split(",", 4);
+        if (cols.length < 4) throw new IllegalArgumentException("expected studentId,name,email,password");
+        String id = cols[0].trim();
+        String name = cols[1].trim();
+        String email = cols[2].trim().toLowerCase();
+        String password = cols[3];
+        if (id.isEmpty()) throw new IllegalArgumentException("StudentId required");
+        if (name.isEmpty()) throw new IllegalArgumentException("Name required");
+        if (email.isEmpty()) throw new IllegalArgumentException("Email required");
+        if (password.length() < 6) throw new IllegalArgumentException("Password too short");
+        if (id.equalsIgnoreCase(email)) throw new IllegalArgumentException("studentId and email must be different");
+        if (!StudentService.EMAIL.matcher(email).matches()) throw new IllegalArgumentException("Invalid email format: " + email);
+        return new Row(row, id, name, email, password);
+    }
+
+    private static final class Row {
+        final int row;
+        final String id;
+        final String name;
+        final String email;
+        final String password;
+
+        Row(int row, String id, String name, String email, String password) {
+            this.row = row;
+            this.id = id;
+            this.name = name;
+            this.email = email;
+            this.password = password;
+        }
+    }
+
+    /** Running totals of an import; safe to read while it is in progress. */
+    public static final class Report {
+        private final AtomicLong read = new AtomicLong();
+        private final AtomicLong imported = new AtomicLong();
+        private final AtomicLong duplicates = new AtomicLong();
+        private final AtomicLong invalid = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong processed = new AtomicLong();
+        private final List<String> problems = Collections.synchronizedList(new ArrayList<>());
+        private final Consumer<Report> onProgress;
+
+        private Report(Consumer<Report> onProgress) {
+            this.onProgress = onProgress;
+        }
+
+        private void reject(AtomicLong counter, int row, String message) {
+            counter.incrementAndGet();
+            if (problems.size() < MAX_PROBLEMS) problems.add("row " + row + ": " + message);
+        }
+
+        private void processed(int n) {
+            long done = processed.addAndGet(n);
+            if (onProgress != null && done / PROGRESS_EVERY != (done - n) / PROGRESS_EVERY) onProgress.accept(this);
+        }
+
+        public long getRead() { return read.get(); }
+        public long getImported() { return imported.get(); }
+        public long getDuplicates() { return duplicates.get(); }
+        public long getInvalid() { return invalid.get(); }
+        public long getFailed() { return failed.get(); }
+        /** the first MAX_PROBLEMS rejected rows as "row N: reason" */
+        public List<String> getProblems() { return new ArrayList<>(problems); }
+
+        @Override
+        public String toString() {
+            return "read=" + getRead() + " imported=" + getImported() + " duplicates=" + getDuplicates()
+                    + " invalid=" + getInvalid() + " failed=" + getFailed();
+        }
+    }
+}
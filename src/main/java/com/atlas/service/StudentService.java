@@ -1,13 +1,15 @@
 package com.atlas.service;
 
-import at.favre.lib.crypto.bcrypt.BCrypt;
 import com.atlas.dao.StudentDao;
 import com.atlas.dao.LogDao;
 import com.atlas.model.Student;
 import com.atlas.exception.AuthenticationException;
 import com.atlas.exception.StudentNotFoundException;
+import com.atlas.exception.VersionConflictException;
+import com.atlas.util.Metrics;
 
 import java.util.UUID;
+import java.util.regex.Pattern;
 
 /**
  * StudentService depends on DAO interfaces (constructor injection).
@@ -17,17 +19,35 @@ import java.util.UUID;
  *  - studentId != email
  *  - email format (basic)
  *  - uniqueness of studentId and email
+ * Password hashing/verification runs on the PasswordHasher pool (ServiceBusyException when it is saturated).
  */
 public class StudentService {
+    // basic email format validation: require '@' and domain suffix like .com/.org/.net (adjust as needed)
+    static final Pattern EMAIL = Pattern.compile("^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+\\.(com|org|net|edu|in)$");
+
+    private static final Metrics.Histogram REGISTER_TIME = ServiceMetrics.timer("StudentService.register");
+    private static final Metrics.Histogram LOGIN_TIME = ServiceMetrics.timer("StudentService.login");
+    private static final Metrics.Histogram PROFILE_TIME = ServiceMetrics.timer("StudentService.profile");
+
     private final StudentDao studentDao;
     private final LogDao logDao;
+    private final PasswordHasher passwordHasher;
 
     public StudentService(StudentDao studentDao, LogDao logDao) {
+        this(studentDao, logDao, PasswordHasher.shared());
+    }
+
+    public StudentService(StudentDao studentDao, LogDao logDao, PasswordHasher passwordHasher) {
         this.studentDao = studentDao;
         this.logDao = logDao;
+        this.passwordHasher = passwordHasher;
     }
 
     public void register(String id, String name, String email, String rawPassword) {
+        REGISTER_TIME.time(() -> doRegister(id, name, email, rawPassword));
+    }
+
+    private void doRegister(String id, String name, String email, String rawPassword) {
         if (id == null || id.isBlank()) throw new IllegalArgumentException("StudentId required");
         if (name == null || name.isBlank()) throw new IllegalArgumentException("Name required");
         if (email == null || email.isBlank()) throw new IllegalArgumentException("Email required");
@@ -41,8 +61,7 @@ public class StudentService {
             throw new IllegalArgumentException("studentId and email must be different");
         }
 
-        // basic email format validation: require '@' and domain suffix like .com/.org/.net (adjust as needed)
-        if (!normalizedEmail.matches("^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+\\.(com|org|net|edu|in)$")) {
+        if (!EMAIL.matcher(normalizedEmail).matches()) {
             throw new IllegalArgumentException("Invalid email format. Must be like user@example.com");
         }
 
@@ -56,26 +75,49 @@ public class StudentService {
             throw new IllegalArgumentException("Email already used: " + normalizedEmail);
         }
 
-        String hash = BCrypt.withDefaults().hashToString(10, rawPassword.toCharArray());
+        String hash = passwordHasher.hash(rawPassword);
         Student s = new Student(idTrim, name, normalizedEmail, hash);
-        studentDao.save(s);
+        try {
+            studentDao.save(s);
+        } catch (VersionConflictException ex) {
+            // registered concurrently under the same id (the save only creates new items)
+            throw new IllegalArgumentException("StudentId already exists: " + idTrim);
+        }
         logDao.append(UUID.randomUUID().toString(), idTrim, "SIGNUP", null);
     }
 
     public String login(String email, String rawPassword) {
+        return LOGIN_TIME.time(() -> doLogin(email, rawPassword));
+    }
+
+    private String doLogin(String email, String rawPassword) {
         if (email == null || rawPassword == null) throw new AuthenticationException("Invalid credentials");
         String normalizedEmail = email.trim().toLowerCase();
 
         Student s = studentDao.findByEmail(normalizedEmail);
         if (s == null) throw new AuthenticationException("Invalid credentials");
-        BCrypt.Result r = BCrypt.verifyer().verify(rawPassword.toCharArray(), s.getPasswordHash());
-        if (!r.verified) throw new AuthenticationException("Invalid credentials");
+        if (!passwordHasher.verify(rawPassword, s.getPasswordHash())) throw new AuthenticationException("Invalid credentials");
+        rehashIfNeeded(s, rawPassword);
         String token = SessionStore.create(s.getId());  // still use studentId for session
         logDao.append(UUID.randomUUID().toString(), s.getId(), "LOGIN", null);
         return token;
     }
 
+    // upgrade hashes made with an older BCRYPT_COST while we have the raw password; login still succeeds if this fails
+    private void rehashIfNeeded(Student s, String rawPassword) {
+        if (!passwordHasher.needsRehash(s.getPasswordHash())) return;
+        try {
+            studentDao.updatePasswordHash(s.getId(), passwordHasher.hash(rawPassword));
+        } catch (RuntimeException ex) {
+            System.err.println("Password rehash skipped for " + s.getId() + ": " + ex.getMessage());
+        }
+    }
+
     public String profile(String id) {
+        return PROFILE_TIME.time(() -> doProfile(id));
+    }
+
+    private String doProfile(String id) {
         Student s = studentDao.getById(id);
         if (s == null) throw new StudentNotFoundException("Student with ID " + id + " not found");
 
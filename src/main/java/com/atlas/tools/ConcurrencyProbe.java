@@ -0,0 +1,166 @@
+package com.atlas.tools;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed-loop load probe for comparing WEB_THREADS=pool and WEB_THREADS=virtual.
+ * For each concurrency level N it keeps N clients busy against one URL for a fixed time and
+ * reports throughput, p50 and p99; the "sustained" level is the highest one whose p99 stays
+ * within the limit (default: 3x the p99 of the first level) with under 1% errors.
+ *
+ * Usage (WebApp running):
+ *   java -cp target/atlas-capstone-1.0.0-jar-with-dependencies.jar com.atlas.tools.ConcurrencyProbe \
+ *       --url http://localhost:3000/courses [--levels 8,16,32,64,128,256,512] [--seconds 10] \
+ *       [--p99-limit-ms 250] [--form "email=a@b.com&password=secret"]
+ * --form switches to POST with that url-encoded body (e.g. /login to include BCrypt).
+ */
+public class ConcurrencyProbe {
+
+    private final HttpClient http;
+    private final URI url;
+    private final String form;
+
+    public ConcurrencyProbe(URI url, String form) {
+        this.url = url;
+        this.form = form;
+        // virtual threads on the client side, so the probe itself is not the bottleneck
+        this.http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+    }
+
+    /** result of one concurrency level; latencies in milliseconds */
+    public static final class LevelResult {
+        public final int concurrency;
+        public final long requests;
+        public final long errors;
+        public final double throughputPerSec;
+        public final double p50Ms;
+        public final double p99Ms;
+
+        LevelResult(int concurrency, long requests, long errors, double throughputPerSec, double p50Ms, double p99Ms) {
+            this.concurrency = concurrency;
+            this.requests = requests;
+            this.errors = errors;
+            this.throughputPerSec = throughputPerSec;
+            this.p50Ms = p50Ms;
+            this.p99Ms = p99Ms;
+        }
+
+        double errorRate() {
+            return requests == 0 ? 1.0 : (double) errors / requests;
+        }
+    }
+
+    public LevelResult runLevel(int concurrency, Duration duration) throws Exception {
+        long deadline = System.nanoTime() + duration.toNanos();
+        AtomicLong errors = new AtomicLong();
+        List<Future<long[]>> workers = new ArrayList<>(concurrency);
+        long start = System.nanoTime();
+        try (ExecutorService ex = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < concurrency; i++) {
+                workers.add(ex.submit(() -> clientLoop(deadline, errors)));
+            }
+            List<long[]> perWorker = new ArrayList<>(concurrency);
+            for (Future<long[]> f : workers) perWorker.add(f.get());
+            double elapsedSec = (System.nanoTime() - start) / 1e9;
+
+            int total = perWorker.stream().mapToInt(a -> a.length).sum();
+            long[] all = new long[total];
+            int pos = 0;
+            for (long[] a : perWorker) {
+                System.arraycopy(a, 0, all, pos, a.length);
+                pos += a.length;
+            }
+            Arrays.sort(all);
+            return new LevelResult(concurrency, total, errors.get(), total / elapsedSec,
+                    percentile(all, 0.50) / 1e6, percentile(all, 0.99) / 1e6);
+        }
+    }
+
+    // one simulated client: send, wait for the response, repeat; returns latencies in nanos
+    private long[] clientLoop(long deadline, AtomicLong errors) {
+        long[] lat = new long[1024];
+        int n = 0;
+        while (System.nanoTime() < deadline) {
+            long t0 = System.nanoTime();
+            try {
+                HttpResponse<Void> resp = http.send(request(), HttpResponse.BodyHandlers.discarding());
+                if (resp.statusCode() >= 500) errors.incrementAndGet();
+            } catch (Exception ex) {
+                errors.incrementAndGet();
+            }
+            if (n == lat.length) lat = Arrays.copyOf(lat, n * 2);
+            lat[n++] = System.nanoTime() - t0;
+        }
+        return Arrays.copyOf(lat, n);
+    }
+
+    private HttpRequest request() {
+        HttpRequest.Builder b = HttpRequest.newBuilder(url).timeout(Duration.ofSeconds(30));
+        if (form == null) return b.GET().build();
+        return b.header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(form)).build();
+    }
+
+    /** nearest-rank percentile of an ascending array; 0 when empty */
+    static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        int rank = (int) Math.ceil(p * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))];
+    }
+
+    public static void main(String[] args) throws Exception {
+        String url = null;
+        String form = null;
+        int[] levels = {8, 16, 32, 64, 128, 256, 512};
+        int seconds = 10;
+        double p99LimitMs = -1;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--url" -> url = args[++i];
+                case "--form" -> form = args[++i];
+                case "--levels" -> levels = Arrays.stream(args[++i].split(",")).mapToInt(s -> Integer.parseInt(s.trim())).toArray();
+                case "--seconds" -> seconds = Integer.parseInt(args[++i]);
+                case "--p99-limit-ms" -> p99LimitMs = Double.parseDouble(args[++i]);
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        if (url == null) {
+            System.err.println("Usage: ConcurrencyProbe --url <url> [--levels 8,16,...] [--seconds 10] [--p99-limit-ms N] [--form body]");
+            System.exit(2);
+        }
+
+        ConcurrencyProbe probe = new ConcurrencyProbe(URI.create(url), form);
+        // short warm-up so JIT and connection setup do not land in the first level
+        probe.runLevel(Math.min(4, levels[0]), Duration.ofSeconds(2));
+
+        System.out.printf("%-12s %10s %8s %12s %10s %10s%n", "concurrency", "requests", "errors", "req/s", "p50 ms", "p99 ms");
+        int sustained = 0;
+        for (int level : levels) {
+            LevelResult r = probe.runLevel(level, Duration.ofSeconds(seconds));
+            System.out.printf("%-12d %10d %8d %12.1f %10.2f %10.2f%n",
+                    r.concurrency, r.requests, r.errors, r.throughputPerSec, r.p50Ms, r.p99Ms);
+            if (p99LimitMs < 0) p99LimitMs = Math.max(1.0, r.p99Ms * 3);
+            if (r.p99Ms > p99LimitMs || r.errorRate() >= 0.01) {
+                System.out.printf("p99 limit %.2f ms exceeded at concurrency %d%n", p99LimitMs, level);
+                break;
+            }
+            sustained = level;
+        }
+        System.out.printf("Sustained concurrency: %d (p99 <= %.2f ms)%n", sustained, p99LimitMs);
+    }
+}
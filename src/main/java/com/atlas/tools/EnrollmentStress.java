@@ -0,0 +1,425 @@
+package com.atlas.tools;
+
+import com.atlas.dao.CourseDao;
+import com.atlas.dao.EnrollmentTransactionDao;
+import com.atlas.exception.AlreadyEnrolledException;
+import com.atlas.exception.AuthenticationException;
+import com.atlas.exception.CourseFullException;
+import com.atlas.exception.ServiceBusyException;
+import com.atlas.exception.VersionConflictException;
+import com.atlas.model.Course;
+import com.atlas.model.Student;
+import com.atlas.repository.CachingCourseDao;
+import com.atlas.repository.DynamoCourseDao;
+import com.atlas.repository.DynamoDBClientUtil;
+import com.atlas.repository.DynamoEnrollmentTransactionDao;
+import com.atlas.repository.DynamoLogDao;
+import com.atlas.repository.DynamoSchema;
+import com.atlas.repository.DynamoStudentDao;
+import com.atlas.service.CourseLanes;
+import com.atlas.service.EnrollmentService;
+import com.atlas.service.PasswordHasher;
+import com.atlas.service.StudentService;
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+import software.amazon.awssdk.core.interceptor.SdkExecutionAttribute;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.TransactionCanceledException;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Enrollment stress run against DynamoDB Local (or any endpoint set in DYNAMODB_ENDPOINT).
+ * Seeds `courses` courses of `seats` seats and `students` students under a fresh run prefix, then keeps `clients`
+ * closed-loop clients busy with a weighted enroll/drop/login mix for `seconds`, either calling the services in
+ * this process or WebApp over HTTP. Reports per operation: throughput, p50/p95/p99 and outcomes
+ * (ok / rejected by a business rule / busy / error); in service mode also the conditional check failures seen
+ * by the DynamoDB client, per operation name.
+ * Afterwards it checks the invariants of every seeded course and student:
+ *  - no roster over maxSeats, and the seat counter equal to the roster size
+ *  - each student's enrolledCourseIds equal to the courses whose roster lists them
+ * and exits with status 1 if any is broken.
+ *
+ * Usage (tables created by setup-dynamodb.ps1; WebApp running for --http):
+ *   java -cp target/atlas-capstone-1.0.0-jar-with-dependencies.jar com.atlas.tools.EnrollmentStress \
+ *       [--courses 20] [--students 500] [--seats 10] [--clients 32] [--seconds 30] \
+ *       [--mix enroll=60,drop=30,login=10] [--http http://localhost:3000]
+ * Service mode is wired like WebApp, so ENROLLMENT_MODE, COURSE_LANES and BCRYPT_* apply to it.
+ */
+public class EnrollmentStress {
+    static final String PASSWORD = "Stress123";
+
+    enum Op { ENROLL, DROP, LOGIN }
+    enum Outcome { OK, REJECTED, BUSY, ERROR }
+
+    private final String prefix = "ST" + UUID.randomUUID().toString().substring(0, 6).toUpperCase();
+    private final List<String> courseIds = new ArrayList<>();
+    private final List<String> studentIds = new ArrayList<>();
+    // courses each student has enrolled in or waitlisted for through this run, so drops mostly hit something
+    private final Map<String, Set<String>> held = new ConcurrentHashMap<>();
+    private final Map<Op, Stats> stats = new EnumMap<>(Op.class);
+    private final ConditionalFailures conditionalFailures = new ConditionalFailures();
+
+    private final int courses;
+    private final int students;
+    private final int seats;
+    private final Map<Op, Integer> mix;
+    private final Target target;
+
+    EnrollmentStress(int courses, int students, int seats, Map<Op, Integer> mix, String httpUrl) {
+        this.courses = courses;
+        this.students = students;
+        this.seats = seats;
+        this.mix = mix;
+        for (Op op : Op.values()) stats.put(op, new Stats());
+        // must be registered before the shared client is built
+        DynamoDBClientUtil.addInterceptor(conditionalFailures);
+        this.target = httpUrl == null ? new ServiceTarget() : new HttpTarget(URI.create(httpUrl));
+    }
+
+    void seed() {
+        DynamoDbClient client = DynamoDBClientUtil.client();
+        DynamoSchema.ensureEnrollmentsTable(client);
+        DynamoSchema.ensureWaitlistTable(client);
+        DynamoSchema.ensureStudentEmailIndex(client);
+        for (int i = 0; i < courses; i++) {
+            String id = prefix + "C" + i;
+            client.putItem(PutItemRequest.builder().tableName("Courses").item(Map.of(
+                    "courseId", AttributeValue.builder().s(id).build(),
+                    "courseName", AttributeValue.builder().s("Stress " + i).build(),
+                    "maxSeats", AttributeValue.builder().n(Integer.toString(seats)).build(),
+                    "currentEnrolledCount", AttributeValue.builder().n("0").build(),
+                    "startDate", AttributeValue.builder().s(LocalDate.now().toString()).build(),
+                    "endDate", AttributeValue.builder().s(LocalDate.now().plusMonths(3).toString()).build(),
+                    "latestEnrollmentBy", AttributeValue.builder().s(LocalDate.now().plusDays(30).toString()).build())).build());
+            courseIds.add(id);
+        }
+        // one hash for everyone: seeding should not take longer than the run
+        String hash = PasswordHasher.shared().hash(PASSWORD);
+        List<Student> batch = new ArrayList<>(students);
+        for (int i = 0; i < students; i++) {
+            String id = prefix + "S" + i;
+            batch.add(new Student(id, "Stress " + i, email(id), hash));
+            studentIds.add(id);
+        }
+        new DynamoStudentDao().saveAllNew(batch);
+        System.out.printf("Seeded %d courses (%d seats) and %d students under %s%n", courses, seats, students, prefix);
+    }
+
+    static String email(String studentId) {
+        return studentId.toLowerCase() + "@example.com";
+    }
+
+    void run(int clients, Duration duration) throws Exception {
+        long deadline = System.nanoTime() + duration.toNanos();
+        conditionalFailures.reset();
+        long start = System.nanoTime();
+        try (ExecutorService pool = Executors.newFixedThreadPool(clients)) {
+            List<Future<?>> loops = new ArrayList<>();
+            for (int i = 0; i < clients; i++) loops.add(pool.submit(() -> clientLoop(deadline)));
+            for (Future<?> f : loops) f.get();
+        }
+        double elapsedSec = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("%n%-8s %9s %9s %9s %7s %7s %10s %9s %9s %9s%n",
+                "op", "requests", "ok", "rejected", "busy", "errors", "ops/s", "p50 ms", "p95 ms", "p99 ms");
+        long total = 0;
+        for (Op op : Op.values()) {
+            Stats s = stats.get(op);
+            long[] lat = s.sortedLatencies();
+            total += lat.length;
+            System.out.printf("%-8s %9d %9d %9d %7d %7d %10.1f %9.2f %9.2f %9.2f%n",
+                    op.name().toLowerCase(), lat.length, s.count(Outcome.OK), s.count(Outcome.REJECTED), s.count(Outcome.BUSY),
+                    s.count(Outcome.ERROR), lat.length / elapsedSec,
+                    ConcurrencyProbe.percentile(lat, 0.50) / 1e6, ConcurrencyProbe.percentile(lat, 0.95) / 1e6,
+                    ConcurrencyProbe.percentile(lat, 0.99) / 1e6);
+        }
+        System.out.printf("total    %9d in %.1fs = %.1f ops/s with %d clients%n", total, elapsedSec, total / elapsedSec, clients);
+        if (target instanceof ServiceTarget) conditionalFailures.print();
+        else System.out.println("(conditional failures are counted in service mode only)");
+    }
+
+    private void clientLoop(long deadline) {
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        int weights = mix.values().stream().mapToInt(Integer::intValue).sum();
+        while (System.nanoTime() < deadline) {
+            Op op = pick(rnd.nextInt(weights));
+            String studentId = studentIds.get(rnd.nextInt(studentIds.size()));
+            String courseId;
+            if (op == Op.DROP) {
+                List<String> mine = new ArrayList<>(held.getOrDefault(studentId, Set.of()));
+                if (mine.isEmpty()) op = Op.ENROLL;
+                courseId = mine.isEmpty() ? courseIds.get(rnd.nextInt(courseIds.size())) : mine.get(rnd.nextInt(mine.size()));
+            } else {
+                courseId = courseIds.get(rnd.nextInt(courseIds.size()));
+            }
+
+            long t0 = System.nanoTime();
+            Outcome outcome;
+            try {
+                outcome = target.call(op, studentId, courseId);
+            } catch (AlreadyEnrolledException | CourseFullException | AuthenticationException
+                     | IllegalStateException | IllegalArgumentException ex) {
+                outcome = Outcome.REJECTED;
+            } catch (ServiceBusyException | VersionConflictException ex) {
+                outcome = Outcome.BUSY;
+            } catch (Exception ex) {
+                outcome = Outcome.ERROR;
+            }
+            stats.get(op).record(System.nanoTime() - t0, outcome);
+
+            if (outcome == Outcome.OK && op == Op.ENROLL) held.computeIfAbsent(studentId, k -> ConcurrentHashMap.newKeySet()).add(courseId);
+            if (outcome == Outcome.OK && op == Op.DROP) held.getOrDefault(studentId, Set.of()).remove(courseId);
+        }
+    }
+
+    private Op pick(int r) {
+        for (Map.Entry<Op, Integer> e : mix.entrySet()) {
+            r -= e.getValue();
+            if (r < 0) return e.getKey();
+        }
+        return Op.ENROLL;
+    }
+
+    /** @return the number of broken invariants */
+    int verify() {
+        DynamoCourseDao courseDao = new DynamoCourseDao();
+        DynamoStudentDao studentDao = new DynamoStudentDao();
+        int violations = 0;
+        Map<String, Set<String>> coursesByStudent = new HashMap<>();
+        for (String courseId : courseIds) {
+            Course c = courseDao.getByIdFresh(courseId);
+            List<String> roster = courseDao.roster(courseId);
+            if (roster.size() > c.getMaxSeats()) {
+                violations++;
+                System.out.printf("OVERSOLD %s: %d enrolled, %d seats%n", courseId, roster.size(), c.getMaxSeats());
+            }
+            if (c.getCurrentEnrolledCount() != roster.size()) {
+                violations++;
+                System.out.printf("COUNT MISMATCH %s: counter %d, roster %d%n", courseId, c.getCurrentEnrolledCount(), roster.size());
+            }
+            for (String studentId : roster) coursesByStudent.computeIfAbsent(studentId, k -> new HashSet<>()).add(courseId);
+        }
+        for (String studentId : studentIds) {
+            Student s = studentDao.getByIdFresh(studentId);
+            Set<String> listed = new HashSet<>(s.getEnrolledCourseIds());
+            Set<String> onRosters = coursesByStudent.getOrDefault(studentId, Set.of());
+            if (!listed.equals(onRosters)) {
+                violations++;
+                System.out.printf("STUDENT MISMATCH %s: enrolledCourseIds %s, rosters %s%n", studentId, listed, onRosters);
+            }
+        }
+        System.out.printf("Invariants: %d courses, %d students checked, %d violations%n", courseIds.size(), studentIds.size(), violations);
+        return violations;
+    }
+
+    private interface Target {
+        Outcome call(Op op, String studentId, String courseId) throws Exception;
+    }
+
+    /** the services wired like WebApp, in this process */
+    private static final class ServiceTarget implements Target {
+        private final StudentService studentService;
+        private final EnrollmentService enrollmentService;
+
+        ServiceTarget() {
+            DynamoStudentDao studentDao = new DynamoStudentDao();
+            DynamoLogDao logDao = new DynamoLogDao();
+            CourseDao courseDao = new CachingCourseDao(new DynamoCourseDao());
+            studentService = new StudentService(studentDao, logDao);
+            EnrollmentTransactionDao txDao =
+                    "sequential".equalsIgnoreCase(System.getenv("ENROLLMENT_MODE")) ? null : new DynamoEnrollmentTransactionDao();
+            enrollmentService = new EnrollmentService(studentDao, courseDao, logDao, txDao, CourseLanes.fromEnv(courseDao, txDao));
+        }
+
+        @Override
+        public Outcome call(Op op, String studentId, String courseId) {
+            switch (op) {
+                case ENROLL -> enrollmentService.enroll(studentId, courseId);
+                case DROP -> enrollmentService.drop(studentId, courseId);
+                case LOGIN -> studentService.login(email(studentId), PASSWORD);
+            }
+            return Outcome.OK;
+        }
+    }
+
+    /** WebApp over HTTP: form posts with the session cookie; a redirect means success, an HTML error page a rejection */
+    private static final class HttpTarget implements Target {
+        private final HttpClient http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .build();
+        private final URI base;
+        private final Map<String, String> sessions = new ConcurrentHashMap<>();
+
+        HttpTarget(URI base) {
+            this.base = base;
+        }
+
+        @Override
+        public Outcome call(Op op, String studentId, String courseId) throws Exception {
+            if (op == Op.LOGIN) return login(studentId);
+            String cookie = sessions.get(studentId);
+            if (cookie == null) {
+                Outcome loggedIn = login(studentId);
+                cookie = sessions.get(studentId);
+                if (cookie == null) return loggedIn == Outcome.OK ? Outcome.ERROR : loggedIn;
+            }
+            HttpResponse<String> resp = post(op == Op.ENROLL ? "/enroll" : "/drop", "courseId=" + encode(courseId), cookie);
+            return classify(resp);
+        }
+
+        private Outcome login(String studentId) throws Exception {
+            HttpResponse<String> resp = post("/login", "email=" + encode(email(studentId)) + "&password=" + encode(PASSWORD), null);
+            resp.headers().allValues("Set-Cookie").stream()
+                    .filter(c -> c.startsWith("session="))
+                    .findFirst()
+                    .ifPresent(c -> sessions.put(studentId, c.split(";", 2)[0]));
+            return classify(resp);
+        }
+
+        private HttpResponse<String> post(String path, String form, String cookie) throws Exception {
+            HttpRequest.Builder b = HttpRequest.newBuilder(base.resolve(path))
+                    .timeout(Duration.ofSeconds(30))
+                    .header("Content-Type", "application/x-www-form-urlencoded")
+                    .header("Idempotency-Key", UUID.randomUUID().toString())
+                    .POST(HttpRequest.BodyPublishers.ofString(form));
+            if (cookie != null) b.header("Cookie", cookie);
+            return http.send(b.build(), HttpResponse.BodyHandlers.ofString());
+        }
+
+        private static Outcome classify(HttpResponse<String> resp) {
+            int code = resp.statusCode();
+            if (code == 302 || code == 303) return Outcome.OK;
+            if (code == 503 || code == 429) return Outcome.BUSY;
+            if (code >= 500) return Outcome.ERROR;
+            return Outcome.REJECTED;
+        }
+
+        private static String encode(String v) {
+            return URLEncoder.encode(v, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static final class Stats {
+        private final Map<Outcome, AtomicLong> outcomes = new EnumMap<>(Outcome.class);
+        private long[] latencies = new long[1024];
+        private int n;
+
+        Stats() {
+            for (Outcome o : Outcome.values()) outcomes.put(o, new AtomicLong());
+        }
+
+        synchronized void record(long nanos, Outcome outcome) {
+            if (n == latencies.length) latencies = Arrays.copyOf(latencies, n * 2);
+            latencies[n++] = nanos;
+            outcomes.get(outcome).incrementAndGet();
+        }
+
+        synchronized long[] sortedLatencies() {
+            long[] out = Arrays.copyOf(latencies, n);
+            Arrays.sort(out);
+            return out;
+        }
+
+        long count(Outcome o) {
+            return outcomes.get(o).get();
+        }
+    }
+
+    /** counts DynamoDB calls and the conditional check failures among them, per operation name */
+    static final class ConditionalFailures implements ExecutionInterceptor {
+        private final Map<String, AtomicLong> calls = new ConcurrentSkipListMap<>();
+        private final Map<String, AtomicLong> failures = new ConcurrentHashMap<>();
+
+        @Override
+        public void afterExecution(Context.AfterExecution context, ExecutionAttributes attributes) {
+            count(calls, attributes);
+        }
+
+        @Override
+        public void onExecutionFailure(Context.FailedExecution context, ExecutionAttributes attributes) {
+            count(calls, attributes);
+            Throwable ex = context.exception();
+            boolean conditional = ex instanceof ConditionalCheckFailedException
+                    || (ex instanceof TransactionCanceledException tx && tx.hasCancellationReasons()
+                        && tx.cancellationReasons().stream().anyMatch(r -> "ConditionalCheckFailed".equals(r.code())));
+            if (conditional) count(failures, attributes);
+        }
+
+        private static void count(Map<String, AtomicLong> into, ExecutionAttributes attributes) {
+            String operation = attributes.getAttribute(SdkExecutionAttribute.OPERATION_NAME);
+            into.computeIfAbsent(operation == null ? "?" : operation, k -> new AtomicLong()).incrementAndGet();
+        }
+
+        void reset() {
+            calls.clear();
+            failures.clear();
+        }
+
+        void print() {
+            System.out.printf("%n%-20s %10s %12s %8s%n", "DynamoDB operation", "calls", "conditional", "rate");
+            for (Map.Entry<String, AtomicLong> e : calls.entrySet()) {
+                long c = e.getValue().get();
+                long f = failures.getOrDefault(e.getKey(), new AtomicLong()).get();
+                System.out.printf("%-20s %10d %12d %7.2f%%%n", e.getKey(), c, f, c == 0 ? 0.0 : 100.0 * f / c);
+            }
+        }
+    }
+
+    static Map<Op, Integer> parseMix(String spec) {
+        Map<Op, Integer> out = new EnumMap<>(Op.class);
+        for (String part : spec.split(",")) {
+            String[] kv = part.trim().split("=");
+            if (kv.length != 2) throw new IllegalArgumentException("--mix expects op=weight pairs, e.g. enroll=60,drop=30,login=10");
+            int weight = Integer.parseInt(kv[1].trim());
+            if (weight > 0) out.put(Op.valueOf(kv[0].trim().toUpperCase()), weight);
+        }
+        if (out.isEmpty()) throw new IllegalArgumentException("--mix needs at least one positive weight");
+        return out;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int courses = 20;
+        int students = 500;
+        int seats = 10;
+        int clients = 32;
+        int seconds = 30;
+        String mix = "enroll=60,drop=30,login=10";
+        String http = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--courses" -> courses = Integer.parseInt(args[++i]);
+                case "--students" -> students = Integer.parseInt(args[++i]);
+                case "--seats" -> seats = Integer.parseInt(args[++i]);
+                case "--clients" -> clients = Integer.parseInt(args[++i]);
+                case "--seconds" -> seconds = Integer.parseInt(args[++i]);
+                case "--mix" -> mix = args[++i];
+                case "--http" -> http = args[++i];
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        EnrollmentStress stress = new EnrollmentStress(courses, students, seats, parseMix(mix), http);
+        stress.seed();
+        stress.run(clients, Duration.ofSeconds(seconds));
+        int violations = stress.verify();
+        DynamoDBClientUtil.closeClient();
+        System.exit(violations == 0 ? 0 : 1);
+    }
+}
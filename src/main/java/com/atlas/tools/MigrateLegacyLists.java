@@ -0,0 +1,29 @@
+package com.atlas.tools;
+
+import com.atlas.repository.DynamoDBClientUtil;
+import com.atlas.repository.DynamoSchema;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+
+/**
+ * One-off migration of rosters (enrolledIds) and waitlists (waitlistIds) still stored as lists on Courses items
+ * into the Enrollments and Waitlist tables. Each step is a full scan of Courses, so it is not run on startup:
+ * run it once after every node has been upgraded (older nodes would otherwise keep writing the lists).
+ * Safe to re-run.
+ *
+ * Usage:
+ *   java -cp target/atlas-capstone-1.0.0-jar-with-dependencies.jar com.atlas.tools.MigrateLegacyLists
+ */
+public class MigrateLegacyLists {
+
+    public static void main(String[] args) {
+        DynamoDbClient client = DynamoDBClientUtil.client();
+        try {
+            DynamoSchema.ensureEnrollmentsTable(client);
+            DynamoSchema.ensureWaitlistTable(client);
+            System.out.println("Rosters migrated: " + DynamoSchema.migrateLegacyRosters(client) + " courses");
+            System.out.println("Waitlists migrated: " + DynamoSchema.migrateLegacyWaitlists(client) + " courses");
+        } finally {
+            DynamoDBClientUtil.closeClient();
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.atlas.util;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Client-side token bucket whose rate adapts to throttling (additive increase, multiplicative decrease).
+ * - unlimited until the first throttle; then the rate drops to half of what was sent in the last second
+ *   (never below minRate) and every further throttle halves it again
+ * - while no throttles come back the rate grows by recoveryPerSecond each second; once it reaches
+ *   ceilingRate the limiter switches itself off again
+ * - the bucket holds at most one second of tokens, so a recovered client cannot burst the table
+ * One instance is shared by all threads of a client, so a throttled table slows every caller down
+ * instead of each thread retrying on its own.
+ */
+public class AdaptiveRateLimiter {
+    private static final long SECOND = 1_000_000_000L;
+
+    private final double minRate;
+    private final double ceilingRate;
+    private final double recoveryPerSecond;
+    private final LongSupplier nanoClock;
+
+    private double rate = Double.POSITIVE_INFINITY;
+    private double tokens;
+    private long lastRefill;
+    // requests sent in the current and the previous one-second window, to measure the send rate
+    private long windowStart;
+    private long windowCount;
+    private long previousWindowCount;
+    private long throttles;
+
+    public AdaptiveRateLimiter(double minRate, double ceilingRate, double recoveryPerSecond) {
+        this(minRate, ceilingRate, recoveryPerSecond, System::nanoTime);
+    }
+
+    /**
+     * @param nanoClock monotonic time source in nanoseconds (tests pass a fake clock)
+     */
+    public AdaptiveRateLimiter(double minRate, double ceilingRate, double recoveryPerSecond, LongSupplier nanoClock) {
+        if (minRate <= 0 || ceilingRate < minRate) throw new IllegalArgumentException("need 0 < minRate <= ceilingRate");
+        this.minRate = minRate;
+        this.ceilingRate = ceilingRate;
+        this.recoveryPerSecond = recoveryPerSecond;
+        this.nanoClock = nanoClock;
+        this.lastRefill = nanoClock.getAsLong();
+        this.windowStart = lastRefill;
+    }
+
+    /**
+     * Takes a token, waiting up to maxWaitMs for one. Returns false (without taking a token) if none
+     * would be available in time.
+     */
+    public boolean acquire(long maxWaitMs) throws InterruptedException {
+        long waitNanos;
+        synchronized (this) {
+            waitNanos = reserve(maxWaitMs * 1_000_000L);
+        }
+        if (waitNanos < 0) return false;
+        if (waitNanos > 0) Thread.sleep(waitNanos / 1_000_000L, (int) (waitNanos % 1_000_000L));
+        return true;
+    }
+
+    /** takes a token if one is available right now */
+    public synchronized boolean tryAcquire() {
+        return reserve(0) == 0;
+    }
+
+    // takes a token now or books the next one; returns the wait in nanos, or -1 if it would exceed maxWait
+    private long reserve(long maxWaitNanos) {
+        long now = nanoClock.getAsLong();
+        refill(now);
+        count(now);
+        if (Double.isInfinite(rate)) return 0;
+        if (tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+        long wait = (long) Math.ceil((1 - tokens) / rate * SECOND);
+        if (wait > maxWaitNanos) {
+            windowCount--; // not sent
+            return -1;
+        }
+        tokens -= 1; // goes negative: the next callers queue up behind this one
+        return wait;
+    }
+
+    public synchronized void onThrottle() {
+        long now = nanoClock.getAsLong();
+        refill(now);
+        double base = Double.isInfinite(rate) ? Math.min(ceilingRate, Math.max(measuredRate(now), minRate)) : rate;
+        rate = Math.max(minRate, base / 2);
+        tokens = Math.min(tokens, rate);
+        throttles++;
+    }
+
+    private void refill(long now) {
+        long elapsed = now - lastRefill;
+        lastRefill = now;
+        if (Double.isInfinite(rate) || elapsed <= 0) return;
+        rate += recoveryPerSecond * elapsed / SECOND;
+        if (rate >= ceilingRate) {
+            rate = Double.POSITIVE_INFINITY;
+            return;
+        }
+        tokens = Math.min(rate, tokens + rate * elapsed / SECOND);
+    }
+
+    private void count(long now) {
+        if (now - windowStart >= SECOND) {
+            previousWindowCount = now - windowStart >= 2 * SECOND ? 0 : windowCount;
+            windowCount = 0;
+            windowStart = now;
+        }
+        windowCount++;
+    }
+
+    // requests per second: the busier of the last full window and the current one so far
+    private double measuredRate(long now) {
+        return now - windowStart >= 2 * SECOND ? 0 : Math.max(previousWindowCount, windowCount);
+    }
+
+    /** current permits per second, or +Infinity while the limiter is off */
+    public synchronized double getRate() {
+        refill(nanoClock.getAsLong());
+        return rate;
+    }
+
+    public synchronized long getThrottles() { return throttles; }
+}
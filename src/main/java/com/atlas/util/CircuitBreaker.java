@@ -0,0 +1,87 @@
+package com.atlas.util;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Consecutive-failure circuit breaker.
+ * - CLOSED: calls go through; failureThreshold failed calls in a row open the circuit
+ * - OPEN: calls are refused (tryAcquire returns false) until openFor has passed
+ * - HALF_OPEN: one trial call is let through; its success closes the circuit, its failure reopens it
+ * What counts as a failure is up to the caller (e.g. only throttling and 5xx after retries); a permit whose
+ * call was never made is handed back with release.
+ */
+public class CircuitBreaker {
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final String name;
+    private final int failureThreshold;
+    private final long openNanos;
+    private final LongSupplier nanoClock;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean trialInFlight;
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong opened = new AtomicLong();
+
+    public CircuitBreaker(String name, int failureThreshold, Duration openFor) {
+        this(name, failureThreshold, openFor, System::nanoTime);
+    }
+
+    /**
+     * @param nanoClock monotonic time source in nanoseconds (tests pass a fake clock)
+     */
+    public CircuitBreaker(String name, int failureThreshold, Duration openFor, LongSupplier nanoClock) {
+        if (failureThreshold < 1) throw new IllegalArgumentException("failureThreshold must be >= 1");
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openFor.toNanos();
+        this.nanoClock = nanoClock;
+    }
+
+    /** true if the call may go ahead; every true must be followed by onSuccess or onFailure */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN && nanoClock.getAsLong() - openedAt >= openNanos) {
+            state = State.HALF_OPEN;
+            trialInFlight = false;
+        }
+        if (state == State.CLOSED) return true;
+        if (state == State.HALF_OPEN && !trialInFlight) {
+            trialInFlight = true;
+            return true;
+        }
+        rejected.incrementAndGet();
+        return false;
+    }
+
+    public synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        if (state == State.HALF_OPEN) {
+            state = State.CLOSED;
+            trialInFlight = false;
+        }
+    }
+
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            state = State.OPEN;
+            openedAt = nanoClock.getAsLong();
+            trialInFlight = false;
+            opened.incrementAndGet();
+        }
+    }
+
+    /** gives back a permit without reporting an outcome (the call was not made) */
+    public synchronized void release() {
+        if (state == State.HALF_OPEN) trialInFlight = false;
+    }
+
+    public synchronized State getState() { return state; }
+    public String getName() { return name; }
+    public long getRejected() { return rejected.get(); }
+    public long getOpened() { return opened.get(); }
+}
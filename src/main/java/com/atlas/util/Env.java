@@ -0,0 +1,29 @@
+package com.atlas.util;
+
+/**
+ * Typed environment-variable lookups with defaults (blank counts as unset).
+ */
+public final class Env {
+
+    private Env() {}
+
+    public static String get(String name, String def) {
+        String v = System.getenv(name);
+        return v == null || v.isBlank() ? def : v.trim();
+    }
+
+    public static int getInt(String name, int def) {
+        String v = System.getenv(name);
+        return v == null || v.isBlank() ? def : Integer.parseInt(v.trim());
+    }
+
+    public static long getLong(String name, long def) {
+        String v = System.getenv(name);
+        return v == null || v.isBlank() ? def : Long.parseLong(v.trim());
+    }
+
+    public static boolean getBoolean(String name, boolean def) {
+        String v = System.getenv(name);
+        return v == null || v.isBlank() ? def : Boolean.parseBoolean(v.trim());
+    }
+}
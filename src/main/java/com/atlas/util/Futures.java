@@ -0,0 +1,34 @@
+package com.atlas.util;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Helpers for working with CompletableFuture at blocking boundaries.
+ */
+public final class Futures {
+
+    private Futures() {}
+
+    /**
+     * Waits for the future and rethrows the original failure instead of a CompletionException.
+     */
+    public static <T> T join(CompletableFuture<T> f) {
+        try {
+            return f.join();
+        } catch (CompletionException ex) {
+            throw unwrap(ex);
+        }
+    }
+
+    /**
+     * Returns the underlying cause of a CompletionException, as a RuntimeException.
+     */
+    public static RuntimeException unwrap(Throwable ex) {
+        Throwable cause = ex;
+        while (cause instanceof CompletionException && cause.getCause() != null) cause = cause.getCause();
+        if (cause instanceof RuntimeException) return (RuntimeException) cause;
+        if (cause instanceof Error) throw (Error) cause;
+        return new CompletionException(cause);
+    }
+}
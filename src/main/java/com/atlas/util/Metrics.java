@@ -0,0 +1,189 @@
+package com.atlas.util;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Process-wide metrics registry exported in the Prometheus text format (WebApp serves it at /metrics).
+ * - counters and histograms are created on first use and cached per name + labels; hold on to the
+ *   returned instance on hot paths instead of looking it up per call
+ * - gauges (and counters given a Supplier) read a value when scraped, so existing getters (cache hits, queue
+ *   depths) are exported as they are
+ * - labels are given as name/value pairs: counter("x_total", "help", "outcome", "full")
+ * The route label of the request being handled (set by WebApp) is kept per thread, so DynamoDB usage can be
+ * attributed to routes. Nothing is ever unregistered: classes keep their series in static fields.
+ */
+public final class Metrics {
+    /** histogram buckets in seconds, from 1 ms to 10 s */
+    static final double[] BUCKETS = {0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10};
+
+    private static final Map<String, Family> families = new ConcurrentSkipListMap<>();
+    private static final ThreadLocal<String> route = new ThreadLocal<>();
+
+    private Metrics() {}
+
+    public static Counter counter(String name, String help, String... labels) {
+        return (Counter) family(name, help, "counter").series.computeIfAbsent(labelString(labels), k -> new Counter());
+    }
+
+    public static Histogram histogram(String name, String help, String... labels) {
+        return (Histogram) family(name, help, "histogram").series.computeIfAbsent(labelString(labels), k -> new Histogram());
+    }
+
+    /** registers (or replaces) a gauge read from value at scrape time */
+    public static void gauge(String name, String help, Supplier<? extends Number> value, String... labels) {
+        family(name, help, "gauge").series.put(labelString(labels), new Gauge(value));
+    }
+
+    /** registers (or replaces) a counter kept elsewhere (an existing getter that only goes up), read at scrape time */
+    public static void counter(String name, String help, Supplier<? extends Number> value, String... labels) {
+        family(name, help, "counter").series.put(labelString(labels), new Gauge(value));
+    }
+
+    private static Family family(String name, String help, String type) {
+        Family f = families.computeIfAbsent(name, n -> new Family(help, type));
+        if (!f.type.equals(type)) throw new IllegalArgumentException(name + " is already registered as a " + f.type);
+        return f;
+    }
+
+    /** the route label of the request this thread is handling, or "none" */
+    public static String currentRoute() {
+        String r = route.get();
+        return r == null ? "none" : r;
+    }
+
+    public static void setRoute(String value) { route.set(value); }
+    public static void clearRoute() { route.remove(); }
+
+    /** everything registered, in the Prometheus text exposition format (version 0.0.4) */
+    public static String scrape() {
+        StringBuilder out = new StringBuilder(4096);
+        for (Map.Entry<String, Family> e : families.entrySet()) {
+            String name = e.getKey();
+            Family f = e.getValue();
+            out.append("# HELP ").append(name).append(' ').append(f.help.replace("\\", "\\\\").replace("\n", "\\n")).append('\n');
+            out.append("# TYPE ").append(name).append(' ').append(f.type).append('\n');
+            for (Map.Entry<String, Object> s : new TreeMap<>(f.series).entrySet()) {
+                Object m = s.getValue();
+                if (m instanceof Histogram h) h.write(out, name, s.getKey());
+                else sample(out, name, s.getKey(), m instanceof Counter c ? c.get() : ((Gauge) m).get());
+            }
+        }
+        return out.toString();
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, double value) {
+        out.append(name);
+        if (!labels.isEmpty()) out.append('{').append(labels).append('}');
+        out.append(' ').append(format(value)).append('\n');
+    }
+
+    private static String format(double v) {
+        if (Double.isInfinite(v)) return v > 0 ? "+Inf" : "-Inf";
+        if (v == Math.rint(v) && Math.abs(v) < 1e15) return Long.toString((long) v);
+        return Double.toString(v);
+    }
+
+    private static String labelString(String... labels) {
+        if (labels.length % 2 != 0) throw new IllegalArgumentException("labels must be name/value pairs");
+        StringBuilder b = new StringBuilder();
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) b.append(',');
+            String v = labels[i + 1] == null ? "" : labels[i + 1];
+            b.append(labels[i]).append("=\"").append(v.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n")).append('"');
+        }
+        return b.toString();
+    }
+
+    private static final class Family {
+        final String help;
+        final String type;
+        final Map<String, Object> series = new ConcurrentHashMap<>();
+
+        Family(String help, String type) {
+            this.help = help;
+            this.type = type;
+        }
+    }
+
+    public static final class Counter {
+        private final DoubleAdder value = new DoubleAdder();
+
+        public void inc() { value.add(1); }
+        public void add(double amount) { value.add(amount); }
+        public double get() { return value.sum(); }
+    }
+
+    public static final class Histogram {
+        private final LongAdder[] buckets = new LongAdder[BUCKETS.length];
+        private final LongAdder count = new LongAdder();
+        private final DoubleAdder sum = new DoubleAdder();
+
+        Histogram() {
+            for (int i = 0; i < buckets.length; i++) buckets[i] = new LongAdder();
+        }
+
+        public void observe(double seconds) {
+            for (int i = 0; i < BUCKETS.length; i++) {
+                if (seconds <= BUCKETS[i]) {
+                    buckets[i].increment();
+                    break;
+                }
+            }
+            count.increment();
+            sum.add(seconds);
+        }
+
+        public void observeNanos(long nanos) { observe(nanos / 1e9); }
+
+        /** runs work and records how long it took, also when it throws */
+        public <T> T time(Supplier<T> work) {
+            long t0 = System.nanoTime();
+            try {
+                return work.get();
+            } finally {
+                observeNanos(System.nanoTime() - t0);
+            }
+        }
+
+        public void time(Runnable work) {
+            long t0 = System.nanoTime();
+            try {
+                work.run();
+            } finally {
+                observeNanos(System.nanoTime() - t0);
+            }
+        }
+
+        public long getCount() { return count.sum(); }
+        public double getSum() { return sum.sum(); }
+
+        // buckets are cumulative in the exposition format
+        private void write(StringBuilder out, String name, String labels) {
+            String prefix = labels.isEmpty() ? "" : labels + ",";
+            long cumulative = 0;
+            for (int i = 0; i < BUCKETS.length; i++) {
+                cumulative += buckets[i].sum();
+                sample(out, name + "_bucket", prefix + "le=\"" + BUCKETS[i] + "\"", cumulative);
+            }
+            sample(out, name + "_bucket", prefix + "le=\"+Inf\"", count.sum());
+            sample(out, name + "_sum", labels, sum.sum());
+            sample(out, name + "_count", labels, count.sum());
+        }
+    }
+
+    private static final class Gauge {
+        private final Supplier<? extends Number> value;
+
+        Gauge(Supplier<? extends Number> value) { this.value = value; }
+
+        double get() {
+            Number n = value.get();
+            return n == null ? Double.NaN : n.doubleValue();
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.atlas.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Records the DAO and DynamoDB calls made while one web request or CLI action is handled.
+ * - begin/end bracket the work on the handling thread (WebApp does it in its filters); DAO calls are recorded
+ *   by the Metered* wrappers, DynamoDB calls (operation, table, latency, request/response bytes, capacity)
+ *   by an interceptor on the shared clients
+ * - work handed to other threads (the password hasher pool, background audit flushes) is not part of the trace;
+ *   course lanes attach the submitting request's trace to the lane thread while its write runs
+ * - a trace slower than its time budget, or with more DynamoDB calls than its call budget, is written to the
+ *   slow-request log (stderr unless logTo was called), one line per call
+ * Tests can run a flow under a trace and assert on its call counts, so N+1 loops fail the build.
+ * Config (env): TRACE_SLOW_MS (500), TRACE_MAX_CALLS (25), REQUEST_TRACE (true; false = never start traces).
+ */
+public final class RequestTrace {
+    public enum Kind { DAO, DYNAMODB }
+
+    // the first calls are kept for the log; bulk requests only count the rest
+    static final int MAX_KEPT_CALLS = 200;
+
+    private static final boolean ENABLED = Env.getBoolean("REQUEST_TRACE", true);
+    private static final long DEFAULT_SLOW_MS = Env.getLong("TRACE_SLOW_MS", 500);
+    private static final int DEFAULT_MAX_CALLS = Env.getInt("TRACE_MAX_CALLS", 25);
+    private static final ThreadLocal<RequestTrace> current = new ThreadLocal<>();
+    private static volatile Consumer<String> slowLog = System.err::println;
+
+    private final String name;
+    private final long startNanos = System.nanoTime();
+    private volatile long endNanos;
+    private volatile long slowMs = DEFAULT_SLOW_MS;
+    private volatile int maxCalls = DEFAULT_MAX_CALLS;
+    private final List<Call> calls = new ArrayList<>();
+    private final AtomicInteger daoCalls = new AtomicInteger();
+    private final AtomicInteger dynamoCalls = new AtomicInteger();
+
+    private RequestTrace(String name) {
+        this.name = name;
+    }
+
+    /** starts a trace on this thread (replacing any unfinished one); null when REQUEST_TRACE=false */
+    public static RequestTrace begin(String name) {
+        if (!ENABLED) return null;
+        RequestTrace t = new RequestTrace(name);
+        current.set(t);
+        return t;
+    }
+
+    /** the trace this thread is working under, or null */
+    public static RequestTrace current() {
+        return current.get();
+    }
+
+    /** makes t this thread's trace (null detaches) without starting or ending it; returns the one it replaces */
+    public static RequestTrace attach(RequestTrace t) {
+        RequestTrace prev = current.get();
+        if (t == null) current.remove();
+        else current.set(t);
+        return prev;
+    }
+
+    /** finishes this thread's trace, logs it if it broke a budget, and returns it (null if none was started) */
+    public static RequestTrace end() {
+        RequestTrace t = current.get();
+        if (t == null) return null;
+        current.remove();
+        t.endNanos = System.nanoTime();
+        if (t.isOverBudget()) slowLog.accept("SLOW REQUEST " + t.format());
+        return t;
+    }
+
+    /** runs work under its own trace and returns the result */
+    public static <T> T trace(String name, Supplier<T> work) {
+        begin(name);
+        try {
+            return work.get();
+        } finally {
+            end();
+        }
+    }
+
+    public static void trace(String name, Runnable work) {
+        trace(name, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    /** where over-budget traces go (default stderr) */
+    public static void logTo(Consumer<String> sink) {
+        slowLog = sink;
+    }
+
+    /** records a DAO call on this thread's trace, if there is one */
+    public static void recordDao(String operation, long startNanos, long nanos, String error) {
+        RequestTrace t = current.get();
+        if (t != null) t.record(new Call(Kind.DAO, operation, null, startNanos, nanos, -1, -1, Double.NaN, error));
+    }
+
+    public void record(Call call) {
+        (call.kind == Kind.DAO ? daoCalls : dynamoCalls).incrementAndGet();
+        synchronized (calls) {
+            if (calls.size() < MAX_KEPT_CALLS) calls.add(call);
+        }
+    }
+
+    /** budgets for this trace only, e.g. for a bulk route; a value <= 0 turns that budget off */
+    public RequestTrace budget(long slowMs, int maxCalls) {
+        this.slowMs = slowMs;
+        this.maxCalls = maxCalls;
+        return this;
+    }
+
+    public boolean isOverBudget() {
+        return (slowMs > 0 && getElapsedNanos() > slowMs * 1_000_000L) || (maxCalls > 0 && dynamoCalls.get() > maxCalls);
+    }
+
+    public String getName() { return name; }
+    public int getDaoCalls() { return daoCalls.get(); }
+    public int getDynamoCalls() { return dynamoCalls.get(); }
+
+    /** time from begin to end, or to now while the trace is open */
+    public long getElapsedNanos() {
+        return (endNanos == 0 ? System.nanoTime() : endNanos) - startNanos;
+    }
+
+    /** the recorded calls (at most MAX_KEPT_CALLS) in start order */
+    public List<Call> getCalls() {
+        List<Call> out;
+        synchronized (calls) {
+            out = new ArrayList<>(calls);
+        }
+        out.sort(Comparator.comparingLong(c -> c.startNanos));
+        return out;
+    }
+
+    /** number of recorded calls of that kind and operation, e.g. (DAO, "student.getById") or (DYNAMODB, "GetItem") */
+    public long count(Kind kind, String operation) {
+        return getCalls().stream().filter(c -> c.kind == kind && c.operation.equals(operation)).count();
+    }
+
+    public double getCapacityUnits() {
+        double total = 0;
+        for (Call c : getCalls()) if (!Double.isNaN(c.capacityUnits)) total += c.capacityUnits;
+        return total;
+    }
+
+    /** a summary line, then one line per call with its offset from the start (the slow-request log entry) */
+    public String format() {
+        StringBuilder b = new StringBuilder();
+        b.append(String.format("%s %.1f ms, %d DynamoDB calls (budget %s), %d DAO calls, %.1f capacity units",
+                name, getElapsedNanos() / 1e6, getDynamoCalls(), maxCalls > 0 ? String.valueOf(maxCalls) : "off",
+                getDaoCalls(), getCapacityUnits()));
+        for (Call c : getCalls()) {
+            b.append(String.format("%n  +%.1fms %.1fms %s %s", (c.startNanos - startNanos) / 1e6, c.nanos / 1e6,
+                    c.kind == Kind.DAO ? "dao" : "ddb", c.operation));
+            if (c.table != null) b.append(' ').append(c.table);
+            if (c.requestBytes >= 0) b.append(" req=").append(c.requestBytes).append('B');
+            if (c.responseBytes >= 0) b.append(" resp=").append(c.responseBytes).append('B');
+            if (!Double.isNaN(c.capacityUnits)) b.append(" cu=").append(c.capacityUnits);
+            if (c.error != null) b.append(" error=").append(c.error);
+        }
+        int dropped = getDaoCalls() + getDynamoCalls() - getCalls().size();
+        if (dropped > 0) b.append(String.format("%n  ... %d more calls", dropped));
+        return b.toString();
+    }
+
+    /** One traced call; sizes are -1 and capacityUnits NaN when unknown (always for DAO calls). */
+    public static final class Call {
+        private final Kind kind;
+        private final String operation;
+        private final String table;
+        private final long startNanos;
+        private final long nanos;
+        private final long requestBytes;
+        private final long responseBytes;
+        private final double capacityUnits;
+        private final String error;
+
+        public Call(Kind kind, String operation, String table, long startNanos, long nanos,
+                    long requestBytes, long responseBytes, double capacityUnits, String error) {
+            this.kind = kind;
+            this.operation = operation;
+            this.table = table;
+            this.startNanos = startNanos;
+            this.nanos = nanos;
+            this.requestBytes = requestBytes;
+            this.responseBytes = responseBytes;
+            this.capacityUnits = capacityUnits;
+            this.error = error;
+        }
+
+        public Kind getKind() { return kind; }
+        public String getOperation() { return operation; }
+        public String getTable() { return table; }
+        public long getNanos() { return nanos; }
+        public long getRequestBytes() { return requestBytes; }
+        public long getResponseBytes() { return responseBytes; }
+        public double getCapacityUnits() { return capacityUnits; }
+        public String getError() { return error; }
+    }
+}
@@ -0,0 +1,99 @@
+package com.atlas.util;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Small bounded LRU cache with a per-entry time-to-live.
+ * - entries older than ttl are treated as misses by get, but kept (until evicted or invalidated) so
+ *   getStale can still serve them while the source is unavailable
+ * - when maxEntries is exceeded the least recently used entry is evicted
+ * - hit/miss/eviction counters are kept for monitoring
+ * All operations are synchronized; intended for modest sizes (thousands of entries).
+ */
+public class TtlCache<K, V> {
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final LongSupplier nanoClock;
+    private final LinkedHashMap<K, Entry<V>> map;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public TtlCache(int maxEntries, Duration ttl) {
+        this(maxEntries, ttl, System::nanoTime);
+    }
+
+    /**
+     * @param nanoClock monotonic time source in nanoseconds (tests pass a fake clock)
+     */
+    public TtlCache(int maxEntries, Duration ttl, LongSupplier nanoClock) {
+        if (maxEntries < 1) throw new IllegalArgumentException("maxEntries must be >= 1");
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttl.toNanos();
+        this.nanoClock = nanoClock;
+        this.map = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                if (size() > TtlCache.this.maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached value, or null if absent or expired.
+     */
+    public synchronized V get(K key) {
+        Entry<V> e = map.get(key);
+        if (e == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        if (nanoClock.getAsLong() - e.loadedAt >= ttlNanos) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return e.value;
+    }
+
+    /**
+     * Returns the cached value even if expired, or null if absent; not counted as a hit or miss.
+     */
+    public synchronized V getStale(K key) {
+        Entry<V> e = map.get(key);
+        return e == null ? null : e.value;
+    }
+
+    public synchronized void put(K key, V value) {
+        map.put(key, new Entry<>(value, nanoClock.getAsLong()));
+    }
+
+    public synchronized void invalidate(K key) { map.remove(key); }
+
+    public synchronized void invalidateAll() { map.clear(); }
+
+    public synchronized int size() { return map.size(); }
+
+    public long getHits() { return hits.get(); }
+    public long getMisses() { return misses.get(); }
+    public long getEvictions() { return evictions.get(); }
+
+    private static final class Entry<V> {
+        final V value;
+        final long loadedAt;
+
+        Entry(V value, long loadedAt) {
+            this.value = value;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
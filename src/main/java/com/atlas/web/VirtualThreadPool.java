@@ -0,0 +1,79 @@
+package com.atlas.web;
+
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
+import org.eclipse.jetty.util.thread.ThreadPool;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Jetty ThreadPool that runs every task (acceptors, selectors, request handling) on its own
+ * virtual thread, so a handler blocked on DynamoDB or BCrypt parks its virtual thread instead
+ * of holding one of a fixed number of pool threads. There is no upper bound: back-pressure has
+ * to come from the services (e.g. the password hashing pool), not from the web layer.
+ */
+public class VirtualThreadPool extends AbstractLifeCycle implements ThreadPool {
+
+    private static final long STOP_TIMEOUT_MS = 5_000;
+
+    private final String name;
+    private final AtomicInteger active = new AtomicInteger();
+    private volatile ExecutorService executor;
+
+    public VirtualThreadPool(String name) {
+        this.name = name;
+    }
+
+    @Override
+    protected void doStart() {
+        executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 0).factory());
+    }
+
+    @Override
+    protected void doStop() throws InterruptedException {
+        ExecutorService ex = executor;
+        if (ex == null) return;
+        ex.shutdown();
+        if (!ex.awaitTermination(STOP_TIMEOUT_MS, TimeUnit.MILLISECONDS)) ex.shutdownNow();
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        ExecutorService ex = executor;
+        if (ex == null) throw new RejectedExecutionException(name + " is not started");
+        ex.execute(() -> {
+            active.incrementAndGet();
+            try {
+                task.run();
+            } finally {
+                active.decrementAndGet();
+            }
+        });
+    }
+
+    @Override
+    public void join() throws InterruptedException {
+        ExecutorService ex = executor;
+        if (ex != null) ex.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    }
+
+    /** number of tasks currently running (each on its own virtual thread) */
+    @Override
+    public int getThreads() {
+        return active.get();
+    }
+
+    // a virtual thread is created per task, nothing sits idle
+    @Override
+    public int getIdleThreads() {
+        return 0;
+    }
+
+    @Override
+    public boolean isLowOnThreads() {
+        return false;
+    }
+}
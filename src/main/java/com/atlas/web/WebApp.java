@@ -1,16 +1,52 @@
 package com.atlas.web;
 
+import com.atlas.dao.EnrollmentTransactionDao;
+import com.atlas.dao.LogDao;
+import com.atlas.dao.StudentDao;
+import com.atlas.exception.ServiceBusyException;
+import com.atlas.model.BulkEnrollmentResult;
 import com.atlas.model.Course;
+import com.atlas.repository.AsyncBatchingLogDao;
+import com.atlas.repository.CachingCourseDao;
+import com.atlas.repository.CachingIdempotencyDao;
+import com.atlas.repository.CachingSessionDao;
 import com.atlas.repository.DynamoCourseDao;
+import com.atlas.repository.DynamoDBClientUtil;
+import com.atlas.repository.DynamoEnrollmentTransactionDao;
+import com.atlas.repository.DynamoIdempotencyDao;
 import com.atlas.repository.DynamoLogDao;
+import com.atlas.repository.DynamoSchema;
+import com.atlas.repository.DynamoSessionDao;
 import com.atlas.repository.DynamoStudentDao;
+import com.atlas.repository.MeteredCourseDao;
+import com.atlas.repository.MeteredLogDao;
+import com.atlas.repository.MeteredStudentDao;
+import com.atlas.repository.ResilientDynamoDbClient;
+import com.atlas.service.BulkEnrollmentFormats;
+import com.atlas.service.BulkEnrollmentService;
+import com.atlas.service.CourseLanes;
 import com.atlas.service.CourseService;
 import com.atlas.service.EnrollmentService;
+import com.atlas.service.IdempotencyGuard;
+import com.atlas.service.InMemorySessionStore;
+import com.atlas.service.PasswordHasher;
 import com.atlas.service.SessionStore;
+import com.atlas.service.SignedTokenSessionStore;
 import com.atlas.service.StudentService;
+import com.atlas.util.CircuitBreaker;
+import com.atlas.util.Env;
+import com.atlas.util.Metrics;
+import com.atlas.util.RequestTrace;
+import spark.embeddedserver.EmbeddedServers;
+import spark.embeddedserver.jetty.EmbeddedJettyFactory;
 
 
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 import java.util.stream.Collectors;
 
 import static spark.Spark.*;
@@ -20,17 +56,92 @@ public class WebApp {
     // make these static so they are accessible from the static main method and route lambdas
     private static final DynamoStudentDao studentDaoImpl = new DynamoStudentDao();
     private static final DynamoCourseDao courseDaoImpl = new DynamoCourseDao();
-    private static final DynamoLogDao logDaoImpl = new DynamoLogDao();
+    // audit writes are queued and batch-flushed in the background unless LOG_MODE=sync
+    private static final LogDao logDaoImpl = "sync".equalsIgnoreCase(System.getenv("LOG_MODE")) ? new DynamoLogDao() : new AsyncBatchingLogDao();
+    // every DAO call is timed for /metrics; the course timer sits under the cache, so it only sees store reads
+    private static final StudentDao studentDao = new MeteredStudentDao(studentDaoImpl);
+    private static final LogDao logDao = new MeteredLogDao(logDaoImpl);
+    // read-through catalog cache shared by browsing and enrollment, so enrollment writes invalidate it
+    private static final CachingCourseDao cachedCourseDao = new CachingCourseDao(new MeteredCourseDao(courseDaoImpl));
 
     // constructor-injected services (no change to StudentService signature)
-    private static final StudentService studentService = new StudentService(studentDaoImpl, logDaoImpl);
-    private static final CourseService courseService = new CourseService(courseDaoImpl);
-    private static final EnrollmentService enrollmentService = new EnrollmentService(studentDaoImpl, courseDaoImpl, logDaoImpl);
+    private static final StudentService studentService = new StudentService(studentDao, logDao);
+    private static final CourseService courseService = new CourseService(cachedCourseDao);
+    // ENROLLMENT_MODE=sequential keeps the old one-write-per-step path for comparison
+    private static final EnrollmentTransactionDao txDao =
+            "sequential".equalsIgnoreCase(System.getenv("ENROLLMENT_MODE")) ? null : new DynamoEnrollmentTransactionDao();
+    // COURSE_LANES (off by default) serializes each course's seat writes on this node and coalesces concurrent enrollments
+    private static final CourseLanes lanes = CourseLanes.fromEnv(cachedCourseDao, txDao);
+    private static final EnrollmentService enrollmentService = new EnrollmentService(studentDao, cachedCourseDao, logDao, txDao, lanes);
+    // enroll/drop outcomes by idempotency key (IdempotencyKeys table + per-node LRU), so resubmits are replayed
+    private static final CachingIdempotencyDao idempotencyDao = new CachingIdempotencyDao(new DynamoIdempotencyDao());
+    private static final IdempotencyGuard idempotency = new IdempotencyGuard(idempotencyDao);
+    // registrar imports (POST /api/enrollments/bulk), groups run BULK_ENROLL_CONCURRENCY at a time
+    private static final BulkEnrollmentService bulkEnrollmentService = new BulkEnrollmentService(studentDao, cachedCourseDao, logDao);
 
     public static void main(String[] args) {
         // run on a port that doesn't conflict with Jenkins (change via env if you prefer)
         String portEnv = System.getenv().getOrDefault("WEB_PORT", "3000");
         port(Integer.parseInt(portEnv));
+        configureThreads();
+
+        // rosters and waitlists live in their own tables; lists left on course items by older installs are moved
+        // there once with com.atlas.tools.MigrateLegacyLists (a full scan, so not on every startup)
+        DynamoSchema.ensureEnrollmentsTable(DynamoDBClientUtil.client());
+        DynamoSchema.ensureWaitlistTable(DynamoDBClientUtil.client());
+        DynamoSchema.ensureIdempotencyTable(DynamoDBClientUtil.client());
+
+        // SEAT_SHARDS=COURSE1:8,COURSE2:4 moves hot courses to sharded seat counters (one-way, idempotent)
+        String seatShardSpec = Env.get("SEAT_SHARDS", "");
+        if (!seatShardSpec.isEmpty()) {
+            DynamoSchema.ensureSeatShardsTable(DynamoDBClientUtil.client());
+            for (String entry : seatShardSpec.split(",")) {
+                String[] kv = entry.trim().split(":");
+                if (courseDaoImpl.enableSeatShards(kv[0].trim(), Integer.parseInt(kv[1].trim()))) cachedCourseDao.evict(kv[0].trim());
+            }
+        }
+
+        // SESSION_BACKEND: memory (default), dynamo (shared Sessions table + per-node near cache),
+        // signed (stateless HMAC tokens, keys from SESSION_SIGNING_KEYS)
+        String sessionBackend = Env.get("SESSION_BACKEND", "memory");
+        CachingSessionDao sessionDao = null;
+        if ("dynamo".equalsIgnoreCase(sessionBackend)) {
+            DynamoSchema.ensureSessionsTable(DynamoDBClientUtil.client());
+            sessionDao = new CachingSessionDao(new DynamoSessionDao());
+            SessionStore.use(sessionDao);
+        } else if ("signed".equalsIgnoreCase(sessionBackend)) {
+            SessionStore.use(SignedTokenSessionStore.fromEnv());
+        }
+
+        // drain queued audit records and close the DynamoDB client on shutdown
+        Runtime.getRuntime().addShutdownHook(new Thread(DynamoDBClientUtil::closeClient, "dynamodb-shutdown"));
+
+        // per-route latency (atlas_http_request_seconds); the route also labels the DynamoDB capacity it consumes.
+        // All routes are fixed paths, so the path is the route; anything that ends in 404 is "unmatched".
+        // Each request runs under a RequestTrace, logged when it breaks TRACE_SLOW_MS / TRACE_MAX_CALLS.
+        registerGauges(sessionDao);
+        before((req, res) -> {
+            req.attribute("metrics.start", System.nanoTime());
+            Metrics.setRoute(req.requestMethod() + " " + req.pathInfo());
+            RequestTrace.begin(req.requestMethod() + " " + req.pathInfo());
+        });
+        afterAfter((req, res) -> {
+            Long start = req.attribute("metrics.start");
+            int status = res.raw().getStatus();
+            if (start != null) {
+                Metrics.histogram("atlas_http_request_seconds", "HTTP request latency in seconds",
+                        "method", req.requestMethod(), "route", status == 404 ? "unmatched" : req.pathInfo(),
+                        "status", String.valueOf(status)).observeNanos(System.nanoTime() - start);
+            }
+            Metrics.clearRoute();
+            RequestTrace.end();
+        });
+
+        // Prometheus scrape endpoint
+        get("/metrics", (req, res) -> {
+            res.type("text/plain; version=0.0.4; charset=utf-8");
+            return Metrics.scrape();
+        });
 
         // home page
         get("/", (req, res) -> htmlPage("Atlas Academy",
@@ -76,6 +187,8 @@ public class WebApp {
             try {
                 studentService.register(id, name, email, pwd);
                 return htmlPage("Signed Up", "<p>Account created. <a href='/login'>Login</a></p>");
+            } catch (ServiceBusyException ex) {
+                return busy(res, ex, "/signup");
             } catch (Exception ex) {
                 return htmlPage("Error", "<p>Error: " + escape(ex.getMessage()) + "</p><p><a href='/signup'>Back</a></p>");
             }
@@ -99,9 +212,13 @@ public class WebApp {
             try {
                 String token = studentService.login(email, pwd);
                 // set token cookie (secure flag omitted for demo)
-                res.cookie("/", "session", token, 60 * 30, false); // TTL 30 minutes
+                // cookie lives as long as the server-side session; with sliding TTL it lasts for the browser session
+                int maxAge = SessionStore.current().isSliding() ? -1 : (int) SessionStore.current().getTtl().toSeconds();
+                res.cookie("/", "session", token, maxAge, false);
                 res.redirect("/profile");
                 return "";
+            } catch (ServiceBusyException ex) {
+                return busy(res, ex, "/login");
             } catch (Exception ex) {
                 return htmlPage("Login failed", "<p>" + escape(ex.getMessage()) + "</p><p><a href='/login'>Try again</a></p>");
             }
@@ -109,20 +226,20 @@ public class WebApp {
 
         // profile
         get("/profile", (req, res) -> {
-            String token = req.cookie("session");
-            if (token == null || !SessionStore.isValid(token)) {
+            String studentId = SessionStore.validateAndGetStudentId(req.cookie("session"));
+            if (studentId == null) {
                 return htmlPage("Session", "<p>Not logged in. <a href='/login'>Login</a></p>");
             }
-            String studentId = SessionStore.getStudentId(token);
             String profileText = studentService.profile(studentId); // your service returns String
+            profileText += waitlistPositionsText(studentId);
             // also show enroll & drop forms
             String body = "<h2>Profile</h2><pre>" + escape(profileText) + "</pre>"
                     + "<h3>Enroll</h3>" +
-                    "<form method='post' action='/enroll'>" +
+                    "<form method='post' action='/enroll'>" + idempotencyField() +
                     "CourseId: <input name='courseId'/> <button type='submit'>Enroll</button>" +
                     "</form>"
                     + "<h3>Drop</h3>" +
-                    "<form method='post' action='/drop'>" +
+                    "<form method='post' action='/drop'>" + idempotencyField() +
                     "CourseId: <input name='courseId'/> <button type='submit'>Drop</button>" +
                     "</form>"
                     + "<p><a href='/courses'>View courses</a> | <a href='/logout'>Logout</a></p>";
@@ -131,16 +248,17 @@ public class WebApp {
 
         // enroll handler
         post("/enroll", (req, res) -> {
-            String token = req.cookie("session");
-            if (token == null || !SessionStore.isValid(token)) {
+            String studentId = SessionStore.validateAndGetStudentId(req.cookie("session"));
+            if (studentId == null) {
                 return htmlPage("Error", "<p>Not logged in</p>");
             }
-            String studentId = SessionStore.getStudentId(token);
             String courseId = req.queryParams("courseId");
             try {
-                enrollmentService.enroll(studentId, courseId);
+                idempotency.run(studentId, idempotencyKey(req), "ENROLL:" + courseId, () -> enrollmentService.enroll(studentId, courseId));
                 res.redirect("/profile");
                 return "";
+            } catch (ServiceBusyException ex) {
+                return busy(res, ex, "/profile");
             } catch (Exception ex) {
                 return htmlPage("Enroll Error", "<p>" + escape(ex.getMessage()) + "</p><p><a href='/profile'>Back</a></p>");
             }
@@ -148,21 +266,60 @@ public class WebApp {
 
         // drop handler
         post("/drop", (req, res) -> {
-            String token = req.cookie("session");
-            if (token == null || !SessionStore.isValid(token)) {
+            String studentId = SessionStore.validateAndGetStudentId(req.cookie("session"));
+            if (studentId == null) {
                 return htmlPage("Error", "<p>Not logged in</p>");
             }
-            String studentId = SessionStore.getStudentId(token);
             String courseId = req.queryParams("courseId");
             try {
-                enrollmentService.drop(studentId, courseId);
+                idempotency.run(studentId, idempotencyKey(req), "DROP:" + courseId, () -> enrollmentService.drop(studentId, courseId));
                 res.redirect("/profile");
                 return "";
+            } catch (ServiceBusyException ex) {
+                return busy(res, ex, "/profile");
             } catch (Exception ex) {
                 return htmlPage("Drop Error", "<p>" + escape(ex.getMessage()) + "</p><p><a href='/profile'>Back</a></p>");
             }
         });
 
+        // registrar bulk enrollment: text/csv or a JSON array of {studentId, courseId} in the body;
+        // needs "Authorization: Bearer $REGISTRAR_API_TOKEN" (route answers 404 when the token is not configured)
+        post("/api/enrollments/bulk", (req, res) -> {
+            String token = Env.get("REGISTRAR_API_TOKEN", "");
+            if (token.isEmpty()) {
+                res.status(404);
+                return "";
+            }
+            String auth = req.headers("Authorization");
+            if (auth == null || !MessageDigest.isEqual(("Bearer " + token).getBytes(StandardCharsets.UTF_8), auth.getBytes(StandardCharsets.UTF_8))) {
+                res.status(401);
+                return "";
+            }
+            // imports take time and calls in proportion to their rows, so they are not budgeted
+            RequestTrace trace = RequestTrace.current();
+            if (trace != null) trace.budget(0, 0);
+            List<BulkEnrollmentResult> results;
+            try {
+                String type = req.contentType() == null ? "" : req.contentType().toLowerCase();
+                results = bulkEnrollmentService.enroll(type.startsWith("text/csv")
+                        ? BulkEnrollmentFormats.csv(new InputStreamReader(req.raw().getInputStream(), StandardCharsets.UTF_8))
+                        : BulkEnrollmentFormats.json(req.raw().getInputStream()));
+            } catch (IllegalArgumentException ex) {
+                res.status(400);
+                res.type("text/plain");
+                return ex.getMessage();
+            }
+            String accept = req.headers("Accept");
+            if (accept != null && accept.contains("text/csv")) {
+                res.type("text/csv");
+                BulkEnrollmentFormats.writeCsv(results, res.raw().getWriter());
+            } else {
+                res.type("application/json");
+                BulkEnrollmentFormats.writeJson(results, res.raw().getOutputStream());
+            }
+            return "";
+        });
+
         // logout
         get("/logout", (req, res) -> {
             String token = req.cookie("session");
@@ -179,6 +336,79 @@ public class WebApp {
         System.out.println("Web UI started at http://localhost:" + portEnv);
     }
 
+    /**
+     * WEB_THREADS=pool (default) keeps Jetty's bounded QueuedThreadPool, sized by WEB_MAX_THREADS
+     * (Spark default 200 when unset); WEB_THREADS=virtual handles every request on its own virtual thread.
+     * Must run before the first route is mapped.
+     */
+    private static void configureThreads() {
+        String mode = Env.get("WEB_THREADS", "pool");
+        if ("virtual".equalsIgnoreCase(mode)) {
+            EmbeddedServers.add(EmbeddedServers.Identifiers.JETTY,
+                    new EmbeddedJettyFactory().withThreadPool(new VirtualThreadPool("web")));
+        } else if ("pool".equalsIgnoreCase(mode)) {
+            int maxThreads = Env.getInt("WEB_MAX_THREADS", -1);
+            if (maxThreads > 0) threadPool(maxThreads);
+        } else {
+            throw new IllegalArgumentException("WEB_THREADS must be pool or virtual, was " + mode);
+        }
+        System.out.println("Web request threads: " + mode.toLowerCase());
+    }
+
+    // components that already count their own work are exported as they are, read at scrape time
+    private static void registerGauges(CachingSessionDao sessionDao) {
+        PasswordHasher hasher = PasswordHasher.shared();
+        Metrics.gauge("atlas_password_hasher_queue_depth", "Password hashing jobs waiting", hasher::getQueueDepth);
+        Metrics.gauge("atlas_password_hasher_active", "Password hashing jobs running", hasher::getActive);
+        Metrics.counter("atlas_password_hasher_operations_total", "Password hashes and verifications", hasher::getHashes, "op", "hash");
+        Metrics.counter("atlas_password_hasher_operations_total", "Password hashes and verifications", hasher::getVerifications, "op", "verify");
+        Metrics.counter("atlas_password_hasher_rejected_total", "Password jobs rejected because the pool was saturated", hasher::getRejected);
+        Metrics.counter("atlas_password_hasher_work_seconds_total", "Time spent hashing and verifying", () -> hasher.getWorkNanosTotal() / 1e9);
+        Metrics.gauge("atlas_password_hasher_work_max_seconds", "Longest single hash or verification", () -> hasher.getWorkNanosMax() / 1e9);
+        Metrics.gauge("atlas_password_hasher_queue_wait_max_seconds", "Longest wait for a hashing thread", () -> hasher.getQueueWaitNanosMax() / 1e9);
+        Metrics.counter("atlas_cache_hits_total", "Cache hits", cachedCourseDao::getHits, "cache", "course");
+        Metrics.counter("atlas_cache_misses_total", "Cache misses", cachedCourseDao::getMisses, "cache", "course");
+        Metrics.counter("atlas_cache_stale_served_total", "Reads answered from expired entries while the table was unavailable",
+                cachedCourseDao::getStaleServed, "cache", "course");
+        Metrics.counter("atlas_cache_hits_total", "Cache hits", idempotencyDao::getHits, "cache", "idempotency");
+        Metrics.counter("atlas_cache_misses_total", "Cache misses", idempotencyDao::getMisses, "cache", "idempotency");
+        if (sessionDao != null) {
+            Metrics.counter("atlas_cache_hits_total", "Cache hits", sessionDao::getHits, "cache", "session");
+            Metrics.counter("atlas_cache_misses_total", "Cache misses", sessionDao::getMisses, "cache", "session");
+        }
+        if (SessionStore.current() instanceof InMemorySessionStore sessions) {
+            Metrics.gauge("atlas_sessions_live", "Live sessions on this node", sessions::getLiveCount);
+            Metrics.counter("atlas_sessions_created_total", "Sessions created", sessions::getCreated);
+            Metrics.counter("atlas_sessions_removed_total", "Sessions removed other than by logout",
+                    sessions::getExpired, "reason", "expired");
+            Metrics.counter("atlas_sessions_removed_total", "Sessions removed other than by logout",
+                    sessions::getEvicted, "reason", "evicted");
+        }
+        if (lanes != null) {
+            Metrics.gauge("atlas_course_lanes_queued", "Seat claims waiting in course lanes", lanes::getQueued);
+            Metrics.counter("atlas_course_lanes_claims_total", "Seat claims run through course lanes", lanes::getClaims);
+            Metrics.counter("atlas_course_lanes_batches_total", "Coalesced seat writes", lanes::getBatches);
+        }
+        if (logDaoImpl instanceof AsyncBatchingLogDao audit) {
+            Metrics.gauge("atlas_log_queue_depth", "Audit records waiting to be flushed", audit::getQueueDepth);
+            Metrics.counter("atlas_log_written_total", "Audit records written", audit::getWritten);
+            Metrics.counter("atlas_log_dropped_total", "Audit records dropped", audit::getDropped);
+            Metrics.counter("atlas_log_failed_total", "Audit records that failed to write", audit::getFailed);
+            Metrics.gauge("atlas_log_flush_max_seconds", "Slowest audit batch write", () -> audit.getFlushNanosMax() / 1e9);
+        }
+        if (DynamoDBClientUtil.client() instanceof ResilientDynamoDbClient dynamo) {
+            Metrics.gauge("atlas_dynamodb_rate_limit", "Client-side DynamoDB request rate limit per second (+Inf = off)",
+                    dynamo.getLimiter()::getRate);
+            for (String table : List.of("Courses", "Students", "StudentLogs", "Enrollments", "CourseSeatShards", "Waitlist")) {
+                CircuitBreaker breaker = dynamo.breaker(table);
+                Metrics.gauge("atlas_dynamodb_breaker_open", "1 while calls to the table fail fast",
+                        () -> breaker.getState() == CircuitBreaker.State.CLOSED ? 0 : 1, "table", table);
+                Metrics.counter("atlas_dynamodb_breaker_rejections_total", "Calls refused by an open circuit breaker",
+                        breaker::getRejected, "table", table);
+            }
+        }
+    }
+
     // helper to wrap simple HTML
     private static String htmlPage(String title, String body) {
         return "<!doctype html><html><head><title>" + escape(title) + "</title>"
@@ -244,6 +474,32 @@ public class WebApp {
                 + "</body></html>";
     }
 
+    private static String waitlistPositionsText(String studentId) {
+        Map<String, Integer> positions = enrollmentService.waitlistPositions(studentId);
+        if (positions.isEmpty()) return "";
+        return "\nWaitlist positions: " + positions.entrySet().stream()
+                .map(e -> e.getKey() + " #" + e.getValue())
+                .collect(Collectors.joining(", "));
+    }
+
+    // a fresh key per rendered form: a double-click or a proxy retry resubmits the same one
+    private static String idempotencyField() {
+        return "<input type='hidden' name='idempotencyKey' value='" + UUID.randomUUID() + "'/>";
+    }
+
+    // API clients send the Idempotency-Key header; the HTML forms send the hidden field
+    private static String idempotencyKey(spark.Request req) {
+        String header = req.headers("Idempotency-Key");
+        return header != null ? header : req.queryParams("idempotencyKey");
+    }
+
+    // password hashing pool is saturated: 503 with Retry-After so clients back off instead of piling on
+    private static String busy(spark.Response res, ServiceBusyException ex, String back) {
+        res.status(503);
+        res.header("Retry-After", "1");
+        return htmlPage("Busy", "<p>" + escape(ex.getMessage()) + "</p><p><a href='" + back + "'>Try again</a></p>");
+    }
+
     private static String escape(String s) {
         if (s == null) return "";
         return s.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
@@ -7,10 +7,21 @@ $region = "ap-south-1"
 
 Write-Host "Creating tables (if they don't already exist)..."
 
-aws dynamodb create-table --table-name Students --attribute-definitions AttributeName=id,AttributeType=S --key-schema AttributeName=id,KeyType=HASH --billing-mode PAY_PER_REQUEST --endpoint-url $endpoint --region $region 2>$null
+aws dynamodb create-table --table-name Students --attribute-definitions AttributeName=id,AttributeType=S AttributeName=email,AttributeType=S --key-schema AttributeName=id,KeyType=HASH --global-secondary-indexes "IndexName=email-index,KeySchema=[{AttributeName=email,KeyType=HASH}],Projection={ProjectionType=ALL}" --billing-mode PAY_PER_REQUEST --endpoint-url $endpoint --region $region 2>$null
 aws dynamodb create-table --table-name Courses --attribute-definitions AttributeName=courseId,AttributeType=S --key-schema AttributeName=courseId,KeyType=HASH --billing-mode PAY_PER_REQUEST --endpoint-url $endpoint --region $region 2>$null
+aws dynamodb create-table --table-name CourseSeatShards --attribute-definitions AttributeName=courseId,AttributeType=S AttributeName=shard,AttributeType=N --key-schema AttributeName=courseId,KeyType=HASH AttributeName=shard,KeyType=RANGE --billing-mode PAY_PER_REQUEST --endpoint-url $endpoint --region $region 2>$null
+aws dynamodb create-table --table-name Enrollments --attribute-definitions AttributeName=courseId,AttributeType=S AttributeName=studentId,AttributeType=S --key-schema AttributeName=courseId,KeyType=HASH AttributeName=studentId,KeyType=RANGE --global-secondary-indexes "IndexName=byStudent,KeySchema=[{AttributeName=studentId,KeyType=HASH},{AttributeName=courseId,KeyType=RANGE}],Projection={ProjectionType=KEYS_ONLY}" --billing-mode PAY_PER_REQUEST --endpoint-url $endpoint --region $region 2>$null
+aws dynamodb create-table --table-name Waitlist --attribute-definitions AttributeName=courseId,AttributeType=S AttributeName=queuedAt,AttributeType=S AttributeName=studentId,AttributeType=S --key-schema AttributeName=courseId,KeyType=HASH AttributeName=queuedAt,KeyType=RANGE --local-secondary-indexes "IndexName=byStudent,KeySchema=[{AttributeName=courseId,KeyType=HASH},{AttributeName=studentId,KeyType=RANGE}],Projection={ProjectionType=KEYS_ONLY}" --billing-mode PAY_PER_REQUEST --endpoint-url $endpoint --region $region 2>$null
+aws dynamodb create-table --table-name Sessions --attribute-definitions AttributeName=token,AttributeType=S --key-schema AttributeName=token,KeyType=HASH --billing-mode PAY_PER_REQUEST --endpoint-url $endpoint --region $region 2>$null
+aws dynamodb update-time-to-live --table-name Sessions --time-to-live-specification "Enabled=true,AttributeName=expiresAt" --endpoint-url $endpoint --region $region 2>$null
+aws dynamodb create-table --table-name IdempotencyKeys --attribute-definitions AttributeName=idempotencyKey,AttributeType=S --key-schema AttributeName=idempotencyKey,KeyType=HASH --billing-mode PAY_PER_REQUEST --endpoint-url $endpoint --region $region 2>$null
+aws dynamodb update-time-to-live --table-name IdempotencyKeys --time-to-live-specification "Enabled=true,AttributeName=expiresAt" --endpoint-url $endpoint --region $region 2>$null
 aws dynamodb create-table --table-name StudentLogs --attribute-definitions AttributeName=logId,AttributeType=S --key-schema AttributeName=logId,KeyType=HASH --billing-mode PAY_PER_REQUEST --endpoint-url $endpoint --region $region 2>$null
 
+# Migration for Students tables created before email-index existed: DynamoDB backfills the index from existing rows.
+# Fails harmlessly when the index is already there.
+aws dynamodb update-table --table-name Students --attribute-definitions AttributeName=email,AttributeType=S --global-secondary-index-updates "[{`"Create`":{`"IndexName`":`"email-index`",`"KeySchema`":[{`"AttributeName`":`"email`",`"KeyType`":`"HASH`"}],`"Projection`":{`"ProjectionType`":`"ALL`"}}}]" --endpoint-url $endpoint --region $region 2>$null
+
 Write-Host "Seeding courses from scripts_user/seed-courses.json..."
 
 $seed = Get-Content -Raw -Path ".\scripts_user\seed-courses.json" | ConvertFrom-Json
@@ -22,9 +33,7 @@ foreach ($c in $seed) {
   "currentEnrolledCount": { "N": "$($c.currentEnrolledCount)" },
   "startDate": { "S": "$($c.startDate)" },
   "endDate": { "S": "$($c.endDate)" },
-  "latestEnrollmentBy": { "S": "$($c.latestEnrollmentBy)" },
-  "enrolledIds": { "L": [] },
-  "waitlistIds": { "L": [] }
+  "latestEnrollmentBy": { "S": "$($c.latestEnrollmentBy)" }
 }
 "@
   aws dynamodb put-item --table-name Courses --item $item --endpoint-url $endpoint --region $region
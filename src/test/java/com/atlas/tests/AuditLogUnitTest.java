@@ -0,0 +1,82 @@
+package com.atlas.tests;
+
+import com.atlas.repository.AsyncBatchingLogDao;
+import com.atlas.repository.AsyncBatchingLogDao.OverflowPolicy;
+import com.atlas.testutil.FaultyDynamoDbClient;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * AsyncBatchingLogDao against a fault-throwing client: batching, failed flushes and writes after close.
+ */
+public class AuditLogUnitTest {
+
+    @Test
+    void queuedRecords_areWrittenInBatches_andDrainedOnClose() {
+        FaultyDynamoDbClient client = new FaultyDynamoDbClient();
+        AsyncBatchingLogDao log = new AsyncBatchingLogDao(client, 1000, 25, 1000, OverflowPolicy.BLOCK);
+        for (int i = 0; i < 60; i++) log.append("L" + i, "S1", "ENROLL", "C1");
+        log.close();
+
+        assertEquals(60, log.getWritten());
+        assertEquals(0, log.getFailed());
+        assertEquals(3, client.getCalls()); // 25 + 25 + 10
+
+        log.append("L60", "S1", "DROP", "C1"); // after close: written on the caller
+        assertEquals(1, log.getCallerRuns());
+        assertEquals(61, log.getWritten());
+    }
+
+    @Test
+    void failingFlush_countsTheRecordsAsFailed() {
+        FaultyDynamoDbClient client = new FaultyDynamoDbClient();
+        client.failAlways(FaultyDynamoDbClient::serverError);
+        AsyncBatchingLogDao log = new AsyncBatchingLogDao(client, 1000, 25, 1000, OverflowPolicy.DROP);
+        for (int i = 0; i < 10; i++) log.append("F" + i, "S1", "ENROLL", "C1");
+        log.close();
+
+        assertEquals(10, log.getFailed());
+        assertEquals(0, log.getWritten());
+        assertEquals(0, log.getDropped());
+    }
+
+    @Test
+    void recordBlockedOnAFullQueueDuringClose_isStillWritten() throws Exception {
+        CountDownLatch flushing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        FaultyDynamoDbClient client = new FaultyDynamoDbClient() {
+            @Override
+            public BatchWriteItemResponse batchWriteItem(BatchWriteItemRequest r) {
+                flushing.countDown();
+                try {
+                    // hold the first flush so the queue fills up behind it
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.batchWriteItem(r);
+            }
+        };
+        AsyncBatchingLogDao log = new AsyncBatchingLogDao(client, 1, 1, 1000, OverflowPolicy.BLOCK);
+        log.append("B0", "S1", "ENROLL", "C1");
+        assertTrue(flushing.await(5, TimeUnit.SECONDS));
+        log.append("B1", "S1", "ENROLL", "C1"); // fills the queue
+        CompletableFuture<Void> blocked = CompletableFuture.runAsync(() -> log.append("B2", "S1", "ENROLL", "C1"));
+        CompletableFuture<Void> closing = CompletableFuture.runAsync(log::close);
+        Thread.sleep(100);
+        release.countDown();
+
+        closing.get(5, TimeUnit.SECONDS);
+        blocked.get(5, TimeUnit.SECONDS);
+        assertEquals(3, log.getWritten());
+        assertEquals(0, log.getDropped());
+        assertEquals(0, log.getQueueDepth());
+    }
+}
@@ -0,0 +1,178 @@
+package com.atlas.tests;
+
+import com.atlas.model.BulkEnrollmentResult;
+import com.atlas.model.BulkEnrollmentResult.Status;
+import com.atlas.model.Course;
+import com.atlas.model.EnrollmentPair;
+import com.atlas.model.Student;
+import com.atlas.service.BulkEnrollmentFormats;
+import com.atlas.service.BulkEnrollmentService;
+import com.atlas.testutil.InMemoryCourseDao;
+import com.atlas.testutil.InMemoryLogDao;
+import com.atlas.testutil.InMemoryStudentDao;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Registrar imports: input formats, per-row report, seats and the 5-course limit across parallel groups.
+ */
+public class BulkEnrollmentUnitTest {
+
+    @Test
+    void csvAndJson_streamRowsInOrder() {
+        List<EnrollmentPair> csv = new ArrayList<>();
+        BulkEnrollmentFormats.csv(new StringReader("studentId,courseId\nS1,C1\n\n S2 , C2 \n")).forEachRemaining(csv::add);
+        assertEquals(2, csv.size());
+        assertEquals(2, csv.get(1).getRow());
+        assertEquals("S2", csv.get(1).getStudentId());
+        assertEquals("C2", csv.get(1).getCourseId());
+
+        String json = "[{\"studentId\":\"S1\",\"courseId\":\"C1\",\"note\":{\"x\":1}},{\"courseId\":\"C2\",\"studentId\":\"S2\"}]";
+        List<EnrollmentPair> parsed = new ArrayList<>();
+        BulkEnrollmentFormats.json(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8))).forEachRemaining(parsed::add);
+        assertEquals(2, parsed.size());
+        assertEquals("C2", parsed.get(1).getCourseId());
+
+        Iterator<EnrollmentPair> bad = BulkEnrollmentFormats.csv(new StringReader("S1,C1\nS2\n"));
+        bad.next();
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, bad::next);
+        assertTrue(ex.getMessage().startsWith("Row 2"));
+    }
+
+    @Test
+    void enroll_reportsEveryRow_andFillsOnlyFreeSeats() throws Exception {
+        InMemoryStudentDao studentDao = new InMemoryStudentDao();
+        InMemoryCourseDao courseDao = new InMemoryCourseDao();
+        InMemoryLogDao logDao = new InMemoryLogDao();
+        courseDao.putCourse(new Course("A", "Algebra", 2));
+        courseDao.putCourse(new Course("B", "Biology", 10));
+        for (int i = 1; i <= 4; i++) studentDao.save(new Student("S" + i, "S" + i, "s" + i + "@example.com", "hash"));
+        BulkEnrollmentService service = new BulkEnrollmentService(studentDao, courseDao, logDao, 2);
+
+        String input = "S1,A\nS2,A\nS3,A\nS1,A\nS9,B\nS4,B\nS1,NOPE\n";
+        List<BulkEnrollmentResult> results = service.enroll(BulkEnrollmentFormats.csv(new StringReader(input)));
+
+        assertEquals(7, results.size());
+        assertEquals(List.of(Status.ENROLLED, Status.ENROLLED, Status.COURSE_FULL, Status.ALREADY_ENROLLED,
+                        Status.REJECTED, Status.ENROLLED, Status.REJECTED),
+                results.stream().map(BulkEnrollmentResult::getStatus).toList());
+        assertEquals(Set.of("S1", "S2"), new HashSet<>(courseDao.roster("A")));
+        assertTrue(studentDao.getById("S4").getEnrolledCourseIds().contains("B"));
+        assertTrue(studentDao.getById("S3").getWaitlistedCourseIds().isEmpty()); // imports do not waitlist
+        assertEquals(3, logDao.getLogs().size());
+
+        StringWriter report = new StringWriter();
+        BulkEnrollmentFormats.writeCsv(results, report);
+        assertTrue(report.toString().contains("3,S3,A,COURSE_FULL,"));
+    }
+
+    @Test
+    void enroll_enforcesActiveLimitAcrossParallelGroups() {
+        InMemoryStudentDao studentDao = new InMemoryStudentDao();
+        InMemoryCourseDao courseDao = new InMemoryCourseDao();
+        studentDao.save(new Student("S1", "S1", "s1@example.com", "hash"));
+        List<EnrollmentPair> pairs = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            courseDao.putCourse(new Course("C" + i, "Course " + i, 5));
+            pairs.add(new EnrollmentPair(i + 1, "S1", "C" + i));
+        }
+        BulkEnrollmentService service = new BulkEnrollmentService(studentDao, courseDao, new InMemoryLogDao(), 8);
+
+        Map<Status, Integer> summary = BulkEnrollmentService.summary(service.enroll(pairs.iterator()));
+
+        assertEquals(5, summary.get(Status.ENROLLED));
+        assertEquals(3, summary.get(Status.REJECTED));
+        assertEquals(5, studentDao.getById("S1").getEnrolledCourseIds().size());
+    }
+
+    @Test
+    void seatedStudent_whoReachedTheLimitMeanwhile_isRejected_andTheSeatGivenBack() {
+        InMemoryCourseDao courseDao = new InMemoryCourseDao();
+        InMemoryStudentDao studentDao = new InMemoryStudentDao() {
+            @Override
+            public boolean addEnrolledCourse(String id, String courseId, int maxCourses) {
+                // a self-service enroll lands between the import's read and its append
+                addEnrolledCourse(id, "SELF");
+                return super.addEnrolledCourse(id, courseId, maxCourses);
+            }
+        };
+        Student s = new Student("S1", "S1", "s1@example.com", "hash");
+        s.getEnrolledCourseIds().addAll(List.of("X1", "X2", "X3", "X4"));
+        studentDao.save(s);
+        courseDao.putCourse(new Course("A", "Algebra", 3));
+        BulkEnrollmentService service = new BulkEnrollmentService(studentDao, courseDao, new InMemoryLogDao(), 1);
+
+        List<BulkEnrollmentResult> results = service.enroll(List.of(new EnrollmentPair(1, "S1", "A")).iterator());
+
+        assertEquals(Status.REJECTED, results.get(0).getStatus());
+        assertEquals(5, studentDao.getById("S1").getEnrolledCourseIds().size());
+        assertTrue(courseDao.roster("A").isEmpty());
+        assertEquals(0, courseDao.getById("A").getCurrentEnrolledCount());
+    }
+
+    @Test
+    void failedRecordUpdate_failsOnlyThatRow_andARerunCompletesIt() {
+        InMemoryCourseDao courseDao = new InMemoryCourseDao() {
+            @Override
+            public boolean dropStudentAtomic(String courseId, String studentId) {
+                throw new IllegalStateException("Drop is busy, please try again");
+            }
+        };
+        boolean[] failS2 = {true};
+        InMemoryStudentDao studentDao = new InMemoryStudentDao() {
+            @Override
+            public boolean addEnrolledCourse(String id, String courseId, int maxCourses) {
+                if (id.equals("S2") && failS2[0]) throw new IllegalStateException("throttled");
+                return super.addEnrolledCourse(id, courseId, maxCourses);
+            }
+        };
+        for (int i = 1; i <= 3; i++) studentDao.save(new Student("S" + i, "S" + i, "s" + i + "@example.com", "hash"));
+        courseDao.putCourse(new Course("A", "Algebra", 10));
+        BulkEnrollmentService service = new BulkEnrollmentService(studentDao, courseDao, new InMemoryLogDao(), 1);
+
+        List<BulkEnrollmentResult> first = service.enroll(BulkEnrollmentFormats.csv(new StringReader("S1,A\nS2,A\nS3,A\n")));
+        assertEquals(List.of(Status.ENROLLED, Status.ERROR, Status.ENROLLED), first.stream().map(BulkEnrollmentResult::getStatus).toList());
+        assertTrue(first.get(1).getMessage().startsWith("Seat held"));
+        assertFalse(studentDao.getById("S2").getEnrolledCourseIds().contains("A"));
+
+        failS2[0] = false;
+        List<BulkEnrollmentResult> rerun = service.enroll(BulkEnrollmentFormats.csv(new StringReader("S2,A\n")));
+        assertEquals(Status.ALREADY_ENROLLED, rerun.get(0).getStatus());
+        assertTrue(studentDao.getById("S2").getEnrolledCourseIds().contains("A"));
+        assertEquals(3, courseDao.getById("A").getCurrentEnrolledCount());
+    }
+
+    @Test
+    void rerunOfAHeldSeat_pastTheLimit_isRejected_andTheSeatGivenBack() {
+        InMemoryCourseDao courseDao = new InMemoryCourseDao();
+        InMemoryStudentDao studentDao = new InMemoryStudentDao() {
+            @Override
+            public boolean addEnrolledCourse(String id, String courseId, int maxCourses) {
+                // a self-service enroll lands between the rerun's read and its append
+                addEnrolledCourse(id, "SELF");
+                return super.addEnrolledCourse(id, courseId, maxCourses);
+            }
+        };
+        Student s = new Student("S1", "S1", "s1@example.com", "hash");
+        s.getEnrolledCourseIds().addAll(List.of("X1", "X2", "X3", "X4"));
+        studentDao.save(s);
+        courseDao.putCourse(new Course("A", "Algebra", 3));
+        // a previous import took the seat but never reached the student record
+        assertTrue(courseDao.enrollStudentAtomic("A", "S1", 3));
+        BulkEnrollmentService service = new BulkEnrollmentService(studentDao, courseDao, new InMemoryLogDao(), 1);
+
+        List<BulkEnrollmentResult> results = service.enroll(List.of(new EnrollmentPair(1, "S1", "A")).iterator());
+
+        assertEquals(Status.REJECTED, results.get(0).getStatus());
+        assertFalse(studentDao.getById("S1").getEnrolledCourseIds().contains("A"));
+        assertTrue(courseDao.roster("A").isEmpty());
+        assertEquals(0, courseDao.getById("A").getCurrentEnrolledCount());
+    }
+}
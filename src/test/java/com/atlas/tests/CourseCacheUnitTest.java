@@ -0,0 +1,83 @@
+package com.atlas.tests;
+
+import com.atlas.model.Course;
+import com.atlas.model.Student;
+import com.atlas.repository.CachingCourseDao;
+import com.atlas.service.CourseService;
+import com.atlas.service.EnrollmentService;
+import com.atlas.testutil.InMemoryCourseDao;
+import com.atlas.testutil.InMemoryLogDao;
+import com.atlas.testutil.InMemoryStudentDao;
+import com.atlas.util.TtlCache;
+import org.junit.jupiter.api.*;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the read-through course cache (CachingCourseDao + TtlCache) using a fake clock.
+ */
+public class CourseCacheUnitTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private InMemoryCourseDao backing;
+    private CachingCourseDao cached;
+
+    @BeforeEach
+    void setup() {
+        backing = new InMemoryCourseDao();
+        Duration ttl = Duration.ofSeconds(5);
+        cached = new CachingCourseDao(backing, new TtlCache<>(2, ttl, now::get), new TtlCache<>(1, ttl, now::get));
+    }
+
+    @Test
+    void getById_servedFromCache_untilTtlExpires() {
+        backing.putCourse(new Course("C1", "Cached", 3));
+
+        assertNotNull(cached.getById("C1"));  // miss, loads
+        backing.putCourse(new Course("C1", "Renamed", 3));
+        assertEquals("Cached", cached.getById("C1").getCourseName()); // hit, stale within bound
+        assertEquals(1, cached.getHits());
+        assertEquals(1, cached.getMisses());
+
+        now.addAndGet(Duration.ofSeconds(5).toNanos());
+        assertEquals("Renamed", cached.getById("C1").getCourseName()); // expired -> reload
+        assertEquals(2, cached.getMisses());
+    }
+
+    @Test
+    void enrollment_invalidatesCachedCourseAndListing() {
+        backing.putCourse(new Course("C2", "Seats", 1));
+        InMemoryStudentDao students = new InMemoryStudentDao();
+        students.save(new Student("S1", "Ann", "ann@example.com", "hash"));
+        EnrollmentService enrollment = new EnrollmentService(students, cached, new InMemoryLogDao());
+        CourseService courses = new CourseService(cached);
+
+        List<Course> before = courses.list();
+        assertEquals(0, before.get(0).getCurrentEnrolledCount());
+
+        // replace the backing instance so a stale cache would still report 0 seats taken
+        Course copy = new Course("C2", "Seats", 1);
+        backing.putCourse(copy);
+        enrollment.enroll("S1", "C2");
+
+        assertEquals(1, courses.list().get(0).getCurrentEnrolledCount());
+        assertEquals(1, courses.get("C2").getCurrentEnrolledCount());
+    }
+
+    @Test
+    void sizeBound_evictsLeastRecentlyUsed() {
+        for (int i = 0; i < 3; i++) backing.putCourse(new Course("E" + i, "Course" + i, 1));
+        cached.getById("E0");
+        cached.getById("E1");
+        cached.getById("E2"); // evicts E0 (max 2 entries)
+
+        assertEquals(1, cached.getEvictions());
+        long misses = cached.getMisses();
+        cached.getById("E0");
+        assertEquals(misses + 1, cached.getMisses());
+    }
+}
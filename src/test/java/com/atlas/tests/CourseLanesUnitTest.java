@@ -0,0 +1,225 @@
+package com.atlas.tests;
+
+import com.atlas.exception.AlreadyEnrolledException;
+import com.atlas.exception.ServiceBusyException;
+import com.atlas.model.Course;
+import com.atlas.model.Student;
+import com.atlas.service.CourseLanes;
+import com.atlas.service.EnrollmentService;
+import com.atlas.testutil.InMemoryCourseDao;
+import com.atlas.testutil.InMemoryEnrollmentTransactionDao;
+import com.atlas.testutil.InMemoryLogDao;
+import com.atlas.testutil.InMemoryStudentDao;
+import com.atlas.util.Metrics;
+import com.atlas.util.RequestTrace;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Per-course lanes: one writer per course, queued seat claims coalesced into one DAO call.
+ */
+public class CourseLanesUnitTest {
+
+    private CourseLanes lanes;
+
+    @AfterEach
+    void close() {
+        if (lanes != null) lanes.close();
+    }
+
+    @Test
+    void burstOnOneCourse_isCoalesced_andNeverOversold() throws Exception {
+        CountDownLatch firstWriteStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        InMemoryCourseDao courseDao = new InMemoryCourseDao() {
+            @Override
+            public Map<String, Boolean> enrollStudentsAtomic(String courseId, List<String> studentIds, int maxSeats) {
+                batchSizes.add(studentIds.size());
+                firstWriteStarted.countDown();
+                try {
+                    // hold the first write so the rest of the burst queues up behind it
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.enrollStudentsAtomic(courseId, studentIds, maxSeats);
+            }
+        };
+        InMemoryStudentDao studentDao = new InMemoryStudentDao();
+        lanes = new CourseLanes(courseDao, 4, 100, 25);
+        EnrollmentService service = new EnrollmentService(studentDao, courseDao, new InMemoryLogDao(), null, lanes);
+        courseDao.putCourse(new Course("HOT", "Hot", 5));
+        for (int i = 0; i < 12; i++) studentDao.save(new Student("L" + i, "S" + i, "l" + i + "@example.com", "hash"));
+
+        ExecutorService pool = Executors.newFixedThreadPool(12);
+        try {
+            List<Future<?>> calls = new ArrayList<>();
+            calls.add(pool.submit(() -> service.enroll("L0", "HOT")));
+            assertTrue(firstWriteStarted.await(5, TimeUnit.SECONDS));
+            for (int i = 1; i < 12; i++) {
+                String sid = "L" + i;
+                calls.add(pool.submit(() -> service.enroll(sid, "HOT")));
+            }
+            // wait until the other eleven claims are queued in the lane
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (lanes.getQueued() < 11 && System.nanoTime() < deadline) Thread.sleep(10);
+            release.countDown();
+            for (Future<?> f : calls) f.get(5, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(5, courseDao.getById("HOT").getCurrentEnrolledCount());
+        assertEquals(5, courseDao.roster("HOT").size());
+        assertEquals(12, lanes.getClaims());
+        assertEquals(List.of(1, 11), batchSizes);
+        int waitlisted = 0;
+        for (int i = 0; i < 12; i++) if (studentDao.getById("L" + i).getWaitlistedCourseIds().contains("HOT")) waitlisted++;
+        assertEquals(7, waitlisted);
+    }
+
+    @Test
+    void repeatedClaimBySameStudent_inOneBurst_isAlreadyEnrolled() {
+        InMemoryCourseDao courseDao = new InMemoryCourseDao();
+        lanes = new CourseLanes(courseDao, 2, 100, 25);
+        courseDao.putCourse(new Course("C1", "One", 3));
+        assertTrue(lanes.claimSeat("C1", "X", 3));
+        assertThrows(AlreadyEnrolledException.class, () -> lanes.claimSeat("C1", "X", 3));
+        assertEquals(Boolean.TRUE, lanes.run("C1", () -> courseDao.dropStudentAtomic("C1", "X")));
+        assertEquals(0, courseDao.getById("C1").getCurrentEnrolledCount());
+    }
+
+    @Test
+    void laneWrite_runsUnderTheSubmittersTraceAndRoute() {
+        InMemoryCourseDao courseDao = new InMemoryCourseDao();
+        lanes = new CourseLanes(courseDao, 2, 100, 25);
+        Metrics.setRoute("/enroll");
+        RequestTrace trace = RequestTrace.begin("POST /enroll");
+        try {
+            String route = lanes.run("C1", () -> {
+                RequestTrace.recordDao("course.dropStudentAtomic", System.nanoTime(), 0, null);
+                return Metrics.currentRoute();
+            });
+            assertEquals("/enroll", route);
+        } finally {
+            RequestTrace.end();
+            Metrics.clearRoute();
+        }
+        assertEquals(1, trace.getDaoCalls());
+        // nothing is left attached to the lane thread
+        assertEquals("none", lanes.run("C1", Metrics::currentRoute));
+        assertNull(lanes.run("C1", RequestTrace::current));
+    }
+
+    @Test
+    void taskThrowingAnError_failsOnlyItsCaller_andTheLaneKeepsRunning() {
+        InMemoryCourseDao courseDao = new InMemoryCourseDao();
+        lanes = new CourseLanes(courseDao, 1, 100, 25);
+        courseDao.putCourse(new Course("C1", "One", 3));
+        AssertionError thrown = assertThrows(AssertionError.class, () -> lanes.run("C1", () -> {
+            throw new AssertionError("boom");
+        }));
+        assertEquals("boom", thrown.getMessage());
+        // the same (only) lane thread still takes claims
+        assertTrue(lanes.claimSeat("C1", "X", 3));
+        assertEquals(1, courseDao.getById("C1").getCurrentEnrolledCount());
+    }
+
+    @Test
+    void close_failsQueuedTasks_andLaterSubmissions() throws Exception {
+        InMemoryCourseDao courseDao = new InMemoryCourseDao();
+        lanes = new CourseLanes(courseDao, 1, 100, 25);
+        courseDao.putCourse(new Course("C1", "One", 3));
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<Object> blocker = pool.submit(() -> lanes.run("C1", () -> {
+                running.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                return "done";
+            }));
+            assertTrue(running.await(5, TimeUnit.SECONDS));
+            Future<Boolean> queued = pool.submit(() -> lanes.claimSeat("C1", "X", 3));
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (lanes.getQueued() < 1 && System.nanoTime() < deadline) Thread.sleep(10);
+
+            lanes.close();
+            ExecutionException ex = assertThrows(ExecutionException.class, () -> queued.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(ServiceBusyException.class, ex.getCause());
+            // the running task is interrupted, not abandoned
+            assertEquals("done", blocker.get(5, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+            pool.shutdownNow();
+        }
+        assertThrows(ServiceBusyException.class, () -> lanes.claimSeat("C1", "Y", 3));
+        assertEquals(0, courseDao.getById("C1").getCurrentEnrolledCount());
+    }
+
+    @Test
+    void transactionalEnrollments_areCoalescedIntoEnrollAll() throws Exception {
+        CountDownLatch firstWriteStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        InMemoryCourseDao courseDao = new InMemoryCourseDao();
+        InMemoryStudentDao studentDao = new InMemoryStudentDao();
+        InMemoryLogDao logDao = new InMemoryLogDao();
+        InMemoryEnrollmentTransactionDao txDao = new InMemoryEnrollmentTransactionDao(studentDao, courseDao, logDao) {
+            @Override
+            public Map<String, Boolean> enrollAll(String courseId, List<String> studentIds, int maxSeats) {
+                batchSizes.add(studentIds.size());
+                firstWriteStarted.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.enrollAll(courseId, studentIds, maxSeats);
+            }
+        };
+        lanes = new CourseLanes(courseDao, txDao, 2, 100, 25);
+        courseDao.putCourse(new Course("HOT", "Hot", 4));
+        for (int i = 0; i < 7; i++) studentDao.save(new Student("T" + i, "S" + i, "t" + i + "@example.com", "hash"));
+        // T6 is already at the limit, so enrollAll leaves it out and its own write gives the reason
+        Student full = studentDao.getById("T6");
+        for (int i = 0; i < 5; i++) full.getEnrolledCourseIds().add("OTHER" + i);
+        studentDao.save(full);
+
+        ExecutorService pool = Executors.newFixedThreadPool(7);
+        try {
+            List<Future<Boolean>> calls = new ArrayList<>();
+            calls.add(pool.submit(() -> lanes.enroll("HOT", "T0", 4)));
+            assertTrue(firstWriteStarted.await(5, TimeUnit.SECONDS));
+            for (int i = 1; i < 7; i++) {
+                String sid = "T" + i;
+                calls.add(pool.submit(() -> lanes.enroll("HOT", sid, 4)));
+            }
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (lanes.getQueued() < 6 && System.nanoTime() < deadline) Thread.sleep(10);
+            release.countDown();
+
+            int enrolled = 0;
+            for (int i = 0; i < 6; i++) if (calls.get(i).get(5, TimeUnit.SECONDS)) enrolled++;
+            assertEquals(4, enrolled);
+            ExecutionException ex = assertThrows(ExecutionException.class, () -> calls.get(6).get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalStateException.class, ex.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(List.of(1, 6), batchSizes);
+        assertEquals(4, courseDao.getById("HOT").getCurrentEnrolledCount());
+        assertEquals(4, logDao.getLogs().size());
+    }
+}
@@ -1,21 +1,36 @@
 package com.atlas.tests;
 
+import com.atlas.exception.AlreadyEnrolledException;
+import com.atlas.exception.VersionConflictException;
+import com.atlas.model.Course;
+import com.atlas.model.Student;
+import com.atlas.repository.AsyncBatchingLogDao;
 import com.atlas.repository.DynamoCourseDao;
+import com.atlas.repository.DynamoEnrollmentTransactionDao;
 import com.atlas.repository.DynamoLogDao;
 import com.atlas.repository.DynamoStudentDao;
 import com.atlas.service.CourseService;
 import com.atlas.service.EnrollmentService;
 import com.atlas.service.StudentService;
 import com.atlas.repository.DynamoDBClientUtil;
+import com.atlas.repository.DynamoSchema;
+import com.atlas.util.Metrics;
+import com.atlas.util.RequestTrace;
 import org.junit.jupiter.api.*;
 
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
 import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
 
 import java.time.LocalDate;
 import java.util.*;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assumptions.assumeTrue;
 import static org.junit.jupiter.api.Assertions.*;
@@ -52,6 +67,12 @@ public class EnrollmentFlowsIntegrationTest {
         }
         assumeTrue(client != null, "DynamoDB Local is not available; skipping integration tests");
 
+        // bring older local tables up to date (email GSI); login falls back to a scan until it is ACTIVE
+        DynamoSchema.ensureStudentEmailIndex(client);
+        DynamoSchema.ensureSeatShardsTable(client);
+        DynamoSchema.ensureWaitlistTable(client);
+        DynamoSchema.ensureEnrollmentsTable(client);
+
         studentDao = new DynamoStudentDao();
         courseDao = new DynamoCourseDao();
         logDao = new DynamoLogDao();
@@ -158,6 +179,92 @@ public class EnrollmentFlowsIntegrationTest {
         assertTrue(studentDao.getById(s2).getEnrolledCourseIds().contains(courseId));
     }
 
+    @Test
+    public void integration_dropWithPromotion_staysWithinDynamoCallBudget() {
+        String s1 = "S" + UUID.randomUUID().toString().substring(0, 8);
+        String s2 = "S" + UUID.randomUUID().toString().substring(0, 8);
+        studentService.register(s1, "Dropper", s1 + "@ex.com", "Pass123");
+        studentService.register(s2, "Waiter", s2 + "@ex.com", "Pass456");
+        String courseId = "ITRACE-" + UUID.randomUUID().toString().substring(0, 6);
+        putCourseDirectly(courseId, "Traced Course", 1);
+        enrollmentService.enroll(s1, courseId);
+        enrollmentService.enroll(s2, courseId);
+
+        RequestTrace trace = RequestTrace.begin("POST /drop");
+        enrollmentService.drop(s1, courseId);
+        RequestTrace.end();
+
+        // seat + student + log writes for both students, one head-of-waitlist read and one candidate batch
+        assertTrue(trace.getDynamoCalls() <= 16, trace.format());
+        assertEquals(1, trace.count(RequestTrace.Kind.DYNAMODB, "BatchGetItem"), trace.format());
+        assertTrue(trace.getCalls().stream().anyMatch(c -> "Courses".equals(c.getTable()) && c.getResponseBytes() > 0));
+        assertTrue(trace.getCapacityUnits() > 0);
+    }
+
+    @Test
+    public void integration_waitlistTable_orderPositionsAndLeave() throws InterruptedException {
+        String courseId = "ITEST_WL_" + UUID.randomUUID().toString().substring(0, 6);
+        putCourseDirectly(courseId, "Waitlist Course", 1);
+
+        for (String sid : List.of("W3", "W1", "W2")) {
+            courseDao.addToWaitlist(courseId, sid);
+            Thread.sleep(2); // distinct join times, so the queue order is the join order
+        }
+        assertEquals(List.of("W3", "W1", "W2"), courseDao.waitlistHead(courseId, 10));
+        assertEquals(List.of("W3"), courseDao.waitlistHead(courseId, 1));
+        assertEquals(2, courseDao.waitlistPosition(courseId, "W1"));
+        assertEquals(0, courseDao.waitlistPosition(courseId, "NOPE"));
+
+        assertTrue(courseDao.removeFromWaitlist(courseId, "W1"));
+        assertFalse(courseDao.removeFromWaitlist(courseId, "W1"));
+        assertEquals(List.of("W3", "W2"), courseDao.waitlistHead(courseId, 10));
+        assertEquals(2, courseDao.waitlistPosition(courseId, "W2"));
+    }
+
+    @Test
+    public void integration_legacyWaitlistAttribute_isMigratedInOrder() {
+        String courseId = "ITEST_WLM_" + UUID.randomUUID().toString().substring(0, 6);
+        putCourseDirectly(courseId, "Legacy Waitlist Course", 1);
+        client.updateItem(UpdateItemRequest.builder()
+                .tableName("Courses")
+                .key(Map.of("courseId", AttributeValue.builder().s(courseId).build()))
+                .updateExpression("SET waitlistIds = :w")
+                .expressionAttributeValues(Map.of(":w", AttributeValue.builder().l(
+                        AttributeValue.builder().s("L2").build(),
+                        AttributeValue.builder().s("L1").build()).build()))
+                .build());
+        courseDao.addToWaitlist(courseId, "NEW"); // joined after the legacy entries
+
+        assertTrue(DynamoSchema.migrateLegacyWaitlists(client) >= 1);
+        assertEquals(List.of("L2", "L1", "NEW"), courseDao.waitlistHead(courseId, 10));
+        assertEquals(0, DynamoSchema.migrateLegacyWaitlists(client));
+    }
+
+    @Test
+    public void integration_legacyRosterAttribute_isMigrated_andDropsUseEnrollments() {
+        String courseId = "ITEST_RM_" + UUID.randomUUID().toString().substring(0, 6);
+        putCourseDirectly(courseId, "Legacy Roster Course", 3);
+        client.updateItem(UpdateItemRequest.builder()
+                .tableName("Courses")
+                .key(Map.of("courseId", AttributeValue.builder().s(courseId).build()))
+                .updateExpression("SET enrolledIds = :e, currentEnrolledCount = :n")
+                .expressionAttributeValues(Map.of(
+                        ":e", AttributeValue.builder().l(
+                                AttributeValue.builder().s("R1").build(),
+                                AttributeValue.builder().s("R2").build()).build(),
+                        ":n", AttributeValue.builder().n("2").build()))
+                .build());
+
+        assertTrue(DynamoSchema.migrateLegacyRosters(client) >= 1);
+        assertEquals(List.of("R1", "R2"), courseDao.roster(courseId));
+        assertEquals(0, DynamoSchema.migrateLegacyRosters(client));
+
+        assertTrue(courseDao.dropStudentAtomic(courseId, "R1"));
+        assertFalse(courseDao.dropStudentAtomic(courseId, "R1"));
+        assertEquals(List.of("R2"), courseDao.roster(courseId));
+        assertEquals(1, courseDao.getById(courseId).getCurrentEnrolledCount());
+    }
+
     @Test
     public void integration_duplicatePrevention_and_limits() {
         // register a fresh student
@@ -172,7 +279,7 @@ public class EnrollmentFlowsIntegrationTest {
         enrollmentService.enroll(sid, dupCourse);
 
         // second enroll into same course should throw AlreadyEnrolledException
-        assertThrows(com.atlas.exception.AlreadyEnrolledException.class,
+        assertThrows(AlreadyEnrolledException.class,
                 () -> enrollmentService.enroll(sid, dupCourse),
                 "Enrolling twice in the same course should be prevented");
 
@@ -192,4 +299,319 @@ public class EnrollmentFlowsIntegrationTest {
                 "Enrolling beyond 5 active courses should be rejected");
     }
 
+    @Test
+    public void integration_saveAllNew_createsStudentsAtVersionOne_andSkipsTakenIds() {
+        String prefix = "IMP" + UUID.randomUUID().toString().substring(0, 6);
+        studentDao.save(new Student(prefix + "105", "Registered", "reg-" + prefix.toLowerCase() + "@ex.com", "own-hash"));
+        List<Student> students = new ArrayList<>();
+        for (int i = 0; i < 110; i++) students.add(new Student(prefix + i, "Imported " + i, prefix.toLowerCase() + i + "@ex.com", "hash"));
+
+        Set<String> taken = studentDao.saveAllNew(students); // two transactions, the second retried without the taken id
+        List<String> ids = new ArrayList<>();
+        for (Student s : students) ids.add(s.getId());
+        Map<String, Student> stored = studentDao.getByIds(ids);
+
+        assertEquals(Set.of(prefix + "105"), taken);
+        assertEquals("own-hash", stored.get(prefix + "105").getPasswordHash());
+        assertEquals(110, stored.size());
+        assertEquals(1, stored.get(prefix + "109").getVersion());
+        assertEquals(prefix + "7", studentDao.findByEmail(prefix.toLowerCase() + "7@ex.com").getId());
+        // a later versioned save continues from the imported version
+        Student first = stored.get(prefix + "0");
+        first.getWaitlistedCourseIds().add("W1");
+        studentDao.save(first);
+        assertEquals(2, studentDao.getByIdFresh(prefix + "0").getVersion());
+    }
+
+    @Test
+    public void integration_consumedCapacity_isCountedPerTableOperationAndRoute() {
+        String courseId = "ICAP-" + UUID.randomUUID().toString().substring(0, 6);
+        putCourseDirectly(courseId, "Capacity", 3);
+        Metrics.Counter reads = Metrics.counter("atlas_dynamodb_consumed_capacity_total",
+                "DynamoDB capacity units consumed", "table", "Courses", "operation", "GetItem", "route", "GET /test-capacity");
+        double before = reads.get();
+
+        Metrics.setRoute("GET /test-capacity");
+        try {
+            assertNotNull(courseDao.getById(courseId));
+        } finally {
+            Metrics.clearRoute();
+        }
+        assertTrue(reads.get() > before, "GetItem on Courses should report consumed capacity");
+    }
+
+    @Test
+    public void integration_studentVersioning_conflictsAndConcurrentAppends() throws Exception {
+        String sid = "S" + UUID.randomUUID().toString().substring(0, 8);
+        studentService.register(sid, "Versioned", sid + "@ex.com", "Pass123");
+        Student first = studentDao.getByIdFresh(sid);
+        Student stale = studentDao.getByIdFresh(sid);
+        assertEquals(1, first.getVersion());
+
+        first.getWaitlistedCourseIds().add("W1");
+        studentDao.save(first);
+        assertEquals(2, first.getVersion());
+        stale.getEnrolledCourseIds().add("C1");
+        assertThrows(VersionConflictException.class, () -> studentDao.save(stale));
+
+        // single-id appends from concurrent flows are all kept, and each bumps the version
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> appends = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                String cid = "APPEND" + i;
+                appends.add(pool.submit(() -> studentDao.addEnrolledCourse(sid, cid)));
+            }
+            for (Future<?> f : appends) f.get();
+        } finally {
+            pool.shutdownNow();
+        }
+        studentDao.addEnrolledCourse(sid, "APPEND0"); // already listed: no-op
+        Student after = studentDao.getByIdFresh(sid);
+        assertEquals(8, after.getEnrolledCourseIds().size());
+        assertEquals(8, new HashSet<>(after.getEnrolledCourseIds()).size());
+        assertEquals(List.of("W1"), after.getWaitlistedCourseIds());
+        assertEquals(10, after.getVersion());
+    }
+
+    @Test
+    public void integration_addEnrolledCourse_withLimit_refusesPastIt() {
+        String sid = "S" + UUID.randomUUID().toString().substring(0, 8);
+        studentService.register(sid, "Limited", sid + "@ex.com", "Pass123");
+
+        assertTrue(studentDao.addEnrolledCourse(sid, "L0", 2));
+        assertTrue(studentDao.addEnrolledCourse(sid, "L1", 2));
+        assertFalse(studentDao.addEnrolledCourse(sid, "L2", 2));
+        assertTrue(studentDao.addEnrolledCourse(sid, "L1", 2)); // already listed
+        assertFalse(studentDao.addEnrolledCourse("NO_SUCH_" + sid, "L0", 2));
+        assertEquals(List.of("L0", "L1"), studentDao.getByIdFresh(sid).getEnrolledCourseIds());
+    }
+
+    @Test
+    public void integration_enrollStudentsAtomic_takesSeatsInOneTransaction() {
+        String courseId = "ITEST_BATCH_" + UUID.randomUUID().toString().substring(0, 6);
+        putCourseDirectly(courseId, "Batch", 4);
+        assertTrue(courseDao.enrollStudentAtomic(courseId, "B0", 4));
+
+        Map<String, Boolean> granted = courseDao.enrollStudentsAtomic(courseId, List.of("B1", "B0", "B2", "B3", "B4", "B5"), 4);
+        assertEquals(Boolean.TRUE, granted.get("B1"));
+        assertFalse(granted.containsKey("B0")); // already held a seat
+        assertEquals(Boolean.TRUE, granted.get("B2"));
+        assertEquals(Boolean.TRUE, granted.get("B3"));
+        assertEquals(Boolean.FALSE, granted.get("B4"));
+        assertEquals(Boolean.FALSE, granted.get("B5"));
+
+        assertEquals(4, courseDao.getById(courseId).getCurrentEnrolledCount());
+        assertEquals(Set.of("B0", "B1", "B2", "B3"), new HashSet<>(courseDao.roster(courseId)));
+    }
+
+    @Test
+    public void integration_bulkEnroll_skipsRosterAndSeatsWithRosterPutsInOneTransaction() {
+        String courseId = "ITEST_BULK_" + UUID.randomUUID().toString().substring(0, 6);
+        putCourseDirectly(courseId, "Bulk", 30);
+        assertTrue(courseDao.enrollStudentAtomic(courseId, "K0", 30));
+
+        // 31 ids: K0 already seated, only 29 seats left
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 31; i++) ids.add("K" + i);
+        Map<String, Boolean> granted = courseDao.bulkEnroll(courseId, ids, 30);
+
+        assertFalse(granted.containsKey("K0"));
+        for (int i = 1; i < 30; i++) assertEquals(Boolean.TRUE, granted.get("K" + i));
+        assertEquals(Boolean.FALSE, granted.get("K30"));
+        assertEquals(30, courseDao.getById(courseId).getCurrentEnrolledCount());
+        assertEquals(30, new HashSet<>(courseDao.roster(courseId)).size());
+    }
+
+    @Test
+    public void integration_listAll_parallelScan_decodesEveryCourse() {
+        String courseId = "ITEST_SCAN_" + UUID.randomUUID().toString().substring(0, 6);
+        putCourseDirectly(courseId, "ScanCourse", 3);
+
+        // 4 segments on the DAO's own pool; result must match the sequential single-pass scan
+        DynamoCourseDao parallel = new DynamoCourseDao(4, null);
+        List<String> parallelIds = parallel.listAll().stream().map(c -> c.getCourseId()).sorted().collect(Collectors.toList());
+        List<String> sequentialIds = courseDao.listAll().stream().map(c -> c.getCourseId()).sorted().collect(Collectors.toList());
+
+        assertTrue(parallelIds.contains(courseId));
+        assertEquals(sequentialIds, parallelIds);
+    }
+
+    @Test
+    public void integration_getByIds_batchLoadsAcrossChunks() {
+        // 105 keys forces two BatchGetItem chunks; only the three seeded ones exist
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            String cid = "ITEST_BATCH_" + UUID.randomUUID().toString().substring(0, 6) + "_" + i;
+            putCourseDirectly(cid, "BatchCourse" + i, 2);
+            ids.add(cid);
+        }
+        List<String> lookup = new ArrayList<>(ids);
+        for (int i = 0; i < 102; i++) lookup.add("MISSING_" + i);
+
+        Map<String, Course> found = courseDao.getByIds(lookup);
+
+        assertEquals(new HashSet<>(ids), found.keySet());
+        assertEquals("BatchCourse1", found.get(ids.get(1)).getCourseName());
+    }
+
+    @Test
+    public void integration_transactionalMode_enroll_waitlist_drop_promote() {
+        EnrollmentService txService = new EnrollmentService(studentDao, courseDao, logDao,
+                new DynamoEnrollmentTransactionDao());
+        String s1 = "S" + UUID.randomUUID().toString().substring(0, 8);
+        String s2 = "S" + UUID.randomUUID().toString().substring(0, 8);
+        studentService.register(s1, "TxFirst", s1 + "@ex.com", "Pass123");
+        studentService.register(s2, "TxSecond", s2 + "@ex.com", "Pass456");
+
+        String courseId = "ITEST_TX_" + UUID.randomUUID().toString().substring(0, 6);
+        putCourseDirectly(courseId, "Tx Course", 1);
+
+        txService.enroll(s1, courseId);
+        assertThrows(AlreadyEnrolledException.class, () -> txService.enroll(s1, courseId));
+        txService.enroll(s2, courseId); // full -> waitlist
+        assertTrue(studentDao.getById(s2).getWaitlistedCourseIds().contains(courseId));
+
+        txService.drop(s1, courseId);
+        assertFalse(studentDao.getById(s1).getEnrolledCourseIds().contains(courseId));
+        assertTrue(studentDao.getById(s2).getEnrolledCourseIds().contains(courseId));
+        assertEquals(List.of(s2), courseDao.roster(courseId));
+        assertTrue(courseDao.coursesOf(s2).contains(courseId));
+        assertEquals(1, courseDao.getById(courseId).getCurrentEnrolledCount());
+    }
+
+    @Test
+    public void integration_transactionalEnrollAll_seatsSeveralStudentsInOneTransaction() {
+        DynamoEnrollmentTransactionDao txDao = new DynamoEnrollmentTransactionDao();
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            String sid = "S" + UUID.randomUUID().toString().substring(0, 8);
+            studentService.register(sid, "All" + i, sid + "@ex.com", "Pass123");
+            ids.add(sid);
+        }
+        String courseId = "ITEST_TXALL_" + UUID.randomUUID().toString().substring(0, 6);
+        putCourseDirectly(courseId, "Tx All", 3);
+        assertTrue(txDao.enroll(ids.get(0), courseId, 3, UUID.randomUUID().toString()));
+
+        String missing = "NO_SUCH_" + ids.get(0);
+        List<String> batch = List.of(ids.get(0), ids.get(1), missing, ids.get(2), ids.get(3));
+        Map<String, Boolean> granted = txDao.enrollAll(courseId, batch, 3);
+
+        assertFalse(granted.containsKey(ids.get(0))); // already enrolled
+        assertFalse(granted.containsKey(missing));
+        assertEquals(Boolean.TRUE, granted.get(ids.get(1)));
+        assertEquals(Boolean.TRUE, granted.get(ids.get(2)));
+        assertEquals(Boolean.FALSE, granted.get(ids.get(3)));
+        assertEquals(3, courseDao.getById(courseId).getCurrentEnrolledCount());
+        assertEquals(new HashSet<>(ids.subList(0, 3)), new HashSet<>(courseDao.roster(courseId)));
+        assertTrue(studentDao.getById(ids.get(2)).getEnrolledCourseIds().contains(courseId));
+        assertFalse(studentDao.getById(ids.get(3)).getEnrolledCourseIds().contains(courseId));
+    }
+
+    @Test
+    public void integration_asyncLog_batchesAndDrainsOnClose() {
+        AsyncBatchingLogDao asyncLog = new AsyncBatchingLogDao(
+                100, 25, 50, AsyncBatchingLogDao.OverflowPolicy.CALLER_RUNS);
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            String logId = "ITEST_LOG_" + UUID.randomUUID();
+            ids.add(logId);
+            asyncLog.append(logId, "S-LOG", "TEST", null);
+        }
+        asyncLog.close(); // drains the queue
+
+        assertEquals(0, asyncLog.getQueueDepth());
+        assertEquals(30, asyncLog.getWritten());
+        for (String logId : ids) {
+            Map<String, AttributeValue> item = client.getItem(GetItemRequest.builder()
+                    .tableName("StudentLogs").key(Map.of("logId", AttributeValue.builder().s(logId).build())).build()).item();
+            assertFalse(item == null || item.isEmpty(), "log " + logId + " was not written");
+        }
+    }
+
+    @Test
+    public void integration_shardedSeats_concurrentClaims_neverOversell() throws Exception {
+        String courseId = "ITEST_SHARD_" + UUID.randomUUID().toString().substring(0, 6);
+        putCourseDirectly(courseId, "Hot Course", 30);
+        assertTrue(courseDao.enableSeatShards(courseId, 8));
+        assertFalse(courseDao.enableSeatShards(courseId, 8)); // idempotent
+
+        int attempts = 120;
+        ExecutorService pool = Executors.newFixedThreadPool(32);
+        List<Future<Boolean>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < attempts; i++) {
+                String sid = "HOT" + i;
+                results.add(pool.submit(() -> courseDao.enrollStudentAtomic(courseId, sid, 30)));
+            }
+            int granted = 0;
+            for (Future<Boolean> f : results) if (f.get()) granted++;
+            assertEquals(30, granted);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        Course c = courseDao.getById(courseId);
+        assertEquals(8, c.getSeatShards());
+        assertEquals(30, c.getCurrentEnrolledCount());
+        List<String> roster = courseDao.roster(courseId);
+        assertEquals(30, new HashSet<>(roster).size());
+        assertFalse(courseDao.enrollStudentAtomic(courseId, "LATE", 30));
+        assertThrows(AlreadyEnrolledException.class, () -> courseDao.enrollStudentAtomic(courseId, roster.get(0), 30));
+
+        // a released seat (sequential drop path) can be claimed again, and only once
+        assertTrue(courseDao.dropStudentAtomic(courseId, roster.get(0)));
+        assertFalse(courseDao.dropStudentAtomic(courseId, roster.get(0)));
+        assertEquals(29, courseDao.getById(courseId).getCurrentEnrolledCount());
+        assertTrue(courseDao.enrollStudentAtomic(courseId, "LATE", 30));
+        assertFalse(courseDao.enrollStudentAtomic(courseId, "LATER", 30));
+    }
+
+    @Test
+    public void integration_freshCourseDao_shardedCourse_claimsAndReleasesShards() {
+        String courseId = "ITEST_FSHARD_" + UUID.randomUUID().toString().substring(0, 6);
+        putCourseDirectly(courseId, "Hot Course Elsewhere", 3);
+        assertTrue(courseDao.enrollStudentAtomic(courseId, "EARLY", 3)); // seat taken before sharding: no shard recorded
+        courseDao.enableSeatShards(courseId, 2);
+
+        // a DAO that never read the course learns about the shards from the failed counter update
+        DynamoCourseDao fresh = new DynamoCourseDao();
+        assertTrue(fresh.enrollStudentAtomic(courseId, "A1", 3));
+        assertTrue(fresh.enrollStudentAtomic(courseId, "A2", 3));
+        assertFalse(fresh.enrollStudentAtomic(courseId, "A3", 3));
+        assertEquals(3, fresh.getById(courseId).getCurrentEnrolledCount());
+
+        DynamoCourseDao other = new DynamoCourseDao();
+        assertTrue(other.dropStudentAtomic(courseId, "EARLY")); // released to the fullest shard
+        assertTrue(other.dropStudentAtomic(courseId, "A1"));    // released to the shard it came from
+        assertFalse(other.dropStudentAtomic(courseId, "A1"));
+        assertEquals(1, courseDao.getById(courseId).getCurrentEnrolledCount());
+        assertEquals(List.of("A2"), courseDao.roster(courseId));
+    }
+
+    @Test
+    public void integration_transactionalMode_shardedCourse_enrollWaitlistDropPromote() {
+        EnrollmentService txService = new EnrollmentService(studentDao, courseDao, logDao,
+                new DynamoEnrollmentTransactionDao());
+        String courseId = "ITEST_TXSHARD_" + UUID.randomUUID().toString().substring(0, 6);
+        putCourseDirectly(courseId, "Hot Tx Course", 2);
+        courseDao.enableSeatShards(courseId, 2);
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            String sid = "S" + UUID.randomUUID().toString().substring(0, 8);
+            studentService.register(sid, "Hot" + i, sid + "@ex.com", "Pass123");
+            ids.add(sid);
+            txService.enroll(sid, courseId);
+        }
+        assertEquals(2, courseDao.getById(courseId).getCurrentEnrolledCount());
+        assertTrue(studentDao.getById(ids.get(2)).getWaitlistedCourseIds().contains(courseId));
+        assertThrows(AlreadyEnrolledException.class, () -> txService.enroll(ids.get(0), courseId));
+
+        txService.drop(ids.get(0), courseId);
+        Course after = courseDao.getById(courseId);
+        assertEquals(2, after.getCurrentEnrolledCount());
+        assertFalse(courseDao.roster(courseId).contains(ids.get(0)));
+        assertTrue(studentDao.getById(ids.get(2)).getEnrolledCourseIds().contains(courseId));
+    }
+
 }
@@ -1,5 +1,6 @@
 package com.atlas.tests;
 
+import com.atlas.exception.VersionConflictException;
 import com.atlas.model.Course;
 import com.atlas.model.Student;
 import com.atlas.service.CourseService;
@@ -10,6 +11,10 @@ import com.atlas.testutil.InMemoryLogDao;
 import com.atlas.testutil.InMemoryStudentDao;
 import org.junit.jupiter.api.*;
 
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -64,7 +69,7 @@ public class EnrollmentFlowsUnitTest {
 
         Course saved = courseDao.getById("C1");
         assertEquals(1, saved.getCurrentEnrolledCount());
-        assertTrue(saved.getEnrolledIds().contains("S2"));
+        assertEquals(List.of("S2"), courseDao.roster("C1"));
     }
 
     @Test
@@ -81,8 +86,8 @@ public class EnrollmentFlowsUnitTest {
         Student s4 = studentDao.getById("S4");
         assertTrue(s4.getWaitlistedCourseIds().contains("C2"));
 
-        Course saved = courseDao.getById("C2");
-        assertTrue(saved.getWaitlistIds().contains("S4"));
+        assertEquals(List.of("S4"), courseDao.waitlistHead("C2", 10));
+        assertEquals(Map.of("C2", 1), enrollmentService.waitlistPositions("S4"));
     }
 
     @Test
@@ -104,7 +109,8 @@ public class EnrollmentFlowsUnitTest {
 
         Course saved = courseDao.getById("C3");
         assertEquals(1, saved.getCurrentEnrolledCount());
-        assertTrue(saved.getEnrolledIds().contains("S6"));
+        assertEquals(List.of("S6"), courseDao.roster("C3"));
+        assertEquals(List.of("C3"), courseDao.coursesOf("S6"));
     }
 
     @Test
@@ -136,4 +142,104 @@ public class EnrollmentFlowsUnitTest {
 
         assertThrows(IllegalStateException.class, () -> enrollmentService.enroll("S10", "CFull"));
     }
+
+    @Test
+    void staleStudentSave_isRejected() {
+        studentService.register("S12", "Kim", "kim@example.com", "KimPwd12");
+        Student first = studentDao.getById("S12");
+        Student stale = studentDao.getById("S12");
+        first.getWaitlistedCourseIds().add("W1");
+        studentDao.save(first);
+
+        stale.getEnrolledCourseIds().add("C1");
+        assertThrows(VersionConflictException.class, () -> studentDao.save(stale));
+        assertEquals(List.of("W1"), studentDao.getById("S12").getWaitlistedCourseIds());
+        assertTrue(studentDao.getById("S12").getEnrolledCourseIds().isEmpty());
+    }
+
+    @Test
+    void drop_racingStudentWrite_isRetriedNotOverwritten() {
+        AtomicBoolean armed = new AtomicBoolean(false);
+        InMemoryStudentDao racingDao = new InMemoryStudentDao() {
+            @Override
+            public Student getByIdFresh(String id) {
+                Student s = super.getByIdFresh(id);
+                // another flow writes between the service's read and its save, once
+                if (armed.compareAndSet(true, false)) addWaitlistedCourse(id, "OTHER");
+                return s;
+            }
+        };
+        EnrollmentService service = new EnrollmentService(racingDao, courseDao, logDao);
+        courseDao.putCourse(new Course("CR", "Race", 2));
+        Student s = new Student("S13", "Lee", "lee@example.com", "hash");
+        s.getEnrolledCourseIds().add("CR");
+        racingDao.save(s);
+        assertTrue(courseDao.enrollStudentAtomic("CR", "S13", 2));
+
+        armed.set(true);
+        service.drop("S13", "CR");
+
+        Student after = racingDao.getById("S13");
+        assertFalse(after.getEnrolledCourseIds().contains("CR"));
+        assertEquals(List.of("OTHER"), after.getWaitlistedCourseIds());
+        assertEquals(3, after.getVersion());
+    }
+
+    @Test
+    void enroll_racingEnrollmentPastTheLimit_givesTheSeatBack() {
+        InMemoryStudentDao racingDao = new InMemoryStudentDao() {
+            @Override
+            public boolean addEnrolledCourse(String id, String courseId, int maxCourses) {
+                // the student's other tab enrolls in a fifth course after the service's read
+                addEnrolledCourse(id, "OTHER");
+                return super.addEnrolledCourse(id, courseId, maxCourses);
+            }
+        };
+        EnrollmentService service = new EnrollmentService(racingDao, courseDao, logDao);
+        courseDao.putCourse(new Course("CT", "Tabs", 2));
+        Student s = new Student("S14", "Max", "max@example.com", "hash");
+        for (int i = 0; i < 4; i++) s.getEnrolledCourseIds().add("CX" + i);
+        racingDao.save(s);
+
+        assertThrows(IllegalStateException.class, () -> service.enroll("S14", "CT"));
+
+        assertFalse(racingDao.getById("S14").getEnrolledCourseIds().contains("CT"));
+        assertEquals(5, racingDao.getById("S14").getEnrolledCourseIds().size());
+        assertEquals(0, courseDao.getById("CT").getCurrentEnrolledCount());
+        assertTrue(courseDao.roster("CT").isEmpty());
+    }
+
+    @Test
+    void promotion_candidateAtTheLimitOnFreshRead_isSkipped_andKeepsTheirPlace() {
+        AtomicBoolean armed = new AtomicBoolean(false);
+        InMemoryStudentDao racingDao = new InMemoryStudentDao() {
+            @Override
+            public Student getByIdFresh(String id) {
+                // S16 enrolls in a fifth course between the promotion's batch read and its update
+                if (id.equals("S16") && armed.compareAndSet(true, false)) addEnrolledCourse(id, "OTHER");
+                return super.getByIdFresh(id);
+            }
+        };
+        EnrollmentService service = new EnrollmentService(racingDao, courseDao, logDao);
+        courseDao.putCourse(new Course("CP", "Promote", 1));
+        racingDao.save(new Student("S15", "Nia", "nia@example.com", "hash"));
+        Student busy = new Student("S16", "Oli", "oli@example.com", "hash");
+        for (int i = 0; i < 4; i++) busy.getEnrolledCourseIds().add("CX" + i);
+        racingDao.save(busy);
+        racingDao.save(new Student("S17", "Pam", "pam@example.com", "hash"));
+
+        service.enroll("S15", "CP");
+        service.enroll("S16", "CP"); // waitlist
+        service.enroll("S17", "CP"); // waitlist
+        armed.set(true);
+        service.drop("S15", "CP");
+
+        assertTrue(racingDao.getById("S17").getEnrolledCourseIds().contains("CP"));
+        Student skipped = racingDao.getById("S16");
+        assertFalse(skipped.getEnrolledCourseIds().contains("CP"));
+        assertTrue(skipped.getWaitlistedCourseIds().contains("CP"));
+        assertEquals(1, courseDao.getById("CP").getCurrentEnrolledCount());
+        assertEquals(List.of("S17"), courseDao.roster("CP"));
+        assertEquals(List.of("S16"), courseDao.waitlistHead("CP", 10));
+    }
 }
@@ -0,0 +1,76 @@
+package com.atlas.tests;
+
+import com.atlas.model.IdempotencyRecord;
+import com.atlas.repository.CachingIdempotencyDao;
+import com.atlas.repository.DynamoDBClientUtil;
+import com.atlas.repository.DynamoIdempotencyDao;
+import com.atlas.repository.DynamoSchema;
+import com.atlas.testutil.MutableClock;
+import org.junit.jupiter.api.*;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * IdempotencyKeys table against DynamoDB Local.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class IdempotencyIntegrationTest {
+
+    private DynamoDbClient client;
+    private final MutableClock clock = new MutableClock(Instant.now());
+
+    @BeforeAll
+    void setup() {
+        try {
+            client = DynamoDBClientUtil.client();
+            client.listTables();
+        } catch (Exception e) {
+            client = null;
+        }
+        assumeTrue(client != null, "DynamoDB Local is not available; skipping integration tests");
+        DynamoSchema.ensureIdempotencyTable(client);
+    }
+
+    @Test
+    public void integration_claimIsExclusive_andOutcomeIsReplayedOnEveryNode() {
+        String key = "IK" + UUID.randomUUID();
+        CachingIdempotencyDao nodeA = new CachingIdempotencyDao(new DynamoIdempotencyDao(Duration.ofHours(1), Duration.ofSeconds(60), clock), 100);
+        CachingIdempotencyDao nodeB = new CachingIdempotencyDao(new DynamoIdempotencyDao(Duration.ofHours(1), Duration.ofSeconds(60), clock), 100);
+
+        assertNull(nodeA.claim(key, "ENROLL:C1"));
+        assertEquals(IdempotencyRecord.Status.PENDING, nodeB.claim(key, "ENROLL:C1").getStatus());
+
+        nodeA.complete(key, IdempotencyRecord.succeeded("ENROLL:C1"));
+        assertEquals(IdempotencyRecord.Status.SUCCEEDED, nodeB.claim(key, "ENROLL:C1").getStatus());
+        assertEquals(IdempotencyRecord.Status.SUCCEEDED, nodeA.claim(key, "ENROLL:C1").getStatus());
+        assertEquals(1, nodeA.getHits()); // the node that ran the request answers from its LRU
+    }
+
+    @Test
+    public void integration_releasedOrStalePendingClaim_canBeClaimedAgain() {
+        DynamoIdempotencyDao dao = new DynamoIdempotencyDao(Duration.ofHours(1), Duration.ofSeconds(60), clock);
+        String released = "IK" + UUID.randomUUID();
+        assertNull(dao.claim(released, "DROP:C1"));
+        dao.release(released);
+        assertNull(dao.claim(released, "DROP:C1"));
+
+        // a node that died mid-request leaves a PENDING claim that lapses after the pending TTL
+        String stale = "IK" + UUID.randomUUID();
+        assertNull(dao.claim(stale, "DROP:C2"));
+        clock.advance(Duration.ofSeconds(61));
+        assertNull(dao.claim(stale, "DROP:C2"));
+
+        // a completed outcome is not released
+        dao.complete(stale, IdempotencyRecord.failed("DROP:C2", "Cannot drop after end date"));
+        dao.release(stale);
+        IdempotencyRecord r = dao.claim(stale, "DROP:C2");
+        assertEquals(IdempotencyRecord.Status.FAILED, r.getStatus());
+        assertEquals("Cannot drop after end date", r.getMessage());
+    }
+}
@@ -0,0 +1,98 @@
+package com.atlas.tests;
+
+import com.atlas.exception.AlreadyEnrolledException;
+import com.atlas.exception.ServiceBusyException;
+import com.atlas.model.Course;
+import com.atlas.model.IdempotencyRecord;
+import com.atlas.model.Student;
+import com.atlas.service.EnrollmentService;
+import com.atlas.service.IdempotencyGuard;
+import com.atlas.testutil.InMemoryCourseDao;
+import com.atlas.testutil.InMemoryIdempotencyDao;
+import com.atlas.testutil.InMemoryLogDao;
+import com.atlas.testutil.InMemoryStudentDao;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Idempotency keys on enroll/drop: replays are answered from the recorded outcome.
+ */
+public class IdempotencyUnitTest {
+
+    private InMemoryStudentDao studentDao;
+    private InMemoryCourseDao courseDao;
+    private InMemoryLogDao logDao;
+    private InMemoryIdempotencyDao idempotencyDao;
+    private EnrollmentService enrollmentService;
+    private IdempotencyGuard guard;
+
+    @BeforeEach
+    void setup() {
+        studentDao = new InMemoryStudentDao();
+        courseDao = new InMemoryCourseDao();
+        logDao = new InMemoryLogDao();
+        idempotencyDao = new InMemoryIdempotencyDao();
+        enrollmentService = new EnrollmentService(studentDao, courseDao, logDao);
+        guard = new IdempotencyGuard(idempotencyDao);
+        courseDao.putCourse(new Course("IC1", "Idem", 3));
+        studentDao.save(new Student("IS1", "Ida", "ida@example.com", "hash"));
+    }
+
+    @Test
+    void replayedEnroll_returnsRecordedSuccess_withoutSecondWrite() {
+        guard.run("IS1", "k1", "ENROLL:IC1", () -> enrollmentService.enroll("IS1", "IC1"));
+        // without the key the double click would be AlreadyEnrolledException
+        guard.run("IS1", "k1", "ENROLL:IC1", () -> enrollmentService.enroll("IS1", "IC1"));
+
+        assertEquals(1, courseDao.getById("IC1").getCurrentEnrolledCount());
+        assertEquals(1, logDao.getLogs().size());
+        // a new key is a new request
+        assertThrows(AlreadyEnrolledException.class,
+                () -> guard.run("IS1", "k2", "ENROLL:IC1", () -> enrollmentService.enroll("IS1", "IC1")));
+        assertThrows(IllegalStateException.class,
+                () -> guard.run("IS1", "k2", "ENROLL:IC1", () -> enrollmentService.enroll("IS1", "IC1")));
+    }
+
+    @Test
+    void keyReusedForAnotherRequest_isRejected_andKeysAreScopedPerStudent() {
+        guard.run("IS1", "k1", "ENROLL:IC1", () -> enrollmentService.enroll("IS1", "IC1"));
+        assertThrows(IllegalArgumentException.class, () -> guard.run("IS1", "k1", "DROP:IC1", () -> enrollmentService.drop("IS1", "IC1")));
+
+        studentDao.save(new Student("IS2", "Ivo", "ivo@example.com", "hash"));
+        guard.run("IS2", "k1", "ENROLL:IC1", () -> enrollmentService.enroll("IS2", "IC1"));
+        assertEquals(2, courseDao.getById("IC1").getCurrentEnrolledCount());
+    }
+
+    @Test
+    void transientFailure_releasesKey_andInFlightDuplicateIsBusy() {
+        AtomicInteger runs = new AtomicInteger();
+        assertThrows(IllegalStateException.class, () -> guard.run("IS1", "k3", "ENROLL:IC1", () -> {
+            runs.incrementAndGet();
+            throw new IllegalStateException("Enrollment is busy, please try again");
+        }));
+        guard.run("IS1", "k3", "ENROLL:IC1", runs::incrementAndGet);
+        assertEquals(2, runs.get());
+
+        guard.run("IS1", "k4", "DROP:IC1", () ->
+                assertThrows(ServiceBusyException.class, () -> guard.run("IS1", "k4", "DROP:IC1", runs::incrementAndGet)));
+        assertEquals(2, runs.get());
+    }
+
+    @Test
+    void failureToRecordSuccess_doesNotFailTheRequest() {
+        IdempotencyGuard flaky = new IdempotencyGuard(new InMemoryIdempotencyDao() {
+            @Override
+            public void complete(String key, IdempotencyRecord outcome) {
+                throw new IllegalStateException("throttled");
+            }
+        });
+        flaky.run("IS1", "k5", "ENROLL:IC1", () -> enrollmentService.enroll("IS1", "IC1"));
+
+        assertTrue(studentDao.getById("IS1").getEnrolledCourseIds().contains("IC1"));
+        assertEquals(1, courseDao.getById("IC1").getCurrentEnrolledCount());
+    }
+}
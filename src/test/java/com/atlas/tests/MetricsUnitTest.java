@@ -0,0 +1,99 @@
+package com.atlas.tests;
+
+import com.atlas.exception.AlreadyEnrolledException;
+import com.atlas.model.Course;
+import com.atlas.model.Student;
+import com.atlas.repository.MeteredCourseDao;
+import com.atlas.repository.MeteredStudentDao;
+import com.atlas.service.EnrollmentService;
+import com.atlas.testutil.InMemoryCourseDao;
+import com.atlas.testutil.InMemoryLogDao;
+import com.atlas.testutil.InMemoryStudentDao;
+import com.atlas.util.Metrics;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Prometheus exposition of the registry, DAO timers and enrollment outcome counters.
+ * The registry is process-wide, so assertions compare before/after values.
+ */
+public class MetricsUnitTest {
+
+    @Test
+    void scrape_writesCountersGaugesAndCumulativeHistograms() {
+        Metrics.counter("test_requests_total", "Requests", "path", "/a\"b").add(3);
+        Metrics.gauge("test_queue_depth", "Queue", () -> 7);
+        Metrics.Histogram h = Metrics.histogram("test_latency_seconds", "Latency", "op", "x");
+        h.observe(0.002);
+        h.observe(0.3);
+        h.observe(60);
+
+        String text = Metrics.scrape();
+        assertTrue(text.contains("# TYPE test_requests_total counter\n"));
+        assertTrue(text.contains("test_requests_total{path=\"/a\\\"b\"} 3\n"));
+        assertTrue(text.contains("test_queue_depth 7\n"));
+        assertTrue(text.contains("# TYPE test_latency_seconds histogram\n"));
+        assertTrue(text.contains("test_latency_seconds_bucket{op=\"x\",le=\"0.001\"} 0\n"));
+        assertTrue(text.contains("test_latency_seconds_bucket{op=\"x\",le=\"0.0025\"} 1\n"));
+        assertTrue(text.contains("test_latency_seconds_bucket{op=\"x\",le=\"10.0\"} 2\n"));
+        assertTrue(text.contains("test_latency_seconds_bucket{op=\"x\",le=\"+Inf\"} 3\n"));
+        assertTrue(text.contains("test_latency_seconds_count{op=\"x\"} 3\n"));
+        assertThrows(IllegalArgumentException.class, () -> Metrics.gauge("test_requests_total", "Requests", () -> 1));
+    }
+
+    @Test
+    void meteredDaos_timeEveryCall_andDelegateDefaults() {
+        InMemoryStudentDao students = new InMemoryStudentDao();
+        MeteredStudentDao metered = new MeteredStudentDao(students);
+        Metrics.Histogram getById = Metrics.histogram("atlas_dao_seconds", "DAO call latency in seconds", "dao", "student", "method", "getById");
+        Metrics.Histogram append = Metrics.histogram("atlas_dao_seconds", "DAO call latency in seconds", "dao", "student", "method", "addEnrolledCourse");
+        long gets = getById.getCount();
+        long appends = append.getCount();
+
+        metered.save(new Student("M1", "M", "m1@example.com", "hash"));
+        metered.addEnrolledCourse("M1", "C1");
+        assertEquals(List.of("C1"), metered.getById("M1").getEnrolledCourseIds());
+        assertEquals(gets + 1, getById.getCount());
+        assertEquals(appends + 1, append.getCount());
+
+        InMemoryCourseDao store = new InMemoryCourseDao();
+        store.putCourse(new Course("MC1", "Metered", 5));
+        MeteredCourseDao courses = new MeteredCourseDao(store);
+        Metrics.Counter errors = Metrics.counter("atlas_dao_errors_total", "DAO calls that threw", "dao", "course", "method", "enrollStudentAtomic");
+        double failed = errors.get();
+        assertTrue(courses.enrollStudentAtomic("MC1", "M1", 5));
+        assertThrows(AlreadyEnrolledException.class, () -> courses.enrollStudentAtomic("MC1", "M1", 5));
+        assertEquals(failed + 1, errors.get());
+    }
+
+    @Test
+    void enroll_countsOutcomes() {
+        InMemoryStudentDao students = new InMemoryStudentDao();
+        InMemoryCourseDao courses = new InMemoryCourseDao();
+        courses.putCourse(new Course("OUT1", "Outcomes", 1));
+        students.save(new Student("O1", "O", "o1@example.com", "hash"));
+        students.save(new Student("O2", "O", "o2@example.com", "hash"));
+        EnrollmentService service = new EnrollmentService(students, courses, new InMemoryLogDao());
+        double enrolled = outcome("enrolled");
+        double full = outcome("full");
+        double waitlisted = outcome("waitlisted");
+        double already = outcome("already_enrolled");
+
+        service.enroll("O1", "OUT1");
+        service.enroll("O2", "OUT1");
+        assertThrows(RuntimeException.class, () -> service.enroll("O1", "OUT1"));
+
+        assertEquals(enrolled + 1, outcome("enrolled"));
+        assertEquals(full + 1, outcome("full"));
+        assertEquals(waitlisted + 1, outcome("waitlisted"));
+        assertEquals(already + 1, outcome("already_enrolled"));
+        assertTrue(Metrics.scrape().contains("atlas_service_seconds_count{method=\"EnrollmentService.enroll\"}"));
+    }
+
+    private static double outcome(String outcome) {
+        return Metrics.counter("atlas_enrollment_outcomes_total", "", "outcome", outcome).get();
+    }
+}
@@ -0,0 +1,87 @@
+package com.atlas.tests;
+
+import com.atlas.exception.ServiceBusyException;
+import com.atlas.service.PasswordHasher;
+import com.atlas.service.StudentService;
+import com.atlas.testutil.InMemoryLogDao;
+import com.atlas.testutil.InMemoryStudentDao;
+import com.atlas.util.Metrics;
+import org.junit.jupiter.api.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * PasswordHasher: rehash on login after a cost change, and fast rejection when the pool is full.
+ */
+public class PasswordHasherUnitTest {
+
+    @Test
+    void login_rehashesWhenConfiguredCostChanged() {
+        InMemoryStudentDao studentDao = new InMemoryStudentDao();
+        InMemoryLogDao logDao = new InMemoryLogDao();
+        try (PasswordHasher cost4 = new PasswordHasher(4, 1, 4);
+             PasswordHasher cost5 = new PasswordHasher(5, 1, 4)) {
+            new StudentService(studentDao, logDao, cost4).register("PH1", "Pat", "pat@example.com", "PatPwd1");
+            assertTrue(studentDao.getById("PH1").getPasswordHash().startsWith("$2a$04$"));
+
+            StudentService upgraded = new StudentService(studentDao, logDao, cost5);
+            assertNotNull(upgraded.login("pat@example.com", "PatPwd1"));
+            String rehashed = studentDao.getById("PH1").getPasswordHash();
+            assertTrue(rehashed.startsWith("$2a$05$"));
+            assertFalse(cost5.needsRehash(rehashed));
+
+            // the new hash still verifies
+            assertNotNull(upgraded.login("pat@example.com", "PatPwd1"));
+            assertEquals(1, cost5.getHashes());
+        }
+    }
+
+    @Test
+    void fullQueue_rejectsImmediately() throws Exception {
+        try (PasswordHasher hasher = new PasswordHasher(13, 1, 1)) {
+            CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> hasher.hash("Secret1"));
+            waitUntil(() -> hasher.getActive() == 1);
+            CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> hasher.hash("Secret2"));
+            waitUntil(() -> hasher.getQueueDepth() == 1);
+
+            long t0 = System.nanoTime();
+            assertThrows(ServiceBusyException.class, () -> hasher.hash("Secret3"));
+            assertTrue(System.nanoTime() - t0 < 50_000_000L, "rejection should not wait for the pool");
+            assertEquals(1, hasher.getRejected());
+
+            running.get();
+            queued.get();
+            assertTrue(hasher.getQueueWaitNanosMax() > 0);
+            assertEquals(2, hasher.getHashes());
+        }
+    }
+
+    private static void waitUntil(BooleanSupplier cond) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!cond.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) fail("condition not reached");
+            Thread.sleep(1);
+        }
+    }
+
+    @Test
+    void hashAndVerify_areRecordedInLatencyHistograms() {
+        try (PasswordHasher hasher = new PasswordHasher(4, 1, 4)) {
+            long hashes = hashCount("hash");
+            long verifies = hashCount("verify");
+            String h = hasher.hash("Secret1");
+            assertTrue(hasher.verify("Secret1", h));
+
+            assertEquals(hashes + 1, hashCount("hash"));
+            assertEquals(verifies + 1, hashCount("verify"));
+            assertTrue(Metrics.scrape().contains("atlas_password_hasher_queue_wait_seconds_count "));
+        }
+    }
+
+    private static long hashCount(String op) {
+        return Metrics.histogram("atlas_password_hasher_seconds", "", "op", op).getCount();
+    }
+}
@@ -0,0 +1,92 @@
+package com.atlas.tests;
+
+import com.atlas.model.Course;
+import com.atlas.model.Student;
+import com.atlas.repository.MeteredCourseDao;
+import com.atlas.repository.MeteredLogDao;
+import com.atlas.repository.MeteredStudentDao;
+import com.atlas.service.EnrollmentService;
+import com.atlas.testutil.InMemoryCourseDao;
+import com.atlas.testutil.InMemoryLogDao;
+import com.atlas.testutil.InMemoryStudentDao;
+import com.atlas.util.RequestTrace;
+import com.atlas.util.RequestTrace.Kind;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Call budgets of the enrollment flows, checked on the DAO calls a RequestTrace records.
+ * A budget that starts failing usually means a loop now reads per item (N+1).
+ */
+public class RequestTraceUnitTest {
+
+    @Test
+    void drop_withLongWaitlist_readsCandidatesInOneBatch() {
+        InMemoryStudentDao studentStore = new InMemoryStudentDao();
+        InMemoryCourseDao courseStore = new InMemoryCourseDao();
+        courseStore.putCourse(new Course("T1", "Traced", 1));
+        studentStore.save(new Student("D1", "D", "d1@example.com", "hash"));
+        EnrollmentService service = new EnrollmentService(new MeteredStudentDao(studentStore),
+                new MeteredCourseDao(courseStore), new MeteredLogDao(new InMemoryLogDao()));
+        service.enroll("D1", "T1");
+        // 30 waiting students who have since taken 5 seats elsewhere, so none of them can be promoted
+        for (int i = 0; i < 30; i++) {
+            studentStore.save(new Student("W" + i, "W", "w" + i + "@example.com", "hash"));
+            service.enroll("W" + i, "T1");
+            for (int c = 0; c < 5; c++) studentStore.addEnrolledCourse("W" + i, "X" + c);
+        }
+
+        RequestTrace trace = RequestTrace.begin("drop");
+        service.drop("D1", "T1");
+        RequestTrace.end();
+
+        assertEquals(1, trace.count(Kind.DAO, "student.getByIds"));
+        assertEquals(1, trace.count(Kind.DAO, "course.waitlistHead"));
+        assertEquals(0, trace.count(Kind.DAO, "course.enrollStudentAtomic"));
+        assertTrue(trace.getDaoCalls() <= 10, "drop made " + trace.getDaoCalls() + " DAO calls");
+        assertEquals(0, trace.getDynamoCalls());
+    }
+
+    @Test
+    void enroll_staysWithinCallBudget_andEndClearsTheTrace() {
+        InMemoryStudentDao studentStore = new InMemoryStudentDao();
+        InMemoryCourseDao courseStore = new InMemoryCourseDao();
+        courseStore.putCourse(new Course("T2", "Traced", 5));
+        studentStore.save(new Student("E1", "E", "e1@example.com", "hash"));
+        EnrollmentService service = new EnrollmentService(new MeteredStudentDao(studentStore),
+                new MeteredCourseDao(courseStore), new MeteredLogDao(new InMemoryLogDao()));
+
+        RequestTrace trace = RequestTrace.begin("enroll");
+        service.enroll("E1", "T2");
+        assertSame(trace, RequestTrace.end());
+
+        assertNull(RequestTrace.current());
+        assertEquals(List.of("student.getById", "course.getById", "course.enrollStudentAtomic",
+                        "student.addEnrolledCourse", "log.append"),
+                trace.getCalls().stream().map(RequestTrace.Call::getOperation).toList());
+    }
+
+    @Test
+    void overBudgetTrace_isWrittenToTheSlowLog() throws Exception {
+        List<String> log = new ArrayList<>();
+        RequestTrace.logTo(log::add);
+        try {
+            RequestTrace.trace("fast", () -> RequestTrace.recordDao("course.getById", System.nanoTime(), 1000, null));
+            assertTrue(log.isEmpty());
+
+            RequestTrace.begin("slow").budget(1, 0);
+            RequestTrace.recordDao("course.getById", System.nanoTime(), 1000, "CourseNotFoundException");
+            Thread.sleep(5);
+            RequestTrace.end();
+        } finally {
+            RequestTrace.logTo(System.err::println);
+        }
+        assertEquals(1, log.size());
+        assertTrue(log.get(0).startsWith("SLOW REQUEST slow "));
+        assertTrue(log.get(0).contains("dao course.getById error=CourseNotFoundException"));
+    }
+}
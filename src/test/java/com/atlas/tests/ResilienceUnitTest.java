@@ -0,0 +1,183 @@
+package com.atlas.tests;
+
+import com.atlas.exception.CircuitOpenException;
+import com.atlas.exception.ServiceBusyException;
+import com.atlas.model.Course;
+import com.atlas.repository.CachingCourseDao;
+import com.atlas.repository.DynamoCourseDao;
+import com.atlas.repository.DynamoRetryPolicy;
+import com.atlas.repository.DynamoRetryPolicy.OperationClass;
+import com.atlas.repository.ResilientDynamoDbClient;
+import com.atlas.testutil.FaultyDynamoDbClient;
+import com.atlas.util.AdaptiveRateLimiter;
+import com.atlas.util.CircuitBreaker;
+import com.atlas.util.TtlCache;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.core.exception.SdkServiceException;
+import software.amazon.awssdk.services.dynamodb.model.*;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Retries, adaptive rate limiting and circuit breaking of ResilientDynamoDbClient, driven by a
+ * fault-throwing client and a fake clock (retry delays are 0 ms).
+ */
+public class ResilienceUnitTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final FaultyDynamoDbClient faulty = new FaultyDynamoDbClient();
+
+    private ResilientDynamoDbClient client(int reads, int writes, int batchWrites, AdaptiveRateLimiter limiter, int breakerFailures) {
+        Map<OperationClass, DynamoRetryPolicy> policies = Map.of(
+                OperationClass.READ, new DynamoRetryPolicy(reads, 0, 0),
+                OperationClass.WRITE, new DynamoRetryPolicy(writes, 0, 0),
+                OperationClass.BATCH_WRITE, new DynamoRetryPolicy(batchWrites, 0, 0));
+        return new ResilientDynamoDbClient(faulty, policies, limiter, 0, breakerFailures, Duration.ofSeconds(5), now::get);
+    }
+
+    private static GetItemRequest get(String table, String id) {
+        return GetItemRequest.builder().tableName(table).key(Map.of("id", AttributeValue.builder().s(id).build())).build();
+    }
+
+    private static PutItemRequest put(String table, String id) {
+        return PutItemRequest.builder().tableName(table).item(Map.of("id", AttributeValue.builder().s(id).build())).build();
+    }
+
+    @Test
+    void retries_followThePolicyOfEachOperationClass() {
+        ResilientDynamoDbClient client = client(4, 2, 5, null, 100);
+
+        faulty.failNext(3, FaultyDynamoDbClient::throttle);
+        client.getItem(get("Students", "S1"));
+        assertEquals(4, faulty.getCalls());
+
+        faulty.failNext(5, FaultyDynamoDbClient::serverError);
+        assertThrows(SdkServiceException.class, () -> client.putItem(put("Students", "S1")));
+        assertEquals(6, faulty.getCalls()); // 2 write attempts
+        faulty.heal();
+
+        faulty.failNext(4, FaultyDynamoDbClient::throttle);
+        client.batchWriteItem(BatchWriteItemRequest.builder().requestItems(Map.of("StudentLogs",
+                List.of(WriteRequest.builder().putRequest(PutRequest.builder().item(Map.of()).build()).build()))).build());
+        assertEquals(11, faulty.getCalls());
+    }
+
+    @Test
+    void failedCondition_isNotRetried_andDoesNotTripTheBreaker() {
+        ResilientDynamoDbClient client = client(4, 3, 6, null, 2);
+        faulty.failAlways(FaultyDynamoDbClient::conditionFailed);
+
+        for (int i = 0; i < 3; i++) {
+            assertThrows(ConditionalCheckFailedException.class, () -> client.putItem(put("Courses", "C1")));
+        }
+        assertEquals(3, faulty.getCalls());
+        assertEquals(CircuitBreaker.State.CLOSED, client.breaker("Courses").getState());
+    }
+
+    @Test
+    void breaker_failsFastWhileOpen_andClosesAfterASuccessfulTrial() {
+        ResilientDynamoDbClient client = client(1, 1, 1, null, 2);
+        faulty.failAlways(FaultyDynamoDbClient::serverError);
+
+        assertThrows(SdkServiceException.class, () -> client.getItem(get("Courses", "C1")));
+        assertThrows(SdkServiceException.class, () -> client.getItem(get("Courses", "C1")));
+        assertEquals(CircuitBreaker.State.OPEN, client.breaker("Courses").getState());
+        assertThrows(CircuitOpenException.class, () -> client.getItem(get("Courses", "C1")));
+        assertEquals(2, faulty.getCalls());
+
+        // other tables keep their own breaker
+        faulty.heal();
+        client.getItem(get("Students", "S1"));
+        assertThrows(CircuitOpenException.class, () -> client.getItem(get("Courses", "C1")));
+
+        // after openFor one trial goes through; a failure reopens, a success closes
+        now.addAndGet(Duration.ofSeconds(5).toNanos());
+        faulty.failNext(1, FaultyDynamoDbClient::serverError);
+        assertThrows(SdkServiceException.class, () -> client.getItem(get("Courses", "C1")));
+        assertEquals(CircuitBreaker.State.OPEN, client.breaker("Courses").getState());
+
+        now.addAndGet(Duration.ofSeconds(5).toNanos());
+        client.getItem(get("Courses", "C1"));
+        assertEquals(CircuitBreaker.State.CLOSED, client.breaker("Courses").getState());
+        assertEquals(2, client.breaker("Courses").getRejected());
+        assertEquals(2, client.breaker("Courses").getOpened());
+    }
+
+    @Test
+    void limiter_halvesOnThrottle_andRecoversUntilItSwitchesOff() {
+        AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(2, 100, 10, now::get);
+        for (int i = 0; i < 40; i++) assertTrue(limiter.tryAcquire());
+        assertEquals(Double.POSITIVE_INFINITY, limiter.getRate());
+
+        limiter.onThrottle();
+        assertEquals(20, limiter.getRate(), 1e-9); // half of the 40/s just sent
+        assertFalse(limiter.tryAcquire());
+
+        now.addAndGet(Duration.ofMillis(100).toNanos()); // rate 21/s, 2.1 tokens
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+
+        limiter.onThrottle();
+        assertEquals(10.5, limiter.getRate(), 1e-9);
+
+        now.addAndGet(Duration.ofSeconds(10).toNanos());
+        assertEquals(Double.POSITIVE_INFINITY, limiter.getRate());
+        assertEquals(2, limiter.getThrottles());
+    }
+
+    @Test
+    void throttles_slowTheWholeClientDown_andBusyWhenNoPermitInTime() {
+        AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(1, 1000, 10, now::get);
+        ResilientDynamoDbClient client = client(4, 3, 6, limiter, 100);
+
+        faulty.failNext(1, FaultyDynamoDbClient::throttle);
+        // the retry needs a token, none comes within maxWaitMs (0 here): the caller gets a 503
+        assertThrows(ServiceBusyException.class, () -> client.getItem(get("Students", "S1")));
+        assertEquals(1, faulty.getCalls());
+        assertEquals(1, limiter.getThrottles());
+        assertTrue(limiter.getRate() < 1000);
+
+        now.addAndGet(Duration.ofSeconds(1).toNanos());
+        client.getItem(get("Students", "S2"));
+        assertEquals(2, faulty.getCalls());
+    }
+
+    @Test
+    void openCircuit_servesStaleCatalogEntries() {
+        faulty.storeItem("Courses", Map.of(
+                "courseId", AttributeValue.builder().s("C1").build(),
+                "courseName", AttributeValue.builder().s("Cached").build(),
+                "maxSeats", AttributeValue.builder().n("3").build(),
+                "currentEnrolledCount", AttributeValue.builder().n("1").build(),
+                "startDate", AttributeValue.builder().s("2025-01-01").build(),
+                "endDate", AttributeValue.builder().s("2025-06-01").build(),
+                "latestEnrollmentBy", AttributeValue.builder().s("2025-01-15").build()), "courseId");
+        ResilientDynamoDbClient client = client(1, 1, 1, null, 1);
+        Duration ttl = Duration.ofSeconds(5);
+        CachingCourseDao courses = new CachingCourseDao(new DynamoCourseDao(client),
+                new TtlCache<>(10, ttl, now::get), new TtlCache<>(1, ttl, now::get));
+
+        assertEquals("Cached", courses.getById("C1").getCourseName());
+        now.addAndGet(ttl.toNanos());
+        faulty.failAlways(FaultyDynamoDbClient::serverError);
+        assertThrows(SdkServiceException.class, () -> courses.getById("C1")); // opens the circuit
+
+        int calls = faulty.getCalls();
+        Course stale = courses.getById("C1");
+        assertEquals("Cached", stale.getCourseName());
+        assertEquals(1, courses.getByIds(List.of("C1")).size());
+        assertEquals(2, courses.getStaleServed());
+        assertEquals(calls, faulty.getCalls());
+
+        // nothing cached to fall back on, or the caller asked for the current state
+        assertThrows(CircuitOpenException.class, () -> courses.getById("C2"));
+        assertThrows(CircuitOpenException.class, courses::listAll);
+        assertThrows(CircuitOpenException.class, () -> courses.getByIdFresh("C1"));
+    }
+}
@@ -0,0 +1,81 @@
+package com.atlas.tests;
+
+import com.atlas.repository.CachingSessionDao;
+import com.atlas.repository.DynamoDBClientUtil;
+import com.atlas.repository.DynamoSchema;
+import com.atlas.repository.DynamoSessionDao;
+import com.atlas.testutil.MutableClock;
+import org.junit.jupiter.api.*;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * DynamoDB-backed sessions (SESSION_BACKEND=dynamo) against DynamoDB Local.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class SessionDaoIntegrationTest {
+
+    private DynamoDbClient client;
+    private final MutableClock clock = new MutableClock(Instant.now());
+
+    @BeforeAll
+    void setup() {
+        try {
+            client = DynamoDBClientUtil.client();
+            client.listTables();
+        } catch (Exception e) {
+            client = null;
+        }
+        assumeTrue(client != null, "DynamoDB Local is not available; skipping integration tests");
+        DynamoSchema.ensureSessionsTable(client);
+    }
+
+    @Test
+    public void integration_sessionCreatedOnOneNode_isValidOnAnother_untilLogout() {
+        DynamoSessionDao shared = new DynamoSessionDao(Duration.ofMinutes(30), false, clock);
+        CachingSessionDao nodeA = new CachingSessionDao(shared, Duration.ofSeconds(5), 100);
+        CachingSessionDao nodeB = new CachingSessionDao(new DynamoSessionDao(Duration.ofMinutes(30), false, clock), Duration.ofSeconds(5), 100);
+
+        String token = nodeA.create("SESS1");
+        assertEquals("SESS1", nodeB.validateAndGetStudentId(token));
+        assertEquals("SESS1", nodeB.validateAndGetStudentId(token));
+        assertEquals(1, nodeB.getHits()); // second lookup served by B's near cache
+
+        nodeB.invalidate(token);
+        assertNull(nodeB.validateAndGetStudentId(token));
+        // a node without a cached entry sees the logout immediately
+        assertNull(new CachingSessionDao(shared, Duration.ofSeconds(5), 100).validateAndGetStudentId(token));
+    }
+
+    @Test
+    public void integration_expiredSession_isRejectedBeforeDynamoTtlDeletesIt() {
+        DynamoSessionDao dao = new DynamoSessionDao(Duration.ofMinutes(30), false, clock);
+        String token = dao.create("SESS2");
+        clock.advance(Duration.ofMinutes(31));
+
+        assertNull(dao.validateAndGetStudentId(token));
+        Map<String, AttributeValue> item = client.getItem(GetItemRequest.builder().tableName("Sessions")
+                .key(Map.of("token", AttributeValue.builder().s(token).build())).build()).item();
+        assertTrue(item.containsKey("expiresAt"));
+    }
+
+    @Test
+    public void integration_slidingSession_isRenewedInTheTable() {
+        DynamoSessionDao dao = new DynamoSessionDao(Duration.ofMinutes(30), true, clock);
+        String token = dao.create("SESS3");
+        for (int i = 0; i < 3; i++) {
+            clock.advance(Duration.ofMinutes(20));
+            assertEquals("SESS3", dao.validateAndGetStudentId(token));
+        }
+        dao.invalidate(token);
+        assertNull(dao.validateAndGetStudentId(token));
+    }
+}
@@ -0,0 +1,68 @@
+package com.atlas.tests;
+
+import com.atlas.service.InMemorySessionStore;
+import com.atlas.testutil.MutableClock;
+import org.junit.jupiter.api.*;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * InMemorySessionStore: sweep of abandoned sessions, max size eviction, sliding TTL.
+ */
+public class SessionStoreUnitTest {
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2025-01-01T00:00:00Z"));
+
+    @Test
+    void sweep_removesAbandonedSessions() {
+        try (InMemorySessionStore store = new InMemorySessionStore(Duration.ofMinutes(30), 100, false, null, clock)) {
+            String kept = store.create("S1");
+            store.create("S2"); // never presented again
+            clock.advance(Duration.ofMinutes(20));
+            String fresh = store.create("S3");
+            clock.advance(Duration.ofMinutes(15));
+
+            store.sweep();
+            assertEquals(1, store.getLiveCount());
+            assertEquals(2, store.getExpired());
+            assertNull(store.validateAndGetStudentId(kept));
+            assertEquals("S3", store.validateAndGetStudentId(fresh));
+        }
+    }
+
+    @Test
+    void create_beyondMax_evictsOldest() {
+        try (InMemorySessionStore store = new InMemorySessionStore(Duration.ofMinutes(30), 2, false, null, clock)) {
+            String first = store.create("S1");
+            String second = store.create("S2");
+            store.invalidate(second);
+            String third = store.create("S3");
+            String fourth = store.create("S4");
+
+            assertEquals(2, store.getLiveCount());
+            assertEquals(1, store.getEvicted());
+            assertNull(store.validateAndGetStudentId(first));
+            assertEquals("S3", store.validateAndGetStudentId(third));
+            assertEquals("S4", store.validateAndGetStudentId(fourth));
+        }
+    }
+
+    @Test
+    void slidingTtl_renewsOnUse() {
+        try (InMemorySessionStore store = new InMemorySessionStore(Duration.ofMinutes(30), 100, true, null, clock)) {
+            String token = store.create("S1");
+            for (int i = 0; i < 4; i++) {
+                clock.advance(Duration.ofMinutes(20));
+                assertEquals("S1", store.validateAndGetStudentId(token));
+            }
+            assertTrue(store.getRenewed() >= 2);
+
+            clock.advance(Duration.ofMinutes(31));
+            assertNull(store.validateAndGetStudentId(token));
+            assertEquals(0, store.getLiveCount());
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.atlas.tests;
+
+import com.atlas.service.SignedTokenSessionStore;
+import com.atlas.testutil.MutableClock;
+import org.junit.jupiter.api.*;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SignedTokenSessionStore (SESSION_BACKEND=signed): signature, expiry, key rotation and logout.
+ */
+public class SignedTokenSessionUnitTest {
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2025-01-01T00:00:00Z"));
+    private final byte[] oldKey = key('a');
+    private final byte[] newKey = key('b');
+
+    @Test
+    void token_validatesUntilExpiry_andRejectsTampering() {
+        SignedTokenSessionStore store = store(ring("k1", oldKey));
+        String token = store.create("S:1"); // ids may contain the separator
+        assertEquals("S:1", store.validateAndGetStudentId(token));
+
+        // swap the student id in the payload, keep the signature
+        String payload = new String(Base64.getUrlDecoder().decode(token.substring(0, token.indexOf('.'))), StandardCharsets.UTF_8);
+        String forgedPayload = payload.replace(":S:1", ":S2");
+        String forged = Base64.getUrlEncoder().withoutPadding().encodeToString(forgedPayload.getBytes(StandardCharsets.UTF_8))
+                + token.substring(token.indexOf('.'));
+        assertNull(store.validateAndGetStudentId(forged));
+        assertNull(store.validateAndGetStudentId("not-a-token"));
+
+        clock.advance(Duration.ofMinutes(31));
+        assertNull(store.validateAndGetStudentId(token));
+    }
+
+    @Test
+    void keyRotation_acceptsOldKeyWhileInRing() {
+        String oldToken = store(ring("k1", oldKey)).create("S1");
+
+        SignedTokenSessionStore rotated = store(ring("k2", newKey, "k1", oldKey));
+        assertEquals("k2", rotated.getSigningKeyId());
+        assertEquals("S1", rotated.validateAndGetStudentId(oldToken));
+        String newToken = rotated.create("S1");
+
+        SignedTokenSessionStore retired = store(ring("k2", newKey));
+        assertNull(retired.validateAndGetStudentId(oldToken));
+        assertEquals("S1", retired.validateAndGetStudentId(newToken));
+    }
+
+    @Test
+    void logout_revokesOnlyThatToken_untilItWouldExpire() {
+        SignedTokenSessionStore store = store(ring("k1", oldKey));
+        String loggedOut = store.create("S1");
+        String otherDevice = store.create("S1");
+
+        store.invalidate(loggedOut);
+        assertNull(store.validateAndGetStudentId(loggedOut));
+        assertEquals("S1", store.validateAndGetStudentId(otherDevice));
+        assertEquals(1, store.getRevokedCount());
+
+        clock.advance(Duration.ofMinutes(31));
+        store.invalidate(store.create("S2"));
+        assertEquals(1, store.getRevokedCount()); // the expired revocation was pruned
+    }
+
+    private SignedTokenSessionStore store(LinkedHashMap<String, byte[]> ring) {
+        return new SignedTokenSessionStore(ring, Duration.ofMinutes(30), clock);
+    }
+
+    private static LinkedHashMap<String, byte[]> ring(Object... idsAndKeys) {
+        LinkedHashMap<String, byte[]> ring = new LinkedHashMap<>();
+        for (int i = 0; i < idsAndKeys.length; i += 2) ring.put((String) idsAndKeys[i], (byte[]) idsAndKeys[i + 1]);
+        return ring;
+    }
+
+    private static byte[] key(char fill) {
+        byte[] k = new byte[32];
+        Arrays.fill(k, (byte) fill);
+        return k;
+    }
+}
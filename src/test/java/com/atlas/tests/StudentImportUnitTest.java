@@ -0,0 +1,111 @@
+package com.atlas.tests;
+
+import com.atlas.model.Student;
+import com.atlas.service.PasswordHasher;
+import com.atlas.service.StudentImportService;
+import com.atlas.service.StudentService;
+import com.atlas.testutil.InMemoryLogDao;
+import com.atlas.testutil.InMemoryStudentDao;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Bulk onboarding: validation, de-duplication in the file and against the store, chunked writes, progress.
+ */
+public class StudentImportUnitTest {
+
+    @Test
+    void importCsv_writesValidRows_andReportsTheRest() {
+        InMemoryStudentDao studentDao = new InMemoryStudentDao();
+        InMemoryLogDao logDao = new InMemoryLogDao();
+        try (PasswordHasher hasher = new PasswordHasher(4, 2, 16)) {
+            new StudentService(studentDao, logDao, hasher).register("OLD1", "Old", "old@example.com", "OldPwd1");
+            logDao.clear();
+
+            String csv = "studentId,name,email,password\n"
+                    + "N1,Ann,ann@example.com,Secret1\n"
+                    + "N2,Bob,bad-email,Secret2\n"
+                    + "N3,Cy,cy@example.com,short\n"
+                    + "N1,Ann Again,ann2@example.com,Secret1\n"     // id repeated in the file
+                    + "N4,Dee,ANN@example.com,Secret4\n"            // email repeated in the file
+                    + "OLD1,Old,other@example.com,Secret5\n"        // id already stored
+                    + "N5,Eve,old@example.com,Secret6\n"            // email already stored
+                    + "N6,Fay,fay@example.com,pa,ss,word\n";        // password keeps its commas
+            StudentImportService importer = new StudentImportService(studentDao, logDao, hasher, 2, 2);
+            StudentImportService.Report report = importer.importCsv(new StringReader(csv), null);
+
+            assertEquals(8, report.getRead());
+            assertEquals(2, report.getImported());
+            assertEquals(2, report.getInvalid());
+            assertEquals(4, report.getDuplicates());
+            assertEquals(0, report.getFailed());
+            assertEquals(6, report.getProblems().size());
+
+            Student fay = studentDao.getById("N6");
+            assertEquals(1, fay.getVersion());
+            assertTrue(hasher.verify("pa,ss,word", fay.getPasswordHash()));
+            assertEquals("ann@example.com", studentDao.getById("N1").getEmail());
+            assertEquals("Old", studentDao.getById("OLD1").getName());
+            assertNull(studentDao.getById("N5"));
+            assertEquals(2, logDao.getLogs().size());
+
+            // imported students can log in like registered ones
+            assertNotNull(new StudentService(studentDao, logDao, hasher).login("ann@example.com", "Secret1"));
+        }
+    }
+
+    @Test
+    void importCsv_reportsProgress_andFailsOnlyTheChunkThatCouldNotBeWritten() {
+        InMemoryStudentDao studentDao = new InMemoryStudentDao() {
+            @Override
+            public Set<String> saveAllNew(List<Student> students) {
+                if (students.stream().anyMatch(s -> s.getId().equals("P1500"))) throw new IllegalStateException("throttled");
+                return super.saveAllNew(students);
+            }
+        };
+        StringBuilder csv = new StringBuilder();
+        for (int i = 0; i < 2500; i++) csv.append("P").append(i).append(",P").append(i).append(",p").append(i).append("@example.com,Secret1\n");
+
+        List<Long> progress = new ArrayList<>();
+        try (PasswordHasher hasher = new PasswordHasher(4, 4, 64)) {
+            StudentImportService importer = new StudentImportService(studentDao, new InMemoryLogDao(), hasher, 4, 25);
+            StudentImportService.Report report = importer.importCsv(new StringReader(csv.toString()),
+                    r -> { synchronized (progress) { progress.add(r.getImported() + r.getFailed()); } });
+
+            assertEquals(2475, report.getImported());
+            assertEquals(25, report.getFailed());
+            assertNull(studentDao.getById("P1500"));
+            assertNotNull(studentDao.getById("P2499"));
+            assertEquals(3, progress.size()); // at 1000, at 2000 and once at the end
+            assertEquals(2500, progress.get(2));
+        }
+    }
+
+    @Test
+    void importCsv_neverOverwritesAStudentWhoRegistersDuringTheImport() {
+        InMemoryLogDao logDao = new InMemoryLogDao();
+        try (PasswordHasher hasher = new PasswordHasher(4, 2, 16)) {
+            InMemoryStudentDao studentDao = new InMemoryStudentDao() {
+                @Override
+                public Set<String> saveAllNew(List<Student> students) {
+                    // registers between the import's email check and its write
+                    save(new Student("R1", "Registered", "r1@example.com", "own-hash"));
+                    return super.saveAllNew(students);
+                }
+            };
+            StudentImportService importer = new StudentImportService(studentDao, logDao, hasher, 1, 10);
+            StudentImportService.Report report = importer.importCsv(new StringReader("R1,Imported,imp@example.com,Secret1\nR2,Two,two@example.com,Secret2\n"), null);
+
+            assertEquals(1, report.getImported());
+            assertEquals(1, report.getDuplicates());
+            assertEquals("own-hash", studentDao.getById("R1").getPasswordHash());
+            assertEquals(1, logDao.getLogs().size());
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.atlas.tests;
+
+import com.atlas.exception.AlreadyEnrolledException;
+import com.atlas.model.Course;
+import com.atlas.service.EnrollmentService;
+import com.atlas.service.StudentService;
+import com.atlas.testutil.InMemoryCourseDao;
+import com.atlas.testutil.InMemoryEnrollmentTransactionDao;
+import com.atlas.testutil.InMemoryLogDao;
+import com.atlas.testutil.InMemoryStudentDao;
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * EnrollmentService in transactional mode (EnrollmentTransactionDao), using in-memory DAOs.
+ */
+public class TransactionalEnrollmentUnitTest {
+
+    private InMemoryStudentDao studentDao;
+    private InMemoryCourseDao courseDao;
+    private InMemoryLogDao logDao;
+    private StudentService studentService;
+    private EnrollmentService enrollmentService;
+
+    @BeforeEach
+    void setup() {
+        studentDao = new InMemoryStudentDao();
+        courseDao = new InMemoryCourseDao();
+        logDao = new InMemoryLogDao();
+        studentService = new StudentService(studentDao, logDao);
+        enrollmentService = new EnrollmentService(studentDao, courseDao, logDao,
+                new InMemoryEnrollmentTransactionDao(studentDao, courseDao, logDao));
+    }
+
+    @Test
+    void enroll_full_waitlist_drop_promote() {
+        courseDao.putCourse(new Course("T1", "TxCourse", 1));
+        studentService.register("TS1", "Ann", "ann@example.com", "AnnPwd1");
+        studentService.register("TS2", "Ben", "ben@example.com", "BenPwd2");
+
+        enrollmentService.enroll("TS1", "T1");
+        enrollmentService.enroll("TS2", "T1"); // full -> waitlist
+        assertTrue(studentDao.getById("TS2").getWaitlistedCourseIds().contains("T1"));
+
+        enrollmentService.drop("TS1", "T1");
+        assertFalse(studentDao.getById("TS1").getEnrolledCourseIds().contains("T1"));
+        assertTrue(studentDao.getById("TS2").getEnrolledCourseIds().contains("T1"));
+        assertEquals(1, courseDao.getById("T1").getCurrentEnrolledCount());
+        assertTrue(logDao.getLogs().stream().anyMatch(l -> "DROP".equals(l.getAction())));
+    }
+
+    @Test
+    void enroll_twice_mapsToAlreadyEnrolled() {
+        courseDao.putCourse(new Course("T2", "TxCourse2", 5));
+        studentService.register("TS3", "Cat", "cat@example.com", "CatPwd3");
+
+        enrollmentService.enroll("TS3", "T2");
+        assertThrows(AlreadyEnrolledException.class, () -> enrollmentService.enroll("TS3", "T2"));
+        assertEquals(1, courseDao.getById("T2").getCurrentEnrolledCount());
+    }
+}
@@ -0,0 +1,70 @@
+package com.atlas.tests;
+
+import com.atlas.web.VirtualThreadPool;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.junit.jupiter.api.Test;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Jetty on VirtualThreadPool (WEB_THREADS=virtual): requests run on virtual threads and
+ * blocked handlers do not cap concurrency.
+ */
+public class VirtualThreadPoolUnitTest {
+
+    @Test
+    void blockedHandlers_runConcurrently_onVirtualThreads() throws Exception {
+        int clients = 300; // more than Spark's default 200 pool threads
+        CountDownLatch allArrived = new CountDownLatch(clients);
+
+        Server server = new Server(new VirtualThreadPool("test-web"));
+        ServerConnector connector = new ServerConnector(server);
+        connector.setPort(0);
+        server.addConnector(connector);
+        server.setHandler(new AbstractHandler() {
+            @Override
+            public void handle(String target, Request base, HttpServletRequest req, HttpServletResponse resp) {
+                allArrived.countDown();
+                boolean all;
+                try {
+                    // every handler blocks until all clients are inside a handler at the same time
+                    all = allArrived.await(20, TimeUnit.SECONDS);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    all = false;
+                }
+                resp.setStatus(all && Thread.currentThread().isVirtual() ? 200 : 500);
+                base.setHandled(true);
+            }
+        });
+        server.start();
+        try {
+            HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            URI uri = URI.create("http://localhost:" + connector.getLocalPort() + "/");
+            List<CompletableFuture<HttpResponse<Void>>> calls = new ArrayList<>();
+            for (int i = 0; i < clients; i++) {
+                calls.add(http.sendAsync(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.discarding()));
+            }
+            for (CompletableFuture<HttpResponse<Void>> c : calls) {
+                assertEquals(200, c.get(30, TimeUnit.SECONDS).statusCode());
+            }
+        } finally {
+            server.stop();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.atlas.testutil;
+
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.*;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * DynamoDbClient stub that throws scripted faults.
+ * getItem reads the items added with storeItem; putItem, updateItem, deleteItem, batchWriteItem and
+ * transactWriteItems succeed without doing anything. Every data-plane call first takes the next
+ * scripted fault (failNext), then the standing one (failAlways), and throws it if there is one.
+ * Other operations are not supported.
+ */
+public class FaultyDynamoDbClient implements DynamoDbClient {
+    private final Map<String, Map<String, AttributeValue>> items = new ConcurrentHashMap<>();
+    private final Deque<Supplier<? extends SdkException>> faults = new ArrayDeque<>();
+    private volatile Supplier<? extends SdkException> standingFault;
+    private final AtomicInteger calls = new AtomicInteger();
+
+    public static ProvisionedThroughputExceededException throttle() {
+        return ProvisionedThroughputExceededException.builder().message("throttled").statusCode(400).build();
+    }
+
+    public static DynamoDbException serverError() {
+        return (DynamoDbException) DynamoDbException.builder().message("internal error").statusCode(500).build();
+    }
+
+    public static ConditionalCheckFailedException conditionFailed() {
+        return ConditionalCheckFailedException.builder().message("condition failed").statusCode(400).build();
+    }
+
+    /** the next times calls throw fault */
+    public synchronized void failNext(int times, Supplier<? extends SdkException> fault) {
+        for (int i = 0; i < times; i++) faults.add(fault);
+    }
+
+    /** every call throws fault (after the scripted ones) until heal */
+    public void failAlways(Supplier<? extends SdkException> fault) {
+        standingFault = fault;
+    }
+
+    public synchronized void heal() {
+        faults.clear();
+        standingFault = null;
+    }
+
+    /** data-plane calls received, including the failed ones */
+    public int getCalls() { return calls.get(); }
+
+    private void maybeFail() {
+        calls.incrementAndGet();
+        Supplier<? extends SdkException> fault;
+        synchronized (this) {
+            fault = faults.poll();
+        }
+        if (fault == null) fault = standingFault;
+        if (fault != null) throw fault.get();
+    }
+
+    private static String id(String table, Map<String, AttributeValue> key) {
+        return table + "|" + new TreeMap<>(key);
+    }
+
+    /** stores an item directly, keyed on the given key attributes */
+    public void storeItem(String table, Map<String, AttributeValue> item, String... keyAttributes) {
+        Map<String, AttributeValue> key = new TreeMap<>();
+        for (String k : keyAttributes) key.put(k, item.get(k));
+        items.put(id(table, key), item);
+    }
+
+    @Override
+    public GetItemResponse getItem(GetItemRequest r) {
+        maybeFail();
+        Map<String, AttributeValue> item = items.get(id(r.tableName(), r.key()));
+        return item == null ? GetItemResponse.builder().build() : GetItemResponse.builder().item(item).build();
+    }
+
+    @Override
+    public PutItemResponse putItem(PutItemRequest r) {
+        maybeFail();
+        return PutItemResponse.builder().build();
+    }
+
+    @Override
+    public UpdateItemResponse updateItem(UpdateItemRequest r) {
+        maybeFail();
+        return UpdateItemResponse.builder().build();
+    }
+
+    @Override
+    public DeleteItemResponse deleteItem(DeleteItemRequest r) {
+        maybeFail();
+        return DeleteItemResponse.builder().build();
+    }
+
+    @Override
+    public BatchWriteItemResponse batchWriteItem(BatchWriteItemRequest r) {
+        maybeFail();
+        return BatchWriteItemResponse.builder().unprocessedItems(Map.of()).build();
+    }
+
+    @Override
+    public TransactWriteItemsResponse transactWriteItems(TransactWriteItemsRequest r) {
+        maybeFail();
+        return TransactWriteItemsResponse.builder().build();
+    }
+
+    @Override
+    public String serviceName() { return SERVICE_NAME; }
+
+    @Override
+    public void close() { }
+}
@@ -1,6 +1,7 @@
 package com.atlas.testutil;
 
 import com.atlas.dao.CourseDao;
+import com.atlas.exception.AlreadyEnrolledException;
 import com.atlas.model.Course;
 
 import java.util.*;
@@ -13,6 +14,8 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 public class InMemoryCourseDao implements CourseDao {
     private final Map<String, Course> store = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> rosters = new HashMap<>();
+    private final Map<String, List<String>> waitlists = new HashMap<>();
 
     /**
      * Put a Course instance into the in-memory store.
@@ -28,6 +31,16 @@ public class InMemoryCourseDao implements CourseDao {
         return store.get(courseId);
     }
 
+    @Override
+    public Map<String, Course> getByIds(Collection<String> courseIds) {
+        Map<String, Course> out = new LinkedHashMap<>();
+        for (String id : courseIds) {
+            Course c = store.get(id);
+            if (c != null) out.put(id, c);
+        }
+        return out;
+    }
+
     @Override
     public List<Course> listAll() {
         return new ArrayList<>(store.values());
@@ -37,8 +50,10 @@ public class InMemoryCourseDao implements CourseDao {
     public synchronized boolean enrollStudentAtomic(String courseId, String studentId, int maxSeats) {
         Course c = store.get(courseId);
         if (c == null) return false;
+        Set<String> roster = rosters.computeIfAbsent(courseId, k -> new LinkedHashSet<>());
+        if (roster.contains(studentId)) throw new AlreadyEnrolledException("Already enrolled");
         if (c.getCurrentEnrolledCount() < maxSeats) {
-            c.getEnrolledIds().add(studentId);
+            roster.add(studentId);
             c.setCurrentEnrolledCount(c.getCurrentEnrolledCount() + 1);
             return true;
         }
@@ -46,31 +61,53 @@ public class InMemoryCourseDao implements CourseDao {
     }
 
     @Override
-    public synchronized void addToWaitlist(String courseId, String studentId) {
+    public synchronized boolean dropStudentAtomic(String courseId, String studentId) {
         Course c = store.get(courseId);
-        if (c == null) return;
-        c.getWaitlistIds().add(studentId);
+        Set<String> roster = rosters.get(courseId);
+        if (c == null || roster == null || !roster.remove(studentId)) return false;
+        c.setCurrentEnrolledCount(Math.max(0, c.getCurrentEnrolledCount() - 1));
+        return true;
     }
 
     @Override
-    public synchronized void replaceWaitlist(String courseId, List<String> newWaitlist) {
-        Course c = store.get(courseId);
-        if (c == null) return;
-        c.getWaitlistIds().clear();
-        c.getWaitlistIds().addAll(newWaitlist);
+    public synchronized List<String> roster(String courseId) {
+        return new ArrayList<>(rosters.getOrDefault(courseId, Set.of()));
     }
 
     @Override
-    public synchronized void replaceEnrolled(String courseId, List<String> newEnrolledIds, int newCount) {
-        Course c = store.get(courseId);
-        if (c == null) return;
-        c.getEnrolledIds().clear();
-        c.getEnrolledIds().addAll(newEnrolledIds);
-        c.setCurrentEnrolledCount(newCount);
+    public synchronized List<String> coursesOf(String studentId) {
+        List<String> out = new ArrayList<>();
+        rosters.forEach((courseId, roster) -> { if (roster.contains(studentId)) out.add(courseId); });
+        return out;
+    }
+
+    @Override
+    public synchronized void addToWaitlist(String courseId, String studentId) {
+        if (!store.containsKey(courseId)) return;
+        waitlists.computeIfAbsent(courseId, k -> new ArrayList<>()).add(studentId);
+    }
+
+    @Override
+    public synchronized boolean removeFromWaitlist(String courseId, String studentId) {
+        List<String> wait = waitlists.get(courseId);
+        return wait != null && wait.remove(studentId);
+    }
+
+    @Override
+    public synchronized List<String> waitlistHead(String courseId, int limit) {
+        List<String> wait = waitlists.getOrDefault(courseId, List.of());
+        return new ArrayList<>(wait.subList(0, Math.min(limit, wait.size())));
+    }
+
+    @Override
+    public synchronized int waitlistPosition(String courseId, String studentId) {
+        return waitlists.getOrDefault(courseId, List.of()).indexOf(studentId) + 1;
     }
 
     // test helper
-    public void clear() {
+    public synchronized void clear() {
         store.clear();
+        rosters.clear();
+        waitlists.clear();
     }
 }
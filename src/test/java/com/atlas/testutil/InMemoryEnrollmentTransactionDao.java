@@ -0,0 +1,61 @@
+package com.atlas.testutil;
+
+import com.atlas.dao.EnrollmentTransactionDao;
+import com.atlas.exception.AlreadyEnrolledException;
+import com.atlas.exception.CourseNotFoundException;
+import com.atlas.exception.StudentNotFoundException;
+import com.atlas.model.Course;
+import com.atlas.model.Student;
+
+/**
+ * In-memory EnrollmentTransactionDao for unit tests.
+ * Applies the course, student and log changes under one lock so they are all-or-nothing,
+ * and checks conditions in the same order as the DynamoDB implementation.
+ */
+public class InMemoryEnrollmentTransactionDao implements EnrollmentTransactionDao {
+    private final InMemoryStudentDao studentDao;
+    private final InMemoryCourseDao courseDao;
+    private final InMemoryLogDao logDao;
+
+    public InMemoryEnrollmentTransactionDao(InMemoryStudentDao studentDao, InMemoryCourseDao courseDao, InMemoryLogDao logDao) {
+        this.studentDao = studentDao;
+        this.courseDao = courseDao;
+        this.logDao = logDao;
+    }
+
+    @Override
+    public boolean enroll(String studentId, String courseId, int maxSeats, String logId) {
+        synchronized (courseDao) {
+            Student s = studentDao.getById(studentId);
+            if (s == null) throw new StudentNotFoundException(studentId);
+            if (s.getEnrolledCourseIds().contains(courseId)) throw new AlreadyEnrolledException("Already enrolled");
+            if (s.getWaitlistedCourseIds().contains(courseId)) throw new AlreadyEnrolledException("Already waitlisted");
+            if (s.getEnrolledCourseIds().size() >= 5) throw new IllegalStateException("Max 5 active enrollments reached");
+            Course c = courseDao.getById(courseId);
+            if (c == null) throw new CourseNotFoundException(courseId);
+            if (courseDao.roster(courseId).contains(studentId)) throw new AlreadyEnrolledException("Already enrolled");
+
+            if (!courseDao.enrollStudentAtomic(courseId, studentId, maxSeats)) return false;
+            s.getEnrolledCourseIds().add(courseId);
+            studentDao.save(s);
+            logDao.append(logId, studentId, "ENROLL", courseId);
+            return true;
+        }
+    }
+
+    @Override
+    public boolean drop(String studentId, String courseId, String logId) {
+        synchronized (courseDao) {
+            Student s = studentDao.getById(studentId);
+            if (s == null) throw new StudentNotFoundException(studentId);
+            Course c = courseDao.getById(courseId);
+            if (c == null) throw new CourseNotFoundException(courseId);
+            if (!s.getEnrolledCourseIds().remove(courseId)) return false;
+
+            courseDao.dropStudentAtomic(courseId, studentId);
+            studentDao.save(s);
+            logDao.append(logId, studentId, "DROP", courseId);
+            return true;
+        }
+    }
+}
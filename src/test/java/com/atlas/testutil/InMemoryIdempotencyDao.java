@@ -0,0 +1,34 @@
+package com.atlas.testutil;
+
+import com.atlas.dao.IdempotencyDao;
+import com.atlas.model.IdempotencyRecord;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory implementation of IdempotencyDao for unit tests (records never expire).
+ */
+public class InMemoryIdempotencyDao implements IdempotencyDao {
+    private final Map<String, IdempotencyRecord> store = new ConcurrentHashMap<>();
+
+    @Override
+    public IdempotencyRecord claim(String key, String fingerprint) {
+        return store.putIfAbsent(key, IdempotencyRecord.pending(fingerprint));
+    }
+
+    @Override
+    public void complete(String key, IdempotencyRecord outcome) {
+        store.put(key, outcome);
+    }
+
+    @Override
+    public void release(String key) {
+        store.computeIfPresent(key, (k, r) -> r.getStatus() == IdempotencyRecord.Status.PENDING ? null : r);
+    }
+
+    @Override public Duration getTtl() { return Duration.ofHours(24); }
+
+    public int size() { return store.size(); }
+}
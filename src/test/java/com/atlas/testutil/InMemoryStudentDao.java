@@ -1,6 +1,7 @@
 package com.atlas.testutil;
 
 import com.atlas.dao.StudentDao;
+import com.atlas.exception.VersionConflictException;
 import com.atlas.model.Student;
 
 import java.util.*;
@@ -16,16 +17,40 @@ public class InMemoryStudentDao implements StudentDao {
 
     @Override
     public void save(Student s) {
-        // store a shallow copy to mimic persistence semantics
+        // store a copy to mimic persistence semantics; the version check and bump happen atomically per id
+        store.compute(s.getId(), (id, stored) -> {
+            long current = stored == null ? 0 : stored.getVersion();
+            if (current != s.getVersion()) throw new VersionConflictException("Student " + id + " was changed concurrently");
+            Student copy = copy(s);
+            copy.setVersion(current + 1);
+            return copy;
+        });
+        s.setVersion(s.getVersion() + 1);
+    }
+
+    @Override
+    public Student getById(String id) {
+        // callers get their own copy, like a read from the table
+        Student s = store.get(id);
+        return s == null ? null : copy(s);
+    }
+
+    private static Student copy(Student s) {
         Student copy = new Student(s.getId(), s.getName(), s.getEmail(), s.getPasswordHash());
         copy.getEnrolledCourseIds().addAll(s.getEnrolledCourseIds());
         copy.getWaitlistedCourseIds().addAll(s.getWaitlistedCourseIds());
-        store.put(copy.getId(), copy);
+        copy.setVersion(s.getVersion());
+        return copy;
     }
 
     @Override
-    public Student getById(String id) {
-        return store.get(id);
+    public Map<String, Student> getByIds(Collection<String> ids) {
+        Map<String, Student> out = new LinkedHashMap<>();
+        for (String id : ids) {
+            Student s = getById(id);
+            if (s != null) out.put(id, s);
+        }
+        return out;
     }
 
     @Override
@@ -34,6 +59,7 @@ public class InMemoryStudentDao implements StudentDao {
         String normalized = email.trim().toLowerCase();
         return store.values().stream()
                 .filter(s -> s.getEmail() != null && s.getEmail().trim().toLowerCase().equals(normalized))
+                .map(InMemoryStudentDao::copy)
                 .findFirst()
                 .orElse(null);
     }
@@ -43,6 +69,32 @@ public class InMemoryStudentDao implements StudentDao {
         return store.values().stream().map(s -> getById(s.getId())).collect(Collectors.toList());
     }
 
+    // single-id appends are atomic, like the list_append updates of DynamoStudentDao
+
+    @Override
+    public void addEnrolledCourse(String id, String courseId) {
+        store.computeIfPresent(id, (k, stored) -> append(stored, stored.getEnrolledCourseIds(), courseId));
+    }
+
+    @Override
+    public boolean addEnrolledCourse(String id, String courseId, int maxCourses) {
+        Student s = store.computeIfPresent(id, (k, stored) -> stored.getEnrolledCourseIds().size() >= maxCourses
+                ? stored : append(stored, stored.getEnrolledCourseIds(), courseId));
+        return s != null && s.getEnrolledCourseIds().contains(courseId);
+    }
+
+    @Override
+    public void addWaitlistedCourse(String id, String courseId) {
+        store.computeIfPresent(id, (k, stored) -> append(stored, stored.getWaitlistedCourseIds(), courseId));
+    }
+
+    private static Student append(Student stored, List<String> list, String courseId) {
+        if (list.contains(courseId)) return stored;
+        list.add(courseId);
+        stored.setVersion(stored.getVersion() + 1);
+        return stored;
+    }
+
     // test helper
     public void clear() {
         store.clear();